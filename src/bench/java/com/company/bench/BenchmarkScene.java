@@ -0,0 +1,257 @@
+package com.company.bench;
+
+import com.company.engine.scene.items.GameItem;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BenchmarkScene {
+
+    /**
+     * Generated inputs shared by the benchmarks.
+     * Everything is generated from a seed so a run before a change and a run after it measure the same scene.
+     */
+
+    public static final long DEFAULT_SEED = 0x5EED;
+    public static final float DEFAULT_EXTENT = 200.0f;
+
+    private static final float FOV = (float) Math.toRadians(60.0f);
+    private static final float Z_NEAR = 0.01f;
+    private static final float Z_FAR = 1000.0f;
+    private static final float[] CUBE_FACE_NORMALS = new float[] {
+            1, 0, 0,
+            -1, 0, 0,
+            0, 1, 0,
+            0, -1, 0,
+            0, 0, 1,
+            0, 0, -1
+    };
+
+    /**
+     * GameItems without Meshes spread through a cube around the origin,
+     * about a tenth of them are inside the frustum of the default camera.
+     */
+    public static List<GameItem> createGameItems(int count, float extent, long seed) {
+        Random random = new Random(seed);
+        List<GameItem> gameItemList = new ArrayList<>(count);
+        Quaternionf rotation = new Quaternionf();
+
+        for (int i = 0; i < count; i++) {
+            GameItem gameItem = new GameItem();
+
+            gameItem.setPosition(
+                    (random.nextFloat() * 2 - 1) * extent,
+                    (random.nextFloat() * 2 - 1) * extent,
+                    (random.nextFloat() * 2 - 1) * extent
+            );
+            gameItem.setRotation(rotation.identity().rotateXYZ(
+                    random.nextFloat() * 6.28f,
+                    random.nextFloat() * 6.28f,
+                    random.nextFloat() * 6.28f
+            ));
+            gameItem.setScale(0.5f + random.nextFloat());
+
+            gameItemList.add(gameItem);
+        }
+
+        return gameItemList;
+    }
+
+    public static List<GameItem> createGameItems(int count) {
+        return createGameItems(count, DEFAULT_EXTENT, DEFAULT_SEED);
+    }
+
+    public static Matrix4f createProjectionMatrix() {
+        return new Matrix4f().setPerspective(FOV, 16.0f / 9.0f, Z_NEAR, Z_FAR);
+    }
+
+    /**
+     * Camera at the origin looking down the negative z axis
+     */
+    public static Matrix4f createViewMatrix() {
+        return new Matrix4f().setLookAt(
+                new Vector3f(0, 0, 0),
+                new Vector3f(0, 0, -1),
+                new Vector3f(0, 1, 0)
+        );
+    }
+
+    /**
+     * An OBJ file of a gridSize by gridSize grid of quads, with texture coordinates and normals,
+     * faces are written as quads so the parser has to triangulate them.
+     */
+    public static String createObjText(int gridSize) {
+        StringBuilder builder = new StringBuilder();
+        Random random = new Random(DEFAULT_SEED);
+        int rowLength = gridSize + 1;
+
+        builder.append("# generated ").append(gridSize).append('x').append(gridSize).append(" grid\n");
+        builder.append("o grid\n");
+
+        for (int z = 0; z < rowLength; z++) {
+            for (int x = 0; x < rowLength; x++) {
+                builder.append("v ")
+                        .append((float) x / gridSize - 0.5f).append(' ')
+                        .append(random.nextFloat() * 0.05f).append(' ')
+                        .append((float) z / gridSize - 0.5f).append('\n');
+                builder.append("vt ")
+                        .append((float) x / gridSize).append(' ')
+                        .append((float) z / gridSize).append('\n');
+            }
+        }
+
+        builder.append("vn 0.0 1.0 0.0\n");
+
+        for (int z = 0; z < gridSize; z++) {
+            for (int x = 0; x < gridSize; x++) {
+                //OBJ indices start at 1
+                int topLeft = z * rowLength + x + 1;
+                int bottomLeft = topLeft + rowLength;
+
+                builder.append("f ");
+                appendFaceVertex(builder, topLeft).append(' ');
+                appendFaceVertex(builder, bottomLeft).append(' ');
+                appendFaceVertex(builder, bottomLeft + 1).append(' ');
+                appendFaceVertex(builder, topLeft + 1).append('\n');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static StringBuilder appendFaceVertex(StringBuilder builder, int index) {
+        return builder.append(index).append('/').append(index).append("/1");
+    }
+
+    /**
+     * @return the OBJ file in a direct buffer, as FileUtils.mapResource would give it
+     */
+    public static ByteBuffer createObjBuffer(int gridSize) {
+        byte[] bytes = createObjText(gridSize).getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+
+        buffer.put(bytes).flip();
+
+        return buffer;
+    }
+
+    /**
+     * @return a temporary OBJ file, deleted when the JVM exits
+     */
+    public static Path writeObjFile(int gridSize) throws IOException {
+        Path path = Files.createTempFile("grid" + gridSize + "_", ".obj");
+
+        Files.write(path, createObjText(gridSize).getBytes(StandardCharsets.US_ASCII));
+        path.toFile().deleteOnExit();
+
+        return path;
+    }
+
+    /**
+     * A unit quad in the xy plane as position, texture coordinate, normal and index arrays
+     */
+    public static float[] createQuadPositions() {
+        return new float[] {
+                -0.5f, 0.5f, 0,
+                -0.5f, -0.5f, 0,
+                0.5f, -0.5f, 0,
+                0.5f, 0.5f, 0
+        };
+    }
+
+    public static float[] createQuadTextCoords() {
+        return new float[] {
+                0, 0,
+                0, 1,
+                1, 1,
+                1, 0
+        };
+    }
+
+    public static float[] createQuadNormals() {
+        return new float[] {
+                0, 0, 1,
+                0, 0, 1,
+                0, 0, 1,
+                0, 0, 1
+        };
+    }
+
+    public static int[] createQuadIndices() {
+        return new int[] {
+                0, 1, 3,
+                3, 1, 2
+        };
+    }
+
+    /**
+     * A unit cube with 4 vertices per face so each face has its own normal
+     */
+    public static float[] createCubePositions() {
+        float[] positions = new float[CUBE_FACE_NORMALS.length / 3 * 4 * 3];
+
+        for (int face = 0; face < CUBE_FACE_NORMALS.length / 3; face++) {
+            Vector3f normal = new Vector3f(
+                    CUBE_FACE_NORMALS[face * 3],
+                    CUBE_FACE_NORMALS[face * 3 + 1],
+                    CUBE_FACE_NORMALS[face * 3 + 2]
+            );
+            //two axes across the face, their cross product is the normal so the corners wind anticlockwise
+            Vector3f tangent = new Vector3f(normal.y, normal.z, normal.x);
+            Vector3f bitangent = new Vector3f(normal).cross(tangent);
+
+            for (int corner = 0; corner < 4; corner++) {
+                float u = corner == 0 || corner == 1 ? -0.5f : 0.5f;
+                float v = corner == 0 || corner == 3 ? 0.5f : -0.5f;
+                int offset = (face * 4 + corner) * 3;
+
+                positions[offset] = normal.x * 0.5f + tangent.x * u + bitangent.x * v;
+                positions[offset + 1] = normal.y * 0.5f + tangent.y * u + bitangent.y * v;
+                positions[offset + 2] = normal.z * 0.5f + tangent.z * u + bitangent.z * v;
+            }
+        }
+
+        return positions;
+    }
+
+    public static float[] createCubeTextCoords() {
+        float[] quad = createQuadTextCoords();
+        float[] textCoords = new float[quad.length * 6];
+
+        for (int face = 0; face < 6; face++) {
+            System.arraycopy(quad, 0, textCoords, face * quad.length, quad.length);
+        }
+
+        return textCoords;
+    }
+
+    public static float[] createCubeNormals() {
+        float[] normals = new float[CUBE_FACE_NORMALS.length * 4];
+
+        for (int i = 0; i < normals.length / 3; i++) {
+            System.arraycopy(CUBE_FACE_NORMALS, i / 4 * 3, normals, i * 3, 3);
+        }
+
+        return normals;
+    }
+
+    public static int[] createCubeIndices() {
+        int[] quad = createQuadIndices();
+        int[] indices = new int[quad.length * 6];
+
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = quad[i % quad.length] + i / quad.length * 4;
+        }
+
+        return indices;
+    }
+}
@@ -0,0 +1,55 @@
+package com.company.bench;
+
+import com.company.engine.graph.rendering.FrustumFilter;
+import com.company.engine.scene.items.GameItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrustumFilterBenchmark {
+
+    /**
+     * Culling a list of items against the camera frustum, then collecting the visible ones.
+     */
+
+    private static final float MESH_BOUNDING_RADIUS = 1.0f;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int mItemCount;
+
+    private List<GameItem> mGameItemList;
+    private List<GameItem> mFilteredGameItemList;
+    private FrustumFilter mFrustumFilter;
+
+    @Setup
+    public void setUp() {
+        mGameItemList = BenchmarkScene.createGameItems(mItemCount);
+        mFilteredGameItemList = new ArrayList<>(mItemCount);
+        mFrustumFilter = new FrustumFilter();
+        mFrustumFilter.updateFrustum(
+                BenchmarkScene.createProjectionMatrix(),
+                BenchmarkScene.createViewMatrix()
+        );
+    }
+
+    @Benchmark
+    public void filter() {
+        mFrustumFilter.filter(mGameItemList, MESH_BOUNDING_RADIUS);
+    }
+
+    @Benchmark
+    public int filterAndPopulate() {
+        mFrustumFilter.filter(mGameItemList, MESH_BOUNDING_RADIUS);
+        mFrustumFilter.populateFilteredList(mGameItemList, mFilteredGameItemList);
+
+        return mFilteredGameItemList.size();
+    }
+}
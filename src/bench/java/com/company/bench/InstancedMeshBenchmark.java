@@ -0,0 +1,71 @@
+package com.company.bench;
+
+import com.company.engine.graph.Transformation;
+import com.company.engine.graph.material.Material;
+import com.company.engine.graph.mesh.InstancedMesh;
+import com.company.engine.scene.items.GameItem;
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstancedMeshBenchmark {
+
+    /**
+     * Filling the instance buffer of an InstancedMesh, the CPU side of InstancedMesh.renderInstancedList.
+     * Nothing is uploaded or drawn, the OpenGL context is only needed to create the Mesh.
+     */
+
+    @Param({"100", "1000", "10000"})
+    public int mItemCount;
+
+    @Param({"false", "true"})
+    public boolean mBillboard;
+
+    private OffscreenGlContext mGlContext;
+    private InstancedMesh mInstancedMesh;
+    private List<GameItem> mGameItemList;
+    private Transformation mTransformation;
+    private Matrix4f mViewMatrix;
+
+    @Setup
+    public void setUp() {
+        mGlContext = new OffscreenGlContext();
+
+        mInstancedMesh = new InstancedMesh(
+                BenchmarkScene.createQuadPositions(),
+                BenchmarkScene.createQuadTextCoords(),
+                BenchmarkScene.createQuadNormals(),
+                BenchmarkScene.createQuadIndices(),
+                mItemCount
+        );
+        mInstancedMesh.setMaterial(new Material());
+
+        mGameItemList = BenchmarkScene.createGameItems(mItemCount);
+        mTransformation = new Transformation();
+        mViewMatrix = BenchmarkScene.createViewMatrix();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mInstancedMesh.cleanUp();
+        mGlContext.cleanUp();
+    }
+
+    @Benchmark
+    public void fillInstanceData() {
+        mInstancedMesh.fillInstanceData(
+                mGameItemList,
+                mBillboard,
+                mTransformation,
+                mViewMatrix
+        );
+    }
+}
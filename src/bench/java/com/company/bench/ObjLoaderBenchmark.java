@@ -0,0 +1,54 @@
+package com.company.bench;
+
+import com.company.engine.loaders.MeshCache;
+import com.company.engine.loaders.ModelData;
+import com.company.engine.loaders.ObjLoader;
+import com.company.engine.loaders.ObjParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjLoaderBenchmark {
+
+    /**
+     * Reading generated OBJ grids. parse is the text parsing alone,
+     * loadModelData adds welding the vertices and optimising the mesh, with the MeshCache off.
+     */
+
+    @Param({"16", "64", "256"})
+    public int mGridSize;
+
+    private ByteBuffer mObjBuffer;
+    private String mObjFilePath;
+
+    @Setup
+    public void setUp() throws Exception {
+        MeshCache.getInstance().setEnabled(false);
+
+        mObjBuffer = BenchmarkScene.createObjBuffer(mGridSize);
+        mObjFilePath = BenchmarkScene.writeObjFile(mGridSize).toString();
+    }
+
+    @Benchmark
+    public ObjParser.ObjData parse() {
+        return ObjParser.parse(mObjBuffer.duplicate());
+    }
+
+    @Benchmark
+    public int loadModelData() throws Exception {
+        ModelData modelData = ObjLoader.loadModelData(mObjFilePath);
+
+        try {
+            return modelData.getMeshDataArray()[0].getIndexBuffer().remaining();
+        } finally {
+            modelData.cleanUp();
+        }
+    }
+}
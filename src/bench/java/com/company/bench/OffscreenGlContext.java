@@ -0,0 +1,59 @@
+package com.company.bench;
+
+import com.company.engine.IUsesResources;
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.opengl.GL;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.GL_TRUE;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+public class OffscreenGlContext implements IUsesResources {
+
+    /**
+     * An OpenGL context on a hidden window, for benchmarks of code that needs OpenGL objects to exist.
+     * The context is made current on the thread that creates it, so it must be created in a
+     * Scope.Thread @Setup method which JMH runs on the benchmark thread.
+     * Uses the same context version and profile as Window.
+     */
+
+    private final long mWindowHandle;
+
+    public OffscreenGlContext() {
+        GLFWErrorCallback.createPrint(System.err).set();
+
+        if (!glfwInit()) {
+            throw new IllegalStateException("Unable to initialise GLFW");
+        }
+
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 2);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE);
+
+        mWindowHandle = glfwCreateWindow(1, 1, "benchmark", NULL, NULL);
+
+        if (mWindowHandle == NULL) {
+            throw new RuntimeException("Failed to create the GLFW window, these benchmarks need a GPU or a software OpenGL driver");
+        }
+
+        glfwMakeContextCurrent(mWindowHandle);
+        GL.createCapabilities();
+    }
+
+    @Override
+    public void cleanUp() {
+        GL.setCapabilities(null);
+        glfwMakeContextCurrent(NULL);
+        glfwDestroyWindow(mWindowHandle);
+        glfwTerminate();
+
+        GLFWErrorCallback errorCallback = glfwSetErrorCallback(null);
+
+        if (errorCallback != null) {
+            errorCallback.free();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.company.bench;
+
+import com.company.engine.graph.material.Material;
+import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.graph.particles.Particle;
+import com.company.game.TestParticleEmitter;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticleEmitterBenchmark {
+
+    /**
+     * One update of an emitter holding the given number of particles.
+     * The life span is set so that, as in a game, one particle dies and one is created every update.
+     */
+
+    private static final long UPDATE_MILLIS = 16;
+
+    @Param({"100", "1000", "10000"})
+    public int mParticleCount;
+
+    private OffscreenGlContext mGlContext;
+    private Mesh mParticleMesh;
+    private TestParticleEmitter mParticleEmitter;
+
+    @Setup
+    public void setUp() {
+        mGlContext = new OffscreenGlContext();
+
+        mParticleMesh = new Mesh(
+                BenchmarkScene.createQuadPositions(),
+                BenchmarkScene.createQuadTextCoords(),
+                BenchmarkScene.createQuadNormals(),
+                BenchmarkScene.createQuadIndices()
+        );
+        mParticleMesh.setMaterial(new Material());
+
+        Particle baseParticle = new Particle(
+                mParticleMesh,
+                new Vector3f(0, 3, 0),
+                UPDATE_MILLIS * mParticleCount,
+                false
+        );
+
+        mParticleEmitter = new TestParticleEmitter(baseParticle, mParticleCount, 0);
+        mParticleEmitter.setPositionRandomRange(1.0f);
+        mParticleEmitter.setSpeedRandomRange(0.5f);
+        mParticleEmitter.setScaleRandomRange(0.2f);
+
+        //run until the first particles have died and the emitter is full
+        for (int i = 0; i < mParticleCount * 2; i++) {
+            mParticleEmitter.update(UPDATE_MILLIS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mParticleEmitter.cleanUp();
+        mGlContext.cleanUp();
+    }
+
+    @Benchmark
+    public int update() {
+        mParticleEmitter.update(UPDATE_MILLIS);
+
+        return mParticleEmitter.getParticleList().size();
+    }
+}
@@ -0,0 +1,335 @@
+package com.company.bench;
+
+import com.company.engine.GameEngine;
+import com.company.engine.graph.rendering.RenderStats;
+import com.company.engine.window.Window;
+import com.company.engine.window.WindowMode;
+import com.company.engine.window.WindowOptions;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
+import static org.lwjgl.glfw.GLFW.glfwDestroyWindow;
+import static org.lwjgl.glfw.GLFW.glfwTerminate;
+
+public class SceneStressBenchmark {
+
+    /**
+     * Runs a generated StressScene in the GameEngine loop for a fixed number of frames and reports
+     * frame time percentiles, allocations, GC activity and draw counts as JSON.
+     * Each measured frame is one whole iteration of the loop, see GameEngine.runFrame,
+     * with one update per frame and no frame rate limit.
+     *
+     * java -cp target/benchmarks.jar com.company.bench.SceneStressBenchmark --frames 2000 --output stress.json
+     *
+     * Every option of StressSceneOptions can be given as --name value, e.g. --staticItemCount 5000.
+     * --headless renders with the OSMesa software renderer so it runs on machines without a GPU,
+     * on Linux without a display run it under xvfb-run.
+     *
+     * The run exits with status 1 if any frame after the warm up allocates more than
+     * --maxAllocatedBytesPerFrame bytes, 0 by default so the steady state loop must not allocate at all.
+     * Recording the engine's JFR frame events allocates, so don't check allocations with them enabled.
+     */
+
+    private final StressSceneOptions mOptions;
+    private final long[] mFrameNanos;
+    private final long[] mFrameAllocatedBytes;
+    private final com.sun.management.ThreadMXBean mThreadMXBean;
+
+    private long mDrawCallTotal;
+    private int mDrawCallMax;
+    private long mTriangleTotal;
+    private long mInstanceTotal;
+    private long mCulledItemTotal;
+    private long mGcCount;
+    private long mGcMillis;
+
+    public SceneStressBenchmark(StressSceneOptions options) {
+        mOptions = options;
+        mFrameNanos = new long[options.frames];
+        mFrameAllocatedBytes = new long[options.frames];
+        mThreadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    public static void main(String[] args) {
+        try {
+            SceneStressBenchmark benchmark = new SceneStressBenchmark(parseOptions(args));
+            benchmark.run();
+            benchmark.report();
+
+            if (!benchmark.isWithinAllocationLimit()) {
+                System.err.println(
+                        "SceneStressBenchmark: a frame allocated " + benchmark.getMaxAllocatedBytesPerFrame() +
+                                " bytes, the limit is " + benchmark.mOptions.maxAllocatedBytesPerFrame
+                );
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    public void run() throws Exception {
+        WindowOptions windowOptions = new WindowOptions();
+        windowOptions.frustumCulling = true;
+        windowOptions.enableCullFaces = true;
+        windowOptions.vSync = false;
+        windowOptions.headless = mOptions.headless;
+        windowOptions.fixedTimestep = true;
+        windowOptions.unlimitedFrameRate = true;
+
+        StressGameLogic gameLogic = new StressGameLogic(mOptions);
+        GameEngine gameEngine = new GameEngine(
+                "Scene stress benchmark",
+                "",
+                mOptions.width,
+                mOptions.height,
+                WindowMode.WINDOWED,
+                windowOptions,
+                gameLogic
+        );
+        Window window = gameEngine.getWindow();
+
+        try {
+            gameEngine.init();
+
+            long threadId = Thread.currentThread().getId();
+            int frameCount = mOptions.warmupFrames + mOptions.frames;
+
+            for (int frame = 0; frame < frameCount; frame++) {
+                int sample = frame - mOptions.warmupFrames;
+
+                if (sample == 0) {
+                    readGcTotals(-1);
+                }
+
+                long allocatedBytes = mThreadMXBean.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+
+                gameEngine.runFrame();
+
+                long end = System.nanoTime();
+
+                if (sample >= 0) {
+                    mFrameNanos[sample] = end - start;
+                    mFrameAllocatedBytes[sample] = mThreadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+                    addRenderStats(gameLogic.getRenderer().getRenderStats());
+                }
+            }
+
+            readGcTotals(1);
+        } finally {
+            //prints any leaks as well
+            gameEngine.cleanUp();
+
+            if (window.getWindowHandle() != 0) {
+                glfwFreeCallbacks(window.getWindowHandle());
+                glfwDestroyWindow(window.getWindowHandle());
+            }
+
+            glfwTerminate();
+        }
+    }
+
+    private void addRenderStats(RenderStats renderStats) {
+        mDrawCallTotal += renderStats.getDrawCallCount();
+        mDrawCallMax = Math.max(mDrawCallMax, renderStats.getDrawCallCount());
+        mTriangleTotal += renderStats.getTriangleCount();
+        mInstanceTotal += renderStats.getInstanceCount();
+        mCulledItemTotal += renderStats.getCulledItemCount();
+    }
+
+    /**
+     * @param sign -1 at the start of the measured frames and 1 at the end, leaving the difference
+     */
+    private void readGcTotals(int sign) {
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            mGcCount += sign * Math.max(0, gcBean.getCollectionCount());
+            mGcMillis += sign * Math.max(0, gcBean.getCollectionTime());
+        }
+    }
+
+    /**
+     * @return the most bytes allocated by the game loop in any measured frame
+     */
+    public long getMaxAllocatedBytesPerFrame() {
+        return max(mFrameAllocatedBytes);
+    }
+
+    public boolean isWithinAllocationLimit() {
+        return mOptions.maxAllocatedBytesPerFrame < 0 ||
+                getMaxAllocatedBytesPerFrame() <= mOptions.maxAllocatedBytesPerFrame;
+    }
+
+    public void report() throws IOException {
+        String json = toJson();
+
+        if (mOptions.outputPath != null) {
+            Files.write(Paths.get(mOptions.outputPath), json.getBytes(StandardCharsets.UTF_8));
+            System.out.println("SceneStressBenchmark: report written to " + mOptions.outputPath);
+        } else {
+            System.out.println(json);
+        }
+    }
+
+    public String toJson() {
+        long[] sortedFrameNanos = mFrameNanos.clone();
+        long allocatedBytesTotal = sum(mFrameAllocatedBytes);
+        int frames = Math.max(1, mOptions.frames);
+
+        Arrays.sort(sortedFrameNanos);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"scene\": {\n");
+        appendField(json, 4, "seed", mOptions.seed, true);
+        appendField(json, 4, "staticItems", mOptions.staticItemCount, true);
+        appendField(json, 4, "staticMeshes", mOptions.staticMeshCount, true);
+        appendField(json, 4, "instancedItems", mOptions.instancedItemCount, true);
+        appendField(json, 4, "instancedMeshes", mOptions.instancedMeshCount, true);
+        appendField(json, 4, "emitters", mOptions.emitterCount, true);
+        appendField(json, 4, "particlesPerEmitter", mOptions.particlesPerEmitter, true);
+        appendField(json, 4, "lights", mOptions.lightCount, true);
+        appendField(json, 4, "hudTexts", mOptions.hudTextCount, true);
+        appendField(json, 4, "hudSprites", mOptions.hudSpriteCount, false);
+        json.append("  },\n");
+        json.append("  \"run\": {\n");
+        appendField(json, 4, "warmupFrames", mOptions.warmupFrames, true);
+        appendField(json, 4, "frames", mOptions.frames, true);
+        appendField(json, 4, "width", mOptions.width, true);
+        appendField(json, 4, "height", mOptions.height, true);
+        appendField(json, 4, "headless", mOptions.headless, true);
+        appendField(json, 4, "finishFrames", mOptions.finishFrames, false);
+        json.append("  },\n");
+        json.append("  \"frameTimeMillis\": {\n");
+        appendField(json, 4, "mean", nanosToMillis(sum(mFrameNanos) / frames), true);
+        appendField(json, 4, "p50", nanosToMillis(percentile(sortedFrameNanos, 50)), true);
+        appendField(json, 4, "p95", nanosToMillis(percentile(sortedFrameNanos, 95)), true);
+        appendField(json, 4, "p99", nanosToMillis(percentile(sortedFrameNanos, 99)), true);
+        appendField(json, 4, "max", nanosToMillis(percentile(sortedFrameNanos, 100)), false);
+        json.append("  },\n");
+        json.append("  \"allocation\": {\n");
+        appendField(json, 4, "bytesTotal", allocatedBytesTotal, true);
+        appendField(json, 4, "bytesPerFrame", allocatedBytesTotal / frames, true);
+        appendField(json, 4, "bytesPerFrameMax", getMaxAllocatedBytesPerFrame(), true);
+        appendField(json, 4, "maxAllocatedBytesPerFrame", mOptions.maxAllocatedBytesPerFrame, true);
+        appendField(json, 4, "gcCount", mGcCount, true);
+        appendField(json, 4, "gcMillis", mGcMillis, false);
+        json.append("  },\n");
+        json.append("  \"draws\": {\n");
+        appendField(json, 4, "drawCallsPerFrame", mDrawCallTotal / frames, true);
+        appendField(json, 4, "drawCallsMax", mDrawCallMax, true);
+        appendField(json, 4, "trianglesPerFrame", mTriangleTotal / frames, true);
+        appendField(json, 4, "instancesPerFrame", mInstanceTotal / frames, true);
+        appendField(json, 4, "culledItemsPerFrame", mCulledItemTotal / frames, false);
+        json.append("  }\n");
+        json.append("}\n");
+
+        return json.toString();
+    }
+
+    /**
+     * Nearest rank percentile
+     */
+    private static long percentile(long[] sortedValues, int percent) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+
+        int rank = (int) Math.ceil(percent / 100.0 * sortedValues.length);
+
+        return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, rank - 1))];
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+
+        for (long value : values) {
+            total += value;
+        }
+
+        return total;
+    }
+
+    private static long max(long[] values) {
+        long max = 0;
+
+        for (long value : values) {
+            max = Math.max(max, value);
+        }
+
+        return max;
+    }
+
+    private static String nanosToMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static void appendField(StringBuilder json, int indent, String name, Object value, boolean more) {
+        for (int i = 0; i < indent; i++) {
+            json.append(' ');
+        }
+
+        json.append('"').append(name).append("\": ").append(value);
+
+        if (more) {
+            json.append(',');
+        }
+
+        json.append('\n');
+    }
+
+    public static StressSceneOptions parseOptions(String[] args) throws Exception {
+        StressSceneOptions options = new StressSceneOptions();
+
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+
+            switch (name) {
+                case "--headless":
+                    options.headless = true;
+                    continue;
+                case "--finishFrames":
+                    options.finishFrames = true;
+                    continue;
+            }
+
+            if (!name.startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value, found " + name);
+            }
+
+            String value = args[++i];
+
+            switch (name.substring(2)) {
+                case "seed": options.seed = Long.parseLong(value); break;
+                case "staticItemCount": options.staticItemCount = Integer.parseInt(value); break;
+                case "staticMeshCount": options.staticMeshCount = Integer.parseInt(value); break;
+                case "instancedItemCount": options.instancedItemCount = Integer.parseInt(value); break;
+                case "instancedMeshCount": options.instancedMeshCount = Integer.parseInt(value); break;
+                case "emitterCount": options.emitterCount = Integer.parseInt(value); break;
+                case "particlesPerEmitter": options.particlesPerEmitter = Integer.parseInt(value); break;
+                case "lightCount": options.lightCount = Integer.parseInt(value); break;
+                case "hudTextCount": options.hudTextCount = Integer.parseInt(value); break;
+                case "hudSpriteCount": options.hudSpriteCount = Integer.parseInt(value); break;
+                case "warmupFrames": options.warmupFrames = Integer.parseInt(value); break;
+                case "frames": options.frames = Integer.parseInt(value); break;
+                case "width": options.width = Integer.parseInt(value); break;
+                case "height": options.height = Integer.parseInt(value); break;
+                case "output": options.outputPath = value; break;
+                case "maxAllocatedBytesPerFrame": options.maxAllocatedBytesPerFrame = Long.parseLong(value); break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+
+        return options;
+    }
+}
@@ -0,0 +1,68 @@
+package com.company.bench;
+
+import com.company.engine.loaders.MeshCache;
+import com.company.engine.loaders.ModelData;
+import com.company.engine.loaders.assimp.StaticMeshesLoader;
+import org.lwjgl.assimp.AIScene;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.assimp.Assimp.aiImportFile;
+import static org.lwjgl.assimp.Assimp.aiReleaseImport;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaticMeshesLoaderBenchmark {
+
+    /**
+     * Loading generated OBJ grids through Assimp with the MeshCache off.
+     * importOnly is Assimp on its own, the difference between it and loadModelData is the time
+     * StaticMeshesLoader spends converting Assimp's lists into MeshData.
+     */
+
+    @Param({"16", "64", "256"})
+    public int mGridSize;
+
+    private String mObjFilePath;
+
+    @Setup
+    public void setUp() throws Exception {
+        MeshCache.getInstance().setEnabled(false);
+
+        mObjFilePath = BenchmarkScene.writeObjFile(mGridSize).toString();
+    }
+
+    @Benchmark
+    public int importOnly() throws Exception {
+        AIScene aiScene = aiImportFile(mObjFilePath, StaticMeshesLoader.DEFAULT_IMPORT_FLAGS);
+
+        if (aiScene == null) {
+            throw new Exception("Error loading model");
+        }
+
+        try {
+            return aiScene.mNumMeshes();
+        } finally {
+            aiReleaseImport(aiScene);
+        }
+    }
+
+    @Benchmark
+    public int loadModelData() throws Exception {
+        ModelData modelData = StaticMeshesLoader.loadModelData(
+                mObjFilePath,
+                StaticMeshesLoader.DEFAULT_IMPORT_FLAGS
+        );
+
+        try {
+            return modelData.getMeshDataArray().length;
+        } finally {
+            modelData.cleanUp();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.company.bench;
+
+import com.company.engine.IGameLogic;
+import com.company.engine.graph.rendering.Renderer;
+import com.company.engine.input.KeyboardInput;
+import com.company.engine.input.MouseInput;
+import com.company.engine.window.Window;
+
+import static org.lwjgl.opengl.GL11.glFinish;
+
+public class StressGameLogic implements IGameLogic {
+
+    /**
+     * Runs a StressScene in the GameEngine loop for the SceneStressBenchmark.
+     * Every update moves the scene on one step, the benchmark uses WindowOptions.fixedTimestep
+     * so every frame runs exactly one.
+     */
+
+    private final StressSceneOptions mOptions;
+
+    private Renderer mRenderer;
+    private StressScene mStressScene;
+    private int mUpdateCount;
+
+    public StressGameLogic(StressSceneOptions options) {
+        mOptions = options;
+    }
+
+    @Override
+    public void init(Window window) throws Exception {
+        mRenderer = new Renderer();
+        mRenderer.init(window);
+        mStressScene = new StressScene(mOptions);
+    }
+
+    @Override
+    public void input(Window window, MouseInput mouseInput, KeyboardInput keyboardInput) {
+
+    }
+
+    @Override
+    public void update(float interval, MouseInput mouseInput, KeyboardInput keyboardInput) {
+        mStressScene.update(mUpdateCount);
+        mUpdateCount++;
+    }
+
+    @Override
+    public void render(Window window) {
+        try {
+            mRenderer.render(window, mStressScene.getCamera(), mStressScene.getScene());
+        } catch (Exception e) {
+            //a frame that fails to render must fail the benchmark, not be skipped
+            throw new IllegalStateException("Failed to render the stress scene", e);
+        }
+
+        if (mOptions.finishFrames) {
+            glFinish();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        if (mStressScene != null) {
+            mStressScene.cleanUp();
+        }
+
+        if (mRenderer != null) {
+            mRenderer.cleanUp();
+        }
+    }
+
+    public Renderer getRenderer() {
+        return mRenderer;
+    }
+}
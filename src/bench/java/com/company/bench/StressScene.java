@@ -0,0 +1,313 @@
+package com.company.bench;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.graph.lighting.DirectionalLight;
+import com.company.engine.graph.lighting.PointLight;
+import com.company.engine.graph.lighting.SpotLight;
+import com.company.engine.graph.material.Material;
+import com.company.engine.graph.material.Texture;
+import com.company.engine.graph.mesh.InstancedMesh;
+import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.graph.particles.IParticleEmitter;
+import com.company.engine.graph.particles.Particle;
+import com.company.engine.graph.rendering.Camera;
+import com.company.engine.graph.rendering.Renderer;
+import com.company.engine.scene.Scene;
+import com.company.engine.scene.items.GameItem;
+import com.company.engine.scene.items.SceneLighting;
+import com.company.engine.scene.items.ui.UiSpriteItem;
+import com.company.engine.scene.items.ui.UiTextItem;
+import com.company.game.TestParticleEmitter;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.lwjgl.opengl.GL11.GL_RGBA;
+import static org.lwjgl.opengl.GL11.GL_RGBA8;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+
+public class StressScene implements IUsesResources {
+
+    /**
+     * A Scene generated from StressSceneOptions, the same options always give the same items, lights and HUD.
+     * Meshes are cubes and quads made in code so no asset files are needed.
+     *
+     * update moves the scene on by one fixed step: the camera turns, the emitters create and
+     * remove particles and one HUD text changes.
+     * The particle emitters randomise new particles with Math.random, so only their counts are repeatable.
+     */
+
+    public static final long UPDATE_MILLIS = 16;
+
+    private static final float SCENE_EXTENT = 150.0f;
+    private static final int FRAMES_PER_CAMERA_TURN = 600;
+    private static final int MAX_INSTANCES_PER_DRAW = 1024;
+    private static final int FONT_ATLAS_SIZE = 256;
+    private static final int FONT_ATLAS_COLUMNS = 16;
+    private static final int FONT_ATLAS_ROWS = 16;
+    private static final int HUD_TEXT_VARIATIONS = 64;
+
+    private static final float[] QUAD_POSITIONS = BenchmarkScene.createQuadPositions();
+    private static final float[] QUAD_TEXT_COORDS = BenchmarkScene.createQuadTextCoords();
+    private static final float[] QUAD_NORMALS = BenchmarkScene.createQuadNormals();
+    private static final int[] QUAD_INDICES = BenchmarkScene.createQuadIndices();
+
+    private static final float[] CUBE_POSITIONS = BenchmarkScene.createCubePositions();
+    private static final float[] CUBE_TEXT_COORDS = BenchmarkScene.createCubeTextCoords();
+    private static final float[] CUBE_NORMALS = BenchmarkScene.createCubeNormals();
+    private static final int[] CUBE_INDICES = BenchmarkScene.createCubeIndices();
+
+    private final Scene mScene;
+    private final Camera mCamera;
+    private final List<TestParticleEmitter> mEmitterList;
+    private final List<UiTextItem> mHudTextList;
+    private final String[] mHudTexts; //made up front so changing the text doesn't allocate
+    private final Texture mFontAtlas;
+    private final Texture mSpriteTexture;
+
+    public StressScene(StressSceneOptions options) {
+        Random random = new Random(options.seed);
+
+        mScene = new Scene();
+        mCamera = new Camera();
+        mEmitterList = new ArrayList<>();
+        mHudTextList = new ArrayList<>();
+        mHudTexts = new String[HUD_TEXT_VARIATIONS];
+        mFontAtlas = createTexture(FONT_ATLAS_SIZE);
+        mSpriteTexture = createTexture(64);
+
+        for (int i = 0; i < mHudTexts.length; i++) {
+            mHudTexts[i] = String.format("Score %06d", i * 7919 % 1000000);
+        }
+
+        addStaticItems(options, random);
+        addInstancedItems(options, random);
+        addParticleEmitters(options, random);
+        addLighting(options, random);
+        addHud(options);
+    }
+
+    private void addStaticItems(StressSceneOptions options, Random random) {
+        if (options.staticItemCount <= 0) {
+            return;
+        }
+
+        Mesh[] meshes = new Mesh[Math.max(1, options.staticMeshCount)];
+
+        for (int i = 0; i < meshes.length; i++) {
+            meshes[i] = new Mesh(CUBE_POSITIONS, CUBE_TEXT_COORDS, CUBE_NORMALS, CUBE_INDICES);
+            meshes[i].setMaterial(new Material(createColour(random), 0.5f));
+        }
+
+        GameItem[] gameItems = new GameItem[options.staticItemCount];
+
+        for (int i = 0; i < gameItems.length; i++) {
+            gameItems[i] = new GameItem(meshes[random.nextInt(meshes.length)]);
+            placeItem(gameItems[i], random, 1.0f);
+        }
+
+        mScene.addSceneGameItems(gameItems);
+    }
+
+    private void addInstancedItems(StressSceneOptions options, Random random) {
+        if (options.instancedItemCount <= 0) {
+            return;
+        }
+
+        InstancedMesh[] meshes = new InstancedMesh[Math.max(1, options.instancedMeshCount)];
+        int instancesPerMesh = options.instancedItemCount / meshes.length + 1;
+
+        for (int i = 0; i < meshes.length; i++) {
+            meshes[i] = new InstancedMesh(
+                    CUBE_POSITIONS,
+                    CUBE_TEXT_COORDS,
+                    CUBE_NORMALS,
+                    CUBE_INDICES,
+                    Math.min(instancesPerMesh, MAX_INSTANCES_PER_DRAW)
+            );
+            meshes[i].setMaterial(new Material(createColour(random), 0.5f));
+        }
+
+        GameItem[] gameItems = new GameItem[options.instancedItemCount];
+
+        for (int i = 0; i < gameItems.length; i++) {
+            gameItems[i] = new GameItem(meshes[i % meshes.length]);
+            placeItem(gameItems[i], random, 0.25f);
+        }
+
+        mScene.addSceneGameItems(gameItems);
+    }
+
+    private void addParticleEmitters(StressSceneOptions options, Random random) {
+        IParticleEmitter[] emitters = new IParticleEmitter[Math.max(0, options.emitterCount)];
+
+        for (int i = 0; i < emitters.length; i++) {
+            Mesh particleMesh = new Mesh(QUAD_POSITIONS, QUAD_TEXT_COORDS, QUAD_NORMALS, QUAD_INDICES);
+            particleMesh.setMaterial(new Material());
+
+            //one particle dies and one is created every update, so a full emitter stays full
+            Particle baseParticle = new Particle(
+                    particleMesh,
+                    createColour(random),
+                    new Vector3f(0, 2, 0),
+                    UPDATE_MILLIS * options.particlesPerEmitter,
+                    false
+            );
+            placeItem(baseParticle, random, 0.2f);
+
+            TestParticleEmitter emitter = new TestParticleEmitter(baseParticle, options.particlesPerEmitter, 0);
+            emitter.setPositionRandomRange(1.0f);
+            emitter.setSpeedRandomRange(1.0f);
+            emitter.setScaleRandomRange(0.1f);
+
+            //start with the emitter full
+            for (int j = 0; j < options.particlesPerEmitter; j++) {
+                emitter.update(UPDATE_MILLIS);
+            }
+
+            mEmitterList.add(emitter);
+            emitters[i] = emitter;
+        }
+
+        mScene.setParticleEmitters(emitters);
+    }
+
+    private void addLighting(StressSceneOptions options, Random random) {
+        int pointLightCount = Math.min(Math.max(0, options.lightCount), Renderer.MAX_POINT_LIGHTS);
+        int spotLightCount = Math.min(Math.max(0, options.lightCount - pointLightCount), Renderer.MAX_SPOT_LIGHTS);
+        List<PointLight> pointLightList = new ArrayList<>();
+        List<SpotLight> spotLightList = new ArrayList<>();
+
+        if (pointLightCount + spotLightCount < options.lightCount) {
+            System.err.println(
+                    "StressScene: the Renderer supports " + (Renderer.MAX_POINT_LIGHTS + Renderer.MAX_SPOT_LIGHTS) +
+                            " lights, " + options.lightCount + " requested"
+            );
+        }
+
+        for (int i = 0; i < pointLightCount; i++) {
+            pointLightList.add(createPointLight(random));
+        }
+
+        for (int i = 0; i < spotLightCount; i++) {
+            spotLightList.add(new SpotLight(
+                    createPointLight(random),
+                    new Vector3f(0, -1, 0),
+                    30.0f
+            ));
+        }
+
+        mScene.setSceneLighting(new SceneLighting(
+                new Vector3f(0.3f, 0.3f, 0.3f),
+                pointLightList,
+                spotLightList,
+                new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(0, 1, 1), 0.6f)
+        ));
+    }
+
+    private void addHud(StressSceneOptions options) {
+        List<GameItem> hudItemList = new ArrayList<>();
+
+        for (int i = 0; i < options.hudSpriteCount; i++) {
+            UiSpriteItem spriteItem = new UiSpriteItem(mSpriteTexture, 32, 32);
+            spriteItem.setPosition(10 + (i % 16) * 40, 10 + (i / 16) * 40, 0);
+            hudItemList.add(spriteItem);
+        }
+
+        for (int i = 0; i < options.hudTextCount; i++) {
+            UiTextItem textItem = new UiTextItem(
+                    mHudTexts[i % mHudTexts.length],
+                    mFontAtlas,
+                    FONT_ATLAS_COLUMNS,
+                    FONT_ATLAS_ROWS
+            );
+            textItem.setPosition(options.width - 200, 10 + i * 20, 0);
+            mHudTextList.add(textItem);
+            hudItemList.add(textItem);
+        }
+
+        GameItem[] hudItems = hudItemList.toArray(new GameItem[0]);
+
+        mScene.setHud(() -> hudItems);
+    }
+
+    /**
+     * Move the scene on to the given frame
+     */
+    public void update(int frame) {
+        mCamera.getRotation().set(
+                (float) Math.sin(frame * 0.01) * 20.0f,
+                frame * 360.0f / FRAMES_PER_CAMERA_TURN,
+                0
+        );
+
+        for (int i = 0; i < mEmitterList.size(); i++) {
+            mEmitterList.get(i).update(UPDATE_MILLIS);
+        }
+
+        if (!mHudTextList.isEmpty()) {
+            mHudTextList.get(frame % mHudTextList.size()).setText(mHudTexts[frame % mHudTexts.length]);
+        }
+    }
+
+    public Scene getScene() {
+        return mScene;
+    }
+
+    public Camera getCamera() {
+        return mCamera;
+    }
+
+    @Override
+    public void cleanUp() {
+        mScene.cleanUp();
+        mFontAtlas.cleanUp();
+        mSpriteTexture.cleanUp();
+    }
+
+    private static void placeItem(GameItem gameItem, Random random, float scale) {
+        Quaternionf rotation = new Quaternionf().rotateXYZ(
+                random.nextFloat() * 6.28f,
+                random.nextFloat() * 6.28f,
+                random.nextFloat() * 6.28f
+        );
+
+        gameItem.setPosition(
+                (random.nextFloat() * 2 - 1) * SCENE_EXTENT,
+                (random.nextFloat() * 2 - 1) * SCENE_EXTENT * 0.2f,
+                (random.nextFloat() * 2 - 1) * SCENE_EXTENT
+        );
+        gameItem.setRotation(rotation);
+        gameItem.setScale(scale * (0.5f + random.nextFloat()));
+    }
+
+    private static PointLight createPointLight(Random random) {
+        return new PointLight(
+                new Vector3f(
+                        (random.nextFloat() * 2 - 1) * SCENE_EXTENT,
+                        10,
+                        (random.nextFloat() * 2 - 1) * SCENE_EXTENT
+                ),
+                new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat()),
+                1.0f,
+                true
+        );
+    }
+
+    private static Vector4f createColour(Random random) {
+        return new Vector4f(
+                0.2f + random.nextFloat() * 0.8f,
+                0.2f + random.nextFloat() * 0.8f,
+                0.2f + random.nextFloat() * 0.8f,
+                1.0f
+        );
+    }
+
+    private static Texture createTexture(int size) {
+        return new Texture(size, size, GL_RGBA8, GL_RGBA, GL_UNSIGNED_BYTE);
+    }
+}
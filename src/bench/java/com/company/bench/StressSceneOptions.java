@@ -0,0 +1,28 @@
+package com.company.bench;
+
+public class StressSceneOptions {
+
+    /*
+    Everything a SceneStressBenchmark run depends on, runs with the same options draw the same frames
+     */
+
+    public long seed = BenchmarkScene.DEFAULT_SEED;
+    public int staticItemCount = 2000; //items drawn one draw call each
+    public int staticMeshCount = 16; //different Meshes the static items are shared between
+    public int instancedItemCount = 10000;
+    public int instancedMeshCount = 4;
+    public int emitterCount = 8;
+    public int particlesPerEmitter = 200;
+    public int lightCount = 6; //point lights then spot lights, up to the Renderer's limits
+    public int hudTextCount = 16;
+    public int hudSpriteCount = 32;
+
+    public int warmupFrames = 300;
+    public int frames = 1000;
+    public int width = 1280;
+    public int height = 720;
+    public boolean headless; //render with the OSMesa software renderer, see WindowOptions.headless
+    public boolean finishFrames; //wait for the GPU at the end of every frame so frame times include GPU work
+    public String outputPath; //JSON report file, null to print it
+    public long maxAllocatedBytesPerFrame = 0; //fail the run when a measured frame allocates more than this, -1 to never fail
+}
@@ -0,0 +1,51 @@
+package com.company.bench;
+
+import com.company.engine.graph.Transformation;
+import com.company.engine.scene.items.GameItem;
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformationBenchmark {
+
+    /**
+     * The matrices generated for every item each frame by the Renderer.
+     */
+
+    @Param({"100", "1000", "10000"})
+    public int mItemCount;
+
+    private List<GameItem> mGameItemList;
+    private Transformation mTransformation;
+    private Matrix4f mViewMatrix;
+
+    @Setup
+    public void setUp() {
+        mGameItemList = BenchmarkScene.createGameItems(mItemCount);
+        mTransformation = new Transformation();
+        mViewMatrix = BenchmarkScene.createViewMatrix();
+    }
+
+    @Benchmark
+    public void generateModelMatrix(Blackhole blackhole) {
+        for (int i = 0; i < mGameItemList.size(); i++) {
+            blackhole.consume(mTransformation.generateModelMatrix(mGameItemList.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void generateModelViewMatrix(Blackhole blackhole) {
+        for (int i = 0; i < mGameItemList.size(); i++) {
+            blackhole.consume(mTransformation.generateModelViewMatrix(mGameItemList.get(i), mViewMatrix));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.company.bench;
+
+import com.company.engine.graph.material.Texture;
+import com.company.engine.graph.rendering.TextBatcher;
+import com.company.engine.scene.items.ui.UiTextItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.opengl.GL11.GL_RGBA;
+import static org.lwjgl.opengl.GL11.GL_RGBA8;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UiTextBenchmark {
+
+    /**
+     * Building the glyph quads of UiTextItems in the TextBatcher for a frame.
+     * unchanged measures the per frame checks, changedText rewrites and uploads the glyphs that differ,
+     * moved rewrites and uploads every glyph.
+     */
+
+    private static final int FONT_ATLAS_SIZE = 256;
+    private static final int FONT_ATLAS_COLUMNS = 16;
+    private static final int FONT_ATLAS_ROWS = 16;
+
+    @Param({"16", "64", "200"})
+    public int mTextItemCount;
+
+    private OffscreenGlContext mGlContext;
+    private Texture mFontAtlas;
+    private TextBatcher mTextBatcher;
+    private List<UiTextItem> mTextItemList;
+    private String[] mTexts; //made in advance so the benchmark doesn't measure building Strings
+
+    private int mFrame;
+
+    @Setup
+    public void setUp() {
+        mGlContext = new OffscreenGlContext();
+        mFontAtlas = new Texture(
+                FONT_ATLAS_SIZE,
+                FONT_ATLAS_SIZE,
+                GL_RGBA8,
+                GL_RGBA,
+                GL_UNSIGNED_BYTE
+        );
+        mTextBatcher = new TextBatcher();
+        mTextItemList = new ArrayList<>(mTextItemCount);
+        mTexts = new String[mTextItemCount * 2];
+
+        for (int i = 0; i < mTexts.length; i++) {
+            mTexts[i] = String.format("Score %08d | Item %04d", i * 7919, i / 2);
+        }
+
+        for (int i = 0; i < mTextItemCount; i++) {
+            UiTextItem textItem = new UiTextItem(
+                    mTexts[i * 2],
+                    mFontAtlas,
+                    FONT_ATLAS_COLUMNS,
+                    FONT_ATLAS_ROWS
+            );
+            textItem.setPosition(10, 10 + i * 20, 0);
+            mTextItemList.add(textItem);
+        }
+
+        //first frame allocates every range
+        addTextItems();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mTextBatcher.cleanUp();
+        mFontAtlas.cleanUp();
+        mGlContext.cleanUp();
+    }
+
+    @Benchmark
+    public int unchanged() {
+        return addTextItems();
+    }
+
+    @Benchmark
+    public int changedText() {
+        mFrame++;
+
+        for (int i = 0; i < mTextItemList.size(); i++) {
+            mTextItemList.get(i).setText(mTexts[i * 2 + (mFrame & 1)]);
+        }
+
+        return addTextItems();
+    }
+
+    @Benchmark
+    public int moved() {
+        mFrame++;
+
+        for (int i = 0; i < mTextItemList.size(); i++) {
+            mTextItemList.get(i).setPosition(10 + (mFrame & 1), 10 + i * 20, 0);
+        }
+
+        return addTextItems();
+    }
+
+    private int addTextItems() {
+        mTextBatcher.begin();
+
+        for (int i = 0; i < mTextItemList.size(); i++) {
+            mTextBatcher.add(mTextItemList.get(i));
+        }
+
+        return mTextBatcher.getUploadedGlyphCount();
+    }
+}
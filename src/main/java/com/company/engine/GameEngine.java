@@ -1,7 +1,15 @@
 package com.company.engine;
 
+import com.company.engine.graph.rendering.FramePacer;
+import com.company.engine.input.InputManager;
+import com.company.engine.input.InputReplayer;
 import com.company.engine.input.KeyboardInput;
 import com.company.engine.input.MouseInput;
+import com.company.engine.loaders.AssetManager;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.NativeMemory;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
 import com.company.engine.utils.Timer;
 import com.company.engine.window.Window;
 import com.company.engine.window.WindowMode;
@@ -13,6 +21,7 @@ public class GameEngine implements Runnable {
     //If VSync is on then the target fps is limited to 60
     private static final int TARGET_FPS = 120;
     private static final int TARGET_UPS = 30;
+    private static final float UPDATE_INTERVAL = 1f / TARGET_UPS;
 
     private final Window mWindow;
     private final Thread mGameLoopThread;
@@ -20,9 +29,15 @@ public class GameEngine implements Runnable {
     private final IGameLogic mGameLogic;
     private final MouseInput mMouseInput;
     private final KeyboardInput mKeyboardInput;
+    private final InputManager mInputManager;
+    private final AssetManager mAssetManager;
+    private final EngineMetrics mMetrics;
+
+    private FramePacer mFramePacer; //only used in low latency mode
 
     private double mLastFpsTimeMillis;
     private int mFps;
+    private float mAccumulator; //time not yet covered by updates
 
     public GameEngine(
             String windowTitle,
@@ -98,8 +113,11 @@ public class GameEngine implements Runnable {
         );
         mGameLogic = gameLogic;
         mTimer = new Timer();
-        mMouseInput = new MouseInput();
-        mKeyboardInput = new KeyboardInput();
+        mInputManager = new InputManager();
+        mMouseInput = new MouseInput(mInputManager.getInputState());
+        mKeyboardInput = new KeyboardInput(mInputManager.getInputState());
+        mAssetManager = AssetManager.getInstance();
+        mMetrics = EngineMetrics.getInstance();
     }
 
     public void start() {
@@ -121,42 +139,121 @@ public class GameEngine implements Runnable {
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
-            mGameLogic.cleanUp();
+            cleanUp();
         }
     }
 
-    private void init() throws Exception {
+    /**
+     * Create the window and initialise the game, called by run.
+     * Only call it directly to drive the loop with runFrame, e.g. from a benchmark.
+     */
+    public void init() throws Exception {
         mWindow.init();
+        mMetrics.register();
+
+        if (mWindow.getOptions().lowLatency) {
+            mFramePacer = new FramePacer(mWindow.getOptions().maxFramesInFlight);
+        }
+
         mTimer.init();
         mLastFpsTimeMillis = mTimer.getTime();
         mFps = 0;
+        mAccumulator = 0f;
+        initInput();
         mMouseInput.init(mWindow);
         mKeyboardInput.init(mWindow);
         mGameLogic.init(mWindow);
     }
 
+    /**
+     * Clean up the game and everything the engine created, called by run when the loop ends.
+     */
+    public void cleanUp() {
+        mGameLogic.cleanUp();
+        mAssetManager.cleanUp();
+        mInputManager.cleanUp();
+        mMetrics.cleanUp();
+
+        if (mFramePacer != null) {
+            mFramePacer.cleanUp();
+            mFramePacer = null;
+        }
+
+        //anything still live has not been cleaned up
+        GlObjectRegistry.getTracker().printLeaks(System.err);
+        NativeMemory.getTracker().printLeaks(System.err);
+    }
+
+    private void initInput() throws Exception {
+        WindowOptions options = mWindow.getOptions();
+
+        mInputManager.init(mWindow);
+        mWindow.setInputState(mInputManager.getInputState());
+
+        if (options.inputReplayPath != null) {
+            mInputManager.startReplay(options.inputReplayPath);
+        } else if (options.inputRecordingPath != null) {
+            mInputManager.startRecording(options.inputRecordingPath);
+        }
+    }
+
     private void gameLoop() {
-        float elapsedTime;
-        float accumulator = 0f;
-        float interval = 1f / TARGET_UPS;
-        boolean running = true;
+        while (!mWindow.shouldWindowClose()) {
+            runFrame();
+        }
+    }
+
+    /**
+     * Run one iteration of the game loop: input, the updates that are due, uploads, render and swap.
+     */
+    public void runFrame() {
+        //wait for the GPU before sampling input, not after, so the input is as fresh as possible
+        if (mFramePacer != null) {
+            mFramePacer.waitForFrameSlot();
+        }
+
+        mMetrics.beginFrame();
+
+        mAccumulator += mTimer.getElapsedTime();
 
-        while (running && !mWindow.shouldWindowClose()) {
-            elapsedTime = mTimer.getElapsedTime();
-            accumulator += elapsedTime;
+        input();
 
-            input();
+        long updateStartNanos = System.nanoTime();
+        int replayedUpdateCount = mInputManager.getReplayedUpdateCount();
 
-            while(accumulator >= interval) {
-                update(interval);
-                accumulator -= interval;
+        if (replayedUpdateCount != InputReplayer.NO_UPDATE_COUNT) {
+            //run as many updates as the recorded frame did so the replay doesn't depend on the clock
+            for (int i = 0; i < replayedUpdateCount; i++) {
+                update(UPDATE_INTERVAL);
             }
 
-            render();
+            mAccumulator = 0f;
+        } else if (mWindow.getOptions().fixedTimestep) {
+            update(UPDATE_INTERVAL);
+            mAccumulator = 0f;
+            mInputManager.recordUpdateCount(1);
+        } else {
+            int updateCount = 0;
 
-            if (!mWindow.isVSyncEnabled()) {
-                sync();
+            while(mAccumulator >= UPDATE_INTERVAL) {
+                update(UPDATE_INTERVAL);
+                mAccumulator -= UPDATE_INTERVAL;
+                updateCount++;
             }
+
+            mInputManager.recordUpdateCount(updateCount);
+        }
+
+        mMetrics.add(MetricType.UPDATE_NANOS, System.nanoTime() - updateStartNanos);
+
+        //create the OpenGL objects of assets that finished loading in the background
+        mAssetManager.processUploads();
+
+        render();
+        mMetrics.endFrame();
+
+        if (!mWindow.isVSyncEnabled() && !mWindow.getOptions().unlimitedFrameRate) {
+            sync();
         }
     }
 
@@ -174,6 +271,7 @@ public class GameEngine implements Runnable {
     }
 
     private void input() {
+        mInputManager.update();
         mMouseInput.input(mWindow);
         mKeyboardInput.input(mWindow);
         mGameLogic.input(mWindow, mMouseInput, mKeyboardInput);
@@ -183,6 +281,21 @@ public class GameEngine implements Runnable {
         mGameLogic.update(interval, mMouseInput, mKeyboardInput);
     }
 
+    public Window getWindow() {
+        return mWindow;
+    }
+
+    public InputManager getInputManager() {
+        return mInputManager;
+    }
+
+    /**
+     * @return the FramePacer measuring input latency, null unless the window options enable low latency
+     */
+    public FramePacer getFramePacer() {
+        return mFramePacer;
+    }
+
     private void render() {
         if (mWindow.getOptions().showFps && mTimer.getLastLoopTime() - mLastFpsTimeMillis > 1) {
             mLastFpsTimeMillis = mTimer.getLastLoopTime();
@@ -191,7 +304,21 @@ public class GameEngine implements Runnable {
         }
 
         mFps++;
+
+        if (mFramePacer != null) {
+            //pick up mouse movement since input() so the camera can be updated just before submitting
+            mWindow.pollEvents();
+            mInputManager.latch();
+            mMouseInput.latch();
+            mGameLogic.lateLatch(mWindow, mMouseInput);
+        }
+
         mGameLogic.render(mWindow);
+
+        if (mFramePacer != null) {
+            mFramePacer.endFrame(mInputManager.getNewestInputTimeNanos());
+        }
+
         mWindow.render();
     }
 }
\ No newline at end of file
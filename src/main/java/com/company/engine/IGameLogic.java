@@ -10,4 +10,12 @@ public interface IGameLogic {
     void update(float interval, MouseInput mouseInput, KeyboardInput keyboardInput);
     void render(Window window);
     void cleanUp();
+
+    /**
+     * Called in low latency mode just before render with the mouse movement received since input,
+     * games can use it to rotate the Camera with Camera.setLatchedRotationOffset.
+     */
+    default void lateLatch(Window window, MouseInput mouseInput) {
+
+    }
 }
\ No newline at end of file
@@ -1,88 +1,87 @@
 package com.company.engine.audio;
 
 import com.company.engine.IUsesResources;
-import com.company.engine.utils.FileUtils;
-import org.lwjgl.stb.STBVorbisInfo;
-import org.lwjgl.system.MemoryStack;
-import org.lwjgl.system.MemoryUtil;
-
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.nio.ShortBuffer;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
 
 import static org.lwjgl.openal.AL10.*;
-import static org.lwjgl.stb.STBVorbis.*;
-import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class AudioBuffer implements IUsesResources {
 
-    private final int mBufferId;
+    private final AudioThread mAudioThread;
+    private final float mDurationSeconds;
 
-    private ShortBuffer mPcmBuffer;
-    private ByteBuffer mVorbisBuffer;
+    private volatile int mBufferId; //0 until the audio thread has created the buffer
+    private PcmData mPcmData;
 
+    /**
+     * Decode the file, or read it from the PcmCache. Use the AudioBufferCache to share
+     * one buffer between everything playing the same file.
+     */
     public AudioBuffer(String fileName) throws Exception {
-        mPcmBuffer = null;
-        mVorbisBuffer = null;
-
-        mBufferId = alGenBuffers();
+        this(PcmCache.getInstance().loadPcmData(fileName));
+    }
 
-        try (STBVorbisInfo info = STBVorbisInfo.malloc()) {
-            ShortBuffer pcm = readVorbis(fileName, 32 * 1024, info);
+    /**
+     * Create the OpenAL buffer, on the AudioThread, from samples that have already been decoded.
+     * The AudioBuffer takes ownership of the PcmData.
+     */
+    public AudioBuffer(PcmData pcmData) {
+        mAudioThread = AudioThread.getInstance();
+        mPcmData = pcmData;
+        mDurationSeconds = (float) pcmData.getSamples().remaining() / pcmData.getChannels() / pcmData.getSampleRate();
 
-            alBufferData(
-                    mBufferId,
-                    info.channels() == 1 ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16,
-                    pcm,
-                    info.sample_rate()
-            );
-        }
+        mAudioThread.submit(AudioCommandType.CREATE_BUFFER, this);
     }
 
+    /**
+     * Delete the buffer on the audio thread, sources still using it should be stopped first.
+     */
     public void cleanUp() {
-        alDeleteBuffers(mBufferId);
+        mAudioThread.submit(AudioCommandType.DELETE_BUFFER, this);
+    }
 
-        if (mPcmBuffer != null) {
-            MemoryUtil.memFree(mPcmBuffer);
-        }
+    //only called on the audio thread
+
+    void create() {
+        int bufferId = GlObjectRegistry.register(
+                GlObjectType.AL_BUFFER,
+                alGenBuffers(),
+                (long) mPcmData.getSamples().remaining() * Short.BYTES
+        );
+
+        alBufferData(
+                bufferId,
+                mPcmData.getFormat(),
+                mPcmData.getSamples(),
+                mPcmData.getSampleRate()
+        );
+
+        mBufferId = bufferId;
+
+        //OpenAL has its own copy of the samples
+        mPcmData.cleanUp();
+        mPcmData = null;
     }
 
-    private ShortBuffer readVorbis(
-            String fileName,
-            int bufferSize,
-            STBVorbisInfo info
-    ) throws Exception {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            mVorbisBuffer = FileUtils.ioResourceToByteBuffer(fileName, bufferSize);
-            IntBuffer error = stack.mallocInt(1);
-            long decoder = stb_vorbis_open_memory(mVorbisBuffer, error, null);
-
-            if (decoder == NULL) {
-                throw new RuntimeException(
-                        "Failed to open .ogg Vorbis file. Error: " +
-                                error.get(0)
-                );
-            }
-
-            stb_vorbis_get_info(decoder, info);
-
-            int channels = info.channels();
-            int lengthSamples = stb_vorbis_stream_length_in_samples(decoder);
-
-            mPcmBuffer = MemoryUtil.memAllocShort(lengthSamples);
-            mPcmBuffer.limit(
-                    stb_vorbis_get_samples_short_interleaved(
-                            decoder, channels, mPcmBuffer
-                    ) * channels
-            );
-
-            stb_vorbis_close(decoder);
-
-            return mPcmBuffer;
+    void executeCleanUp() {
+        if (mBufferId != 0) {
+            alDeleteBuffers(mBufferId);
+            GlObjectRegistry.unregister(GlObjectType.AL_BUFFER, mBufferId);
+            mBufferId = 0;
+        }
+
+        if (mPcmData != null) {
+            mPcmData.cleanUp();
+            mPcmData = null;
         }
     }
 
     public int getBufferId() {
         return mBufferId;
     }
-}
\ No newline at end of file
+
+    public float getDurationSeconds() {
+        return mDurationSeconds;
+    }
+}
@@ -0,0 +1,100 @@
+package com.company.engine.audio;
+
+import com.company.engine.IUsesResources;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class AudioBufferCache implements IUsesResources {
+
+    /**
+     * One AudioBuffer per sound file, however many times it is loaded.
+     * Samples are read through the PcmCache, so a file is only decoded again when it changes.
+     * The AssetManager decodes files for the cache on its worker threads, see AssetManager.loadAudioBuffer.
+     *
+     * Cached buffers are owned by the cache, they are deleted by cleanUp, which AudioManager.cleanUp calls.
+     */
+
+    private static AudioBufferCache INSTANCE;
+
+    private final Map<String, AudioBuffer> mAudioBufferMap;
+
+    private AudioBufferCache() {
+        mAudioBufferMap = new HashMap<>();
+    }
+
+    public static synchronized AudioBufferCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new AudioBufferCache();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the buffer of the file, decoding it on the calling thread if it isn't cached.
+     * Must be called on the game loop thread.
+     */
+    public synchronized AudioBuffer getAudioBuffer(String fileName) throws Exception {
+        AudioBuffer audioBuffer = mAudioBufferMap.get(fileName);
+
+        if (audioBuffer == null) {
+            audioBuffer = new AudioBuffer(PcmCache.getInstance().loadPcmData(fileName));
+            mAudioBufferMap.put(fileName, audioBuffer);
+        }
+
+        return audioBuffer;
+    }
+
+    /**
+     * Store a buffer that was created elsewhere, e.g. by the AssetManager.
+     * An already cached buffer with the same path is kept and returned instead, and the new one is cleaned up.
+     */
+    public synchronized AudioBuffer addAudioBuffer(String fileName, AudioBuffer audioBuffer) {
+        AudioBuffer cachedAudioBuffer = mAudioBufferMap.get(fileName);
+
+        if (cachedAudioBuffer != null) {
+            if (cachedAudioBuffer != audioBuffer) {
+                audioBuffer.cleanUp();
+            }
+
+            return cachedAudioBuffer;
+        }
+
+        mAudioBufferMap.put(fileName, audioBuffer);
+
+        return audioBuffer;
+    }
+
+    public synchronized boolean containsAudioBuffer(String fileName) {
+        return mAudioBufferMap.containsKey(fileName);
+    }
+
+    /**
+     * @return the cached buffer or null
+     */
+    public synchronized AudioBuffer findAudioBuffer(String fileName) {
+        return mAudioBufferMap.get(fileName);
+    }
+
+    public synchronized int getAudioBufferCount() {
+        return mAudioBufferMap.size();
+    }
+
+    @Override
+    public void cleanUp() {
+        synchronized (this) {
+            for (AudioBuffer audioBuffer : mAudioBufferMap.values()) {
+                audioBuffer.cleanUp();
+            }
+
+            mAudioBufferMap.clear();
+        }
+
+        synchronized (AudioBufferCache.class) {
+            if (INSTANCE == this) {
+                INSTANCE = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.company.engine.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+class AudioCommandQueue {
+
+    /**
+     * A fixed size, lock free ring buffer of commands for the AudioThread with one producer,
+     * the game loop, and one consumer, the audio thread.
+     *
+     * Commands are stored in parallel arrays so neither side allocates. Unlike input events
+     * commands can't be dropped, offer returns false when the queue is full and the producer retries.
+     */
+
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int FLOATS_PER_COMMAND = 6;
+    private static final AudioCommandType[] COMMAND_TYPES = AudioCommandType.values();
+
+    private final int mMask;
+    private final byte[] mTypes;
+    private final Object[] mTargets;
+    private final Object[] mArguments;
+    private final int[] mIntValues;
+    private final float[] mFloatValues;
+
+    private final AtomicLong mHead; //next command to run, only written by the consumer
+    private final AtomicLong mTail; //next slot to write, only written by the producer
+
+    AudioCommandQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    AudioCommandQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 24) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + (1 << 24));
+        }
+
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+
+        mMask = size - 1;
+        mTypes = new byte[size];
+        mTargets = new Object[size];
+        mArguments = new Object[size];
+        mIntValues = new int[size];
+        mFloatValues = new float[size * FLOATS_PER_COMMAND];
+        mHead = new AtomicLong();
+        mTail = new AtomicLong();
+    }
+
+    /**
+     * Called by the producer.
+     * @return false if the queue is full
+     */
+    boolean offer(
+            AudioCommandType type,
+            Object target,
+            Object argument,
+            int intValue,
+            float x,
+            float y,
+            float z,
+            float w,
+            float u,
+            float v
+    ) {
+        long tail = mTail.get();
+
+        if (tail - mHead.get() > mMask) {
+            return false;
+        }
+
+        int slot = (int) (tail & mMask);
+        int floatOffset = slot * FLOATS_PER_COMMAND;
+
+        mTypes[slot] = (byte) type.ordinal();
+        mTargets[slot] = target;
+        mArguments[slot] = argument;
+        mIntValues[slot] = intValue;
+        mFloatValues[floatOffset] = x;
+        mFloatValues[floatOffset + 1] = y;
+        mFloatValues[floatOffset + 2] = z;
+        mFloatValues[floatOffset + 3] = w;
+        mFloatValues[floatOffset + 4] = u;
+        mFloatValues[floatOffset + 5] = v;
+
+        //publishes the slot to the consumer
+        mTail.lazySet(tail + 1);
+
+        return true;
+    }
+
+    /**
+     * Called by the consumer, runs every queued command on the AudioThread in the order they were offered.
+     * @return number of commands run
+     */
+    int drain(AudioThread audioThread) {
+        long head = mHead.get();
+        long tail = mTail.get();
+
+        for (long i = head; i < tail; i++) {
+            int slot = (int) (i & mMask);
+
+            audioThread.execute(
+                    COMMAND_TYPES[mTypes[slot]],
+                    mTargets[slot],
+                    mArguments[slot],
+                    mIntValues[slot],
+                    mFloatValues,
+                    slot * FLOATS_PER_COMMAND
+            );
+
+            //don't keep cleaned up objects reachable
+            mTargets[slot] = null;
+            mArguments[slot] = null;
+        }
+
+        //frees the slots for the producer
+        mHead.lazySet(tail);
+
+        return (int) (tail - head);
+    }
+
+    int getCapacity() {
+        return mMask + 1;
+    }
+}
@@ -0,0 +1,26 @@
+package com.company.engine.audio;
+
+enum AudioCommandType {
+    CREATE_SOURCE, //target is the AudioSource
+    DELETE_SOURCE,
+    PLAY_SOURCE,
+    PAUSE_SOURCE,
+    STOP_SOURCE,
+    SET_SOURCE_BUFFER, //argument is the AudioBuffer, or null and the int value is the buffer id
+    SET_SOURCE_LOOPING, //int value is AL_TRUE or AL_FALSE
+    SET_SOURCE_RELATIVE, //int value is AL_TRUE or AL_FALSE
+    SET_SOURCE_FLOAT, //int value is the parameter, x is the value
+    SET_SOURCE_VECTOR, //int value is the parameter, x, y and z are the value
+    CREATE_BUFFER, //target is the AudioBuffer
+    DELETE_BUFFER,
+    SET_LISTENER_VECTOR, //int value is the parameter, x, y and z are the value
+    SET_LISTENER_ORIENTATION, //x, y and z are 'at', w, u and v are 'up'
+    SET_DISTANCE_MODEL, //int value is the model
+    PLAY_INSTANCE, //target is the SoundInstance
+    SET_INSTANCE_POSITION, //x, y and z are the position
+    SET_INSTANCE_GAIN, //x is the gain
+    SET_INSTANCE_LOOPING, //int value is AL_TRUE or AL_FALSE
+    STOP_INSTANCE,
+    STOP_ALL_INSTANCES,
+    SHUT_DOWN
+}
@@ -6,21 +6,63 @@ import static org.lwjgl.openal.AL10.*;
 
 public class AudioListener {
 
+    /**
+     * The OpenAL listener. Values are only sent to the AudioThread when they change,
+     * so setting them every frame is cheap.
+     */
+
+    private final AudioThread mAudioThread;
+    private final Vector3f mPosition;
+    private final Vector3f mVelocity;
+    private final Vector3f mAt;
+    private final Vector3f mUp;
+
     public AudioListener() {
         this(new Vector3f(0, 0, 0));
     }
 
     public AudioListener(Vector3f position) {
+        mAudioThread = AudioThread.getInstance();
+        //NaN until set, so the first values are always sent
+        mPosition = new Vector3f(Float.NaN);
+        mVelocity = new Vector3f(Float.NaN);
+        mAt = new Vector3f(Float.NaN);
+        mUp = new Vector3f(Float.NaN);
+
         setPosition(position);
         setVelocity(new Vector3f(0, 0, 0));
     }
 
     public void setPosition(Vector3f position) {
-        alListener3f(AL_POSITION, position.x, position.y, position.z);
+        if (mPosition.equals(position)) {
+            return;
+        }
+
+        mPosition.set(position);
+        mAudioThread.submit(
+                AudioCommandType.SET_LISTENER_VECTOR,
+                null,
+                AL_POSITION,
+                position.x,
+                position.y,
+                position.z
+        );
     }
 
     public void setVelocity(Vector3f velocity) {
-        alListener3f(AL_VELOCITY, velocity.x, velocity.y, velocity.z);
+        if (mVelocity.equals(velocity)) {
+            return;
+        }
+
+        mVelocity.set(velocity);
+        mAudioThread.submit(
+                AudioCommandType.SET_LISTENER_VECTOR,
+                null,
+                AL_VELOCITY,
+                velocity.x,
+                velocity.y,
+                velocity.z
+        );
     }
 
     /*
@@ -28,16 +70,28 @@ public class AudioListener {
     the 'up' parameter is the value of "up" to the listener (by default is set to (0, 1, 0)
      */
     public void setOrientation(Vector3f at, Vector3f up) {
-        float[] data = new float[6];
+        if (mAt.equals(at) && mUp.equals(up)) {
+            return;
+        }
 
-        data[0] = at.x;
-        data[1] = at.y;
-        data[2] = at.z;
+        mAt.set(at);
+        mUp.set(up);
 
-        data[3] = up.x;
-        data[4] = up.y;
-        data[5] = up.z;
+        mAudioThread.submit(
+                AudioCommandType.SET_LISTENER_ORIENTATION,
+                null,
+                null,
+                0,
+                at.x,
+                at.y,
+                at.z,
+                up.x,
+                up.y,
+                up.z
+        );
+    }
 
-        alListenerfv(AL_ORIENTATION, data);
+    public Vector3f getPosition() {
+        return mPosition;
     }
 }
\ No newline at end of file
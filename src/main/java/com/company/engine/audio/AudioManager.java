@@ -5,55 +5,72 @@ import com.company.engine.graph.rendering.Camera;
 import com.company.engine.graph.Transformation;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
-import org.lwjgl.openal.AL;
-import org.lwjgl.openal.ALC;
-import org.lwjgl.openal.ALCCapabilities;
 
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.lwjgl.openal.AL10.*;
-import static org.lwjgl.openal.ALC10.*;
-import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class AudioManager implements IUsesResources {
 
+    /**
+     * Game loop side of the audio, OpenAL itself is only used on the AudioThread started by init.
+     * Nothing here waits for OpenAL, calls queue commands and queries read the state the audio thread published.
+     */
+
     private final List<AudioBuffer> mAudioBufferList;
     private final Map<String, AudioSource> mAudioSourceMap;
     private final Matrix4f mCameraMatrix;
+    private final Vector3f mListenerAt;
+    private final Vector3f mListenerUp;
+    private final int mVoiceCount;
 
-    private long mDevice;
-    private long mContext;
+    private AudioThread mAudioThread;
     private AudioListener mAudioListener;
 
     public AudioManager() {
+        this(AudioVoicePool.DEFAULT_VOICE_COUNT);
+    }
+
+    /**
+     * @param voiceCount number of OpenAL sources kept for sounds started with play
+     */
+    public AudioManager(int voiceCount) {
         mAudioBufferList = new ArrayList<>();
         mAudioSourceMap = new HashMap<>();
         mCameraMatrix = new Matrix4f();
+        mListenerAt = new Vector3f();
+        mListenerUp = new Vector3f();
+        mVoiceCount = voiceCount;
     }
 
+    /**
+     * Start the audio thread, which opens the default device and creates the OpenAL context.
+     * Must be called before any other audio object is created.
+     */
     public void init() {
-        //open the default device
-        mDevice = alcOpenDevice((ByteBuffer) null);
-
-        if (mDevice == NULL) {
-            throw new IllegalStateException("Failed to open the default OpenAL device.");
-        }
-
-        ALCCapabilities deviceCapabilities = ALC.createCapabilities(mDevice);
-
-        mContext = alcCreateContext(mDevice, (IntBuffer) null);
+        mAudioThread = AudioThread.start(mVoiceCount);
+    }
 
-        if (mContext == NULL) {
-            throw new IllegalStateException("Failed to create OpenAL context.");
-        }
+    /**
+     * Call once per frame, after the audio calls of the frame, so the audio thread runs them straight away
+     * rather than at its next pass.
+     */
+    public void update() {
+        mAudioThread.wakeUp();
+    }
 
-        alcMakeContextCurrent(mContext);
-        AL.createCapabilities(deviceCapabilities);
+    /**
+     * Play the buffer on a pooled voice, fire and forget.
+     * When there are more sounds than voices the lowest priority and quietest are virtualised
+     * until a voice is free.
+     * @param position where the sound is in the world, null to play it at the listener
+     * @return the playing instance, which can be ignored
+     */
+    public SoundInstance play(AudioBuffer audioBuffer, Vector3f position, int priority) {
+        return mAudioThread.getVoicePool().play(audioBuffer, position, priority);
     }
 
     public void playAudioSource(String name) {
@@ -100,17 +117,14 @@ public class AudioManager implements IUsesResources {
                 camera.getRotation(),
                 mCameraMatrix
         );
-        Vector3f at = new Vector3f();
-        Vector3f up = new Vector3f();
-
         mAudioListener.setPosition(camera.getPosition());
-        mCameraMatrix.positiveZ(at).negate();
-        mCameraMatrix.positiveY(up);
-        mAudioListener.setOrientation(at, up);
+        mCameraMatrix.positiveZ(mListenerAt).negate();
+        mCameraMatrix.positiveY(mListenerUp);
+        mAudioListener.setOrientation(mListenerAt, mListenerUp);
     }
 
     public void setAttenuationModel(int model) {
-        alDistanceModel(model);
+        mAudioThread.submit(AudioCommandType.SET_DISTANCE_MODEL, null, model);
     }
 
     public void addAudioSource(String name, AudioSource audioSource) {
@@ -137,8 +151,23 @@ public class AudioManager implements IUsesResources {
         return mAudioListener;
     }
 
+    public AudioVoicePool getVoicePool() {
+        return mAudioThread.getVoicePool();
+    }
+
+    public AudioThread getAudioThread() {
+        return mAudioThread;
+    }
+
     @Override
     public void cleanUp() {
+        if (mAudioThread == null) {
+            return;
+        }
+
+        //commands run in order, so everything playing is stopped before the buffers it uses are deleted
+        mAudioThread.getVoicePool().stopAll();
+
         //audio sources
         for (AudioSource audioSource : mAudioSourceMap.values()) {
             audioSource.cleanUp();
@@ -151,12 +180,12 @@ public class AudioManager implements IUsesResources {
         }
         mAudioBufferList.clear();
 
-        if (mContext != NULL) {
-            alcDestroyContext(mContext);
-        }
+        AudioBufferCache.getInstance().cleanUp();
 
-        if (mDevice != NULL) {
-            alcCloseDevice(mDevice);
-        }
+        //runs the clean up commands, then the voice pool and context are destroyed on the audio thread
+        mAudioThread.shutDown();
+        mAudioThread = null;
+
+        AudioStreamDecoder.shutDown();
     }
 }
\ No newline at end of file
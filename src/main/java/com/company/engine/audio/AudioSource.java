@@ -1,64 +1,87 @@
 package com.company.engine.audio;
 
 import com.company.engine.IUsesResources;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
 import org.joml.Vector3f;
 
-import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.lwjgl.openal.AL10.*;
 
-public class AudioSource implements IUsesResources {
-
-    private final int mSourceId;
-
+public abstract class AudioSource implements IUsesResources {
+
+    /**
+     * An OpenAL source owned by the AudioThread, what it plays is up to the subclass:
+     * a BufferedAudioSource plays an AudioBuffer, a StreamingAudioSource plays an IAudioStream.
+     *
+     * The public methods are called on the game loop thread and only queue commands.
+     * isInState reads a snapshot of the source state published by the audio thread after each pass,
+     * commands that change the state set the snapshot to the state they will leave the source in,
+     * so it is right straight after calling play, pause or stop.
+     */
+
+    private static final long VERSION_INCREMENT = 1L << 32;
+    private static final long VERSION_MASK = 0xFFFFFFFF00000000L;
+    private static final long STATE_MASK = 0xFFFFFFFFL;
+
+    private final AudioThread mAudioThread;
+    private final Vector3f mPosition; //last values sent to OpenAL, NaN until set
+    private final Vector3f mVelocity;
+    private final AtomicInteger mPendingCommandCount; //queued commands the audio thread hasn't run yet
+    private final AtomicLong mStateSnapshot; //version in the high 32 bits, AL_SOURCE_STATE in the low 32
+
+    private int mSourceId; //only used on the audio thread
     private boolean mLooping;
     private boolean mRelative;
 
-    public AudioSource(boolean looping, boolean relative) {
-        mSourceId = alGenSources();
+    protected AudioSource(boolean looping, boolean relative) {
+        mAudioThread = AudioThread.getInstance();
+        mPosition = new Vector3f(Float.NaN);
+        mVelocity = new Vector3f(Float.NaN);
+        mPendingCommandCount = new AtomicInteger();
+        mStateSnapshot = new AtomicLong(AL_INITIAL);
         mLooping = looping;
         mRelative = relative;
 
-        initialiseAudioSource();
-    }
-
-    private void initialiseAudioSource() {
-        configureLooping();
-        configureRelative();
-    }
-
-    private void configureLooping() {
-        alSourcei(mSourceId, AL_LOOPING, mLooping ? AL_TRUE : AL_FALSE);
-    }
-
-    private void configureRelative() {
-        alSourcei(mSourceId, AL_SOURCE_RELATIVE, mRelative ? AL_TRUE : AL_FALSE);
+        submit(AudioCommandType.CREATE_SOURCE, 0);
     }
 
     public void play() {
-        alSourcePlay(mSourceId);
+        submitStateChange(AudioCommandType.PLAY_SOURCE, AL_PLAYING);
     }
 
     public void pause() {
-        alSourcePause(mSourceId);
+        submitStateChange(AudioCommandType.PAUSE_SOURCE, AL_PAUSED);
     }
 
     public void stop() {
-        alSourceStop(mSourceId);
+        submitStateChange(AudioCommandType.STOP_SOURCE, AL_STOPPED);
     }
 
+    /**
+     * @param state AL_INITIAL, AL_PLAYING, AL_PAUSED or AL_STOPPED
+     */
     public boolean isInState(int state) {
-        return alGetSourcei(mSourceId, AL_SOURCE_STATE) == state;
+        return getState() == state;
+    }
+
+    /**
+     * @return AL_SOURCE_STATE as of the last pass of the audio thread, or as expected after the queued commands
+     */
+    public int getState() {
+        return (int) mStateSnapshot.get();
     }
 
     public void setLooping(boolean looping) {
         mLooping = looping;
-        configureLooping();
+        submit(AudioCommandType.SET_SOURCE_LOOPING, looping ? AL_TRUE : AL_FALSE);
     }
 
     public void setRelative(boolean relative) {
         mRelative = relative;
-        configureRelative();
+        submit(AudioCommandType.SET_SOURCE_RELATIVE, relative ? AL_TRUE : AL_FALSE);
     }
 
     public boolean isLooping() {
@@ -69,14 +92,14 @@ public class AudioSource implements IUsesResources {
         return mRelative;
     }
 
-    public void setBuffer(int bufferId) {
-        stop();
-        alSourcei(mSourceId, AL_BUFFER, bufferId);
-    }
-
     public void setPosition(Vector3f position) {
-        alSource3f(
-                mSourceId,
+        if (mPosition.equals(position)) {
+            return;
+        }
+
+        mPosition.set(position);
+        submit(
+                AudioCommandType.SET_SOURCE_VECTOR,
                 AL_POSITION,
                 position.x,
                 position.y,
@@ -85,8 +108,13 @@ public class AudioSource implements IUsesResources {
     }
 
     public void setVelocity(Vector3f velocity) {
-        alSource3f(
-                mSourceId,
+        if (mVelocity.equals(velocity)) {
+            return;
+        }
+
+        mVelocity.set(velocity);
+        submit(
+                AudioCommandType.SET_SOURCE_VECTOR,
                 AL_VELOCITY,
                 velocity.x,
                 velocity.y,
@@ -94,17 +122,126 @@ public class AudioSource implements IUsesResources {
         );
     }
 
+    public void setGain(float gain) {
+        setAlProperty(AL_GAIN, gain);
+    }
+
+    public void setAlProperty(int parameter, float value) {
+        submit(AudioCommandType.SET_SOURCE_FLOAT, parameter, value, 0, 0);
+    }
+
+    /**
+     * Stop and delete the source on the audio thread.
+     */
     @Override
     public void cleanUp() {
-        stop();
-        alDeleteBuffers(mSourceId);
+        submitStateChange(AudioCommandType.DELETE_SOURCE, AL_STOPPED);
     }
 
-    public void setGain(float gain) {
-        alSourcef(mSourceId, AL_GAIN, gain);
+    private void submit(AudioCommandType type, int intValue) {
+        mPendingCommandCount.incrementAndGet();
+        mAudioThread.submit(type, this, intValue);
+    }
+
+    private void submit(AudioCommandType type, int intValue, float x, float y, float z) {
+        mPendingCommandCount.incrementAndGet();
+        mAudioThread.submit(type, this, intValue, x, y, z);
+    }
+
+    private void submitStateChange(AudioCommandType type, int expectedState) {
+        submitStateChange(type, expectedState, 0);
+    }
+
+    void submitStateChange(AudioCommandType type, int expectedState, int intValue) {
+        //counted before the snapshot changes so the audio thread can't publish over the expected state
+        mPendingCommandCount.incrementAndGet();
+        setExpectedState(expectedState);
+        mAudioThread.submit(type, this, intValue);
+    }
+
+    void submitStateChange(AudioCommandType type, int expectedState, Object argument) {
+        mPendingCommandCount.incrementAndGet();
+        setExpectedState(expectedState);
+        mAudioThread.submit(type, this, argument);
+    }
+
+    private void setExpectedState(int state) {
+        long snapshot;
+
+        do {
+            snapshot = mStateSnapshot.get();
+        } while (!mStateSnapshot.compareAndSet(
+                snapshot,
+                ((snapshot & VERSION_MASK) + VERSION_INCREMENT) | (state & STATE_MASK)
+        ));
+    }
+
+    //everything below is only called on the audio thread
+
+    void create() {
+        mSourceId = GlObjectRegistry.register(GlObjectType.AL_SOURCE, alGenSources());
+        alSourcei(mSourceId, AL_LOOPING, mLooping ? AL_TRUE : AL_FALSE);
+        alSourcei(mSourceId, AL_SOURCE_RELATIVE, mRelative ? AL_TRUE : AL_FALSE);
+    }
+
+    /**
+     * Sources that stream their samples refill their buffers here, called every pass of the audio thread.
+     */
+    void update() {
+
+    }
+
+    void executePlay() {
+        alSourcePlay(mSourceId);
+    }
+
+    void executePause() {
+        alSourcePause(mSourceId);
+    }
+
+    void executeStop() {
+        alSourceStop(mSourceId);
+    }
+
+    void executeCleanUp() {
+        if (mSourceId == 0) {
+            return;
+        }
+
+        alSourceStop(mSourceId);
+        alDeleteSources(mSourceId);
+        GlObjectRegistry.unregister(GlObjectType.AL_SOURCE, mSourceId);
+        mSourceId = 0;
+    }
+
+    void onCommandExecuted() {
+        mPendingCommandCount.decrementAndGet();
+    }
+
+    /**
+     * Publish the state of the source for isInState, called after every pass of the audio thread.
+     */
+    void publishState() {
+        long snapshot = mStateSnapshot.get();
+
+        //keep the expected state until the commands that change it have run
+        if (mPendingCommandCount.get() != 0 || mSourceId == 0) {
+            return;
+        }
+
+        int state = queryState();
+
+        //fails if the game loop set an expected state since the snapshot was read
+        if ((int) snapshot != state) {
+            mStateSnapshot.compareAndSet(snapshot, (snapshot & VERSION_MASK) | (state & STATE_MASK));
+        }
+    }
+
+    int queryState() {
+        return alGetSourcei(mSourceId, AL_SOURCE_STATE);
     }
 
-    public void setAlProperty(int parameter, float gain) {
-        alSourcef(mSourceId, parameter, gain);
+    int getSourceId() {
+        return mSourceId;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package com.company.engine.audio;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class AudioStreamDecoder {
+
+    /**
+     * Background thread that keeps the decode rings of every playing StreamingAudioSource full,
+     * so decoding doesn't hold up the AudioThread. Only the first block of a stream is decoded
+     * on the audio thread, so playback starts straight away.
+     * The thread sleeps between passes and is woken early when a source takes a block.
+     * Started by the first stream that plays and stopped by AudioManager.cleanUp.
+     */
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static AudioStreamDecoder INSTANCE;
+
+    private final CopyOnWriteArrayList<StreamingAudioSource> mSourceList;
+    private final Thread mThread;
+
+    private volatile boolean mRunning;
+
+    private AudioStreamDecoder() {
+        mSourceList = new CopyOnWriteArrayList<>();
+        mRunning = true;
+        mThread = new Thread(this::run, "AUDIO_STREAM_DECODER_THREAD");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    public static synchronized AudioStreamDecoder getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new AudioStreamDecoder();
+        }
+
+        return INSTANCE;
+    }
+
+    private void run() {
+        while (mRunning) {
+            for (StreamingAudioSource source : mSourceList) {
+                try {
+                    source.decodeAhead();
+                } catch (Throwable throwable) {
+                    //one broken stream mustn't stop the others
+                    mSourceList.remove(source);
+                    System.err.println("Stopped decoding an audio stream after an error");
+                    throwable.printStackTrace();
+                }
+            }
+
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    void addSource(StreamingAudioSource source) {
+        mSourceList.addIfAbsent(source);
+        wakeUp();
+    }
+
+    void removeSource(StreamingAudioSource source) {
+        mSourceList.remove(source);
+    }
+
+    void wakeUp() {
+        LockSupport.unpark(mThread);
+    }
+
+    /**
+     * Stop the decoder thread if it was started and wait for it to end.
+     * Must be called after the AudioThread has shut down, as cleaning up its sources uses the decoder.
+     */
+    static void shutDown() {
+        AudioStreamDecoder decoder;
+
+        synchronized (AudioStreamDecoder.class) {
+            decoder = INSTANCE;
+            INSTANCE = null;
+        }
+
+        if (decoder == null) {
+            return;
+        }
+
+        decoder.mRunning = false;
+        decoder.wakeUp();
+
+        try {
+            decoder.mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        decoder.mSourceList.clear();
+    }
+}
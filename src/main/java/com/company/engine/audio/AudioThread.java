@@ -0,0 +1,414 @@
+package com.company.engine.audio;
+
+import org.joml.Vector3f;
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.ALC;
+import org.lwjgl.openal.ALCCapabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.ALC10.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+public class AudioThread {
+
+    /**
+     * The thread that owns the OpenAL context, every OpenAL call the engine makes is made on it.
+     *
+     * AudioSource, AudioBuffer, AudioListener and SoundInstance are used on the game loop thread,
+     * their methods only queue commands in a lock free AudioCommandQueue. Each pass the audio thread
+     * runs the queued commands, refills the streaming sources, updates the AudioVoicePool and then
+     * publishes the state of every source as a snapshot, so isInState never calls into OpenAL.
+     *
+     * The queue has a single producer, commands must only be sent from the game loop thread.
+     * Started by AudioManager.init and stopped by AudioManager.cleanUp.
+     */
+
+    private static final long PASS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static AudioThread INSTANCE;
+
+    private final AudioCommandQueue mCommandQueue;
+    private final Thread mThread;
+    private final CountDownLatch mStartedLatch;
+    private final int mVoiceCount;
+    private long mStallCount; //only used by the producer
+
+    //only used on the audio thread
+    private final List<AudioSource> mAudioSourceList;
+    private final List<AudioBuffer> mAudioBufferList;
+    private final Vector3f mListenerPosition;
+    private final float[] mOrientationData;
+    private long mDevice;
+    private long mContext;
+    private boolean mRunning;
+
+    private volatile AudioVoicePool mVoicePool;
+    private volatile Throwable mStartError;
+    private volatile long mPassCount;
+
+    private AudioThread(int voiceCount) {
+        mCommandQueue = new AudioCommandQueue();
+        mStartedLatch = new CountDownLatch(1);
+        mVoiceCount = voiceCount;
+        mAudioSourceList = new ArrayList<>();
+        mAudioBufferList = new ArrayList<>();
+        mListenerPosition = new Vector3f();
+        mOrientationData = new float[6];
+
+        mThread = new Thread(this::run, "AUDIO_THREAD");
+        mThread.setDaemon(true);
+    }
+
+    /**
+     * Start the thread and wait for it to create the OpenAL context.
+     * @param voiceCount number of OpenAL sources kept for the AudioVoicePool
+     */
+    static synchronized AudioThread start(int voiceCount) {
+        if (INSTANCE != null) {
+            throw new IllegalStateException("The audio thread is already running");
+        }
+
+        AudioThread audioThread = new AudioThread(voiceCount);
+
+        audioThread.mThread.start();
+
+        try {
+            audioThread.mStartedLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting the audio thread", e);
+        }
+
+        if (audioThread.mStartError != null) {
+            throw new IllegalStateException(audioThread.mStartError.getMessage(), audioThread.mStartError);
+        }
+
+        INSTANCE = audioThread;
+
+        return audioThread;
+    }
+
+    static synchronized AudioThread getInstance() {
+        if (INSTANCE == null) {
+            throw new IllegalStateException("AudioManager.init must be called before creating audio objects");
+        }
+
+        return INSTANCE;
+    }
+
+    private void run() {
+        try {
+            openContext();
+            mVoicePool = new AudioVoicePool(this, mVoiceCount);
+        } catch (Throwable throwable) {
+            mStartError = throwable;
+            closeContext();
+            mStartedLatch.countDown();
+            return;
+        }
+
+        mRunning = true;
+        mStartedLatch.countDown();
+
+        long lastPassTimeNanos = System.nanoTime();
+
+        while (mRunning) {
+            mCommandQueue.drain(this);
+
+            long time = System.nanoTime();
+            double interval = (time - lastPassTimeNanos) / 1e9;
+
+            lastPassTimeNanos = time;
+
+            for (int i = 0; i < mAudioSourceList.size(); i++) {
+                try {
+                    mAudioSourceList.get(i).update();
+                } catch (Throwable throwable) {
+                    //one broken source mustn't stop the others
+                    throwable.printStackTrace();
+                }
+            }
+
+            try {
+                mVoicePool.update(mListenerPosition, interval);
+            } catch (Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            for (int i = 0; i < mAudioSourceList.size(); i++) {
+                mAudioSourceList.get(i).publishState();
+            }
+
+            mPassCount++;
+
+            if (mRunning) {
+                LockSupport.parkNanos(this, PASS_INTERVAL_NANOS);
+            }
+        }
+
+        //whatever the game didn't clean up itself
+        mVoicePool.cleanUp();
+
+        for (int i = 0; i < mAudioSourceList.size(); i++) {
+            mAudioSourceList.get(i).executeCleanUp();
+        }
+        mAudioSourceList.clear();
+
+        for (int i = 0; i < mAudioBufferList.size(); i++) {
+            mAudioBufferList.get(i).executeCleanUp();
+        }
+        mAudioBufferList.clear();
+
+        closeContext();
+    }
+
+    private void openContext() {
+        //open the default device
+        mDevice = alcOpenDevice((ByteBuffer) null);
+
+        if (mDevice == NULL) {
+            throw new IllegalStateException("Failed to open the default OpenAL device.");
+        }
+
+        ALCCapabilities deviceCapabilities = ALC.createCapabilities(mDevice);
+
+        mContext = alcCreateContext(mDevice, (IntBuffer) null);
+
+        if (mContext == NULL) {
+            throw new IllegalStateException("Failed to create OpenAL context.");
+        }
+
+        alcMakeContextCurrent(mContext);
+        AL.createCapabilities(deviceCapabilities);
+    }
+
+    private void closeContext() {
+        if (mContext != NULL) {
+            alcMakeContextCurrent(NULL);
+            alcDestroyContext(mContext);
+            mContext = NULL;
+        }
+
+        if (mDevice != NULL) {
+            alcCloseDevice(mDevice);
+            mDevice = NULL;
+        }
+    }
+
+    /**
+     * Run one command, called by the AudioCommandQueue on the audio thread.
+     */
+    void execute(
+            AudioCommandType type,
+            Object target,
+            Object argument,
+            int intValue,
+            float[] floatValues,
+            int floatOffset
+    ) {
+        try {
+            switch (type) {
+                case CREATE_SOURCE:
+                    ((AudioSource) target).create();
+                    mAudioSourceList.add((AudioSource) target);
+                    break;
+                case DELETE_SOURCE:
+                    mAudioSourceList.remove(target);
+                    ((AudioSource) target).executeCleanUp();
+                    break;
+                case PLAY_SOURCE:
+                    ((AudioSource) target).executePlay();
+                    break;
+                case PAUSE_SOURCE:
+                    ((AudioSource) target).executePause();
+                    break;
+                case STOP_SOURCE:
+                    ((AudioSource) target).executeStop();
+                    break;
+                case SET_SOURCE_BUFFER:
+                    ((BufferedAudioSource) target).executeSetBuffer(
+                            argument != null ? ((AudioBuffer) argument).getBufferId() : intValue
+                    );
+                    break;
+                case SET_SOURCE_LOOPING:
+                    alSourcei(((AudioSource) target).getSourceId(), AL_LOOPING, intValue);
+                    break;
+                case SET_SOURCE_RELATIVE:
+                    alSourcei(((AudioSource) target).getSourceId(), AL_SOURCE_RELATIVE, intValue);
+                    break;
+                case SET_SOURCE_FLOAT:
+                    alSourcef(((AudioSource) target).getSourceId(), intValue, floatValues[floatOffset]);
+                    break;
+                case SET_SOURCE_VECTOR:
+                    alSource3f(
+                            ((AudioSource) target).getSourceId(),
+                            intValue,
+                            floatValues[floatOffset],
+                            floatValues[floatOffset + 1],
+                            floatValues[floatOffset + 2]
+                    );
+                    break;
+                case CREATE_BUFFER:
+                    ((AudioBuffer) target).create();
+                    mAudioBufferList.add((AudioBuffer) target);
+                    break;
+                case DELETE_BUFFER:
+                    mAudioBufferList.remove(target);
+                    ((AudioBuffer) target).executeCleanUp();
+                    break;
+                case SET_LISTENER_VECTOR:
+                    if (intValue == AL_POSITION) {
+                        mListenerPosition.set(
+                                floatValues[floatOffset],
+                                floatValues[floatOffset + 1],
+                                floatValues[floatOffset + 2]
+                        );
+                    }
+
+                    alListener3f(
+                            intValue,
+                            floatValues[floatOffset],
+                            floatValues[floatOffset + 1],
+                            floatValues[floatOffset + 2]
+                    );
+                    break;
+                case SET_LISTENER_ORIENTATION:
+                    System.arraycopy(floatValues, floatOffset, mOrientationData, 0, mOrientationData.length);
+                    alListenerfv(AL_ORIENTATION, mOrientationData);
+                    break;
+                case SET_DISTANCE_MODEL:
+                    alDistanceModel(intValue);
+                    break;
+                case PLAY_INSTANCE:
+                    mVoicePool.addInstance((SoundInstance) target);
+                    break;
+                case SET_INSTANCE_POSITION:
+                    ((SoundInstance) target).applyPosition(
+                            floatValues[floatOffset],
+                            floatValues[floatOffset + 1],
+                            floatValues[floatOffset + 2]
+                    );
+                    break;
+                case SET_INSTANCE_GAIN:
+                    ((SoundInstance) target).applyGain(floatValues[floatOffset]);
+                    break;
+                case SET_INSTANCE_LOOPING:
+                    ((SoundInstance) target).applyLooping(intValue == AL_TRUE);
+                    break;
+                case STOP_INSTANCE:
+                    ((SoundInstance) target).mStopRequested = true;
+                    break;
+                case STOP_ALL_INSTANCES:
+                    mVoicePool.executeStopAll();
+                    break;
+                case SHUT_DOWN:
+                    mRunning = false;
+                    break;
+            }
+        } catch (Throwable throwable) {
+            System.err.println("Failed to run the audio command " + type);
+            throwable.printStackTrace();
+        } finally {
+            if (target instanceof AudioSource) {
+                ((AudioSource) target).onCommandExecuted();
+            }
+        }
+    }
+
+    void submit(AudioCommandType type, Object target) {
+        submit(type, target, null, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    void submit(AudioCommandType type, Object target, Object argument) {
+        submit(type, target, argument, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    void submit(AudioCommandType type, Object target, int intValue) {
+        submit(type, target, null, intValue, 0, 0, 0, 0, 0, 0);
+    }
+
+    void submit(AudioCommandType type, Object target, int intValue, float x, float y, float z) {
+        submit(type, target, null, intValue, x, y, z, 0, 0, 0);
+    }
+
+    /**
+     * Queue a command, only called on the game loop thread.
+     * Waits for the audio thread if the queue is full, commands are never dropped.
+     */
+    void submit(
+            AudioCommandType type,
+            Object target,
+            Object argument,
+            int intValue,
+            float x,
+            float y,
+            float z,
+            float w,
+            float u,
+            float v
+    ) {
+        while (!mCommandQueue.offer(type, target, argument, intValue, x, y, z, w, u, v)) {
+            if (!mThread.isAlive()) {
+                throw new IllegalStateException("The audio thread has stopped, " + type + " can't be run");
+            }
+
+            mStallCount++;
+            wakeUp();
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Run the queued commands now rather than at the next pass.
+     */
+    void wakeUp() {
+        LockSupport.unpark(mThread);
+    }
+
+    /**
+     * Run the remaining commands, clean up everything still alive, close the OpenAL context
+     * and wait for the thread to end.
+     */
+    void shutDown() {
+        submit(AudioCommandType.SHUT_DOWN, null);
+        wakeUp();
+
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (AudioThread.class) {
+            if (INSTANCE == this) {
+                INSTANCE = null;
+            }
+        }
+    }
+
+    AudioVoicePool getVoicePool() {
+        return mVoicePool;
+    }
+
+    /**
+     * @return times the game loop had to wait because the command queue was full
+     */
+    public long getStallCount() {
+        return mStallCount;
+    }
+
+    /**
+     * @return number of passes the audio thread has made
+     */
+    public long getPassCount() {
+        return mPassCount;
+    }
+}
@@ -0,0 +1,317 @@
+package com.company.engine.audio;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.AL_SEC_OFFSET;
+
+public class AudioVoicePool implements IUsesResources {
+
+    /**
+     * A fixed number of OpenAL sources, voices, shared by every SoundInstance.
+     *
+     * Every update the instances are ranked by priority then by how loud they are estimated to be
+     * at the listener. The highest ranked audible instances get the voices, the rest are virtualised:
+     * their voice is released but their cursor keeps advancing, so they resume in the right place
+     * if they become important again.
+     *
+     * Owned by the AudioThread, play, stopAll and setMaxAudibleDistance can be called on the game loop thread.
+     */
+
+    public static final int DEFAULT_VOICE_COUNT = 32;
+    public static final float DEFAULT_MAX_AUDIBLE_DISTANCE = 100.0f;
+
+    private static final float MIN_AUDIBILITY = 0.001f; //quieter than this is treated as silent
+    private static final float REFERENCE_DISTANCE = 1.0f;
+
+    private final AudioThread mAudioThread;
+    private final EngineMetrics mMetrics;
+
+    //only used on the audio thread
+    private final int[] mVoiceIds;
+    private final int[] mFreeVoiceIndices;
+    private final List<SoundInstance> mInstanceList;
+    private int mFreeVoiceCount;
+
+    private volatile float mMaxAudibleDistance;
+    private volatile int mInstanceCount;
+    private volatile int mVirtualCount;
+
+    /**
+     * Created on the audio thread.
+     */
+    AudioVoicePool(AudioThread audioThread, int voiceCount) {
+        mAudioThread = audioThread;
+        mMetrics = EngineMetrics.getInstance();
+        mVoiceIds = new int[voiceCount];
+        mFreeVoiceIndices = new int[voiceCount];
+        mInstanceList = new ArrayList<>();
+        mMaxAudibleDistance = DEFAULT_MAX_AUDIBLE_DISTANCE;
+
+        for (int i = 0; i < voiceCount; i++) {
+            mVoiceIds[i] = GlObjectRegistry.register(GlObjectType.AL_SOURCE, alGenSources());
+            mFreeVoiceIndices[i] = voiceCount - 1 - i;
+        }
+
+        mFreeVoiceCount = voiceCount;
+    }
+
+    /**
+     * @param position null for a sound played at the listener
+     * @param priority instances with a higher priority take voices from lower ones, whatever their volume
+     */
+    public SoundInstance play(AudioBuffer audioBuffer, Vector3f position, int priority) {
+        SoundInstance instance = new SoundInstance(mAudioThread, audioBuffer, position, priority);
+
+        mAudioThread.submit(AudioCommandType.PLAY_INSTANCE, instance);
+
+        return instance;
+    }
+
+    void addInstance(SoundInstance instance) {
+        mInstanceList.add(instance);
+    }
+
+    /**
+     * Advance the cursors of every instance and hand out the voices, called every pass of the audio thread.
+     * @param interval seconds since the last update
+     */
+    void update(Vector3f listenerPosition, double interval) {
+        advanceInstances(interval);
+
+        float maxAudibleDistance = mMaxAudibleDistance;
+
+        for (int i = 0; i < mInstanceList.size(); i++) {
+            SoundInstance instance = mInstanceList.get(i);
+
+            instance.mAudibility = estimateAudibility(instance, listenerPosition, maxAudibleDistance);
+        }
+
+        sortInstances();
+
+        //release the voices first so they can be given to the instances that need them
+        for (int i = 0; i < mInstanceList.size(); i++) {
+            SoundInstance instance = mInstanceList.get(i);
+
+            if (instance.mVoiceIndex != SoundInstance.NO_VOICE && !shouldHaveVoice(instance, i)) {
+                releaseVoice(instance, true);
+            }
+        }
+
+        int virtualCount = 0;
+
+        for (int i = 0; i < mInstanceList.size(); i++) {
+            SoundInstance instance = mInstanceList.get(i);
+
+            if (!shouldHaveVoice(instance, i)) {
+                virtualCount++;
+            } else if (instance.mVoiceIndex == SoundInstance.NO_VOICE) {
+                acquireVoice(instance);
+            } else {
+                updateVoice(instance);
+            }
+
+            instance.mVirtual = instance.mVoiceIndex == SoundInstance.NO_VOICE;
+        }
+
+        mInstanceCount = mInstanceList.size();
+        mVirtualCount = virtualCount;
+        mMetrics.setAudioVoiceCount(mVoiceIds.length - mFreeVoiceCount);
+    }
+
+    private void advanceInstances(double interval) {
+        for (int i = mInstanceList.size() - 1; i >= 0; i--) {
+            SoundInstance instance = mInstanceList.get(i);
+            double duration = instance.mAudioBuffer.getDurationSeconds();
+            boolean finished = instance.mStopRequested;
+
+            if (!finished && instance.mVoiceIndex != SoundInstance.NO_VOICE) {
+                //the voice's own state is exact, the cursor is only needed if it is virtualised
+                finished = alGetSourcei(mVoiceIds[instance.mVoiceIndex], AL_SOURCE_STATE) == AL_STOPPED;
+                instance.mCursorSeconds += interval;
+            } else if (!finished) {
+                instance.mCursorSeconds += interval;
+                finished = !instance.mLooping && instance.mCursorSeconds >= duration;
+            }
+
+            if (instance.mLooping && duration > 0 && instance.mCursorSeconds >= duration) {
+                instance.mCursorSeconds %= duration;
+            }
+
+            if (finished) {
+                if (instance.mVoiceIndex != SoundInstance.NO_VOICE) {
+                    releaseVoice(instance, false);
+                }
+
+                instance.mFinished = true;
+                mInstanceList.remove(i);
+            }
+        }
+    }
+
+    private static float estimateAudibility(SoundInstance instance, Vector3f listenerPosition, float maxAudibleDistance) {
+        if (instance.mRelative) {
+            return instance.mGain;
+        }
+
+        float distance = instance.mPosition.distance(listenerPosition);
+
+        if (distance > maxAudibleDistance) {
+            return 0;
+        }
+
+        //the inverse distance clamped model with a rolloff of 1, only used to rank the instances
+        return instance.mGain * REFERENCE_DISTANCE / Math.max(REFERENCE_DISTANCE, distance);
+    }
+
+    /**
+     * Insertion sort, the order barely changes between updates and it doesn't allocate.
+     */
+    private void sortInstances() {
+        for (int i = 1; i < mInstanceList.size(); i++) {
+            SoundInstance instance = mInstanceList.get(i);
+            int j = i - 1;
+
+            while (j >= 0 && isRankedHigher(instance, mInstanceList.get(j))) {
+                mInstanceList.set(j + 1, mInstanceList.get(j));
+                j--;
+            }
+
+            mInstanceList.set(j + 1, instance);
+        }
+    }
+
+    private static boolean isRankedHigher(SoundInstance a, SoundInstance b) {
+        if (a.mPriority != b.mPriority) {
+            return a.mPriority > b.mPriority;
+        }
+
+        return a.mAudibility > b.mAudibility;
+    }
+
+    private boolean shouldHaveVoice(SoundInstance instance, int rank) {
+        return rank < mVoiceIds.length && instance.mAudibility >= MIN_AUDIBILITY;
+    }
+
+    private void acquireVoice(SoundInstance instance) {
+        int voiceIndex = mFreeVoiceIndices[--mFreeVoiceCount];
+        int voiceId = mVoiceIds[voiceIndex];
+
+        instance.mVoiceIndex = voiceIndex;
+
+        alSourcei(voiceId, AL_BUFFER, instance.mAudioBuffer.getBufferId());
+        alSourcei(voiceId, AL_LOOPING, instance.mLooping ? AL_TRUE : AL_FALSE);
+        alSourcei(voiceId, AL_SOURCE_RELATIVE, instance.mRelative ? AL_TRUE : AL_FALSE);
+        alSourcef(voiceId, AL_GAIN, instance.mGain);
+        alSource3f(voiceId, AL_POSITION, instance.mPosition.x, instance.mPosition.y, instance.mPosition.z);
+        alSourcef(voiceId, AL_SEC_OFFSET, (float) instance.mCursorSeconds);
+        alSourcePlay(voiceId);
+
+        instance.mPositionDirty = false;
+        instance.mGainDirty = false;
+        instance.mLoopingDirty = false;
+    }
+
+    private void updateVoice(SoundInstance instance) {
+        int voiceId = mVoiceIds[instance.mVoiceIndex];
+
+        if (instance.mPositionDirty) {
+            alSource3f(voiceId, AL_POSITION, instance.mPosition.x, instance.mPosition.y, instance.mPosition.z);
+            instance.mPositionDirty = false;
+        }
+
+        if (instance.mGainDirty) {
+            alSourcef(voiceId, AL_GAIN, instance.mGain);
+            instance.mGainDirty = false;
+        }
+
+        if (instance.mLoopingDirty) {
+            alSourcei(voiceId, AL_LOOPING, instance.mLooping ? AL_TRUE : AL_FALSE);
+            instance.mLoopingDirty = false;
+        }
+    }
+
+    /**
+     * @param keepCursor read where the voice had got to so a virtualised instance carries on from there
+     */
+    private void releaseVoice(SoundInstance instance, boolean keepCursor) {
+        int voiceId = mVoiceIds[instance.mVoiceIndex];
+
+        if (keepCursor) {
+            instance.mCursorSeconds = alGetSourcef(voiceId, AL_SEC_OFFSET);
+        }
+
+        alSourceStop(voiceId);
+        alSourcei(voiceId, AL_BUFFER, 0);
+
+        mFreeVoiceIndices[mFreeVoiceCount++] = instance.mVoiceIndex;
+        instance.mVoiceIndex = SoundInstance.NO_VOICE;
+    }
+
+    /**
+     * Stop every instance at the next pass of the audio thread.
+     */
+    public void stopAll() {
+        mAudioThread.submit(AudioCommandType.STOP_ALL_INSTANCES, this);
+    }
+
+    void executeStopAll() {
+        for (int i = 0; i < mInstanceList.size(); i++) {
+            SoundInstance instance = mInstanceList.get(i);
+
+            if (instance.mVoiceIndex != SoundInstance.NO_VOICE) {
+                releaseVoice(instance, false);
+            }
+
+            instance.mFinished = true;
+        }
+
+        mInstanceList.clear();
+        mInstanceCount = 0;
+        mVirtualCount = 0;
+        mMetrics.setAudioVoiceCount(0);
+    }
+
+    public void setMaxAudibleDistance(float maxAudibleDistance) {
+        mMaxAudibleDistance = maxAudibleDistance;
+    }
+
+    public float getMaxAudibleDistance() {
+        return mMaxAudibleDistance;
+    }
+
+    public int getVoiceCount() {
+        return mVoiceIds.length;
+    }
+
+    /**
+     * @return number of instances playing, real and virtual
+     */
+    public int getInstanceCount() {
+        return mInstanceCount;
+    }
+
+    /**
+     * @return number of instances without a voice after the last update
+     */
+    public int getVirtualCount() {
+        return mVirtualCount;
+    }
+
+    /**
+     * Called by the audio thread when it shuts down.
+     */
+    @Override
+    public void cleanUp() {
+        executeStopAll();
+        alDeleteSources(mVoiceIds);
+        GlObjectRegistry.unregister(GlObjectType.AL_SOURCE, mVoiceIds);
+    }
+}
@@ -0,0 +1,37 @@
+package com.company.engine.audio;
+
+import static org.lwjgl.openal.AL10.*;
+
+public class BufferedAudioSource extends AudioSource {
+
+    /**
+     * Plays a whole AudioBuffer, set with setBuffer. The buffer isn't owned by the source,
+     * many sources can play the same one.
+     */
+
+    public BufferedAudioSource(boolean looping, boolean relative) {
+        super(looping, relative);
+    }
+
+    /**
+     * Stop the source and play the buffer next.
+     */
+    public void setBuffer(AudioBuffer audioBuffer) {
+        submitStateChange(AudioCommandType.SET_SOURCE_BUFFER, AL_STOPPED, audioBuffer);
+    }
+
+    /**
+     * @param bufferId an OpenAL buffer name, prefer setBuffer(AudioBuffer) as the name of an AudioBuffer
+     *                 isn't known until the audio thread has created it
+     */
+    public void setBuffer(int bufferId) {
+        submitStateChange(AudioCommandType.SET_SOURCE_BUFFER, AL_STOPPED, bufferId);
+    }
+
+    //only called on the audio thread
+
+    void executeSetBuffer(int bufferId) {
+        alSourceStop(getSourceId());
+        alSourcei(getSourceId(), AL_BUFFER, bufferId);
+    }
+}
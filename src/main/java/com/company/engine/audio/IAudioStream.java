@@ -0,0 +1,28 @@
+package com.company.engine.audio;
+
+import com.company.engine.IUsesResources;
+
+import java.nio.ShortBuffer;
+
+public interface IAudioStream extends IUsesResources {
+
+    /*
+    A source of 16 bit interleaved PCM that is produced a block at a time rather than
+    held in memory, played through a StreamingAudioSource
+     */
+
+    int getChannels();
+
+    int getSampleRate();
+
+    /**
+     * Fill dest from its position up to its limit, advancing its position.
+     * @return number of frames (samples per channel) written, 0 at the end of the stream
+     */
+    int read(ShortBuffer dest);
+
+    /**
+     * Go back to the start of the stream.
+     */
+    void rewind();
+}
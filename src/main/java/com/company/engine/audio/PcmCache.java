@@ -0,0 +1,219 @@
+package com.company.engine.audio;
+
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import com.company.engine.utils.CacheUtils;
+import com.company.engine.utils.FileUtils;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class PcmCache {
+
+    /**
+     * Stores decoded Vorbis files on disk as raw PCM so later launches can skip decoding.
+     *
+     * Like the MeshCache, a cache file is named after a hash of the source path and its header holds
+     * the format version, the source path and a hash of the source content, so a file that no longer
+     * matches its source is ignored and overwritten by the next decode. Cache files are memory mapped when loaded and the
+     * samples are given to OpenAL straight from the mapping.
+     *
+     * Off by default, decoded PCM is around ten times the size of the Vorbis file.
+     */
+
+    public static final long NO_CONTENT_HASH = CacheUtils.NO_CONTENT_HASH;
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x4C50434D; //"LPCM", read back differently if the byte order changed
+    private static final int FIXED_HEADER_SIZE_BYTES = 4 * 6 + 8; //followed by the source path
+    private static final String FILE_EXTENSION = ".pcmcache";
+    private static final Path DEFAULT_CACHE_DIRECTORY = Paths.get("cache", "audio");
+
+    private static PcmCache INSTANCE;
+
+    private volatile Path mCacheDirectory;
+    private volatile boolean mEnabled;
+
+    private PcmCache() {
+        mCacheDirectory = DEFAULT_CACHE_DIRECTORY;
+        mEnabled = false;
+    }
+
+    public static synchronized PcmCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new PcmCache();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Read the decoded samples of the file from the cache, or decode the file and add it to the cache.
+     * Can be called on any thread.
+     * @param fileName the file system path or resource name of an .ogg Vorbis file
+     */
+    public PcmData loadPcmData(String fileName) throws Exception {
+        if (!mEnabled) {
+            return new PcmData(fileName);
+        }
+
+        ByteBuffer source = FileUtils.mapResource(fileName);
+        long contentHash = CacheUtils.calculateContentHash(source);
+        PcmData pcmData = load(fileName, contentHash);
+
+        if (pcmData == null) {
+            pcmData = new PcmData(source);
+            save(fileName, contentHash, pcmData);
+        }
+
+        return pcmData;
+    }
+
+    /**
+     * @return samples mapped from the cache file or null if there is no up to date cache file
+     */
+    public PcmData load(String sourcePath, long contentHash) {
+        if (!mEnabled || contentHash == NO_CONTENT_HASH) {
+            return null;
+        }
+
+        Path cachePath = getCachePath(sourcePath);
+
+        if (!Files.isReadable(cachePath)) {
+            return null;
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            //check the header before mapping, a stale file can then be replaced straight away
+            ByteBuffer header = CacheUtils.readHeader(fileChannel, 0, FIXED_HEADER_SIZE_BYTES);
+
+            if (header == null ||
+                    header.getInt() != MAGIC ||
+                    header.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            int headerSizeBytes = header.getInt();
+
+            if (header.getLong() != contentHash || headerSizeBytes < FIXED_HEADER_SIZE_BYTES) {
+                return null;
+            }
+
+            int channels = header.getInt();
+            int sampleRate = header.getInt();
+            int sampleCount = header.getInt();
+
+            if (fileChannel.size() < headerSizeBytes + (long) sampleCount * 2) {
+                return null;
+            }
+
+            ByteBuffer pathHeader = CacheUtils.readHeader(
+                    fileChannel,
+                    FIXED_HEADER_SIZE_BYTES,
+                    headerSizeBytes - FIXED_HEADER_SIZE_BYTES
+            );
+
+            //another source whose name hashed to the same file
+            if (pathHeader == null || !CacheUtils.normalisePath(sourcePath).equals(CacheUtils.readString(pathHeader))) {
+                return null;
+            }
+
+            ByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, headerSizeBytes, sampleCount * 2L);
+            ShortBuffer samples = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+
+            //the mapping is released by the garbage collector, not by PcmData.cleanUp
+            return new PcmData(samples, channels, sampleRate, false);
+        } catch (Exception e) {
+            //a damaged cache file is treated the same as a missing one
+            System.err.println("PcmCache: unable to read " + cachePath + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the decoded samples to the cache, failures are reported but not thrown
+     * as the samples have already been decoded.
+     */
+    public void save(String sourcePath, long contentHash, PcmData pcmData) {
+        if (!mEnabled || contentHash == NO_CONTENT_HASH) {
+            return;
+        }
+
+        Path cachePath = getCachePath(sourcePath);
+        ShortBuffer samples = pcmData.getSamples();
+        String normalisedSourcePath = CacheUtils.normalisePath(sourcePath);
+        int headerSizeBytes = FIXED_HEADER_SIZE_BYTES + CacheUtils.calculateStringSize(normalisedSourcePath);
+        ByteBuffer header = null;
+
+        try {
+            header = NativeMemory.memAlloc(headerSizeBytes, MemoryCategory.CACHE).order(ByteOrder.nativeOrder());
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putInt(headerSizeBytes);
+            header.putLong(contentHash);
+            header.putInt(pcmData.getChannels());
+            header.putInt(pcmData.getSampleRate());
+            header.putInt(samples.remaining());
+            CacheUtils.writeString(header, normalisedSourcePath);
+            header.flip();
+
+            //a byte view of the samples, nothing is copied
+            ByteBuffer sampleBytes = MemoryUtil.memByteBuffer(
+                    MemoryUtil.memAddress(samples),
+                    samples.remaining() * 2
+            );
+
+            //write to a temporary file first so a partly written file is never read
+            Files.createDirectories(mCacheDirectory);
+            Path tempPath = Files.createTempFile(mCacheDirectory, "pcm", ".tmp");
+
+            try (FileChannel fileChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    fileChannel.write(header);
+                }
+
+                while (sampleBytes.hasRemaining()) {
+                    fileChannel.write(sampleBytes);
+                }
+            }
+
+            Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("PcmCache: unable to write " + cachePath + " - " + e.getMessage());
+        } finally {
+            NativeMemory.memFree(header);
+        }
+    }
+
+    private Path getCachePath(String sourcePath) {
+        return mCacheDirectory.resolve(CacheUtils.getCacheFileName(sourcePath, FILE_EXTENSION));
+    }
+
+    public void setCacheDirectory(Path cacheDirectory) {
+        mCacheDirectory = cacheDirectory;
+    }
+
+    public Path getCacheDirectory() {
+        return mCacheDirectory;
+    }
+
+    /**
+     * @param enabled true to read and write cache files, off by default
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+}
@@ -0,0 +1,120 @@
+package com.company.engine.audio;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.utils.FileUtils;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import org.lwjgl.stb.STBVorbisInfo;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.AL_FORMAT_MONO16;
+import static org.lwjgl.openal.AL10.AL_FORMAT_STEREO16;
+import static org.lwjgl.stb.STBVorbis.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+public class PcmData implements IUsesResources {
+
+    /**
+     * Decoded 16 bit interleaved PCM samples that have not been given to OpenAL yet.
+     * Decoding does not need the OpenAL context so it can be done on any thread.
+     */
+
+    private final ShortBuffer mSamples;
+    private final int mChannels;
+    private final int mSampleRate;
+    private final boolean mOwningSamples;
+
+    /**
+     * Decode a whole .ogg Vorbis file
+     */
+    public PcmData(String fileName) throws Exception {
+        this(FileUtils.ioResourceToByteBuffer(fileName, 32 * 1024));
+    }
+
+    /**
+     * Decode a whole .ogg Vorbis file that is already in memory
+     * @param vorbisBuffer direct buffer of the file's content, its position is not changed
+     */
+    public PcmData(ByteBuffer vorbisBuffer) throws Exception {
+        try (
+                STBVorbisInfo info = STBVorbisInfo.malloc();
+                MemoryStack stack = MemoryStack.stackPush()
+        ) {
+            IntBuffer error = stack.mallocInt(1);
+            long decoder = stb_vorbis_open_memory(vorbisBuffer, error, null);
+
+            if (decoder == NULL) {
+                throw new RuntimeException(
+                        "Failed to open .ogg Vorbis file. Error: " +
+                                error.get(0)
+                );
+            }
+
+            stb_vorbis_get_info(decoder, info);
+
+            mChannels = info.channels();
+            mSampleRate = info.sample_rate();
+
+            int lengthSamples = stb_vorbis_stream_length_in_samples(decoder);
+
+            mSamples = NativeMemory.memAllocShort(lengthSamples * mChannels, MemoryCategory.AUDIO);
+            mSamples.limit(
+                    stb_vorbis_get_samples_short_interleaved(
+                            decoder, mChannels, mSamples
+                    ) * mChannels
+            );
+
+            stb_vorbis_close(decoder);
+        }
+
+        mOwningSamples = true;
+    }
+
+    /**
+     * @param samples interleaved samples allocated with MemoryUtil, freed in cleanUp
+     */
+    public PcmData(ShortBuffer samples, int channels, int sampleRate) {
+        this(samples, channels, sampleRate, true);
+    }
+
+    /**
+     * @param owningSamples true if the samples were allocated with MemoryUtil and should be freed in cleanUp
+     */
+    public PcmData(ShortBuffer samples, int channels, int sampleRate, boolean owningSamples) {
+        mSamples = samples;
+        mChannels = channels;
+        mSampleRate = sampleRate;
+        mOwningSamples = owningSamples;
+    }
+
+    @Override
+    public void cleanUp() {
+        if (mOwningSamples) {
+            NativeMemory.memFree(mSamples);
+        }
+    }
+
+    public ShortBuffer getSamples() {
+        return mSamples;
+    }
+
+    public int getChannels() {
+        return mChannels;
+    }
+
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    /**
+     * @return the OpenAL buffer format of the samples
+     */
+    public int getFormat() {
+        return mChannels == 1 ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
+    }
+}
@@ -0,0 +1,136 @@
+package com.company.engine.audio;
+
+import org.joml.Vector3f;
+
+import static org.lwjgl.openal.AL10.AL_FALSE;
+import static org.lwjgl.openal.AL10.AL_TRUE;
+
+public class SoundInstance {
+
+    /**
+     * One playback of an AudioBuffer started with AudioManager.play.
+     *
+     * An instance only has an OpenAL source, a voice, while it is one of the most important
+     * audible sounds. Otherwise it is virtual, its playback cursor keeps moving
+     * but nothing is heard, and it carries on from the cursor if it gets a voice back.
+     *
+     * The public methods are called on the game loop thread and queue commands for the AudioThread,
+     * the fields below are only used by the AudioVoicePool on the audio thread.
+     */
+
+    public static final int NO_VOICE = -1;
+
+    private final AudioThread mAudioThread;
+    private final Vector3f mRequestedPosition; //last values sent by the game loop
+    private float mRequestedGain;
+
+    final AudioBuffer mAudioBuffer;
+    final Vector3f mPosition;
+    final boolean mRelative; //positioned relative to the listener, for sounds without a position
+    final int mPriority;
+
+    float mGain;
+    boolean mLooping;
+    float mAudibility; //estimated gain at the listener, updated by the AudioVoicePool
+    int mVoiceIndex;
+    boolean mPositionDirty;
+    boolean mGainDirty;
+    boolean mLoopingDirty;
+    boolean mStopRequested;
+
+    //published by the audio thread
+    volatile double mCursorSeconds;
+    volatile boolean mVirtual;
+    volatile boolean mFinished;
+
+    SoundInstance(AudioThread audioThread, AudioBuffer audioBuffer, Vector3f position, int priority) {
+        mAudioThread = audioThread;
+        mAudioBuffer = audioBuffer;
+        mRelative = position == null;
+        mPosition = position == null ? new Vector3f() : new Vector3f(position);
+        mRequestedPosition = new Vector3f(mPosition);
+        mPriority = priority;
+        mGain = 1.0f;
+        mRequestedGain = 1.0f;
+        mVoiceIndex = NO_VOICE;
+        mVirtual = true;
+    }
+
+    public void setPosition(Vector3f position) {
+        if (!mRequestedPosition.equals(position)) {
+            mRequestedPosition.set(position);
+            mAudioThread.submit(
+                    AudioCommandType.SET_INSTANCE_POSITION,
+                    this,
+                    0,
+                    position.x,
+                    position.y,
+                    position.z
+            );
+        }
+    }
+
+    public void setGain(float gain) {
+        if (mRequestedGain != gain) {
+            mRequestedGain = gain;
+            mAudioThread.submit(AudioCommandType.SET_INSTANCE_GAIN, this, 0, gain, 0, 0);
+        }
+    }
+
+    public void setLooping(boolean looping) {
+        mAudioThread.submit(AudioCommandType.SET_INSTANCE_LOOPING, this, looping ? AL_TRUE : AL_FALSE);
+    }
+
+    /**
+     * Stop at the next pass of the audio thread.
+     */
+    public void stop() {
+        mAudioThread.submit(AudioCommandType.STOP_INSTANCE, this);
+    }
+
+    void applyPosition(float x, float y, float z) {
+        mPosition.set(x, y, z);
+        mPositionDirty = true;
+    }
+
+    void applyGain(float gain) {
+        mGain = gain;
+        mGainDirty = true;
+    }
+
+    void applyLooping(boolean looping) {
+        mLooping = looping;
+        mLoopingDirty = true;
+    }
+
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    public boolean isVirtual() {
+        return !mFinished && mVirtual;
+    }
+
+    public Vector3f getPosition() {
+        return mRequestedPosition;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public float getGain() {
+        return mRequestedGain;
+    }
+
+    /**
+     * @return where playback had got to at the last pass of the audio thread
+     */
+    public double getCursorSeconds() {
+        return mCursorSeconds;
+    }
+
+    public AudioBuffer getAudioBuffer() {
+        return mAudioBuffer;
+    }
+}
@@ -0,0 +1,330 @@
+package com.company.engine.audio;
+
+
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lwjgl.openal.AL10.*;
+
+public class StreamingAudioSource extends AudioSource {
+
+    /**
+     * Plays an IAudioStream through a small ring of queued OpenAL buffers, so memory use stays
+     * the same however long the stream is and playback starts after decoding a single block.
+     *
+     * The AudioStreamDecoder thread decodes blocks ahead into a lock free ring,
+     * update, called every pass of the AudioThread, moves the decoded blocks into the
+     * OpenAL buffers the source has finished playing and queues them again.
+     * Looping is done by rewinding the stream, not with AL_LOOPING.
+     */
+
+    public static final int DEFAULT_BLOCK_FRAMES = 4096; //about 93ms at 44.1kHz
+    public static final int DEFAULT_DECODE_AHEAD_BLOCKS = 8; //blocks decoded ahead of the OpenAL buffers
+
+    private static final int BUFFER_COUNT = 4; //OpenAL buffers queued on the source
+    private static final int PRIME_FRAMES = 4096; //decoded by play before the source starts
+
+    private final IAudioStream mStream;
+    private final int mFormat;
+    private final int mBlockFrames;
+    private final int mDecodeRingSize;
+    private final Object mDecodeLock; //held while decoding, or while the stream is reset
+
+    //decoded blocks, written by the decoder thread, read by update
+    private final ShortBuffer[] mBlocks;
+    private final AtomicLong mWriteBlock;
+    private final AtomicLong mReadBlock;
+    private volatile boolean mStreamEnded;
+    private volatile boolean mStreamLooping;
+    private boolean mClosed;
+
+    //only used on the audio thread
+    private final int[] mBufferIds;
+    private final int[] mFreeBufferIds;
+    private int mFreeBufferCount;
+    private boolean mBuffersCreated;
+    private boolean mPlaying;
+    private boolean mPaused;
+
+    private volatile long mUnderrunCount;
+
+    public StreamingAudioSource(IAudioStream stream, boolean looping, boolean relative) {
+        this(stream, looping, relative, DEFAULT_BLOCK_FRAMES);
+    }
+
+    public StreamingAudioSource(IAudioStream stream, boolean looping, boolean relative, int blockFrames) {
+        this(stream, looping, relative, blockFrames, DEFAULT_DECODE_AHEAD_BLOCKS);
+    }
+
+    /**
+     * The StreamingAudioSource takes ownership of the stream.
+     * At most (decodeAheadBlocks + 4) * blockFrames frames are decoded ahead of what is heard,
+     * see getMaxLatencyFrames, so streams generated live like a Synthesizer should use small values.
+     * @param blockFrames frames per OpenAL buffer, smaller blocks start quicker but underrun more easily
+     * @param decodeAheadBlocks blocks the decoder thread keeps ready for the OpenAL buffers
+     */
+    public StreamingAudioSource(
+            IAudioStream stream,
+            boolean looping,
+            boolean relative,
+            int blockFrames,
+            int decodeAheadBlocks
+    ) {
+        //queued buffers must not use AL_LOOPING
+        super(false, relative);
+
+        if (stream.getChannels() != 1 && stream.getChannels() != 2) {
+            throw new IllegalArgumentException("Only mono and stereo streams can be played, got " + stream.getChannels() + " channels");
+        }
+
+        mStream = stream;
+        mFormat = stream.getChannels() == 1 ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
+        mBlockFrames = blockFrames;
+        mDecodeRingSize = Math.max(1, decodeAheadBlocks);
+        mStreamLooping = looping;
+        mDecodeLock = new Object();
+
+        mBlocks = new ShortBuffer[mDecodeRingSize];
+
+        for (int i = 0; i < mDecodeRingSize; i++) {
+            mBlocks[i] = NativeMemory.memAllocShort(blockFrames * stream.getChannels(), MemoryCategory.AUDIO);
+        }
+
+        mWriteBlock = new AtomicLong();
+        mReadBlock = new AtomicLong();
+
+        mBufferIds = new int[BUFFER_COUNT];
+        mFreeBufferIds = new int[BUFFER_COUNT];
+    }
+
+    /**
+     * Decode blocks until the ring is full or the stream ends, called by the AudioStreamDecoder.
+     */
+    void decodeAhead() {
+        decodeAhead(mDecodeRingSize);
+    }
+
+    private void decodeAhead(int maxBlockCount) {
+        synchronized (mDecodeLock) {
+            int blockCount = 0;
+
+            while (!mClosed && !mStreamEnded && blockCount < maxBlockCount &&
+                    mWriteBlock.get() - mReadBlock.get() < mDecodeRingSize) {
+                long writeBlock = mWriteBlock.get();
+                ShortBuffer block = mBlocks[(int) (writeBlock % mDecodeRingSize)];
+                boolean rewound = false;
+
+                block.clear();
+
+                while (block.hasRemaining()) {
+                    if (mStream.read(block) > 0) {
+                        rewound = false;
+                    } else if (mStreamLooping && !rewound) {
+                        mStream.rewind();
+                        rewound = true;
+                    } else {
+                        //the end, or a looping stream with nothing in it
+                        mStreamEnded = true;
+                        break;
+                    }
+                }
+
+                block.flip();
+
+                if (block.hasRemaining()) {
+                    //publishes the block to update
+                    mWriteBlock.lazySet(writeBlock + 1);
+                    blockCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Refill and queue the buffers the source has finished with.
+     */
+    @Override
+    void update() {
+        if (!mPlaying) {
+            return;
+        }
+
+        int sourceId = getSourceId();
+        int processedCount = alGetSourcei(sourceId, AL_BUFFERS_PROCESSED);
+
+        for (int i = 0; i < processedCount; i++) {
+            mFreeBufferIds[mFreeBufferCount++] = alSourceUnqueueBuffers(sourceId);
+        }
+
+        queueDecodedBlocks();
+
+        if (mFreeBufferCount == BUFFER_COUNT) {
+            if (mStreamEnded && mReadBlock.get() == mWriteBlock.get()) {
+                //played to the end
+                executeStop();
+            }
+
+            return;
+        }
+
+        //the source stops by itself if it plays every queued buffer before update is called
+        if (!mPaused && alGetSourcei(sourceId, AL_SOURCE_STATE) != AL_PLAYING) {
+            mUnderrunCount++;
+            super.executePlay();
+        }
+    }
+
+    private void queueDecodedBlocks() {
+        int sourceId = getSourceId();
+        boolean tookBlock = false;
+
+        while (mFreeBufferCount > 0 && mReadBlock.get() < mWriteBlock.get()) {
+            long readBlock = mReadBlock.get();
+            int bufferId = mFreeBufferIds[--mFreeBufferCount];
+
+            alBufferData(bufferId, mFormat, mBlocks[(int) (readBlock % mDecodeRingSize)], mStream.getSampleRate());
+            alSourceQueueBuffers(sourceId, bufferId);
+
+            //frees the block for the decoder
+            mReadBlock.lazySet(readBlock + 1);
+            tookBlock = true;
+        }
+
+        if (tookBlock) {
+            AudioStreamDecoder.getInstance().wakeUp();
+        }
+    }
+
+    @Override
+    void executePlay() {
+        if (!mBuffersCreated) {
+            //created here rather than in create, which can run before the constructor has finished
+            alGenBuffers(mBufferIds);
+            for (int bufferId : mBufferIds) {
+                GlObjectRegistry.register(GlObjectType.AL_BUFFER, bufferId);
+            }
+            System.arraycopy(mBufferIds, 0, mFreeBufferIds, 0, BUFFER_COUNT);
+            mFreeBufferCount = BUFFER_COUNT;
+            mBuffersCreated = true;
+        }
+
+        if (!mPlaying) {
+            //decode the first blocks here so playback starts straight away, the decoder thread does the rest
+            int primeBlockCount = Math.max(1, Math.min(BUFFER_COUNT, PRIME_FRAMES / mBlockFrames));
+
+            for (int i = 0; i < primeBlockCount && mFreeBufferCount > 0; i++) {
+                decodeAhead(1);
+                queueDecodedBlocks();
+            }
+
+            AudioStreamDecoder.getInstance().addSource(this);
+            mPlaying = true;
+        }
+
+        mPaused = false;
+        super.executePlay();
+    }
+
+    @Override
+    void executePause() {
+        mPaused = true;
+        super.executePause();
+    }
+
+    /**
+     * Stop and go back to the start of the stream.
+     */
+    @Override
+    void executeStop() {
+        super.executeStop();
+
+        AudioStreamDecoder.getInstance().removeSource(this);
+
+        //detaches every queued buffer from a stopped source
+        alSourcei(getSourceId(), AL_BUFFER, 0);
+        System.arraycopy(mBufferIds, 0, mFreeBufferIds, 0, BUFFER_COUNT);
+        mFreeBufferCount = BUFFER_COUNT;
+
+        synchronized (mDecodeLock) {
+            if (!mClosed) {
+                mStream.rewind();
+            }
+
+            mStreamEnded = false;
+            mWriteBlock.set(0);
+            mReadBlock.set(0);
+        }
+
+        mPlaying = false;
+        mPaused = false;
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        mStreamLooping = looping;
+    }
+
+    @Override
+    public boolean isLooping() {
+        return mStreamLooping;
+    }
+
+    @Override
+    int queryState() {
+        //the source stops by itself when it underruns, until update restarts it
+        if (mPlaying && !mPaused) {
+            return AL_PLAYING;
+        }
+
+        return super.queryState();
+    }
+
+    /**
+     * @return times the source ran out of queued buffers before the audio thread refilled them
+     */
+    public long getUnderrunCount() {
+        return mUnderrunCount;
+    }
+
+    /**
+     * @return the most frames that can be queued or decoded ahead of what is being heard
+     */
+    public int getMaxLatencyFrames() {
+        return (mDecodeRingSize + BUFFER_COUNT) * mBlockFrames;
+    }
+
+    public IAudioStream getStream() {
+        return mStream;
+    }
+
+    @Override
+    void executeCleanUp() {
+        if (getSourceId() == 0) {
+            return;
+        }
+
+        executeStop();
+
+        synchronized (mDecodeLock) {
+            mClosed = true;
+
+            for (ShortBuffer block : mBlocks) {
+                NativeMemory.memFree(block);
+            }
+
+            mStream.cleanUp();
+        }
+
+        super.executeCleanUp();
+
+        if (mBuffersCreated) {
+            alDeleteBuffers(mBufferIds);
+            GlObjectRegistry.unregister(GlObjectType.AL_BUFFER, mBufferIds);
+            mBuffersCreated = false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.company.engine.audio;
+
+public class SynthPatch {
+
+    /**
+     * How a Synthesizer note sounds: the waveform of its oscillator and its ADSR envelope.
+     * Immutable, so one patch can be shared by any number of notes and read on the render thread.
+     */
+
+    private final Waveform mWaveform;
+    private final float mAttackSeconds;
+    private final float mDecaySeconds;
+    private final float mSustainLevel;
+    private final float mReleaseSeconds;
+
+    /**
+     * @param attackSeconds time to rise from silence to full level
+     * @param decaySeconds time to fall from full level to the sustain level
+     * @param sustainLevel level held until the note is released, between 0 and 1, 0 ends the note after the decay
+     * @param releaseSeconds time to fall to silence once the note is released
+     */
+    public SynthPatch(
+            Waveform waveform,
+            float attackSeconds,
+            float decaySeconds,
+            float sustainLevel,
+            float releaseSeconds
+    ) {
+        if (attackSeconds < 0 || decaySeconds < 0 || releaseSeconds < 0) {
+            throw new IllegalArgumentException("Envelope times can't be negative");
+        }
+
+        if (sustainLevel < 0 || sustainLevel > 1) {
+            throw new IllegalArgumentException("Sustain level must be between 0 and 1, got " + sustainLevel);
+        }
+
+        mWaveform = waveform;
+        mAttackSeconds = attackSeconds;
+        mDecaySeconds = decaySeconds;
+        mSustainLevel = sustainLevel;
+        mReleaseSeconds = releaseSeconds;
+    }
+
+    public Waveform getWaveform() {
+        return mWaveform;
+    }
+
+    public float getAttackSeconds() {
+        return mAttackSeconds;
+    }
+
+    public float getDecaySeconds() {
+        return mDecaySeconds;
+    }
+
+    public float getSustainLevel() {
+        return mSustainLevel;
+    }
+
+    public float getReleaseSeconds() {
+        return mReleaseSeconds;
+    }
+}
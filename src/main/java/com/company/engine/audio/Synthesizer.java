@@ -0,0 +1,669 @@
+package com.company.engine.audio;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Synthesizer implements IAudioStream {
+
+    /**
+     * A polyphonic software synthesizer, played by giving it to a StreamingAudioSource.
+     *
+     * Notes are started and released on the game loop thread. The events go to the render thread,
+     * the AudioStreamDecoder, through a lock free queue and are applied at the start of the next block.
+     * For each block every active voice runs its oscillator and ADSR envelope and is mixed into a stereo
+     * block, which the StreamingAudioSource hands to OpenAL through its lock free decode ring.
+     *
+     * Voices are stored in parallel arrays and rendering doesn't allocate. When every voice is in use
+     * a new note takes the voice of the quietest released note, or the quietest note if none are released.
+     * read doesn't need OpenAL, so blocks can be rendered and timed headless.
+     */
+
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+    public static final int DEFAULT_MAX_VOICES = 256;
+    public static final int DEFAULT_BLOCK_FRAMES = 512; //about 12ms at 44.1kHz, smaller blocks underrun on a typical device period
+    public static final int DEFAULT_BLOCKS_AHEAD = 2; //blocks rendered ahead of the OpenAL buffers
+    public static final float DEFAULT_MASTER_GAIN = 0.25f;
+    public static final int NO_NOTE = 0;
+
+    private static final int CHANNELS = 2;
+    private static final int EVENT_QUEUE_CAPACITY = 1024;
+
+    private static final byte EVENT_NOTE_ON = 0;
+    private static final byte EVENT_NOTE_OFF = 1;
+    private static final byte EVENT_ALL_NOTES_OFF = 2;
+
+    private static final int STAGE_ATTACK = 0;
+    private static final int STAGE_DECAY = 1;
+    private static final int STAGE_SUSTAIN = 2;
+    private static final int STAGE_RELEASE = 3;
+
+    private static final int SINE_TABLE_SIZE = 4096;
+    private static final float[] SINE_TABLE = createSineTable();
+    private static final Waveform[] WAVEFORMS = Waveform.values();
+
+    private final int mSampleRate;
+    private final int mBlockFrames;
+    private final int mMaxVoices;
+
+    //note events, written by the game loop thread, read by the render thread
+    private final int mEventMask;
+    private final byte[] mEventTypes;
+    private final int[] mEventNoteIds;
+    private final SynthPatch[] mEventPatches;
+    private final float[] mEventFrequencies;
+    private final float[] mEventVelocities;
+    private final float[] mEventPans;
+    private final AtomicLong mEventHead; //next event to apply, only written by the render thread
+    private final AtomicLong mEventTail; //next slot to write, only written by the game loop thread
+    private final AtomicLong mDroppedEventCount;
+    private int mLastNoteId; //only used on the game loop thread
+
+    //voices, only used on the render thread, the first mActiveVoiceCount are playing
+    private final int[] mVoiceNoteIds;
+    private final byte[] mVoiceWaveforms;
+    private final float[] mVoicePhases; //0 to 1
+    private final float[] mVoicePhaseIncrements;
+    private final int[] mVoiceNoiseStates;
+    private final float[] mVoiceGainsLeft;
+    private final float[] mVoiceGainsRight;
+    private final int[] mVoiceStages;
+    private final int[] mVoiceStageFrames; //frames left in the stage
+    private final float[] mVoiceLevels;
+    private final float[] mVoiceLevelSteps; //change of level per frame in the stage
+    private final int[] mVoiceDecayFrames;
+    private final float[] mVoiceSustainLevels;
+    private final int[] mVoiceReleaseFrames;
+    private int mActiveVoiceCount;
+
+    //render buffers, only used on the render thread
+    private final float[] mOscillatorBuffer;
+    private final float[] mMixLeft;
+    private final float[] mMixRight;
+
+    private volatile float mMasterGain;
+
+    //published by the render thread
+    private volatile int mPublishedVoiceCount;
+    private volatile long mLastRenderNanos;
+    private volatile long mMaxRenderNanos;
+    private volatile float mRenderLoad;
+    private volatile long mStolenVoiceCount;
+
+    public Synthesizer() {
+        this(DEFAULT_SAMPLE_RATE, DEFAULT_MAX_VOICES, DEFAULT_BLOCK_FRAMES);
+    }
+
+    /**
+     * @param maxVoices number of notes that can sound at once
+     * @param blockFrames frames rendered per block, play the Synthesizer with a StreamingAudioSource
+     *                    using the same block size, see createAudioSource
+     */
+    public Synthesizer(int sampleRate, int maxVoices, int blockFrames) {
+        if (sampleRate <= 0 || maxVoices <= 0 || blockFrames <= 0) {
+            throw new IllegalArgumentException("Sample rate, voice count and block size must be greater than 0");
+        }
+
+        mSampleRate = sampleRate;
+        mMaxVoices = maxVoices;
+        mBlockFrames = blockFrames;
+
+        mEventMask = EVENT_QUEUE_CAPACITY - 1;
+        mEventTypes = new byte[EVENT_QUEUE_CAPACITY];
+        mEventNoteIds = new int[EVENT_QUEUE_CAPACITY];
+        mEventPatches = new SynthPatch[EVENT_QUEUE_CAPACITY];
+        mEventFrequencies = new float[EVENT_QUEUE_CAPACITY];
+        mEventVelocities = new float[EVENT_QUEUE_CAPACITY];
+        mEventPans = new float[EVENT_QUEUE_CAPACITY];
+        mEventHead = new AtomicLong();
+        mEventTail = new AtomicLong();
+        mDroppedEventCount = new AtomicLong();
+
+        mVoiceNoteIds = new int[maxVoices];
+        mVoiceWaveforms = new byte[maxVoices];
+        mVoicePhases = new float[maxVoices];
+        mVoicePhaseIncrements = new float[maxVoices];
+        mVoiceNoiseStates = new int[maxVoices];
+        mVoiceGainsLeft = new float[maxVoices];
+        mVoiceGainsRight = new float[maxVoices];
+        mVoiceStages = new int[maxVoices];
+        mVoiceStageFrames = new int[maxVoices];
+        mVoiceLevels = new float[maxVoices];
+        mVoiceLevelSteps = new float[maxVoices];
+        mVoiceDecayFrames = new int[maxVoices];
+        mVoiceSustainLevels = new float[maxVoices];
+        mVoiceReleaseFrames = new int[maxVoices];
+
+        mOscillatorBuffer = new float[blockFrames];
+        mMixLeft = new float[blockFrames];
+        mMixRight = new float[blockFrames];
+
+        mMasterGain = DEFAULT_MASTER_GAIN;
+    }
+
+    private static float[] createSineTable() {
+        //one extra entry so interpolation never wraps
+        float[] table = new float[SINE_TABLE_SIZE + 1];
+
+        for (int i = 0; i <= SINE_TABLE_SIZE; i++) {
+            table[i] = (float) Math.sin(2.0 * Math.PI * i / SINE_TABLE_SIZE);
+        }
+
+        return table;
+    }
+
+    /**
+     * A StreamingAudioSource that plays this Synthesizer with the lowest latency it can keep fed.
+     */
+    public StreamingAudioSource createAudioSource() {
+        return new StreamingAudioSource(this, false, true, mBlockFrames, DEFAULT_BLOCKS_AHEAD);
+    }
+
+    /**
+     * Start a note at the next block, called on the game loop thread.
+     * @param velocity gain of the note, 1 is full
+     * @param pan -1 is left, 0 is centre, 1 is right
+     * @return id used to release the note, or NO_NOTE if the event queue was full
+     */
+    public int noteOn(SynthPatch patch, float frequency, float velocity, float pan) {
+        mLastNoteId++;
+
+        if (mLastNoteId == NO_NOTE) {
+            mLastNoteId++;
+        }
+
+        return offerEvent(EVENT_NOTE_ON, mLastNoteId, patch, frequency, velocity, pan) ? mLastNoteId : NO_NOTE;
+    }
+
+    /**
+     * Start the release of a note, called on the game loop thread.
+     */
+    public void noteOff(int noteId) {
+        if (noteId != NO_NOTE) {
+            offerEvent(EVENT_NOTE_OFF, noteId, null, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Start the release of every note, called on the game loop thread.
+     */
+    public void allNotesOff() {
+        offerEvent(EVENT_ALL_NOTES_OFF, NO_NOTE, null, 0, 0, 0);
+    }
+
+    private boolean offerEvent(
+            byte type,
+            int noteId,
+            SynthPatch patch,
+            float frequency,
+            float velocity,
+            float pan
+    ) {
+        long tail = mEventTail.get();
+
+        if (tail - mEventHead.get() > mEventMask) {
+            mDroppedEventCount.incrementAndGet();
+            return false;
+        }
+
+        int slot = (int) (tail & mEventMask);
+
+        mEventTypes[slot] = type;
+        mEventNoteIds[slot] = noteId;
+        mEventPatches[slot] = patch;
+        mEventFrequencies[slot] = frequency;
+        mEventVelocities[slot] = velocity;
+        mEventPans[slot] = pan;
+
+        //publishes the slot to the render thread
+        mEventTail.lazySet(tail + 1);
+
+        return true;
+    }
+
+    /**
+     * Render frames until dest is full, called on the render thread.
+     * @return number of frames written, the Synthesizer never ends
+     */
+    @Override
+    public int read(ShortBuffer dest) {
+        long startTime = System.nanoTime();
+        int frameCount = dest.remaining() / CHANNELS;
+        int frame = 0;
+
+        while (frame < frameCount) {
+            int blockFrames = Math.min(mBlockFrames, frameCount - frame);
+
+            applyEvents();
+            renderBlock(blockFrames);
+            writeBlock(dest, blockFrames);
+            frame += blockFrames;
+        }
+
+        long renderNanos = System.nanoTime() - startTime;
+
+        mLastRenderNanos = renderNanos;
+        mMaxRenderNanos = Math.max(mMaxRenderNanos, renderNanos);
+        mRenderLoad = frameCount > 0 ? (float) (renderNanos * 1e-9 * mSampleRate / frameCount) : 0;
+        mPublishedVoiceCount = mActiveVoiceCount;
+
+        return frameCount;
+    }
+
+    private void applyEvents() {
+        long head = mEventHead.get();
+        long tail = mEventTail.get();
+
+        for (long i = head; i < tail; i++) {
+            int slot = (int) (i & mEventMask);
+
+            switch (mEventTypes[slot]) {
+                case EVENT_NOTE_ON:
+                    startVoice(
+                            mEventNoteIds[slot],
+                            mEventPatches[slot],
+                            mEventFrequencies[slot],
+                            mEventVelocities[slot],
+                            mEventPans[slot]
+                    );
+                    break;
+                case EVENT_NOTE_OFF:
+                    for (int voice = 0; voice < mActiveVoiceCount; voice++) {
+                        if (mVoiceNoteIds[voice] == mEventNoteIds[slot]) {
+                            releaseVoice(voice);
+                            break;
+                        }
+                    }
+                    break;
+                case EVENT_ALL_NOTES_OFF:
+                    for (int voice = 0; voice < mActiveVoiceCount; voice++) {
+                        releaseVoice(voice);
+                    }
+                    break;
+            }
+
+            mEventPatches[slot] = null;
+        }
+
+        //frees the slots for the game loop thread
+        mEventHead.lazySet(tail);
+    }
+
+    private void startVoice(int noteId, SynthPatch patch, float frequency, float velocity, float pan) {
+        int voice;
+
+        if (mActiveVoiceCount < mMaxVoices) {
+            voice = mActiveVoiceCount++;
+            mVoiceLevels[voice] = 0;
+        } else {
+            //the stolen voice's level is kept so the new note ramps from it rather than clicking
+            voice = findVoiceToSteal();
+            mStolenVoiceCount++;
+        }
+
+        //constant power pan
+        double angle = (Math.max(-1.0f, Math.min(1.0f, pan)) + 1.0) * Math.PI / 4.0;
+        int attackFrames = toFrames(patch.getAttackSeconds());
+
+        mVoiceNoteIds[voice] = noteId;
+        mVoiceWaveforms[voice] = (byte) patch.getWaveform().ordinal();
+        mVoicePhases[voice] = 0;
+        mVoicePhaseIncrements[voice] = Math.min(0.5f, frequency / mSampleRate);
+        mVoiceNoiseStates[voice] = noteId * 0x9E3779B9 | 1;
+        mVoiceGainsLeft[voice] = (float) Math.cos(angle) * velocity;
+        mVoiceGainsRight[voice] = (float) Math.sin(angle) * velocity;
+        mVoiceStages[voice] = STAGE_ATTACK;
+        mVoiceStageFrames[voice] = attackFrames;
+        mVoiceLevelSteps[voice] = (1.0f - mVoiceLevels[voice]) / attackFrames;
+        mVoiceDecayFrames[voice] = toFrames(patch.getDecaySeconds());
+        mVoiceSustainLevels[voice] = patch.getSustainLevel();
+        mVoiceReleaseFrames[voice] = toFrames(patch.getReleaseSeconds());
+    }
+
+    private int toFrames(float seconds) {
+        return Math.max(1, Math.round(seconds * mSampleRate));
+    }
+
+    private int findVoiceToSteal() {
+        int quietestVoice = 0;
+        boolean quietestReleased = false;
+
+        for (int voice = 0; voice < mActiveVoiceCount; voice++) {
+            boolean released = mVoiceStages[voice] == STAGE_RELEASE;
+
+            if (released && !quietestReleased ||
+                    released == quietestReleased && mVoiceLevels[voice] < mVoiceLevels[quietestVoice]) {
+                quietestVoice = voice;
+                quietestReleased = released;
+            }
+        }
+
+        return quietestVoice;
+    }
+
+    private void releaseVoice(int voice) {
+        if (mVoiceStages[voice] == STAGE_RELEASE) {
+            return;
+        }
+
+        mVoiceStages[voice] = STAGE_RELEASE;
+        mVoiceStageFrames[voice] = mVoiceReleaseFrames[voice];
+        mVoiceLevelSteps[voice] = -mVoiceLevels[voice] / mVoiceReleaseFrames[voice];
+    }
+
+    private void renderBlock(int frameCount) {
+        Arrays.fill(mMixLeft, 0, frameCount, 0);
+        Arrays.fill(mMixRight, 0, frameCount, 0);
+
+        //backwards, finished voices are replaced by the last active voice
+        for (int voice = mActiveVoiceCount - 1; voice >= 0; voice--) {
+            if (!renderVoice(voice, frameCount)) {
+                removeVoice(voice);
+            }
+        }
+    }
+
+    /**
+     * @return false if the voice finished
+     */
+    private boolean renderVoice(int voice, int frameCount) {
+        int frame = 0;
+
+        while (frame < frameCount) {
+            int runFrames = Math.min(frameCount - frame, mVoiceStageFrames[voice]);
+
+            renderRun(voice, frame, runFrames);
+            frame += runFrames;
+            mVoiceStageFrames[voice] -= runFrames;
+
+            if (mVoiceStageFrames[voice] == 0 && !nextStage(voice)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return false if the envelope has finished
+     */
+    private boolean nextStage(int voice) {
+        switch (mVoiceStages[voice]) {
+            case STAGE_ATTACK:
+                mVoiceLevels[voice] = 1.0f;
+                mVoiceStages[voice] = STAGE_DECAY;
+                mVoiceStageFrames[voice] = mVoiceDecayFrames[voice];
+                mVoiceLevelSteps[voice] = (mVoiceSustainLevels[voice] - 1.0f) / mVoiceDecayFrames[voice];
+                return true;
+            case STAGE_DECAY:
+                mVoiceLevels[voice] = mVoiceSustainLevels[voice];
+                mVoiceStages[voice] = STAGE_SUSTAIN;
+                mVoiceStageFrames[voice] = Integer.MAX_VALUE;
+                mVoiceLevelSteps[voice] = 0;
+                //a sustain level of 0 is a note that ends by itself
+                return mVoiceSustainLevels[voice] > 0;
+            case STAGE_SUSTAIN:
+                mVoiceStageFrames[voice] = Integer.MAX_VALUE;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Run the oscillator of the voice for a number of frames with a constant envelope slope and mix it in.
+     */
+    private void renderRun(int voice, int start, int frameCount) {
+        float[] samples = mOscillatorBuffer;
+        float phase = mVoicePhases[voice];
+        float phaseIncrement = mVoicePhaseIncrements[voice];
+
+        switch (WAVEFORMS[mVoiceWaveforms[voice]]) {
+            case SINE:
+                phase = renderSine(samples, frameCount, phase, phaseIncrement);
+                break;
+            case SQUARE:
+                phase = renderSquare(samples, frameCount, phase, phaseIncrement);
+                break;
+            case SAWTOOTH:
+                phase = renderSawtooth(samples, frameCount, phase, phaseIncrement);
+                break;
+            case TRIANGLE:
+                phase = renderTriangle(samples, frameCount, phase, phaseIncrement);
+                break;
+            case NOISE:
+                mVoiceNoiseStates[voice] = renderNoise(samples, frameCount, mVoiceNoiseStates[voice]);
+                break;
+        }
+
+        float level = mVoiceLevels[voice];
+        float levelStep = mVoiceLevelSteps[voice];
+        float gainLeft = mVoiceGainsLeft[voice];
+        float gainRight = mVoiceGainsRight[voice];
+
+        for (int i = 0; i < frameCount; i++) {
+            float sample = samples[i] * level;
+
+            mMixLeft[start + i] += sample * gainLeft;
+            mMixRight[start + i] += sample * gainRight;
+            level += levelStep;
+        }
+
+        mVoicePhases[voice] = phase;
+        mVoiceLevels[voice] = level;
+    }
+
+    private static float renderSine(float[] samples, int frameCount, float phase, float phaseIncrement) {
+        for (int i = 0; i < frameCount; i++) {
+            float position = phase * SINE_TABLE_SIZE;
+            int index = (int) position;
+            float a = SINE_TABLE[index];
+
+            samples[i] = a + (SINE_TABLE[index + 1] - a) * (position - index);
+            phase += phaseIncrement;
+
+            if (phase >= 1.0f) {
+                phase -= 1.0f;
+            }
+        }
+
+        return phase;
+    }
+
+    private static float renderSquare(float[] samples, int frameCount, float phase, float phaseIncrement) {
+        for (int i = 0; i < frameCount; i++) {
+            float shiftedPhase = phase < 0.5f ? phase + 0.5f : phase - 0.5f;
+
+            samples[i] = (phase < 0.5f ? 1.0f : -1.0f) +
+                    polyBlep(phase, phaseIncrement) -
+                    polyBlep(shiftedPhase, phaseIncrement);
+            phase += phaseIncrement;
+
+            if (phase >= 1.0f) {
+                phase -= 1.0f;
+            }
+        }
+
+        return phase;
+    }
+
+    private static float renderSawtooth(float[] samples, int frameCount, float phase, float phaseIncrement) {
+        for (int i = 0; i < frameCount; i++) {
+            samples[i] = 2.0f * phase - 1.0f - polyBlep(phase, phaseIncrement);
+            phase += phaseIncrement;
+
+            if (phase >= 1.0f) {
+                phase -= 1.0f;
+            }
+        }
+
+        return phase;
+    }
+
+    private static float renderTriangle(float[] samples, int frameCount, float phase, float phaseIncrement) {
+        for (int i = 0; i < frameCount; i++) {
+            samples[i] = 1.0f - 4.0f * Math.abs(phase - 0.5f);
+            phase += phaseIncrement;
+
+            if (phase >= 1.0f) {
+                phase -= 1.0f;
+            }
+        }
+
+        return phase;
+    }
+
+    private static int renderNoise(float[] samples, int frameCount, int state) {
+        for (int i = 0; i < frameCount; i++) {
+            //xorshift
+            state ^= state << 13;
+            state ^= state >>> 17;
+            state ^= state << 5;
+            samples[i] = state * (1.0f / Integer.MAX_VALUE);
+        }
+
+        return state;
+    }
+
+    /**
+     * Smooths the jump of a square or sawtooth wave at phase 0 to remove most of the aliasing.
+     */
+    private static float polyBlep(float phase, float phaseIncrement) {
+        if (phase < phaseIncrement) {
+            float t = phase / phaseIncrement;
+
+            return t + t - t * t - 1.0f;
+        }
+
+        if (phase > 1.0f - phaseIncrement) {
+            float t = (phase - 1.0f) / phaseIncrement;
+
+            return t * t + t + t + 1.0f;
+        }
+
+        return 0;
+    }
+
+    private void removeVoice(int voice) {
+        int last = --mActiveVoiceCount;
+
+        if (voice == last) {
+            return;
+        }
+
+        mVoiceNoteIds[voice] = mVoiceNoteIds[last];
+        mVoiceWaveforms[voice] = mVoiceWaveforms[last];
+        mVoicePhases[voice] = mVoicePhases[last];
+        mVoicePhaseIncrements[voice] = mVoicePhaseIncrements[last];
+        mVoiceNoiseStates[voice] = mVoiceNoiseStates[last];
+        mVoiceGainsLeft[voice] = mVoiceGainsLeft[last];
+        mVoiceGainsRight[voice] = mVoiceGainsRight[last];
+        mVoiceStages[voice] = mVoiceStages[last];
+        mVoiceStageFrames[voice] = mVoiceStageFrames[last];
+        mVoiceLevels[voice] = mVoiceLevels[last];
+        mVoiceLevelSteps[voice] = mVoiceLevelSteps[last];
+        mVoiceDecayFrames[voice] = mVoiceDecayFrames[last];
+        mVoiceSustainLevels[voice] = mVoiceSustainLevels[last];
+        mVoiceReleaseFrames[voice] = mVoiceReleaseFrames[last];
+    }
+
+    private void writeBlock(ShortBuffer dest, int frameCount) {
+        float masterGain = mMasterGain;
+
+        for (int i = 0; i < frameCount; i++) {
+            dest.put(toSample(mMixLeft[i] * masterGain));
+            dest.put(toSample(mMixRight[i] * masterGain));
+        }
+    }
+
+    /**
+     * Cubic soft clip, so many loud notes saturate rather than wrapping around.
+     */
+    private static short toSample(float value) {
+        if (value >= 1.0f) {
+            return Short.MAX_VALUE;
+        }
+
+        if (value <= -1.0f) {
+            return -Short.MAX_VALUE;
+        }
+
+        return (short) ((1.5f * value - 0.5f * value * value * value) * Short.MAX_VALUE);
+    }
+
+    /**
+     * Silence every voice straight away, called when the StreamingAudioSource stops.
+     */
+    @Override
+    public void rewind() {
+        mActiveVoiceCount = 0;
+        mPublishedVoiceCount = 0;
+    }
+
+    @Override
+    public int getChannels() {
+        return CHANNELS;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    public int getBlockFrames() {
+        return mBlockFrames;
+    }
+
+    public int getMaxVoices() {
+        return mMaxVoices;
+    }
+
+    public void setMasterGain(float masterGain) {
+        mMasterGain = masterGain;
+    }
+
+    public float getMasterGain() {
+        return mMasterGain;
+    }
+
+    /**
+     * @return number of voices sounding after the last block
+     */
+    public int getActiveVoiceCount() {
+        return mPublishedVoiceCount;
+    }
+
+    public long getLastRenderNanos() {
+        return mLastRenderNanos;
+    }
+
+    public long getMaxRenderNanos() {
+        return mMaxRenderNanos;
+    }
+
+    /**
+     * @return time taken to render the last read divided by the time it plays for, dropouts start above 1
+     */
+    public float getRenderLoad() {
+        return mRenderLoad;
+    }
+
+    /**
+     * @return notes that took the voice of another note because every voice was in use
+     */
+    public long getStolenVoiceCount() {
+        return mStolenVoiceCount;
+    }
+
+    /**
+     * @return note events lost because they were sent faster than blocks were rendered
+     */
+    public long getDroppedEventCount() {
+        return mDroppedEventCount.get();
+    }
+
+    @Override
+    public void cleanUp() {
+
+    }
+}
@@ -0,0 +1,96 @@
+package com.company.engine.audio;
+
+import com.company.engine.utils.FileUtils;
+import org.lwjgl.stb.STBVorbisInfo;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.stb.STBVorbis.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+public class VorbisAudioStream implements IAudioStream {
+
+    /**
+     * Decodes an .ogg Vorbis file a block at a time.
+     * Only the compressed file is kept in memory, the decoded samples are never held all at once.
+     * Not thread safe, a stream must only be read by one thread at a time.
+     */
+
+    private final String mFileName;
+    private final ByteBuffer mVorbisBuffer; //must stay reachable while the decoder is open
+    private final int mChannels;
+    private final int mSampleRate;
+    private final int mLengthFrames;
+
+    private long mDecoder;
+
+    public VorbisAudioStream(String fileName) throws Exception {
+        mFileName = fileName;
+        mVorbisBuffer = FileUtils.ioResourceToByteBuffer(fileName, 32 * 1024);
+
+        try (
+                STBVorbisInfo info = STBVorbisInfo.malloc();
+                MemoryStack stack = MemoryStack.stackPush()
+        ) {
+            IntBuffer error = stack.mallocInt(1);
+
+            mDecoder = stb_vorbis_open_memory(mVorbisBuffer, error, null);
+
+            if (mDecoder == NULL) {
+                throw new RuntimeException(
+                        "Failed to open .ogg Vorbis file " + fileName + ". Error: " +
+                                error.get(0)
+                );
+            }
+
+            stb_vorbis_get_info(mDecoder, info);
+
+            mChannels = info.channels();
+            mSampleRate = info.sample_rate();
+            mLengthFrames = stb_vorbis_stream_length_in_samples(mDecoder);
+        }
+    }
+
+    @Override
+    public int read(ShortBuffer dest) {
+        int frames = stb_vorbis_get_samples_short_interleaved(mDecoder, mChannels, dest);
+
+        dest.position(dest.position() + frames * mChannels);
+
+        return frames;
+    }
+
+    @Override
+    public void rewind() {
+        stb_vorbis_seek_start(mDecoder);
+    }
+
+    @Override
+    public void cleanUp() {
+        if (mDecoder != NULL) {
+            stb_vorbis_close(mDecoder);
+            mDecoder = NULL;
+        }
+    }
+
+    @Override
+    public int getChannels() {
+        return mChannels;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    public int getLengthFrames() {
+        return mLengthFrames;
+    }
+
+    public String getFileName() {
+        return mFileName;
+    }
+}
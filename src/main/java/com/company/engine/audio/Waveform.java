@@ -0,0 +1,9 @@
+package com.company.engine.audio;
+
+public enum Waveform {
+    SINE,
+    SQUARE, //band limited with PolyBLEP
+    SAWTOOTH, //band limited with PolyBLEP
+    TRIANGLE,
+    NOISE
+}
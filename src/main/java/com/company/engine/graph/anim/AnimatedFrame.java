@@ -1,27 +1,114 @@
 package com.company.engine.graph.anim;
 
+import org.joml.Matrix3f;
 import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
 
 import java.util.Arrays;
 
 public class AnimatedFrame {
 
-    private static final Matrix4f IDENTITY_MATRIX = new Matrix4f();
+    /**
+     * The pose of every joint at one keyframe of an Animation.
+     *
+     * Joint matrices are relative to the joint's parent in the Animation's Skeleton and are stored
+     * decomposed into translation, rotation and scale so keyframes can be interpolated,
+     * only the joints that are set use memory.
+     */
 
     public static final int MAX_JOINTS = 150;
 
-    private final Matrix4f[] mJointMatrixArray;
+    //translation xyz, rotation quaternion xyzw, scale xyz
+    static final int JOINT_TRANSFORM_SIZE = 10;
+    static final int TRANSLATION_OFFSET = 0;
+    static final int ROTATION_OFFSET = 3;
+    static final int SCALE_OFFSET = 7;
+
+    private float[] mJointTransformArray;
+    private int mJointCount;
 
     public AnimatedFrame() {
-        mJointMatrixArray = new Matrix4f[MAX_JOINTS];
-        Arrays.fill(mJointMatrixArray, IDENTITY_MATRIX);
+        mJointTransformArray = new float[0];
+        mJointCount = 0;
     }
 
-    public Matrix4f[] getJointMatrixArray() {
-        return mJointMatrixArray;
+    /**
+     * Store the joint's transform relative to its parent joint, it must only translate, rotate and scale.
+     */
+    public void setJointMatrix(int index, Matrix4f jointMatrix) {
+        if (index < 0 || index >= MAX_JOINTS) {
+            throw new IndexOutOfBoundsException("Joint index " + index + " is outside 0 - " + (MAX_JOINTS - 1));
+        }
+
+        if (index >= mJointCount) {
+            setJointCount(index + 1);
+        }
+
+        Vector3f translation = jointMatrix.getTranslation(new Vector3f());
+        Vector3f scale = jointMatrix.getScale(new Vector3f());
+        //remove the scale from the columns before extracting the rotation
+        Matrix3f rotationMatrix = jointMatrix.get3x3(new Matrix3f()).scale(1.0f / scale.x, 1.0f / scale.y, 1.0f / scale.z);
+        Quaternionf rotation = new Quaternionf().setFromNormalized(rotationMatrix);
+        int offset = index * JOINT_TRANSFORM_SIZE;
+
+        mJointTransformArray[offset + TRANSLATION_OFFSET] = translation.x;
+        mJointTransformArray[offset + TRANSLATION_OFFSET + 1] = translation.y;
+        mJointTransformArray[offset + TRANSLATION_OFFSET + 2] = translation.z;
+        mJointTransformArray[offset + ROTATION_OFFSET] = rotation.x;
+        mJointTransformArray[offset + ROTATION_OFFSET + 1] = rotation.y;
+        mJointTransformArray[offset + ROTATION_OFFSET + 2] = rotation.z;
+        mJointTransformArray[offset + ROTATION_OFFSET + 3] = rotation.w;
+        mJointTransformArray[offset + SCALE_OFFSET] = scale.x;
+        mJointTransformArray[offset + SCALE_OFFSET + 1] = scale.y;
+        mJointTransformArray[offset + SCALE_OFFSET + 2] = scale.z;
     }
 
-    public void setJointMatrix(int index, Matrix4f jointMatrix) {
-        mJointMatrixArray[index] = jointMatrix;
+    /**
+     * @return dest, set to the matrix of the joint or identity if the joint was never set
+     */
+    public Matrix4f getJointMatrix(int index, Matrix4f dest) {
+        if (index >= mJointCount) {
+            return dest.identity();
+        }
+
+        int offset = index * JOINT_TRANSFORM_SIZE;
+
+        return dest.translationRotateScale(
+                mJointTransformArray[offset + TRANSLATION_OFFSET],
+                mJointTransformArray[offset + TRANSLATION_OFFSET + 1],
+                mJointTransformArray[offset + TRANSLATION_OFFSET + 2],
+                mJointTransformArray[offset + ROTATION_OFFSET],
+                mJointTransformArray[offset + ROTATION_OFFSET + 1],
+                mJointTransformArray[offset + ROTATION_OFFSET + 2],
+                mJointTransformArray[offset + ROTATION_OFFSET + 3],
+                mJointTransformArray[offset + SCALE_OFFSET],
+                mJointTransformArray[offset + SCALE_OFFSET + 1],
+                mJointTransformArray[offset + SCALE_OFFSET + 2]
+        );
+    }
+
+    private void setJointCount(int jointCount) {
+        int oldLength = mJointTransformArray.length;
+
+        mJointTransformArray = Arrays.copyOf(mJointTransformArray, jointCount * JOINT_TRANSFORM_SIZE);
+
+        //joints that haven't been set are identity
+        for (int offset = oldLength; offset < mJointTransformArray.length; offset += JOINT_TRANSFORM_SIZE) {
+            mJointTransformArray[offset + ROTATION_OFFSET + 3] = 1.0f;
+            mJointTransformArray[offset + SCALE_OFFSET] = 1.0f;
+            mJointTransformArray[offset + SCALE_OFFSET + 1] = 1.0f;
+            mJointTransformArray[offset + SCALE_OFFSET + 2] = 1.0f;
+        }
+
+        mJointCount = jointCount;
+    }
+
+    float[] getJointTransformArray() {
+        return mJointTransformArray;
+    }
+
+    public int getJointCount() {
+        return mJointCount;
     }
-}
\ No newline at end of file
+}
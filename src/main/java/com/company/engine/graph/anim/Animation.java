@@ -4,20 +4,63 @@ import java.util.List;
 
 public class Animation {
 
+    /**
+     * A looping list of keyframes spread evenly over the duration (in seconds).
+     *
+     * Keyframes hold each joint's transform relative to its parent in the Skeleton.
+     * sample(time, palette) interpolates those local transforms between the two keyframes either
+     * side of the time and only then composes them down the hierarchy, interpolating composed
+     * matrices would shear and scale the mesh part way through a blend.
+     * nextFrame / getCurrentFrame step through the keyframes without interpolation.
+     */
+
+    public static final int JOINT_MATRIX_SIZE = 16; //floats used by one joint matrix in a palette
+
     private int mCurrentFrame;
     private List<AnimatedFrame> mAnimatedFrameList;
     private String mName;
     private double mDuration;
+    private int mJointCount;
+    private Skeleton mSkeleton;
 
+    /**
+     * An animation of unconnected joints, each keyframe holds the joints' whole transforms.
+     */
     public Animation(
             String name,
             List<AnimatedFrame> animatedFrameList,
             double duration
+    ) {
+        this(
+                name,
+                animatedFrameList,
+                duration,
+                Skeleton.createUnconnected(findJointCount(animatedFrameList))
+        );
+    }
+
+    public Animation(
+            String name,
+            List<AnimatedFrame> animatedFrameList,
+            double duration,
+            Skeleton skeleton
     ) {
         mName = name;
         mAnimatedFrameList = animatedFrameList;
         mDuration = duration;
         mCurrentFrame = 0;
+        mSkeleton = skeleton;
+        mJointCount = Math.max(findJointCount(animatedFrameList), skeleton.getJointCount());
+    }
+
+    private static int findJointCount(List<AnimatedFrame> animatedFrameList) {
+        int jointCount = 0;
+
+        for (AnimatedFrame animatedFrame : animatedFrameList) {
+            jointCount = Math.max(jointCount, animatedFrame.getJointCount());
+        }
+
+        return jointCount;
     }
 
     public void nextFrame() {
@@ -30,6 +73,197 @@ public class Animation {
         }
     }
 
+    /**
+     * Write the joint matrices of the pose at the time into the palette,
+     * JOINT_MATRIX_SIZE floats per joint in column major order.
+     * Only reads the Animation so it can be called from multiple threads at once.
+     *
+     * @param time seconds since the start of the animation, wraps around the duration
+     * @param palette at least getJointCount() * JOINT_MATRIX_SIZE floats
+     */
+    public void sample(double time, float[] palette) {
+        int frameCount = mAnimatedFrameList.size();
+
+        if (frameCount == 0) {
+            return;
+        }
+
+        double frameTime = 0;
+        int frame = 0;
+
+        if (mDuration > 0 && frameCount > 1) {
+            double loopTime = time % mDuration;
+
+            if (loopTime < 0) {
+                loopTime += mDuration;
+            }
+
+            frameTime = loopTime / mDuration * frameCount;
+            frame = Math.min((int) frameTime, frameCount - 1);
+        }
+
+        AnimatedFrame current = mAnimatedFrameList.get(frame);
+        AnimatedFrame next = mAnimatedFrameList.get((frame + 1) % frameCount);
+        float blend = (float) (frameTime - frame);
+
+        //parents come first, so a parent's pose is in the palette before its children need it
+        for (int joint = 0; joint < mJointCount; joint++) {
+            int offset = joint * JOINT_MATRIX_SIZE;
+            int parent = mSkeleton.getParentIndex(joint);
+
+            interpolateJoint(current, next, joint, blend, palette, offset);
+
+            if (parent != Skeleton.NO_PARENT) {
+                multiplyByParent(palette, parent * JOINT_MATRIX_SIZE, offset);
+            }
+        }
+
+        float[] inverseBindMatrices = mSkeleton.getInverseBindMatrices();
+
+        if (inverseBindMatrices == null) {
+            return;
+        }
+
+        for (int joint = 0; joint < mSkeleton.getJointCount(); joint++) {
+            multiplyByInverseBind(palette, joint * JOINT_MATRIX_SIZE, inverseBindMatrices);
+        }
+    }
+
+    /**
+     * Replace the local matrix at offset with parent * local, column by column so no scratch matrix is needed.
+     */
+    private static void multiplyByParent(float[] palette, int parentOffset, int offset) {
+        for (int column = 0; column < 4; column++) {
+            int columnOffset = offset + column * 4;
+            float x = palette[columnOffset];
+            float y = palette[columnOffset + 1];
+            float z = palette[columnOffset + 2];
+            float w = palette[columnOffset + 3];
+
+            for (int row = 0; row < 4; row++) {
+                palette[columnOffset + row] = palette[parentOffset + row] * x +
+                        palette[parentOffset + 4 + row] * y +
+                        palette[parentOffset + 8 + row] * z +
+                        palette[parentOffset + 12 + row] * w;
+            }
+        }
+    }
+
+    /**
+     * Replace the posed matrix at offset with pose * inverse bind, row by row.
+     */
+    private static void multiplyByInverseBind(float[] palette, int offset, float[] inverseBindMatrices) {
+        for (int row = 0; row < 4; row++) {
+            float x = palette[offset + row];
+            float y = palette[offset + 4 + row];
+            float z = palette[offset + 8 + row];
+            float w = palette[offset + 12 + row];
+
+            for (int column = 0; column < 4; column++) {
+                int bindOffset = offset + column * 4;
+
+                palette[offset + column * 4 + row] = x * inverseBindMatrices[bindOffset] +
+                        y * inverseBindMatrices[bindOffset + 1] +
+                        z * inverseBindMatrices[bindOffset + 2] +
+                        w * inverseBindMatrices[bindOffset + 3];
+            }
+        }
+    }
+
+    private static void interpolateJoint(
+            AnimatedFrame current,
+            AnimatedFrame next,
+            int joint,
+            float blend,
+            float[] palette,
+            int paletteOffset
+    ) {
+        float[] a = current.getJointTransformArray();
+        float[] b = next.getJointTransformArray();
+        int aOffset = joint < current.getJointCount() ? joint * AnimatedFrame.JOINT_TRANSFORM_SIZE : -1;
+        int bOffset = joint < next.getJointCount() ? joint * AnimatedFrame.JOINT_TRANSFORM_SIZE : -1;
+
+        float tx = lerp(a, aOffset, b, bOffset, AnimatedFrame.TRANSLATION_OFFSET, 0, blend);
+        float ty = lerp(a, aOffset, b, bOffset, AnimatedFrame.TRANSLATION_OFFSET + 1, 0, blend);
+        float tz = lerp(a, aOffset, b, bOffset, AnimatedFrame.TRANSLATION_OFFSET + 2, 0, blend);
+        float sx = lerp(a, aOffset, b, bOffset, AnimatedFrame.SCALE_OFFSET, 1, blend);
+        float sy = lerp(a, aOffset, b, bOffset, AnimatedFrame.SCALE_OFFSET + 1, 1, blend);
+        float sz = lerp(a, aOffset, b, bOffset, AnimatedFrame.SCALE_OFFSET + 2, 1, blend);
+
+        float ax = get(a, aOffset, AnimatedFrame.ROTATION_OFFSET, 0);
+        float ay = get(a, aOffset, AnimatedFrame.ROTATION_OFFSET + 1, 0);
+        float az = get(a, aOffset, AnimatedFrame.ROTATION_OFFSET + 2, 0);
+        float aw = get(a, aOffset, AnimatedFrame.ROTATION_OFFSET + 3, 1);
+        float bx = get(b, bOffset, AnimatedFrame.ROTATION_OFFSET, 0);
+        float by = get(b, bOffset, AnimatedFrame.ROTATION_OFFSET + 1, 0);
+        float bz = get(b, bOffset, AnimatedFrame.ROTATION_OFFSET + 2, 0);
+        float bw = get(b, bOffset, AnimatedFrame.ROTATION_OFFSET + 3, 1);
+
+        //normalised lerp along the shortest path, close enough to slerp between neighbouring keyframes
+        if (ax * bx + ay * by + az * bz + aw * bw < 0) {
+            bx = -bx;
+            by = -by;
+            bz = -bz;
+            bw = -bw;
+        }
+
+        float qx = ax + (bx - ax) * blend;
+        float qy = ay + (by - ay) * blend;
+        float qz = az + (bz - az) * blend;
+        float qw = aw + (bw - aw) * blend;
+        float length = (float) Math.sqrt(qx * qx + qy * qy + qz * qz + qw * qw);
+
+        if (length > 0) {
+            qx /= length;
+            qy /= length;
+            qz /= length;
+            qw /= length;
+        } else {
+            qw = 1;
+        }
+
+        //rotation matrix scaled per column, then translation
+        float xx = qx * qx, yy = qy * qy, zz = qz * qz;
+        float xy = qx * qy, xz = qx * qz, yz = qy * qz;
+        float wx = qw * qx, wy = qw * qy, wz = qw * qz;
+
+        palette[paletteOffset] = (1 - 2 * (yy + zz)) * sx;
+        palette[paletteOffset + 1] = 2 * (xy + wz) * sx;
+        palette[paletteOffset + 2] = 2 * (xz - wy) * sx;
+        palette[paletteOffset + 3] = 0;
+        palette[paletteOffset + 4] = 2 * (xy - wz) * sy;
+        palette[paletteOffset + 5] = (1 - 2 * (xx + zz)) * sy;
+        palette[paletteOffset + 6] = 2 * (yz + wx) * sy;
+        palette[paletteOffset + 7] = 0;
+        palette[paletteOffset + 8] = 2 * (xz + wy) * sz;
+        palette[paletteOffset + 9] = 2 * (yz - wx) * sz;
+        palette[paletteOffset + 10] = (1 - 2 * (xx + yy)) * sz;
+        palette[paletteOffset + 11] = 0;
+        palette[paletteOffset + 12] = tx;
+        palette[paletteOffset + 13] = ty;
+        palette[paletteOffset + 14] = tz;
+        palette[paletteOffset + 15] = 1;
+    }
+
+    private static float get(float[] array, int jointOffset, int offset, float identityValue) {
+        return jointOffset < 0 ? identityValue : array[jointOffset + offset];
+    }
+
+    private static float lerp(
+            float[] a,
+            int aOffset,
+            float[] b,
+            int bOffset,
+            int offset,
+            float identityValue,
+            float blend
+    ) {
+        float from = get(a, aOffset, offset, identityValue);
+        float to = get(b, bOffset, offset, identityValue);
+
+        return from + (to - from) * blend;
+    }
+
     public AnimatedFrame getCurrentFrame() {
         return mAnimatedFrameList.get(mCurrentFrame);
     }
@@ -50,4 +284,15 @@ public class Animation {
     public double getDuration() {
         return mDuration;
     }
-}
\ No newline at end of file
+
+    public Skeleton getSkeleton() {
+        return mSkeleton;
+    }
+
+    /**
+     * @return number of joints in the largest keyframe or the skeleton, whichever is larger
+     */
+    public int getJointCount() {
+        return mJointCount;
+    }
+}
@@ -0,0 +1,300 @@
+package com.company.engine.graph.anim;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.graph.rendering.Camera;
+import com.company.engine.scene.Scene;
+import com.company.engine.scene.items.AnimGameItem;
+import com.company.engine.scene.items.GameItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class Animator implements IUsesResources {
+
+    /**
+     * Advances the AnimGameItems of a Scene by the real time between frames
+     * and evaluates their poses on worker threads.
+     *
+     * The workers are started once and each is given a range of the items every frame,
+     * they are woken and waited for with LockSupport so a frame doesn't allocate.
+     *
+     * Update LOD: items further than the LOD distances from the camera, or outside the frustum,
+     * only have their pose re-evaluated every LOD update interval. Their animation time still
+     * advances every frame so they stay in sync when they come closer.
+     */
+
+    public static final float DEFAULT_NEAR_LOD_DISTANCE = 20.0f;
+    public static final float DEFAULT_FAR_LOD_DISTANCE = 60.0f;
+    public static final double DEFAULT_MID_LOD_UPDATE_INTERVAL = 1.0 / 30.0;
+    public static final double DEFAULT_FAR_LOD_UPDATE_INTERVAL = 1.0 / 10.0;
+
+    private static final int ITEMS_PER_TASK = 16; //fewer items than this are evaluated on the calling thread
+    private static final double MAX_FRAME_INTERVAL = 0.25; //stops animations jumping after a stall
+
+    private final List<AnimGameItem> mAnimGameItemList; //every AnimGameItem in the Scene this frame
+    private final List<AnimGameItem> mPoseUpdateList; //the items that need a new pose this frame
+
+    private final AtomicInteger mRemainingTaskCount; //workers still evaluating this frame's poses
+    private final AtomicInteger mFailedTaskCount;
+
+    private PoseWorker[] mPoseWorkers; //created on the first frame with enough items to share out
+    private Thread mCallingThread;
+    private long mLastUpdateTimeNanos;
+    private long mFrame;
+    private double mTime;
+
+    private float mNearLodDistance;
+    private float mFarLodDistance;
+    private double mMidLodUpdateInterval;
+    private double mFarLodUpdateInterval;
+
+    public Animator() {
+        mAnimGameItemList = new ArrayList<>();
+        mPoseUpdateList = new ArrayList<>();
+        mRemainingTaskCount = new AtomicInteger();
+        mFailedTaskCount = new AtomicInteger();
+        mLastUpdateTimeNanos = 0;
+        mFrame = 0;
+        mNearLodDistance = DEFAULT_NEAR_LOD_DISTANCE;
+        mFarLodDistance = DEFAULT_FAR_LOD_DISTANCE;
+        mMidLodUpdateInterval = DEFAULT_MID_LOD_UPDATE_INTERVAL;
+        mFarLodUpdateInterval = DEFAULT_FAR_LOD_UPDATE_INTERVAL;
+    }
+
+    /**
+     * Advance every AnimGameItem in the scene by the time since the last call.
+     * Should be called after frustum filtering, returns once every pose is evaluated.
+     */
+    public void update(Camera camera, Scene scene) throws Exception {
+        long time = System.nanoTime();
+        double interval = mLastUpdateTimeNanos == 0 ? 0 : (time - mLastUpdateTimeNanos) / 1e9;
+
+        mLastUpdateTimeNanos = time;
+
+        update(camera, scene, Math.min(interval, MAX_FRAME_INTERVAL));
+    }
+
+    /**
+     * @param interval seconds to advance the animations by
+     */
+    public void update(Camera camera, Scene scene, double interval) throws Exception {
+        mFrame++;
+        mTime += interval;
+        collectAnimGameItems(scene.getMeshList(), scene.getGameItemMeshMap());
+
+        float nearDistanceSquared = mNearLodDistance * mNearLodDistance;
+        float farDistanceSquared = mFarLodDistance * mFarLodDistance;
+
+        for (int i = 0; i < mAnimGameItemList.size(); i++) {
+            AnimGameItem animGameItem = mAnimGameItemList.get(i);
+
+            animGameItem.advanceAnimation(interval);
+
+            float distanceSquared = animGameItem.getPosition().distanceSquared(camera.getPosition());
+            double updateInterval;
+
+            if (!animGameItem.isInsideFrustum() || distanceSquared > farDistanceSquared) {
+                updateInterval = mFarLodUpdateInterval;
+            } else if (distanceSquared > nearDistanceSquared) {
+                updateInterval = mMidLodUpdateInterval;
+            } else {
+                updateInterval = 0;
+            }
+
+            if (!animGameItem.isPoseAvailable() || animGameItem.getTimeSincePoseUpdate() >= updateInterval) {
+                mPoseUpdateList.add(animGameItem);
+            }
+        }
+
+        evaluatePoses();
+
+        mAnimGameItemList.clear();
+        mPoseUpdateList.clear();
+    }
+
+    private void collectAnimGameItems(List<Mesh> meshList, Map<Mesh, List<GameItem>> meshGameItemMap) {
+        for (int meshIndex = 0; meshIndex < meshList.size(); meshIndex++) {
+            List<GameItem> gameItemList = meshGameItemMap.get(meshList.get(meshIndex));
+
+            for (int i = 0; i < gameItemList.size(); i++) {
+                GameItem gameItem = gameItemList.get(i);
+
+                if (!(gameItem instanceof AnimGameItem)) {
+                    continue;
+                }
+
+                AnimGameItem animGameItem = (AnimGameItem) gameItem;
+
+                //an item with more than one Mesh is in more than one list
+                if (animGameItem.getLastAdvancedFrame() != mFrame) {
+                    animGameItem.setLastAdvancedFrame(mFrame);
+                    mAnimGameItemList.add(animGameItem);
+                }
+            }
+        }
+    }
+
+    private void evaluatePoses() throws Exception {
+        int itemCount = mPoseUpdateList.size();
+
+        if (itemCount < ITEMS_PER_TASK * 2) {
+            evaluatePoses(0, itemCount);
+            return;
+        }
+
+        PoseWorker[] poseWorkers = getPoseWorkers();
+        int taskCount = Math.min((itemCount + ITEMS_PER_TASK - 1) / ITEMS_PER_TASK, poseWorkers.length + 1);
+        int itemsPerTask = (itemCount + taskCount - 1) / taskCount;
+
+        mCallingThread = Thread.currentThread();
+        mFailedTaskCount.set(0);
+        mRemainingTaskCount.set(taskCount - 1);
+
+        //the calling thread evaluates the first range instead of waiting
+        for (int task = 1; task < taskCount; task++) {
+            int start = task * itemsPerTask;
+
+            poseWorkers[task - 1].start(start, Math.min(itemCount, start + itemsPerTask));
+        }
+
+        evaluatePoses(0, Math.min(itemCount, itemsPerTask));
+
+        while (mRemainingTaskCount.get() > 0) {
+            LockSupport.park(this);
+        }
+
+        if (mFailedTaskCount.get() > 0) {
+            throw new Exception("Failed to evaluate the poses of " + mFailedTaskCount.get() + " animation tasks");
+        }
+    }
+
+    private void evaluatePoses(int start, int end) {
+        for (int i = start; i < end; i++) {
+            mPoseUpdateList.get(i).evaluatePose();
+        }
+    }
+
+    private PoseWorker[] getPoseWorkers() {
+        if (mPoseWorkers == null) {
+            //leave a core for the game loop thread
+            mPoseWorkers = new PoseWorker[Math.max(1, Runtime.getRuntime().availableProcessors() - 1)];
+
+            for (int i = 0; i < mPoseWorkers.length; i++) {
+                mPoseWorkers[i] = new PoseWorker("ANIMATION_WORKER_THREAD_" + (i + 1));
+            }
+        }
+
+        return mPoseWorkers;
+    }
+
+    /**
+     * @return seconds the Animator has advanced by since it was created, used by baked animations
+     */
+    public double getTime() {
+        return mTime;
+    }
+
+    /**
+     * @param nearLodDistance items closer than this update their pose every frame
+     * @param farLodDistance items further than this update their pose every far LOD update interval
+     */
+    public void setLodDistances(float nearLodDistance, float farLodDistance) {
+        mNearLodDistance = nearLodDistance;
+        mFarLodDistance = farLodDistance;
+    }
+
+    public float getNearLodDistance() {
+        return mNearLodDistance;
+    }
+
+    public float getFarLodDistance() {
+        return mFarLodDistance;
+    }
+
+    /**
+     * @param midLodUpdateInterval seconds between pose updates of items between the LOD distances
+     * @param farLodUpdateInterval seconds between pose updates of items past the far LOD distance
+     */
+    public void setLodUpdateIntervals(double midLodUpdateInterval, double farLodUpdateInterval) {
+        mMidLodUpdateInterval = midLodUpdateInterval;
+        mFarLodUpdateInterval = farLodUpdateInterval;
+    }
+
+    public double getMidLodUpdateInterval() {
+        return mMidLodUpdateInterval;
+    }
+
+    public double getFarLodUpdateInterval() {
+        return mFarLodUpdateInterval;
+    }
+
+    @Override
+    public void cleanUp() {
+        if (mPoseWorkers != null) {
+            for (PoseWorker poseWorker : mPoseWorkers) {
+                poseWorker.stop();
+            }
+
+            mPoseWorkers = null;
+        }
+    }
+
+    private class PoseWorker implements Runnable {
+
+        /**
+         * Evaluates one range of the pose update list each time it is started, then parks until the next frame.
+         */
+
+        private final Thread mThread;
+
+        private volatile boolean mHasTask; //written after the range so the range is visible to the worker
+        private volatile boolean mStopped;
+        private int mStart;
+        private int mEnd;
+
+        private PoseWorker(String name) {
+            mThread = new Thread(this, name);
+            mThread.setDaemon(true);
+            mThread.start();
+        }
+
+        private void start(int start, int end) {
+            mStart = start;
+            mEnd = end;
+            mHasTask = true;
+            LockSupport.unpark(mThread);
+        }
+
+        private void stop() {
+            mStopped = true;
+            LockSupport.unpark(mThread);
+        }
+
+        @Override
+        public void run() {
+            while (!mStopped) {
+                if (!mHasTask) {
+                    LockSupport.park(this);
+                    continue;
+                }
+
+                try {
+                    evaluatePoses(mStart, mEnd);
+                } catch (Throwable throwable) {
+                    mFailedTaskCount.incrementAndGet();
+                    throwable.printStackTrace();
+                } finally {
+                    mHasTask = false;
+
+                    if (mRemainingTaskCount.decrementAndGet() == 0) {
+                        LockSupport.unpark(mCallingThread);
+                    }
+                }
+            }
+        }
+    }
+}
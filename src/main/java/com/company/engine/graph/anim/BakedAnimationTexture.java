@@ -0,0 +1,240 @@
+package com.company.engine.graph.anim;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL30.GL_RGBA32F;
+
+public class BakedAnimationTexture implements IUsesResources {
+
+    /**
+     * The joint palettes of a list of Animations sampled at a fixed rate and
+     * stored in an RGBA32F texture, so instanced meshes can be skinned in the vertex
+     * shader with only a clip index and time offset per instance.
+     *
+     * Each row of the texture is one sample of a clip, each joint uses TEXELS_PER_JOINT
+     * texels holding the top three rows of its matrix (the bottom row is always 0, 0, 0, 1).
+     * The clips are stacked one after the other, see getClipStartRow and getClipRowCount.
+     *
+     * Baking only uses the CPU and can be done on any thread, upload must be called on the
+     * thread that owns the OpenGL context before the texture is bound.
+     */
+
+    public static final int MAX_CLIPS = 16; //size of the clip table in the scene shader
+    public static final int TEXELS_PER_JOINT = 3;
+    public static final float DEFAULT_SAMPLE_RATE = 30.0f;
+
+    private static final int TEXEL_SIZE_FLOATS = 4;
+    private static final int MAX_TEXTURE_SIZE = 4096; //minimum GL_MAX_TEXTURE_SIZE of OpenGL 3.3 hardware
+
+    private final float mSampleRate;
+    private final int mJointCount;
+    private final int mWidth;
+    private final int mHeight;
+    private final int[] mClipStartRows;
+    private final int[] mClipRowCounts;
+
+    private FloatBuffer mData; //texels, null once uploaded
+    private int mId;
+
+    public BakedAnimationTexture(List<Animation> animationList) {
+        this(animationList, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param animationList the clips, in the order of the clip indices used by the instances
+     * @param sampleRate number of samples baked per second of animation
+     */
+    public BakedAnimationTexture(List<Animation> animationList, float sampleRate) {
+        if (animationList.isEmpty() || animationList.size() > MAX_CLIPS) {
+            throw new IllegalArgumentException(
+                    "Between 1 and " + MAX_CLIPS + " animations can be baked, got " + animationList.size()
+            );
+        }
+
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rate must be greater than 0");
+        }
+
+        mSampleRate = sampleRate;
+        mClipStartRows = new int[animationList.size()];
+        mClipRowCounts = new int[animationList.size()];
+
+        int jointCount = 1;
+        int rowCount = 0;
+
+        for (int i = 0; i < animationList.size(); i++) {
+            Animation animation = animationList.get(i);
+
+            jointCount = Math.max(jointCount, animation.getJointCount());
+            mClipStartRows[i] = rowCount;
+            mClipRowCounts[i] = Math.max(1, (int) Math.ceil(animation.getDuration() * sampleRate));
+            rowCount += mClipRowCounts[i];
+        }
+
+        mJointCount = jointCount;
+        mWidth = jointCount * TEXELS_PER_JOINT;
+        mHeight = rowCount;
+
+        if (mHeight > MAX_TEXTURE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Baked animations need " + mHeight + " rows, lower the sample rate or bake fewer clips"
+            );
+        }
+
+        mData = NativeMemory.memAllocFloat(mWidth * mHeight * TEXEL_SIZE_FLOATS, MemoryCategory.ANIMATION);
+
+        float[] palette = new float[jointCount * Animation.JOINT_MATRIX_SIZE];
+
+        for (int i = 0; i < animationList.size(); i++) {
+            bakeClip(animationList.get(i), mClipStartRows[i], mClipRowCounts[i], palette);
+        }
+    }
+
+    private void bakeClip(Animation animation, int startRow, int rowCount, float[] palette) {
+        int rowSizeFloats = mWidth * TEXEL_SIZE_FLOATS;
+
+        for (int row = 0; row < rowCount; row++) {
+            //joints the animation doesn't move stay identity
+            for (int joint = 0; joint < mJointCount; joint++) {
+                int offset = joint * Animation.JOINT_MATRIX_SIZE;
+
+                for (int j = 0; j < Animation.JOINT_MATRIX_SIZE; j++) {
+                    palette[offset + j] = j % 5 == 0 ? 1.0f : 0.0f;
+                }
+            }
+
+            animation.sample(row / mSampleRate, palette);
+
+            int rowOffset = (startRow + row) * rowSizeFloats;
+
+            for (int joint = 0; joint < mJointCount; joint++) {
+                int matrixOffset = joint * Animation.JOINT_MATRIX_SIZE;
+                int texelOffset = rowOffset + joint * TEXELS_PER_JOINT * TEXEL_SIZE_FLOATS;
+
+                //palette matrices are column major, a texel holds one row of the matrix
+                for (int matrixRow = 0; matrixRow < TEXELS_PER_JOINT; matrixRow++) {
+                    for (int column = 0; column < 4; column++) {
+                        mData.put(
+                                texelOffset + matrixRow * TEXEL_SIZE_FLOATS + column,
+                                palette[matrixOffset + column * 4 + matrixRow]
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the OpenGL texture and free the baked data.
+     */
+    public void upload() {
+        if (mData == null) {
+            return;
+        }
+
+        mId = GlObjectRegistry.register(GlObjectType.TEXTURE, glGenTextures(), getTextureBytes());
+        glBindTexture(GL_TEXTURE_2D, mId);
+
+        //read with texelFetch, never filtered
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexImage2D(
+                GL_TEXTURE_2D,
+                0,
+                GL_RGBA32F,
+                mWidth,
+                mHeight,
+                0,
+                GL_RGBA,
+                GL_FLOAT,
+                mData
+        );
+        glBindTexture(GL_TEXTURE_2D, 0);
+        EngineMetrics.getInstance().add(MetricType.TEXTURE_BYTES, getTextureBytes());
+
+        NativeMemory.memFree(mData);
+        mData = null;
+    }
+
+    private long getTextureBytes() {
+        return (long) mWidth * mHeight * TEXEL_SIZE_FLOATS * Float.BYTES;
+    }
+
+    public void bind(int textureBankIndex) {
+        glActiveTexture(GL_TEXTURE0 + textureBankIndex);
+        glBindTexture(GL_TEXTURE_2D, mId);
+    }
+
+    @Override
+    public void cleanUp() {
+        if (mId != 0) {
+            glDeleteTextures(mId);
+            GlObjectRegistry.unregister(GlObjectType.TEXTURE, mId);
+            EngineMetrics.getInstance().add(MetricType.TEXTURE_BYTES, -getTextureBytes());
+            mId = 0;
+        }
+
+        if (mData != null) {
+            NativeMemory.memFree(mData);
+            mData = null;
+        }
+    }
+
+    /**
+     * @return the baked texels, RGBA per texel, or null once uploaded
+     */
+    public FloatBuffer getData() {
+        return mData;
+    }
+
+    public boolean isUploaded() {
+        return mId != 0;
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public float getSampleRate() {
+        return mSampleRate;
+    }
+
+    public int getJointCount() {
+        return mJointCount;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getClipCount() {
+        return mClipStartRows.length;
+    }
+
+    public int getClipStartRow(int clipIndex) {
+        return mClipStartRows[clipIndex];
+    }
+
+    public int getClipRowCount(int clipIndex) {
+        return mClipRowCounts[clipIndex];
+    }
+}
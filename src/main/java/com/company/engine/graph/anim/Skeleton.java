@@ -0,0 +1,86 @@
+package com.company.engine.graph.anim;
+
+import org.joml.Matrix4f;
+
+public class Skeleton {
+
+    /**
+     * The joint hierarchy that the keyframes of an Animation are relative to.
+     *
+     * Joints are ordered so every parent comes before its children, a joint's pose is its
+     * keyframe transform applied after its parent's pose. The inverse bind matrix of a joint
+     * moves a vertex from model space into the joint's space at the bind pose.
+     */
+
+    public static final int NO_PARENT = -1;
+
+    private final int[] mParentIndices;
+    private final float[] mInverseBindMatrices; //Animation.JOINT_MATRIX_SIZE floats per joint, null if they are all identity
+
+    /**
+     * @param parentIndices the parent of each joint or NO_PARENT, a parent's index must be lower than its child's
+     * @param inverseBindMatrices one per joint, or null if every joint's bind pose is the identity
+     */
+    public Skeleton(int[] parentIndices, Matrix4f[] inverseBindMatrices) {
+        if (parentIndices.length > AnimatedFrame.MAX_JOINTS) {
+            throw new IllegalArgumentException(
+                    "A skeleton can have at most " + AnimatedFrame.MAX_JOINTS + " joints, got " + parentIndices.length
+            );
+        }
+
+        for (int joint = 0; joint < parentIndices.length; joint++) {
+            if (parentIndices[joint] != NO_PARENT && (parentIndices[joint] < 0 || parentIndices[joint] >= joint)) {
+                throw new IllegalArgumentException(
+                        "Joint " + joint + " has parent " + parentIndices[joint] + ", parents must come before their children"
+                );
+            }
+        }
+
+        if (inverseBindMatrices != null && inverseBindMatrices.length != parentIndices.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + parentIndices.length + " inverse bind matrices, got " + inverseBindMatrices.length
+            );
+        }
+
+        mParentIndices = parentIndices.clone();
+
+        if (inverseBindMatrices != null) {
+            mInverseBindMatrices = new float[inverseBindMatrices.length * Animation.JOINT_MATRIX_SIZE];
+
+            for (int joint = 0; joint < inverseBindMatrices.length; joint++) {
+                inverseBindMatrices[joint].get(mInverseBindMatrices, joint * Animation.JOINT_MATRIX_SIZE);
+            }
+        } else {
+            mInverseBindMatrices = null;
+        }
+    }
+
+    /**
+     * @return a skeleton of unconnected joints with identity bind poses,
+     * each keyframe transform is then the joint's whole transform
+     */
+    public static Skeleton createUnconnected(int jointCount) {
+        int[] parentIndices = new int[jointCount];
+
+        for (int joint = 0; joint < jointCount; joint++) {
+            parentIndices[joint] = NO_PARENT;
+        }
+
+        return new Skeleton(parentIndices, null);
+    }
+
+    public int getParentIndex(int joint) {
+        return joint < mParentIndices.length ? mParentIndices[joint] : NO_PARENT;
+    }
+
+    /**
+     * @return the inverse bind matrices, JOINT_MATRIX_SIZE floats per joint, or null if they are all identity
+     */
+    float[] getInverseBindMatrices() {
+        return mInverseBindMatrices;
+    }
+
+    public int getJointCount() {
+        return mParentIndices.length;
+    }
+}
@@ -31,8 +31,8 @@ public class PointLight {
 
     public PointLight(PointLight pointLight) {
         this(
-                pointLight.getPosition(),
-                pointLight.getColour(),
+                new Vector3f(pointLight.getPosition()),
+                new Vector3f(pointLight.getColour()),
                 pointLight.getIntensity(),
                 pointLight.getAttenuation(),
                 pointLight.isActive()
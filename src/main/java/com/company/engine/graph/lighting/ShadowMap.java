@@ -2,6 +2,8 @@ package com.company.engine.graph.lighting;
 
 import com.company.engine.IUsesResources;
 import com.company.engine.graph.material.Texture;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
 
 import static org.lwjgl.opengl.GL30.*;
 
@@ -30,7 +32,7 @@ public class ShadowMap implements IUsesResources {
         }
 
         //create FBO
-        mDepthMapFbo = glGenFramebuffers();
+        mDepthMapFbo = GlObjectRegistry.register(GlObjectType.FRAMEBUFFER, glGenFramebuffers());
 
         int depthMapWidth = (int) Math.floor(SHADOW_MAP_DEFAULT_WIDTH * shadowMapSizeMultiplier);
         int depthMapHeight = (int) Math.floor(SHADOW_MAP_DEFAULT_HEIGHT * shadowMapSizeMultiplier);
@@ -77,6 +79,7 @@ public class ShadowMap implements IUsesResources {
     @Override
     public void cleanUp() {
         glDeleteFramebuffers(mDepthMapFbo);
+        GlObjectRegistry.unregister(GlObjectType.FRAMEBUFFER, mDepthMapFbo);
         mDepthMapTexture.cleanUp();
     }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.company.engine.graph.material;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import com.company.engine.utils.FileUtils;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.stb.STBImage.*;
+
+public class ImageData implements IUsesResources {
+
+    /**
+     * A decoded RGBA image that has not been uploaded yet.
+     * Decoding does not need an OpenGL context so it can be done on any thread.
+     */
+
+    public static final int CHANNEL_COUNT = 4;
+
+    private final ByteBuffer mPixels;
+    private final int mWidth;
+    private final int mHeight;
+    private final String mFilePath;
+
+    public ImageData(String fileName) throws Exception {
+        this(FileUtils.ioResourceToByteBuffer(fileName, 1024), fileName);
+    }
+
+    public ImageData(ByteBuffer encodedImage) throws Exception {
+        this(encodedImage, null);
+    }
+
+    private ImageData(ByteBuffer encodedImage, String filePath) throws Exception {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer avChannels = stack.mallocInt(1);
+
+            mPixels = NativeMemory.track(
+                    stbi_load_from_memory(
+                            encodedImage,
+                            width,
+                            height,
+                            avChannels,
+                            CHANNEL_COUNT
+                    ),
+                    MemoryCategory.TEXTURE
+            );
+
+            if (mPixels == null) {
+                throw new Exception("Failed to decode image " + filePath + ": " + stbi_failure_reason());
+            }
+
+            mWidth = width.get();
+            mHeight = height.get();
+            mFilePath = filePath;
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        NativeMemory.untrack(mPixels);
+        stbi_image_free(mPixels);
+    }
+
+    public ByteBuffer getPixels() {
+        return mPixels;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return the file the image was decoded from, null if it was decoded from memory
+     */
+    public String getFilePath() {
+        return mFilePath;
+    }
+}
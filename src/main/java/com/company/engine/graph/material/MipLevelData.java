@@ -0,0 +1,115 @@
+package com.company.engine.graph.material;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.stb.STBImageResize.stbir_resize_uint8;
+
+public class MipLevelData implements IUsesResources {
+
+    /**
+     * The RGBA pixels of a range of mip levels, decoded from a texture's source image
+     * and resized to each level's size.
+     * Like ImageData it does not need an OpenGL context so it can be made on any thread.
+     */
+
+    private final int mFirstLevel;
+    private final int mEndLevel;
+    private final ByteBuffer[] mLevelPixels;
+
+    private ImageData mImageData; //kept as level 0 when the range starts at the full size image
+
+    /**
+     * @param filePath the texture's source image
+     * @param firstLevel the finest level to make, inclusive
+     * @param endLevel the coarsest level to make, exclusive
+     */
+    public MipLevelData(String filePath, int firstLevel, int endLevel) throws Exception {
+        mFirstLevel = firstLevel;
+        mEndLevel = endLevel;
+        mLevelPixels = new ByteBuffer[Math.max(0, endLevel - firstLevel)];
+
+        ImageData imageData = new ImageData(filePath);
+        boolean keepImageData = firstLevel == 0 && endLevel > 0;
+
+        if (keepImageData) {
+            mImageData = imageData;
+        }
+
+        try {
+            for (int level = firstLevel; level < endLevel; level++) {
+                if (level == 0) {
+                    mLevelPixels[0] = imageData.getPixels();
+                    continue;
+                }
+
+                int levelWidth = getMipLevelSize(imageData.getWidth(), level);
+                int levelHeight = getMipLevelSize(imageData.getHeight(), level);
+                ByteBuffer levelPixels = NativeMemory.memAlloc(
+                        levelWidth * levelHeight * ImageData.CHANNEL_COUNT,
+                        MemoryCategory.TEXTURE
+                );
+
+                mLevelPixels[level - firstLevel] = levelPixels;
+
+                stbir_resize_uint8(
+                        imageData.getPixels(),
+                        imageData.getWidth(),
+                        imageData.getHeight(),
+                        0,
+                        levelPixels,
+                        levelWidth,
+                        levelHeight,
+                        0,
+                        ImageData.CHANNEL_COUNT
+                );
+            }
+        } catch (Exception e) {
+            cleanUp();
+            throw e;
+        } finally {
+            if (!keepImageData) {
+                imageData.cleanUp();
+            }
+        }
+    }
+
+    public static int getMipLevelSize(int size, int level) {
+        return Math.max(1, size >> level);
+    }
+
+    @Override
+    public void cleanUp() {
+        for (int i = 0; i < mLevelPixels.length; i++) {
+            if (mLevelPixels[i] == null) {
+                continue;
+            }
+
+            if (mImageData == null || i + mFirstLevel != 0) {
+                NativeMemory.memFree(mLevelPixels[i]);
+            }
+
+            mLevelPixels[i] = null;
+        }
+
+        if (mImageData != null) {
+            mImageData.cleanUp();
+            mImageData = null;
+        }
+    }
+
+    public ByteBuffer getLevelPixels(int level) {
+        return mLevelPixels[level - mFirstLevel];
+    }
+
+    public int getFirstLevel() {
+        return mFirstLevel;
+    }
+
+    public int getEndLevel() {
+        return mEndLevel;
+    }
+}
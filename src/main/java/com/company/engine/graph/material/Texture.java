@@ -1,16 +1,16 @@
 package com.company.engine.graph.material;
 
 import com.company.engine.IUsesResources;
-import com.company.engine.utils.FileUtils;
-import org.lwjgl.system.MemoryStack;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
 
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL12.*;
 import static org.lwjgl.opengl.GL30.*;
-import static org.lwjgl.stb.STBImage.stbi_load_from_memory;
 
 public class Texture implements IUsesResources {
 
@@ -21,12 +21,30 @@ public class Texture implements IUsesResources {
     private int mNumColumns = 1;
     private int mNumRows = 1;
 
+    //mip streaming
+    private String mFilePath; //source image, null if the texture can not be streamed
+    private int mMipLevelCount;
+    private int mBaseMipLevel;
+    private int mRequestedMipLevel;
+    private int mFramesAboveBaseLevel;
+    private boolean mLoadingMipLevels; //finer levels are being made on a worker thread
+    private TextureStreamer mTextureStreamer; //the streamer tracking the texture, null if it isn't tracked
+
+    private boolean mDeleted; //textures are shared between Materials, so cleanUp can be called more than once
+
     public Texture(String fileName) throws Exception {
-        this(FileUtils.ioResourceToByteBuffer(fileName, 1024));
+        this(new ImageData(fileName), true);
     }
 
     public Texture(int width, int height, int pixelFormat) {
-        mId = glGenTextures();
+        this(width, height, GL_DEPTH_COMPONENT, pixelFormat, GL_FLOAT);
+    }
+
+    /**
+     * Create an empty texture to be used as a framebuffer attachment.
+     */
+    public Texture(int width, int height, int internalFormat, int pixelFormat, int dataType) {
+        mId = GlObjectRegistry.register(GlObjectType.TEXTURE, glGenTextures());
         mWidth = width;
         mHeight = height;
 
@@ -34,18 +52,22 @@ public class Texture implements IUsesResources {
         glTexImage2D(
                 GL_TEXTURE_2D,
                 0,
-                GL_DEPTH_COMPONENT,
+                internalFormat,
                 mWidth,
                 mHeight,
                 0,
                 pixelFormat,
-                GL_FLOAT,
+                dataType,
                 (ByteBuffer) null
         );
         glTexParameterIi(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
         glTexParameterIi(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
         glTexParameterIi(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
         glTexParameterIi(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+
+        mMipLevelCount = 1;
+        addTextureBytes(getResidentBytes());
+        GlObjectRegistry.setSize(GlObjectType.TEXTURE, mId, getResidentBytes());
     }
 
     public Texture(String fileName, int numColumns, int numRows) throws Exception {
@@ -55,25 +77,24 @@ public class Texture implements IUsesResources {
     }
 
     public Texture(ByteBuffer imageData) throws Exception {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer width = stack.mallocInt(1);
-            IntBuffer height = stack.mallocInt(1);
-            IntBuffer avChannels = stack.mallocInt(1);
-
-            //turn image into byte buffer
-            ByteBuffer decodedImage = stbi_load_from_memory(
-                    imageData,
-                    width,
-                    height,
-                    avChannels,
-                    4
-            );
+        this(new ImageData(imageData), true);
+    }
+
+    /**
+     * Upload an image that has already been decoded, the caller still owns the ImageData.
+     */
+    public Texture(ImageData imageData) {
+        this(imageData, false);
+    }
 
-            mWidth = width.get();
-            mHeight = height.get();
+    private Texture(ImageData imageData, boolean freeImageData) {
+        try {
+            mWidth = imageData.getWidth();
+            mHeight = imageData.getHeight();
+            mFilePath = imageData.getFilePath();
 
             //create new OpenGL texture
-            mId = glGenTextures();
+            mId = GlObjectRegistry.register(GlObjectType.TEXTURE, glGenTextures());
             glBindTexture(GL_TEXTURE_2D, mId);
 
             //tell OpenGL how to unpack the RGBA bytes. Each component is 1 byte in size
@@ -92,11 +113,129 @@ public class Texture implements IUsesResources {
                     0,
                     GL_RGBA,
                     GL_UNSIGNED_BYTE,
-                    decodedImage
+                    imageData.getPixels()
             );
             //generate Mip Map
             glGenerateMipmap(GL_TEXTURE_2D);
+
+            mMipLevelCount = calculateMipLevelCount(mWidth, mHeight);
+            mBaseMipLevel = 0;
+            mRequestedMipLevel = 0;
+            addTextureBytes(getResidentBytes());
+            GlObjectRegistry.setSize(GlObjectType.TEXTURE, mId, getResidentBytes());
+        } finally {
+            if (freeImageData) {
+                imageData.cleanUp();
+            }
+        }
+    }
+
+    public static int calculateMipLevelCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(Math.max(width, height), 1));
+    }
+
+    /**
+     * Raise the finest mip level that is resident on the GPU, releasing the storage of every finer level.
+     *
+     * @param baseMipLevel the new finest level, clamped to the texture's mip chain
+     */
+    public void releaseMipLevels(int baseMipLevel) {
+        baseMipLevel = Math.max(0, Math.min(baseMipLevel, mMipLevelCount - 1));
+
+        if (baseMipLevel <= mBaseMipLevel || !isStreamable()) {
+            return;
+        }
+
+        glBindTexture(GL_TEXTURE_2D, mId);
+
+        //stop sampling the finer levels before their storage is released
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, baseMipLevel);
+
+        for (int level = mBaseMipLevel; level < baseMipLevel; level++) {
+            uploadMipLevel(level, 0, 0, null);
+        }
+
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        setResidentMipLevels(baseMipLevel);
+    }
+
+    /**
+     * Lower the finest resident mip level by uploading levels made on another thread.
+     * The levels must end at the current base level, data for a texture that has been
+     * cleaned up or has changed levels since the data was requested is ignored.
+     * The caller still owns the MipLevelData.
+     */
+    public void uploadMipLevels(MipLevelData mipLevelData) {
+        if (mDeleted || mipLevelData.getEndLevel() != mBaseMipLevel || mipLevelData.getFirstLevel() >= mBaseMipLevel) {
+            return;
         }
+
+        glBindTexture(GL_TEXTURE_2D, mId);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+        for (int level = mipLevelData.getFirstLevel(); level < mipLevelData.getEndLevel(); level++) {
+            uploadMipLevel(
+                    level,
+                    getMipLevelWidth(level),
+                    getMipLevelHeight(level),
+                    mipLevelData.getLevelPixels(level)
+            );
+        }
+
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, mipLevelData.getFirstLevel());
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        setResidentMipLevels(mipLevelData.getFirstLevel());
+    }
+
+    private void setResidentMipLevels(int baseMipLevel) {
+        addTextureBytes(calculateResidentBytes(baseMipLevel) - getResidentBytes());
+        mBaseMipLevel = baseMipLevel;
+        GlObjectRegistry.setSize(GlObjectType.TEXTURE, mId, getResidentBytes());
+    }
+
+    private void uploadMipLevel(int level, int width, int height, ByteBuffer pixels) {
+        glTexImage2D(
+                GL_TEXTURE_2D,
+                level,
+                GL_RGBA,
+                width,
+                height,
+                0,
+                GL_RGBA,
+                GL_UNSIGNED_BYTE,
+                pixels
+        );
+    }
+
+    /**
+     * @return the number of bytes used by the levels that are currently resident
+     */
+    public long getResidentBytes() {
+        return calculateResidentBytes(mBaseMipLevel);
+    }
+
+    /**
+     * @param baseMipLevel the finest resident level
+     * @return the number of bytes the mip chain would use starting at baseMipLevel
+     */
+    public long calculateResidentBytes(int baseMipLevel) {
+        long bytes = 0;
+
+        for (int level = baseMipLevel; level < mMipLevelCount; level++) {
+            bytes += (long) getMipLevelWidth(level) * getMipLevelHeight(level) * 4;
+        }
+
+        return bytes;
+    }
+
+    public int getMipLevelWidth(int level) {
+        return MipLevelData.getMipLevelSize(mWidth, level);
+    }
+
+    public int getMipLevelHeight(int level) {
+        return MipLevelData.getMipLevelSize(mHeight, level);
     }
 
     public void bind() {
@@ -105,7 +244,26 @@ public class Texture implements IUsesResources {
 
     @Override
     public void cleanUp() {
+        if (mDeleted) {
+            return;
+        }
+
+        mDeleted = true;
+
+        if (mTextureStreamer != null) {
+            mTextureStreamer.removeTexture(this);
+        }
+
         glDeleteTextures(mId);
+        GlObjectRegistry.unregister(GlObjectType.TEXTURE, mId);
+        addTextureBytes(-getResidentBytes());
+    }
+
+    /**
+     * Keep the texture memory metric up to date, estimated at 4 bytes per texel whatever the format.
+     */
+    private static void addTextureBytes(long bytes) {
+        EngineMetrics.getInstance().add(MetricType.TEXTURE_BYTES, bytes);
     }
 
     public int getId() {
@@ -127,4 +285,64 @@ public class Texture implements IUsesResources {
     public int getNumRows() {
         return mNumRows;
     }
+
+    public boolean isStreamable() {
+        return mFilePath != null && mMipLevelCount > 1;
+    }
+
+    /**
+     * Stop streaming the texture, e.g. because its source image could not be read again.
+     * The levels that are resident stay resident.
+     */
+    public void disableStreaming() {
+        mFilePath = null;
+    }
+
+    public String getFilePath() {
+        return mFilePath;
+    }
+
+    public int getMipLevelCount() {
+        return mMipLevelCount;
+    }
+
+    public int getBaseMipLevel() {
+        return mBaseMipLevel;
+    }
+
+    public int getRequestedMipLevel() {
+        return mRequestedMipLevel;
+    }
+
+    public void setRequestedMipLevel(int requestedMipLevel) {
+        mRequestedMipLevel = requestedMipLevel;
+    }
+
+    public int getFramesAboveBaseLevel() {
+        return mFramesAboveBaseLevel;
+    }
+
+    public void setFramesAboveBaseLevel(int framesAboveBaseLevel) {
+        mFramesAboveBaseLevel = framesAboveBaseLevel;
+    }
+
+    public boolean isLoadingMipLevels() {
+        return mLoadingMipLevels;
+    }
+
+    public void setLoadingMipLevels(boolean loadingMipLevels) {
+        mLoadingMipLevels = loadingMipLevels;
+    }
+
+    public boolean isDeleted() {
+        return mDeleted;
+    }
+
+    TextureStreamer getTextureStreamer() {
+        return mTextureStreamer;
+    }
+
+    void setTextureStreamer(TextureStreamer textureStreamer) {
+        mTextureStreamer = textureStreamer;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,334 @@
+package com.company.engine.graph.material;
+
+import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.graph.rendering.Camera;
+import com.company.engine.loaders.AssetManager;
+import com.company.engine.scene.Scene;
+import com.company.engine.scene.items.GameItem;
+import com.company.engine.window.Window;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TextureStreamer {
+
+    /**
+     * Streams the finest mip levels of scene textures in and out
+     * depending on how large the visible GameItems using them appear on screen.
+     *
+     * Levels that are needed are made from the source image on the AssetManager's worker threads
+     * (limited to a number of loads started per frame) and uploaded once they are ready,
+     * levels that are no longer needed are only dropped after DROP_DELAY_FRAMES
+     * to stop textures thrashing when an item sits on a level boundary.
+     */
+
+    public static final long NO_MEMORY_BUDGET = 0;
+
+    private static final int DROP_DELAY_FRAMES = 60;
+    private static final int DEFAULT_MAX_LOADS_PER_FRAME = 1;
+    private static final float MIN_VIEW_DISTANCE = 0.001f;
+
+    private final List<Texture> mTextureList; //every streamable texture seen by the streamer and not cleaned up yet
+    private final Vector3f mViewPosition;
+
+    private long mMemoryBudgetBytes;
+    private int mMaxLoadsPerFrame;
+
+    public TextureStreamer() {
+        this(NO_MEMORY_BUDGET);
+    }
+
+    public TextureStreamer(long memoryBudgetBytes) {
+        mTextureList = new ArrayList<>();
+        mViewPosition = new Vector3f();
+        mMemoryBudgetBytes = memoryBudgetBytes;
+        mMaxLoadsPerFrame = DEFAULT_MAX_LOADS_PER_FRAME;
+    }
+
+    /**
+     * Estimate the mip level each texture needs this frame and
+     * load or drop levels to match.
+     *
+     * Must be called after frustum filtering so only visible GameItems are considered.
+     */
+    public void update(Window window, Camera camera, Scene scene) {
+        //start from the coarsest level, visible items then request finer levels
+        for (int i = 0; i < mTextureList.size(); i++) {
+            Texture texture = mTextureList.get(i);
+            texture.setRequestedMipLevel(texture.getMipLevelCount() - 1);
+        }
+
+        //number of pixels covered by one world unit at a distance of one world unit
+        float pixelsPerUnit = window.getHeight() / (2.0f * (float) Math.tan(camera.getFov() / 2.0f));
+
+        requestMipLevels(scene.getMeshList(), scene.getGameItemMeshMap(), camera.getViewMatrix(), pixelsPerUnit);
+        requestMipLevels(
+                scene.getInstancedMeshList(),
+                scene.getGameItemInstancedMeshMap(),
+                camera.getViewMatrix(),
+                pixelsPerUnit
+        );
+
+        applyMemoryBudget();
+        streamMipLevels();
+    }
+
+    private void requestMipLevels(
+            List<? extends Mesh> meshList,
+            Map<? extends Mesh, List<GameItem>> meshGameItemMap,
+            Matrix4f viewMatrix,
+            float pixelsPerUnit
+    ) {
+        for (int meshIndex = 0; meshIndex < meshList.size(); meshIndex++) {
+            Mesh mesh = meshList.get(meshIndex);
+            Material material = mesh.getMaterial();
+
+            if (material == null) {
+                continue;
+            }
+
+            Texture texture = track(material.getTexture());
+            Texture normalMap = track(material.getNormalMap());
+
+            if (texture == null && normalMap == null) {
+                continue;
+            }
+
+            float meshBoundingRadius = mesh.getBoundingRadius();
+            List<GameItem> gameItemList = meshGameItemMap.get(mesh);
+
+            for (int i = 0; i < gameItemList.size(); i++) {
+                GameItem gameItem = gameItemList.get(i);
+
+                if (!gameItem.isInsideFrustum()) {
+                    continue;
+                }
+
+                float projectedDiameter = calculateProjectedDiameter(
+                        gameItem,
+                        meshBoundingRadius,
+                        viewMatrix,
+                        pixelsPerUnit
+                );
+
+                requestMipLevel(texture, projectedDiameter);
+                requestMipLevel(normalMap, projectedDiameter);
+            }
+        }
+    }
+
+    private Texture track(Texture texture) {
+        if (texture == null || !texture.isStreamable()) {
+            return null;
+        }
+
+        //the texture holds the streamer tracking it so this doesn't search the list for every material every frame
+        if (texture.getTextureStreamer() == null) {
+            texture.setTextureStreamer(this);
+            mTextureList.add(texture);
+            texture.setRequestedMipLevel(texture.getMipLevelCount() - 1);
+        }
+
+        return texture;
+    }
+
+    private float calculateProjectedDiameter(
+            GameItem gameItem,
+            float meshBoundingRadius,
+            Matrix4f viewMatrix,
+            float pixelsPerUnit
+    ) {
+        Vector3f position = gameItem.getPosition();
+
+        viewMatrix.transformPosition(position.x, position.y, position.z, mViewPosition);
+
+        float distance = Math.max(mViewPosition.length(), MIN_VIEW_DISTANCE);
+
+        return 2.0f * meshBoundingRadius * gameItem.getScale() * pixelsPerUnit / distance;
+    }
+
+    private void requestMipLevel(Texture texture, float projectedDiameter) {
+        if (texture == null) {
+            return;
+        }
+
+        //texels spread across the item's diameter, a texture atlas only shows a single tile
+        float texelsAcross = Math.max(
+                texture.getWidth() / (float) texture.getNumColumns(),
+                texture.getHeight() / (float) texture.getNumRows()
+        );
+
+        int mipLevel = 0;
+
+        if (projectedDiameter < texelsAcross) {
+            mipLevel = (int) Math.floor(
+                    Math.log(texelsAcross / Math.max(projectedDiameter, 1.0f)) / Math.log(2)
+            );
+        }
+
+        mipLevel = Math.min(mipLevel, texture.getMipLevelCount() - 1);
+
+        if (mipLevel < texture.getRequestedMipLevel()) {
+            texture.setRequestedMipLevel(mipLevel);
+        }
+    }
+
+    /**
+     * Coarsen the requested levels of the largest textures until the
+     * requested mip chains fit inside the memory budget.
+     */
+    private void applyMemoryBudget() {
+        if (mMemoryBudgetBytes <= NO_MEMORY_BUDGET) {
+            return;
+        }
+
+        long requestedBytes = 0;
+
+        for (int i = 0; i < mTextureList.size(); i++) {
+            Texture texture = mTextureList.get(i);
+            requestedBytes += texture.calculateResidentBytes(texture.getRequestedMipLevel());
+        }
+
+        while (requestedBytes > mMemoryBudgetBytes) {
+            Texture largestTexture = null;
+            long largestBytes = 0;
+
+            for (int i = 0; i < mTextureList.size(); i++) {
+                Texture texture = mTextureList.get(i);
+
+                if (texture.getRequestedMipLevel() >= texture.getMipLevelCount() - 1) {
+                    continue;
+                }
+
+                long bytes = texture.calculateResidentBytes(texture.getRequestedMipLevel());
+
+                if (bytes > largestBytes) {
+                    largestBytes = bytes;
+                    largestTexture = texture;
+                }
+            }
+
+            if (largestTexture == null) {
+                //every texture is already at its coarsest level
+                break;
+            }
+
+            int requestedMipLevel = largestTexture.getRequestedMipLevel() + 1;
+            largestTexture.setRequestedMipLevel(requestedMipLevel);
+            requestedBytes -= largestBytes - largestTexture.calculateResidentBytes(requestedMipLevel);
+        }
+    }
+
+    private void streamMipLevels() {
+        int loadCount = 0;
+        long residentBytes = getResidentBytes();
+
+        for (int i = 0; i < mTextureList.size(); i++) {
+            Texture texture = mTextureList.get(i);
+            int requestedMipLevel = texture.getRequestedMipLevel();
+            int baseMipLevel = texture.getBaseMipLevel();
+
+            if (texture.isLoadingMipLevels()) {
+                //the levels being loaded have to end at the current base level, so leave it alone until then
+                continue;
+            }
+
+            if (requestedMipLevel > baseMipLevel) {
+                texture.setFramesAboveBaseLevel(texture.getFramesAboveBaseLevel() + 1);
+
+                //drop straight away if the budget is exceeded, otherwise wait to avoid thrashing
+                boolean overBudget = mMemoryBudgetBytes > NO_MEMORY_BUDGET &&
+                        residentBytes > mMemoryBudgetBytes;
+
+                if (overBudget || texture.getFramesAboveBaseLevel() >= DROP_DELAY_FRAMES) {
+                    residentBytes -= texture.getResidentBytes();
+                    texture.releaseMipLevels(requestedMipLevel);
+                    residentBytes += texture.getResidentBytes();
+                    texture.setFramesAboveBaseLevel(0);
+                }
+            } else {
+                texture.setFramesAboveBaseLevel(0);
+
+                if (requestedMipLevel < baseMipLevel && loadCount < mMaxLoadsPerFrame) {
+                    loadMipLevels(texture, requestedMipLevel);
+                    loadCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Make the levels from baseMipLevel up to the texture's current base level on a worker thread,
+     * they are uploaded when the AssetManager processes its uploads.
+     */
+    private void loadMipLevels(Texture texture, int baseMipLevel) {
+        String filePath = texture.getFilePath();
+
+        texture.setLoadingMipLevels(true);
+
+        AssetManager.getInstance().loadMipLevels(
+                filePath,
+                baseMipLevel,
+                texture.getBaseMipLevel()
+        ).whenComplete((mipLevelData, throwable) -> {
+            //runs in AssetManager.processUploads on the game loop thread, so the texture list can be changed
+            texture.setLoadingMipLevels(false);
+
+            if (throwable != null) {
+                System.err.println("TextureStreamer: stopped streaming " + filePath + ", " + throwable.getMessage());
+                texture.disableStreaming();
+                removeTexture(texture);
+
+                return;
+            }
+
+            try {
+                texture.uploadMipLevels(mipLevelData);
+            } finally {
+                mipLevelData.cleanUp();
+            }
+        });
+    }
+
+    /**
+     * @return the number of bytes used by the resident mip levels of the streamed textures
+     */
+    public long getResidentBytes() {
+        long bytes = 0;
+
+        for (int i = 0; i < mTextureList.size(); i++) {
+            bytes += mTextureList.get(i).getResidentBytes();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Stop streaming a texture, called by Texture.cleanUp so the streamer doesn't keep deleted textures.
+     */
+    public void removeTexture(Texture texture) {
+        if (texture.getTextureStreamer() == this) {
+            texture.setTextureStreamer(null);
+            mTextureList.remove(texture);
+        }
+    }
+
+    public void setMemoryBudgetBytes(long memoryBudgetBytes) {
+        mMemoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    public long getMemoryBudgetBytes() {
+        return mMemoryBudgetBytes;
+    }
+
+    public void setMaxLoadsPerFrame(int maxLoadsPerFrame) {
+        mMaxLoadsPerFrame = maxLoadsPerFrame;
+    }
+
+    public int getMaxLoadsPerFrame() {
+        return mMaxLoadsPerFrame;
+    }
+}
@@ -1,13 +1,21 @@
 package com.company.engine.graph.mesh;
 
+import com.company.engine.graph.anim.BakedAnimationTexture;
+import com.company.engine.scene.items.BakedAnimGameItem;
 import com.company.engine.utils.ArrayUtils;
 import com.company.engine.graph.material.Texture;
 import com.company.engine.graph.Transformation;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
 import com.company.engine.scene.items.GameItem;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
 import org.joml.Matrix4f;
-import org.lwjgl.system.MemoryUtil;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.List;
 
 import static org.lwjgl.opengl.GL30.*;
@@ -20,13 +28,16 @@ public class InstancedMesh extends Mesh {
     private static final int VECTOR4F_SIZE_BYTES = 4 * FLOAT_SIZE_BYTES; //number of bytes used to store a Vector4f in the instanced buffer
     private static final int MATRIX_SIZE_FLOATS = 4 * 4; //number of floats in a 4x4 matrix
     private static final int MATRIX_SIZE_BYTES = MATRIX_SIZE_FLOATS * FLOAT_SIZE_BYTES; //number of bytes used to store a 4x4 float matrix in the instance buffer
-    private static final int INSTANCE_SIZE_BYTES = MATRIX_SIZE_BYTES * 2 + FLOAT_SIZE_BYTES * 3; //number of bytes the instance buffer uses (2 4x4 float matrices and 2 floats)
-    private static final int INSTANCE_SIZE_FLOATS = MATRIX_SIZE_FLOATS * 2 + 3; //number of floats the instance buffer uses (2 4x4 float matrices and 2 floats)
+    private static final int INSTANCE_SIZE_BYTES = MATRIX_SIZE_BYTES * 2 + FLOAT_SIZE_BYTES * 4; //number of bytes the instance buffer uses (2 4x4 float matrices and 4 floats)
+    private static final int INSTANCE_SIZE_FLOATS = MATRIX_SIZE_FLOATS * 2 + 4; //number of floats the instance buffer uses (2 4x4 float matrices and 4 floats)
+    private static final int INSTANCE_ATTRIBUTE_START = 5; //first attribute location of the instance data
+    private static final int INSTANCE_ATTRIBUTE_COUNT = 4 * 2 + 2; //2 matrices, texture offsets and baked animation
 
     private final int mNumberOfInstances;
 
     private int mInstanceDataVboId;
     private FloatBuffer mInstanceDataBuffer;
+    private BakedAnimationTexture mBakedAnimationTexture;
 
     public InstancedMesh(
             float[] positionArray,
@@ -56,25 +67,86 @@ public class InstancedMesh extends Mesh {
         initialiseInstancedMesh();
     }
 
+    public InstancedMesh(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            int numberOfInstances
+    ) {
+        this(
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                numberOfInstances,
+                VertexLayout.DEFAULT
+        );
+    }
+
+    public InstancedMesh(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            int numberOfInstances,
+            VertexLayout vertexLayout
+    ) {
+        super(
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                vertexLayout
+        );
+
+        mNumberOfInstances = numberOfInstances;
+
+        initialiseInstancedMesh();
+    }
+
+    /**
+     * A skinned InstancedMesh, animated by a BakedAnimationTexture.
+     */
+    public InstancedMesh(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            IntBuffer jointIndexBuffer,
+            FloatBuffer weightBuffer,
+            int numberOfInstances,
+            VertexLayout vertexLayout
+    ) {
+        super(
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                jointIndexBuffer,
+                weightBuffer,
+                false,
+                vertexLayout
+        );
+
+        mNumberOfInstances = numberOfInstances;
+
+        initialiseInstancedMesh();
+    }
+
     @Override
     protected void initRender() {
         super.initRender();
 
-        int start = 5;
-        int numberOfElements = 4 * 2 + 1;
-
-        for (int i = 0; i < numberOfElements; i++) {
-            glEnableVertexAttribArray(start + i);
+        for (int i = 0; i < INSTANCE_ATTRIBUTE_COUNT; i++) {
+            glEnableVertexAttribArray(INSTANCE_ATTRIBUTE_START + i);
         }
     }
 
     @Override
     protected void endRender() {
-        int start = 5;
-        int numberOfElements = 4 * 2 + 1;
-
-        for (int i = 0; i < numberOfElements; i++) {
-            glDisableVertexAttribArray(start + i);
+        for (int i = 0; i < INSTANCE_ATTRIBUTE_COUNT; i++) {
+            glDisableVertexAttribArray(INSTANCE_ATTRIBUTE_START + i);
         }
 
         super.endRender();
@@ -85,20 +157,27 @@ public class InstancedMesh extends Mesh {
         super.cleanUp();
 
         if (mInstanceDataBuffer != null) {
-            MemoryUtil.memFree(mInstanceDataBuffer);
+            NativeMemory.memFree(mInstanceDataBuffer);
             mInstanceDataBuffer = null;
         }
     }
 
     private void initialiseInstancedMesh() {
         glBindVertexArray(mVaoId);
-        int start = 5;
+        int start = INSTANCE_ATTRIBUTE_START;
         int strideStart = 0;
 
         //model view matrix
-        mInstanceDataVboId = glGenBuffers();
+        mInstanceDataBuffer = NativeMemory.memAllocFloat(
+                mNumberOfInstances * INSTANCE_SIZE_FLOATS,
+                MemoryCategory.MESH
+        );
+        mInstanceDataVboId = GlObjectRegistry.register(
+                GlObjectType.BUFFER,
+                glGenBuffers(),
+                (long) mInstanceDataBuffer.capacity() * Float.BYTES
+        );
         mVboIdList.add(mInstanceDataVboId);
-        mInstanceDataBuffer = MemoryUtil.memAllocFloat(mNumberOfInstances * INSTANCE_SIZE_FLOATS);
         glBindBuffer(GL_ARRAY_BUFFER, mInstanceDataVboId);
 
         //store the matrix as 4 vectors that store 4 values each
@@ -143,12 +222,44 @@ public class InstancedMesh extends Mesh {
                 strideStart
         );
         glVertexAttribDivisor(start, 1);
+        start++;
+        strideStart += FLOAT_SIZE_BYTES * 2;
+
+        //baked animation clip index and time offset
+        glVertexAttribPointer(
+                start,
+                2,
+                GL_FLOAT,
+                false,
+                INSTANCE_SIZE_BYTES,
+                strideStart
+        );
+        glVertexAttribDivisor(start, 1);
 
         //unbind
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         glBindVertexArray(0);
     }
 
+    /**
+     * @param bakedAnimationTexture the clips played by the BakedAnimGameItems drawn with this Mesh,
+     *                              the InstancedMesh does not take ownership of it
+     */
+    public void setBakedAnimationTexture(BakedAnimationTexture bakedAnimationTexture) {
+        mBakedAnimationTexture = bakedAnimationTexture;
+    }
+
+    public BakedAnimationTexture getBakedAnimationTexture() {
+        return mBakedAnimationTexture;
+    }
+
+    /**
+     * @return the most instances drawn by one draw call, longer lists are drawn in chunks of this size
+     */
+    public int getNumberOfInstances() {
+        return mNumberOfInstances;
+    }
+
     public void renderInstancedList(
             List<GameItem> gameItemList,
             Transformation transformation,
@@ -191,11 +302,13 @@ public class InstancedMesh extends Mesh {
         int chunkSize = mNumberOfInstances;
         int length = gameItems.size();
 
+        //chunks are passed as index ranges rather than subLists so drawing doesn't allocate
         for (int i = 0; i < length; i += chunkSize) {
             int end = Math.min(length, i + chunkSize);
-            List<GameItem> subList = gameItems.subList(i, end);
             renderInstancedChunkList(
-                    subList,
+                    gameItems,
+                    i,
+                    end,
                     billboard,
                     transformation,
                     viewMatrix,
@@ -206,20 +319,38 @@ public class InstancedMesh extends Mesh {
         endRender();
     }
 
-    private void renderInstancedChunkList(
+    /**
+     * Write the per instance data of a chunk of GameItems into the instance buffer.
+     * This is the CPU side of drawing a chunk, kept apart from the draw so it can be benchmarked on its own.
+     * @param gameItemList no more items than the number of instances of the Mesh
+     */
+    public void fillInstanceData(
             List<GameItem> gameItemList,
             boolean billboard,
             Transformation transformation,
-            Matrix4f viewMatrix,
-            Matrix4f lightViewMatrix
+            Matrix4f viewMatrix
     ) {
-        mInstanceDataBuffer.clear();
+        fillInstanceData(gameItemList, 0, gameItemList.size(), billboard, transformation, viewMatrix);
+    }
 
-        int i = 0;
+    /**
+     * @param start index of the first item of the chunk
+     * @param end index after the last item of the chunk, no more than the number of instances after start
+     */
+    public void fillInstanceData(
+            List<GameItem> gameItemList,
+            int start,
+            int end,
+            boolean billboard,
+            Transformation transformation,
+            Matrix4f viewMatrix
+    ) {
+        mInstanceDataBuffer.clear();
 
         Texture texture = getMaterial().getTexture();
 
-        for (GameItem gameItem : gameItemList) {
+        for (int i = 0; i < end - start; i++) {
+            GameItem gameItem = gameItemList.get(start + i);
             Matrix4f modelMatrix = transformation.generateModelMatrix(gameItem);
             int bufferPosition = INSTANCE_SIZE_FLOATS * i + MATRIX_SIZE_FLOATS * 2;
 
@@ -235,6 +366,8 @@ public class InstancedMesh extends Mesh {
                     modelViewMatrix.scale(gameItem.getScale());
                 }
 
+                applyPositionDecode(modelViewMatrix);
+
                 modelViewMatrix.get(INSTANCE_SIZE_FLOATS * i, mInstanceDataBuffer);
             }
 
@@ -258,19 +391,44 @@ public class InstancedMesh extends Mesh {
                 mInstanceDataBuffer.put(bufferPosition + 1, textOffsetY);
             }
 
-            i++;
+            //baked animation
+            if (gameItem instanceof BakedAnimGameItem) {
+                BakedAnimGameItem bakedAnimGameItem = (BakedAnimGameItem) gameItem;
+
+                mInstanceDataBuffer.put(bufferPosition + 2, bakedAnimGameItem.getClipIndex());
+                mInstanceDataBuffer.put(bufferPosition + 3, bakedAnimGameItem.getTimeOffset());
+            } else {
+                mInstanceDataBuffer.put(bufferPosition + 2, BakedAnimGameItem.NO_CLIP);
+                mInstanceDataBuffer.put(bufferPosition + 3, 0);
+            }
         }
+    }
+
+    private void renderInstancedChunkList(
+            List<GameItem> gameItemList,
+            int start,
+            int end,
+            boolean billboard,
+            Transformation transformation,
+            Matrix4f viewMatrix,
+            Matrix4f lightViewMatrix
+    ) {
+        fillInstanceData(gameItemList, start, end, billboard, transformation, viewMatrix);
 
         glBindBuffer(GL_ARRAY_BUFFER, mInstanceDataVboId);
         glBufferData(GL_ARRAY_BUFFER, mInstanceDataBuffer, GL_DYNAMIC_DRAW);
+        EngineMetrics.getInstance().add(
+                MetricType.BUFFER_BYTES_UPLOADED,
+                (long) mInstanceDataBuffer.remaining() * FLOAT_SIZE_BYTES
+        );
 
         //drawn instance
         glDrawElementsInstanced(
                 GL_TRIANGLES,
                 getVertexCount(),
-                GL_UNSIGNED_INT,
+                getIndexType(),
                 0,
-                gameItemList.size()
+                end - start
         );
 
         //unbind
@@ -3,11 +3,20 @@ package com.company.engine.graph.mesh;
 import com.company.engine.IUsesResources;
 import com.company.engine.graph.material.*;
 import com.company.engine.graph.material.Texture;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
 import com.company.engine.scene.items.GameItem;
-import org.lwjgl.system.MemoryUtil;
-
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -19,10 +28,13 @@ public class Mesh implements IUsesResources {
 
     public static final int MAX_WEIGHTS = 4;
 
+    private static final int SHORT_INDEX_VERTEX_LIMIT = 65536; //vertices 0 - 65535 can be indexed by an unsigned short
+
     protected int mVaoId;
     protected List<Integer> mVboIdList;
 
     private int mVertexCount;
+    private int mIndexType;
     private Material mMaterial;
 
     private boolean mUsingTextCoords;
@@ -34,6 +46,10 @@ public class Mesh implements IUsesResources {
 
     private float mBoundingRadius;
 
+    private boolean mPositionQuantized;
+    private Vector3f mPositionDecodeOffset;
+    private float mPositionDecodeScale;
+
     public Mesh(
             float[] positionArray,
             float[] textCoordArray,
@@ -59,14 +75,139 @@ public class Mesh implements IUsesResources {
             int[] jointIndexArray,
             float[] weightArray,
             boolean cullingFaces
+    ) {
+        FloatBuffer positionBuffer = null;
+        FloatBuffer textCoordBuffer = null;
+        FloatBuffer normalBuffer = null;
+        FloatBuffer weightBuffer = null;
+        IntBuffer indexBuffer = null;
+        IntBuffer jointIndexBuffer = null;
+
+        try {
+            positionBuffer = NativeMemory.memAllocFloat(positionArray.length, MemoryCategory.MESH);
+            positionBuffer.put(positionArray).flip();
+
+            if (textCoordArray != null) {
+                textCoordBuffer = NativeMemory.memAllocFloat(textCoordArray.length, MemoryCategory.MESH);
+                textCoordBuffer.put(textCoordArray).flip();
+            }
+
+            if (normalArray != null) {
+                normalBuffer = NativeMemory.memAllocFloat(normalArray.length, MemoryCategory.MESH);
+                normalBuffer.put(normalArray).flip();
+            }
+
+            if (weightArray != null) {
+                weightBuffer = NativeMemory.memAllocFloat(weightArray.length, MemoryCategory.MESH);
+                weightBuffer.put(weightArray).flip();
+            }
+
+            if (jointIndexArray != null) {
+                jointIndexBuffer = NativeMemory.memAllocInt(jointIndexArray.length, MemoryCategory.MESH);
+                jointIndexBuffer.put(jointIndexArray).flip();
+            }
+
+            indexBuffer = NativeMemory.memAllocInt(indexArray.length, MemoryCategory.MESH);
+            indexBuffer.put(indexArray).flip();
+
+            initialiseMesh(
+                    positionBuffer,
+                    textCoordBuffer,
+                    normalBuffer,
+                    indexBuffer,
+                    jointIndexBuffer,
+                    weightBuffer,
+                    VertexLayout.DEFAULT
+            );
+        } finally {
+            NativeMemory.memFree(positionBuffer);
+            NativeMemory.memFree(textCoordBuffer);
+            NativeMemory.memFree(normalBuffer);
+            NativeMemory.memFree(weightBuffer);
+            NativeMemory.memFree(jointIndexBuffer);
+            NativeMemory.memFree(indexBuffer);
+        }
+
+        mCullingFaces = cullingFaces;
+    }
+
+    /**
+     * Uploads the buffers straight to the GPU without copying them first.
+     * The buffers must be direct (off-heap or memory mapped), the caller keeps ownership of them.
+     */
+    public Mesh(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer
+    ) {
+        this(
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                VertexLayout.DEFAULT
+        );
+    }
+
+    public Mesh(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            VertexLayout vertexLayout
+    ) {
+        this(
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                null,
+                null,
+                false,
+                vertexLayout
+        );
+    }
+
+    public Mesh(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            IntBuffer jointIndexBuffer,
+            FloatBuffer weightBuffer,
+            boolean cullingFaces
+    ) {
+        this(
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                jointIndexBuffer,
+                weightBuffer,
+                cullingFaces,
+                VertexLayout.DEFAULT
+        );
+    }
+
+    public Mesh(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            IntBuffer jointIndexBuffer,
+            FloatBuffer weightBuffer,
+            boolean cullingFaces,
+            VertexLayout vertexLayout
     ) {
         initialiseMesh(
-                positionArray,
-                textCoordArray,
-                normalArray,
-                indexArray,
-                jointIndexArray,
-                weightArray
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                jointIndexBuffer,
+                weightBuffer,
+                vertexLayout
         );
         mCullingFaces = cullingFaces;
     }
@@ -75,116 +216,86 @@ public class Mesh implements IUsesResources {
     Store info into respective buffers for use in rendering
      */
     private void initialiseMesh(
-            float[] positionArray,
-            float[] textCoordArray,
-            float[] normalArray,
-            int[] indexArray,
-            int[] jointIndexArray,
-            float[] weightIndex
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            IntBuffer jointIndexBuffer,
+            FloatBuffer weightBuffer,
+            VertexLayout vertexLayout
     ) {
-        mUsingTextCoords = textCoordArray != null;
-        mUsingJointIndices = jointIndexArray != null;
-        mUsingWeights = weightIndex != null;
+        mUsingTextCoords = textCoordBuffer != null;
+        mUsingNormals = normalBuffer != null;
+        mUsingJointIndices = jointIndexBuffer != null;
+        mUsingWeights = weightBuffer != null;
 
-        ArrayList<FloatBuffer> floatBufferList = new ArrayList<>();
-        ArrayList<IntBuffer> intBufferList = new ArrayList<>();
-
-        FloatBuffer positionBuffer;
-        FloatBuffer textCoordBuffer;
-        FloatBuffer normalBuffer;
-        FloatBuffer weightBuffer;
-        IntBuffer indexBuffer;
-        IntBuffer joinIndexBuffer;
+        ByteBuffer vertexBuffer = null;
 
         try {
-            calculateBoundRadius(positionArray);
+            calculateBoundRadius(positionBuffer);
 
-            mVertexCount = indexArray.length;
+            mVertexCount = indexBuffer.remaining();
             mVboIdList = new ArrayList<>();
 
-            mVaoId = glGenVertexArrays();
+            mVaoId = GlObjectRegistry.register(GlObjectType.VERTEX_ARRAY, glGenVertexArrays());
             glBindVertexArray(mVaoId);
 
-            //position VBO
-            int vboId = glGenBuffers();
+            //position, texture coordinates and normals VBO
+            vertexBuffer = createVertexBuffer(
+                    positionBuffer,
+                    textCoordBuffer,
+                    normalBuffer,
+                    vertexLayout
+            );
+
+            int vboId = GlObjectRegistry.register(GlObjectType.BUFFER, glGenBuffers(), vertexBuffer.remaining());
             mVboIdList.add(vboId);
-            positionBuffer = MemoryUtil.memAllocFloat(positionArray.length);
-            floatBufferList.add(positionBuffer);
-            positionBuffer.put(positionArray).flip();
             glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, positionBuffer, GL_STATIC_DRAW);
-            glVertexAttribPointer(POSITION_VBO_INDEX, 3, GL_FLOAT, false, 0, 0);
-
-            //texture coordinates VBO
-            if (textCoordArray != null) {
-                mUsingTextCoords = true;
-                vboId = glGenBuffers();
-                mVboIdList.add(vboId);
-                textCoordBuffer = MemoryUtil.memAllocFloat(textCoordArray.length);
-                floatBufferList.add(textCoordBuffer);
-                textCoordBuffer.put(textCoordArray).flip();
-                glBindBuffer(GL_ARRAY_BUFFER, vboId);
-                glBufferData(GL_ARRAY_BUFFER, textCoordBuffer, GL_STATIC_DRAW);
-                glVertexAttribPointer(TEXTURE_COORDINATES_VBO_INDEX, 2, GL_FLOAT, false, 0, 0);
-            }
-
-            //normals VBO
-            if (normalArray != null) {
-                mUsingNormals = true;
-                vboId = glGenBuffers();
-                mVboIdList.add(vboId);
-                normalBuffer = MemoryUtil.memAllocFloat(normalArray.length);
-                floatBufferList.add(normalBuffer);
-                normalBuffer.put(normalArray).flip();
-                glBindBuffer(GL_ARRAY_BUFFER, vboId);
-                glBufferData(GL_ARRAY_BUFFER, normalBuffer, GL_STATIC_DRAW);
-                glVertexAttribPointer(NORMALS_VBO_INDEX, 3, GL_FLOAT, false, 0, 0);
-            }
+            glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
+            addUploadedBytes(vertexBuffer.remaining());
 
             //weights VBO
-            if (weightIndex != null) {
-                mUsingWeights = true;
-                vboId = glGenBuffers();
+            if (weightBuffer != null) {
+                vboId = GlObjectRegistry.register(
+                        GlObjectType.BUFFER,
+                        glGenBuffers(),
+                        (long) weightBuffer.remaining() * Float.BYTES
+                );
                 mVboIdList.add(vboId);
-                weightBuffer = MemoryUtil.memAllocFloat(weightIndex.length);
-                floatBufferList.add(weightBuffer);
                 glBindBuffer(GL_ARRAY_BUFFER, vboId);
                 glBufferData(GL_ARRAY_BUFFER, weightBuffer, GL_STATIC_DRAW);
+                addUploadedBytes((long) weightBuffer.remaining() * Float.BYTES);
                 glVertexAttribPointer(WEIGHTS_VBO_INDEX, 4, GL_FLOAT, false, 0, 0);
             }
 
             //joint indices VBO
-            if (jointIndexArray != null) {
-                mUsingJointIndices = true;
-                vboId = glGenBuffers();
+            if (jointIndexBuffer != null) {
+                vboId = GlObjectRegistry.register(
+                        GlObjectType.BUFFER,
+                        glGenBuffers(),
+                        (long) jointIndexBuffer.remaining() * Integer.BYTES
+                );
                 mVboIdList.add(vboId);
-                joinIndexBuffer = MemoryUtil.memAllocInt(jointIndexArray.length);
-                intBufferList.add(joinIndexBuffer);
                 glBindBuffer(GL_ARRAY_BUFFER, vboId);
-                glBufferData(GL_ARRAY_BUFFER, joinIndexBuffer, GL_STATIC_DRAW);
-                glVertexAttribPointer(JOINT_INDICES_VBO_INDEX, 4, GL_FLOAT, false, 0, 0);
+                glBufferData(GL_ARRAY_BUFFER, jointIndexBuffer, GL_STATIC_DRAW);
+                addUploadedBytes((long) jointIndexBuffer.remaining() * Integer.BYTES);
+                //integer attribute, glVertexAttribPointer would convert the indices to floats
+                glVertexAttribIPointer(JOINT_INDICES_VBO_INDEX, 4, GL_INT, 0, 0);
             }
 
             //indices VBO
-            vboId = glGenBuffers();
+            vboId = GlObjectRegistry.register(GlObjectType.BUFFER, glGenBuffers());
             mVboIdList.add(vboId);
-            indexBuffer = MemoryUtil.memAllocInt(indexArray.length);
-            intBufferList.add(indexBuffer);
-            indexBuffer.put(indexArray).flip();
             glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+            uploadIndexBuffer(indexBuffer, positionBuffer.remaining() / 3);
+            GlObjectRegistry.setSize(
+                    GlObjectType.BUFFER,
+                    vboId,
+                    (long) mVertexCount * (mIndexType == GL_UNSIGNED_INT ? Integer.BYTES : Short.BYTES)
+            );
 
         } finally {
-            for (FloatBuffer floatBuffer : floatBufferList) {
-                if (floatBuffer != null) {
-                    MemoryUtil.memFree(floatBuffer);
-                }
-            }
-            for (IntBuffer intBuffer : intBufferList) {
-                if (intBuffer != null) {
-                    MemoryUtil.memFree(intBuffer);
-                }
-            }
+            NativeMemory.memFree(vertexBuffer);
 
             //unbind the buffers
             glBindBuffer(GL_ARRAY_BUFFER, 0);
@@ -192,11 +303,206 @@ public class Mesh implements IUsesResources {
         }
     }
 
-    private void calculateBoundRadius(float[] positionArray) {
+    /**
+     * Interleave the vertex attributes in the formats of the VertexLayout and
+     * point the attributes at the VBO bound to GL_ARRAY_BUFFER.
+     *
+     * @return the interleaved vertices, to be freed by the caller once uploaded
+     */
+    private ByteBuffer createVertexBuffer(
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            VertexLayout vertexLayout
+    ) {
+        int vertexCount = positionBuffer.remaining() / 3;
+        VertexLayout.AttributeFormat positionFormat = vertexLayout.getPositionFormat();
+        VertexLayout.AttributeFormat textCoordFormat = vertexLayout.getTextCoordFormat();
+        VertexLayout.AttributeFormat normalFormat = vertexLayout.getNormalFormat();
+
+        //normalized shorts can only store texture coordinates between 0 and 1, e.g. no repeating textures
+        if (textCoordBuffer != null &&
+                textCoordFormat == VertexLayout.AttributeFormat.NORMALIZED_SHORT &&
+                !isInUnitRange(textCoordBuffer)) {
+            textCoordFormat = VertexLayout.AttributeFormat.HALF_FLOAT;
+        }
+
+        if (vertexLayout.isQuantizingPositions()) {
+            calculatePositionDecode(positionBuffer);
+        }
+
+        int positionSize = positionFormat.getSizeBytes(3);
+        int textCoordSize = textCoordBuffer != null ? textCoordFormat.getSizeBytes(2) : 0;
+        int normalSize = normalBuffer != null ? normalFormat.getSizeBytes(3) : 0;
+        int stride = positionSize + textCoordSize + normalSize;
+
+        ByteBuffer vertexBuffer = NativeMemory.memCalloc(vertexCount * stride, MemoryCategory.MESH);
+        float[] components = new float[3];
+
+        for (int i = 0; i < vertexCount; i++) {
+            int offset = i * stride;
+
+            getComponents(positionBuffer, i, 3, components);
+
+            if (mPositionQuantized) {
+                for (int j = 0; j < 3; j++) {
+                    components[j] = (components[j] - mPositionDecodeOffset.get(j)) / mPositionDecodeScale;
+                }
+            }
+
+            positionFormat.put(vertexBuffer, offset, components, 3);
+            offset += positionSize;
+
+            if (textCoordBuffer != null) {
+                getComponents(textCoordBuffer, i, 2, components);
+                textCoordFormat.put(vertexBuffer, offset, components, 2);
+                offset += textCoordSize;
+            }
+
+            if (normalBuffer != null) {
+                getComponents(normalBuffer, i, 3, components);
+                normalFormat.put(vertexBuffer, offset, components, 3);
+            }
+        }
+
+        glVertexAttribPointer(
+                POSITION_VBO_INDEX,
+                3,
+                positionFormat.getGlType(),
+                positionFormat.isNormalized(),
+                stride,
+                0
+        );
+
+        if (textCoordBuffer != null) {
+            glVertexAttribPointer(
+                    TEXTURE_COORDINATES_VBO_INDEX,
+                    2,
+                    textCoordFormat.getGlType(),
+                    textCoordFormat.isNormalized(),
+                    stride,
+                    positionSize
+            );
+        }
+
+        if (normalBuffer != null) {
+            glVertexAttribPointer(
+                    NORMALS_VBO_INDEX,
+                    normalFormat.getGlComponentCount(3),
+                    normalFormat.getGlType(),
+                    normalFormat.isNormalized(),
+                    stride,
+                    positionSize + textCoordSize
+            );
+        }
+
+        return vertexBuffer;
+    }
+
+    private static void getComponents(
+            FloatBuffer buffer,
+            int vertex,
+            int componentCount,
+            float[] components
+    ) {
+        int start = buffer.position() + vertex * componentCount;
+
+        for (int i = 0; i < componentCount; i++) {
+            components[i] = buffer.get(start + i);
+        }
+    }
+
+    private static boolean isInUnitRange(FloatBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            float value = buffer.get(i);
+
+            if (value < 0.0f || value > 1.0f) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Quantized positions are stored between 0 and 1 of the bounding box,
+     * the box is scaled uniformly so the normals don't need correcting
+     */
+    private void calculatePositionDecode(FloatBuffer positionBuffer) {
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+
+        for (int i = 0; i < 3; i++) {
+            float minValue = Float.POSITIVE_INFINITY;
+            float maxValue = Float.NEGATIVE_INFINITY;
+
+            for (int j = positionBuffer.position() + i; j < positionBuffer.limit(); j += 3) {
+                minValue = Math.min(minValue, positionBuffer.get(j));
+                maxValue = Math.max(maxValue, positionBuffer.get(j));
+            }
+
+            if (minValue <= maxValue) {
+                min.setComponent(i, minValue);
+                max.setComponent(i, maxValue);
+            }
+        }
+
+        float extent = Math.max(max.x - min.x, Math.max(max.y - min.y, max.z - min.z));
+
+        mPositionQuantized = true;
+        mPositionDecodeOffset = min;
+        mPositionDecodeScale = extent > 0 ? extent : 1.0f;
+    }
+
+    private static void addUploadedBytes(long bytes) {
+        EngineMetrics.getInstance().add(MetricType.BUFFER_BYTES_UPLOADED, bytes);
+    }
+
+    /**
+     * Use 16 bit indices when every vertex can be indexed by them, halving the size of the index buffer
+     */
+    private void uploadIndexBuffer(IntBuffer indexBuffer, int vertexCount) {
+        if (vertexCount > SHORT_INDEX_VERTEX_LIMIT) {
+            mIndexType = GL_UNSIGNED_INT;
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+            addUploadedBytes((long) indexBuffer.remaining() * Integer.BYTES);
+            return;
+        }
+
+        ShortBuffer shortIndexBuffer = NativeMemory.memAllocShort(indexBuffer.remaining(), MemoryCategory.MESH);
+
+        try {
+            for (int i = 0; i < shortIndexBuffer.capacity(); i++) {
+                shortIndexBuffer.put(i, (short) indexBuffer.get(indexBuffer.position() + i));
+            }
+
+            mIndexType = GL_UNSIGNED_SHORT;
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, shortIndexBuffer, GL_STATIC_DRAW);
+            addUploadedBytes((long) shortIndexBuffer.remaining() * Short.BYTES);
+        } finally {
+            NativeMemory.memFree(shortIndexBuffer);
+        }
+    }
+
+    /**
+     * Append the transformation from the quantized positions back to model space,
+     * must be the last transformation of the model (view) matrix used to render the Mesh.
+     *
+     * @return the matrix, unchanged if the positions of the Mesh are not quantized
+     */
+    public Matrix4f applyPositionDecode(Matrix4f matrix) {
+        if (mPositionQuantized) {
+            matrix.translate(mPositionDecodeOffset).scale(mPositionDecodeScale);
+        }
+
+        return matrix;
+    }
+
+    private void calculateBoundRadius(FloatBuffer positionBuffer) {
         mBoundingRadius = 0;
 
-        for (float position : positionArray) {
-            mBoundingRadius = Math.max(Math.abs(position), mBoundingRadius);
+        for (int i = positionBuffer.position(); i < positionBuffer.limit(); i++) {
+            mBoundingRadius = Math.max(Math.abs(positionBuffer.get(i)), mBoundingRadius);
         }
     }
 
@@ -206,7 +512,7 @@ public class Mesh implements IUsesResources {
     public void render() {
         initRender();
 
-        glDrawElements(GL_TRIANGLES, mVertexCount, GL_UNSIGNED_INT, 0);
+        glDrawElements(GL_TRIANGLES, mVertexCount, mIndexType, 0);
 
         endRender();
     }
@@ -220,9 +526,9 @@ public class Mesh implements IUsesResources {
     ) {
         initRender();
 
-        for (GameItem gameItem : gameItems) {
-            consumer.accept(gameItem);
-            glDrawElements(GL_TRIANGLES, mVertexCount, GL_UNSIGNED_INT, 0);
+        for (int i = 0; i < gameItems.size(); i++) {
+            consumer.accept(gameItems.get(i));
+            glDrawElements(GL_TRIANGLES, mVertexCount, mIndexType, 0);
         }
 
         endRender();
@@ -308,11 +614,17 @@ public class Mesh implements IUsesResources {
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         for (int vboId : mVboIdList) {
             glDeleteBuffers(vboId);
+            GlObjectRegistry.unregister(GlObjectType.BUFFER, vboId);
         }
 
         // Delete the VAO
         glBindVertexArray(0);
         glDeleteVertexArrays(mVaoId);
+        GlObjectRegistry.unregister(GlObjectType.VERTEX_ARRAY, mVaoId);
+
+        //a Mesh shared by several GameItems is cleaned up by each of them, only delete the ids once
+        mVboIdList.clear();
+        mVaoId = 0;
     }
 
     @Override
@@ -337,6 +649,17 @@ public class Mesh implements IUsesResources {
         return mVertexCount;
     }
 
+    /**
+     * @return GL_UNSIGNED_SHORT or GL_UNSIGNED_INT, the type of the index buffer
+     */
+    public int getIndexType() {
+        return mIndexType;
+    }
+
+    public boolean isPositionQuantized() {
+        return mPositionQuantized;
+    }
+
     public void setBoundingRadius(float boundingRadius) {
         mBoundingRadius = boundingRadius;
     }
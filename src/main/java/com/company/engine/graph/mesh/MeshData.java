@@ -0,0 +1,142 @@
+package com.company.engine.graph.mesh;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+public class MeshData implements IUsesResources {
+
+    /**
+     * The vertex and index data of a Mesh before it is uploaded.
+     *
+     * The buffers are direct so a Mesh can be created from them without another copy,
+     * they are either allocated by this class (and freed in cleanUp) or are views
+     * of memory owned by something else, e.g. a memory mapped cache file.
+     */
+
+    public static final int NO_MATERIAL = -1;
+    //print how each imported mesh was welded and optimised, run with -Dengine.logMeshImports=true
+    public static final boolean LOGGING_IMPORTS = "true".equals(System.getProperty("engine.logMeshImports"));
+
+    private final String mName;
+    private final FloatBuffer mPositionBuffer;
+    private final FloatBuffer mTextCoordBuffer;
+    private final FloatBuffer mNormalBuffer;
+    private final IntBuffer mIndexBuffer;
+    private final boolean mOwningBuffers;
+
+    private int mMaterialIndex;
+    private VertexCacheStats mVertexCacheStats;
+
+    public MeshData(
+            String name,
+            float[] positionArray,
+            float[] textCoordArray,
+            float[] normalArray,
+            int[] indexArray
+    ) {
+        this(
+                name,
+                createBuffer(positionArray),
+                createBuffer(textCoordArray),
+                createBuffer(normalArray),
+                createBuffer(indexArray),
+                true
+        );
+    }
+
+    /**
+     * @param owningBuffers true if the buffers were allocated with MemoryUtil and should be freed in cleanUp
+     */
+    public MeshData(
+            String name,
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer,
+            IntBuffer indexBuffer,
+            boolean owningBuffers
+    ) {
+        mName = name;
+        mPositionBuffer = positionBuffer;
+        mTextCoordBuffer = textCoordBuffer;
+        mNormalBuffer = normalBuffer;
+        mIndexBuffer = indexBuffer;
+        mOwningBuffers = owningBuffers;
+        mMaterialIndex = NO_MATERIAL;
+    }
+
+    private static FloatBuffer createBuffer(float[] array) {
+        if (array == null) {
+            return null;
+        }
+
+        FloatBuffer buffer = NativeMemory.memAllocFloat(array.length, MemoryCategory.MESH);
+        buffer.put(array).flip();
+
+        return buffer;
+    }
+
+    private static IntBuffer createBuffer(int[] array) {
+        IntBuffer buffer = NativeMemory.memAllocInt(array.length, MemoryCategory.MESH);
+        buffer.put(array).flip();
+
+        return buffer;
+    }
+
+    @Override
+    public void cleanUp() {
+        if (mOwningBuffers) {
+            NativeMemory.memFree(mPositionBuffer);
+            NativeMemory.memFree(mTextCoordBuffer);
+            NativeMemory.memFree(mNormalBuffer);
+            NativeMemory.memFree(mIndexBuffer);
+        }
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public FloatBuffer getPositionBuffer() {
+        return mPositionBuffer;
+    }
+
+    public FloatBuffer getTextCoordBuffer() {
+        return mTextCoordBuffer;
+    }
+
+    public FloatBuffer getNormalBuffer() {
+        return mNormalBuffer;
+    }
+
+    public IntBuffer getIndexBuffer() {
+        return mIndexBuffer;
+    }
+
+    public int getVertexCount() {
+        return mPositionBuffer.remaining() / 3;
+    }
+
+    public void setMaterialIndex(int materialIndex) {
+        mMaterialIndex = materialIndex;
+    }
+
+    public int getMaterialIndex() {
+        return mMaterialIndex;
+    }
+
+    public void setVertexCacheStats(VertexCacheStats vertexCacheStats) {
+        mVertexCacheStats = vertexCacheStats;
+    }
+
+    /**
+     * @return how the MeshOptimiser changed the triangle order, null if the mesh wasn't optimised
+     * since it was loaded, e.g. it was read from the MeshCache
+     */
+    public VertexCacheStats getVertexCacheStats() {
+        return mVertexCacheStats;
+    }
+}
@@ -0,0 +1,497 @@
+package com.company.engine.graph.mesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+public class MeshOptimiser {
+
+    /**
+     * Reorders the triangles and vertices of an indexed triangle list before it is uploaded.
+     *
+     * Triangles are first sorted for the post transform vertex cache (Forsyth's linear speed
+     * vertex cache optimisation), the resulting sequence is then split into clusters that are
+     * sorted so outward facing clusters are drawn first to reduce overdraw, finally vertices are
+     * reordered into the order they are first fetched and the indices are remapped to match.
+     *
+     * The buffers are modified in place, their positions are ignored.
+     */
+
+    public static final int VERTEX_CACHE_SIZE = 32; //LRU cache size used when reordering triangles
+    public static final int FIFO_CACHE_SIZE = 16; //FIFO cache size used to measure ACMR/ATVR
+
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    private static final int NO_VALUE = -1;
+
+    private static final float[] CACHE_POSITION_SCORES = new float[VERTEX_CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[32];
+
+    static {
+        for (int i = 0; i < VERTEX_CACHE_SIZE; i++) {
+            if (i < 3) {
+                //the vertices of the last triangle are scored the same, regardless of order
+                CACHE_POSITION_SCORES[i] = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1.0f / (VERTEX_CACHE_SIZE - 3);
+                CACHE_POSITION_SCORES[i] = (float) Math.pow(1.0f - (i - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+
+        for (int i = 1; i < VALENCE_SCORES.length; i++) {
+            VALENCE_SCORES[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+        }
+    }
+
+    /**
+     * Optimise the mesh's buffers and keep the vertex cache stats on it, printing them if
+     * MeshData.LOGGING_IMPORTS is set.
+     * @return the stats, null if the mesh has no triangles
+     */
+    public static VertexCacheStats optimise(MeshData meshData) {
+        VertexCacheStats stats = optimise(
+                meshData.getIndexBuffer(),
+                meshData.getPositionBuffer(),
+                meshData.getTextCoordBuffer(),
+                meshData.getNormalBuffer()
+        );
+
+        meshData.setVertexCacheStats(stats);
+
+        if (MeshData.LOGGING_IMPORTS && stats != null) {
+            System.out.println("MeshOptimiser: " + meshData.getName() + " - " + stats);
+        }
+
+        return stats;
+    }
+
+    /**
+     * @param indexBuffer triangle list indices
+     * @param positionBuffer 3 floats per vertex
+     * @param textCoordBuffer 2 floats per vertex, can be null or empty
+     * @param normalBuffer 3 floats per vertex, can be null or empty
+     * @return ACMR and ATVR before and after optimising, null if there are no triangles
+     */
+    public static VertexCacheStats optimise(
+            IntBuffer indexBuffer,
+            FloatBuffer positionBuffer,
+            FloatBuffer textCoordBuffer,
+            FloatBuffer normalBuffer
+    ) {
+        int vertexCount = positionBuffer.limit() / 3;
+        int indexCount = indexBuffer.limit() - indexBuffer.limit() % 3;
+
+        if (indexCount == 0 || vertexCount == 0) {
+            return null;
+        }
+
+        int[] indices = new int[indexCount];
+
+        for (int i = 0; i < indexCount; i++) {
+            indices[i] = indexBuffer.get(i);
+        }
+
+        float acmrBefore = calculateAcmr(indices, vertexCount, FIFO_CACHE_SIZE);
+        float atvrBefore = calculateAtvr(indices, vertexCount, FIFO_CACHE_SIZE);
+
+        indices = optimiseVertexCache(indices, vertexCount);
+        indices = optimiseOverdraw(indices, positionBuffer, FIFO_CACHE_SIZE);
+
+        int[] vertexRemap = optimiseVertexFetch(indices, vertexCount);
+
+        remapVertexBuffer(positionBuffer, 3, vertexRemap);
+        remapVertexBuffer(textCoordBuffer, 2, vertexRemap);
+        remapVertexBuffer(normalBuffer, 3, vertexRemap);
+
+        for (int i = 0; i < indexCount; i++) {
+            indexBuffer.put(i, indices[i]);
+        }
+
+        //the vertex fetch remap renames vertices but doesn't change the cache behaviour
+        return new VertexCacheStats(
+                indexCount / 3,
+                acmrBefore,
+                calculateAcmr(indices, vertexCount, FIFO_CACHE_SIZE),
+                atvrBefore,
+                calculateAtvr(indices, vertexCount, FIFO_CACHE_SIZE)
+        );
+    }
+
+    /**
+     * @return the average number of vertex cache misses per triangle
+     */
+    public static float calculateAcmr(int[] indices, int vertexCount, int cacheSize) {
+        return (float) countCacheMisses(indices, vertexCount, cacheSize) / (indices.length / 3);
+    }
+
+    /**
+     * @return the average number of times each referenced vertex is transformed
+     */
+    public static float calculateAtvr(int[] indices, int vertexCount, int cacheSize) {
+        boolean[] referenced = new boolean[vertexCount];
+        int referencedCount = 0;
+
+        for (int index : indices) {
+            if (!referenced[index]) {
+                referenced[index] = true;
+                referencedCount++;
+            }
+        }
+
+        return (float) countCacheMisses(indices, vertexCount, cacheSize) / referencedCount;
+    }
+
+    private static int countCacheMisses(int[] indices, int vertexCount, int cacheSize) {
+        //a vertex is in the FIFO cache if fewer than cacheSize misses happened since it was added
+        int[] cacheTimestamps = new int[vertexCount];
+        int misses = 0;
+
+        Arrays.fill(cacheTimestamps, Integer.MIN_VALUE / 2);
+
+        for (int index : indices) {
+            if (misses - cacheTimestamps[index] >= cacheSize) {
+                cacheTimestamps[index] = misses;
+                misses++;
+            }
+        }
+
+        return misses;
+    }
+
+    private static float calculateVertexScore(int cachePosition, int liveTriangleCount) {
+        if (liveTriangleCount == 0) {
+            //no triangles left that use the vertex
+            return -1;
+        }
+
+        float score = cachePosition >= 0 ? CACHE_POSITION_SCORES[cachePosition] : 0;
+
+        if (liveTriangleCount < VALENCE_SCORES.length) {
+            score += VALENCE_SCORES[liveTriangleCount];
+        } else {
+            score += VALENCE_BOOST_SCALE * (float) Math.pow(liveTriangleCount, -VALENCE_BOOST_POWER);
+        }
+
+        return score;
+    }
+
+    /**
+     * Greedily emits the triangle with the highest score, where the score favours
+     * vertices that are in the simulated cache and vertices with few triangles remaining.
+     */
+    private static int[] optimiseVertexCache(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+
+        //triangles that use each vertex
+        int[] liveTriangleCounts = new int[vertexCount];
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+
+        for (int index : indices) {
+            liveTriangleCounts[index]++;
+        }
+
+        for (int i = 0; i < vertexCount; i++) {
+            adjacencyOffsets[i + 1] = adjacencyOffsets[i] + liveTriangleCounts[i];
+        }
+
+        int[] adjacency = new int[indices.length];
+        int[] adjacencyFill = Arrays.copyOf(adjacencyOffsets, vertexCount);
+
+        for (int i = 0; i < indices.length; i++) {
+            adjacency[adjacencyFill[indices[i]]++] = i / 3;
+        }
+
+        float[] vertexScores = new float[vertexCount];
+        float[] triangleScores = new float[triangleCount];
+        boolean[] emitted = new boolean[triangleCount];
+
+        for (int i = 0; i < vertexCount; i++) {
+            vertexScores[i] = calculateVertexScore(NO_VALUE, liveTriangleCounts[i]);
+        }
+
+        for (int i = 0; i < triangleCount; i++) {
+            triangleScores[i] = vertexScores[indices[i * 3]] +
+                    vertexScores[indices[i * 3 + 1]] +
+                    vertexScores[indices[i * 3 + 2]];
+        }
+
+        int[] cache = new int[VERTEX_CACHE_SIZE + 3];
+        int[] newCache = new int[VERTEX_CACHE_SIZE + 3];
+        int cacheSize = 0;
+
+        int[] result = new int[indices.length];
+        int bestTriangle = NO_VALUE;
+        int searchCursor = 0;
+
+        for (int output = 0; output < triangleCount; output++) {
+            if (bestTriangle == NO_VALUE) {
+                //nothing useful in the cache, continue from the next triangle in the original order
+                while (emitted[searchCursor]) {
+                    searchCursor++;
+                }
+
+                bestTriangle = searchCursor;
+            }
+
+            emitted[bestTriangle] = true;
+
+            int newCacheSize = 0;
+
+            for (int i = 0; i < 3; i++) {
+                int vertex = indices[bestTriangle * 3 + i];
+                result[output * 3 + i] = vertex;
+
+                if (!containsVertex(newCache, newCacheSize, vertex)) {
+                    newCache[newCacheSize++] = vertex;
+                }
+
+                //remove the triangle from the vertex's live triangles
+                int start = adjacencyOffsets[vertex];
+                int end = start + liveTriangleCounts[vertex];
+
+                for (int j = start; j < end; j++) {
+                    if (adjacency[j] == bestTriangle) {
+                        adjacency[j] = adjacency[end - 1];
+                        break;
+                    }
+                }
+
+                liveTriangleCounts[vertex]--;
+            }
+
+            //the emitted triangle's vertices move to the front of the cache
+            int triangleVertexCount = newCacheSize;
+
+            for (int i = 0; i < cacheSize; i++) {
+                int vertex = cache[i];
+
+                if (!containsVertex(newCache, triangleVertexCount, vertex)) {
+                    newCache[newCacheSize++] = vertex;
+                }
+            }
+
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheSize = newCacheSize;
+
+            //rescore every vertex in the cache, those pushed out lose their cache position
+            bestTriangle = NO_VALUE;
+            float bestScore = -1;
+
+            for (int i = 0; i < cacheSize; i++) {
+                int vertex = cache[i];
+                int cachePosition = i < VERTEX_CACHE_SIZE ? i : NO_VALUE;
+
+                float score = calculateVertexScore(cachePosition, liveTriangleCounts[vertex]);
+                float scoreDelta = score - vertexScores[vertex];
+                vertexScores[vertex] = score;
+
+                int start = adjacencyOffsets[vertex];
+                int end = start + liveTriangleCounts[vertex];
+
+                for (int j = start; j < end; j++) {
+                    int triangle = adjacency[j];
+                    triangleScores[triangle] += scoreDelta;
+
+                    if (triangleScores[triangle] > bestScore) {
+                        bestScore = triangleScores[triangle];
+                        bestTriangle = triangle;
+                    }
+                }
+            }
+
+            cacheSize = Math.min(cacheSize, VERTEX_CACHE_SIZE);
+        }
+
+        return result;
+    }
+
+    private static boolean containsVertex(int[] cache, int size, int vertex) {
+        for (int i = 0; i < size; i++) {
+            if (cache[i] == vertex) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Splits the triangle sequence where the FIFO cache is effectively restarted, so the
+     * vertex cache efficiency is kept, then sorts the clusters so those facing
+     * away from the centre of the mesh are drawn first.
+     */
+    private static int[] optimiseOverdraw(int[] indices, FloatBuffer positionBuffer, int cacheSize) {
+        int triangleCount = indices.length / 3;
+        int vertexCount = positionBuffer.limit() / 3;
+
+        //find the cluster boundaries, triangles where all 3 vertices missed the cache
+        int[] clusterStarts = new int[triangleCount + 1];
+        int clusterCount = 0;
+        int[] cacheTimestamps = new int[vertexCount];
+        int misses = 0;
+
+        Arrays.fill(cacheTimestamps, Integer.MIN_VALUE / 2);
+
+        for (int i = 0; i < triangleCount; i++) {
+            int triangleMisses = 0;
+
+            for (int j = 0; j < 3; j++) {
+                int vertex = indices[i * 3 + j];
+
+                if (misses - cacheTimestamps[vertex] >= cacheSize) {
+                    cacheTimestamps[vertex] = misses;
+                    misses++;
+                    triangleMisses++;
+                }
+            }
+
+            if (i == 0 || triangleMisses == 3) {
+                clusterStarts[clusterCount++] = i;
+            }
+        }
+
+        clusterStarts[clusterCount] = triangleCount;
+
+        if (clusterCount == 1) {
+            return indices;
+        }
+
+        //centre of the mesh
+        float meshCentreX = 0;
+        float meshCentreY = 0;
+        float meshCentreZ = 0;
+
+        for (int i = 0; i < vertexCount; i++) {
+            meshCentreX += positionBuffer.get(i * 3);
+            meshCentreY += positionBuffer.get(i * 3 + 1);
+            meshCentreZ += positionBuffer.get(i * 3 + 2);
+        }
+
+        meshCentreX /= vertexCount;
+        meshCentreY /= vertexCount;
+        meshCentreZ /= vertexCount;
+
+        Integer[] clusterOrder = new Integer[clusterCount];
+        float[] clusterSortKeys = new float[clusterCount];
+
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            float centreX = 0;
+            float centreY = 0;
+            float centreZ = 0;
+            float normalX = 0;
+            float normalY = 0;
+            float normalZ = 0;
+            float totalArea = 0;
+
+            for (int i = clusterStarts[cluster]; i < clusterStarts[cluster + 1]; i++) {
+                int a = indices[i * 3] * 3;
+                int b = indices[i * 3 + 1] * 3;
+                int c = indices[i * 3 + 2] * 3;
+
+                float abX = positionBuffer.get(b) - positionBuffer.get(a);
+                float abY = positionBuffer.get(b + 1) - positionBuffer.get(a + 1);
+                float abZ = positionBuffer.get(b + 2) - positionBuffer.get(a + 2);
+                float acX = positionBuffer.get(c) - positionBuffer.get(a);
+                float acY = positionBuffer.get(c + 1) - positionBuffer.get(a + 1);
+                float acZ = positionBuffer.get(c + 2) - positionBuffer.get(a + 2);
+
+                //cross product length is twice the triangle area, so the sums are area weighted
+                float crossX = abY * acZ - abZ * acY;
+                float crossY = abZ * acX - abX * acZ;
+                float crossZ = abX * acY - abY * acX;
+                float area = (float) Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+
+                centreX += (positionBuffer.get(a) + positionBuffer.get(b) + positionBuffer.get(c)) / 3 * area;
+                centreY += (positionBuffer.get(a + 1) + positionBuffer.get(b + 1) + positionBuffer.get(c + 1)) / 3 * area;
+                centreZ += (positionBuffer.get(a + 2) + positionBuffer.get(b + 2) + positionBuffer.get(c + 2)) / 3 * area;
+                normalX += crossX;
+                normalY += crossY;
+                normalZ += crossZ;
+                totalArea += area;
+            }
+
+            float normalLength = (float) Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+
+            if (totalArea > 0 && normalLength > 0) {
+                clusterSortKeys[cluster] = (
+                        (centreX / totalArea - meshCentreX) * normalX +
+                        (centreY / totalArea - meshCentreY) * normalY +
+                        (centreZ / totalArea - meshCentreZ) * normalZ
+                ) / normalLength;
+            }
+
+            clusterOrder[cluster] = cluster;
+        }
+
+        //stable sort, clusters with the same key keep their cache friendly order
+        Arrays.sort(clusterOrder, (a, b) -> Float.compare(clusterSortKeys[b], clusterSortKeys[a]));
+
+        int[] result = new int[indices.length];
+        int output = 0;
+
+        for (int cluster : clusterOrder) {
+            int start = clusterStarts[cluster] * 3;
+            int length = clusterStarts[cluster + 1] * 3 - start;
+
+            System.arraycopy(indices, start, result, output, length);
+            output += length;
+        }
+
+        return result;
+    }
+
+    /**
+     * Renames the vertices in the order they are first used and rewrites the indices.
+     * Unreferenced vertices are kept and moved to the end.
+     *
+     * @return new vertex index for each old vertex index
+     */
+    private static int[] optimiseVertexFetch(int[] indices, int vertexCount) {
+        int[] vertexRemap = new int[vertexCount];
+        int nextVertex = 0;
+
+        Arrays.fill(vertexRemap, NO_VALUE);
+
+        for (int i = 0; i < indices.length; i++) {
+            int vertex = indices[i];
+
+            if (vertexRemap[vertex] == NO_VALUE) {
+                vertexRemap[vertex] = nextVertex++;
+            }
+
+            indices[i] = vertexRemap[vertex];
+        }
+
+        for (int i = 0; i < vertexCount; i++) {
+            if (vertexRemap[i] == NO_VALUE) {
+                vertexRemap[i] = nextVertex++;
+            }
+        }
+
+        return vertexRemap;
+    }
+
+    private static void remapVertexBuffer(FloatBuffer buffer, int size, int[] vertexRemap) {
+        if (buffer == null || buffer.limit() < vertexRemap.length * size) {
+            return;
+        }
+
+        float[] original = new float[vertexRemap.length * size];
+
+        for (int i = 0; i < original.length; i++) {
+            original[i] = buffer.get(i);
+        }
+
+        for (int i = 0; i < vertexRemap.length; i++) {
+            int target = vertexRemap[i] * size;
+
+            for (int j = 0; j < size; j++) {
+                buffer.put(target + j, original[i * size + j]);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.company.engine.graph.mesh;
+
+import java.util.Locale;
+
+public class VertexCacheStats {
+
+    /**
+     * How well a mesh's triangle order uses the post transform vertex cache, before and after
+     * the MeshOptimiser reordered it. Measured with a FIFO cache of MeshOptimiser.FIFO_CACHE_SIZE.
+     *
+     * ACMR is the average number of cache misses per triangle, ATVR the average number of times
+     * each vertex is transformed, lower is better for both.
+     */
+
+    private final int mTriangleCount;
+    private final float mAcmrBefore;
+    private final float mAcmrAfter;
+    private final float mAtvrBefore;
+    private final float mAtvrAfter;
+
+    public VertexCacheStats(int triangleCount, float acmrBefore, float acmrAfter, float atvrBefore, float atvrAfter) {
+        mTriangleCount = triangleCount;
+        mAcmrBefore = acmrBefore;
+        mAcmrAfter = acmrAfter;
+        mAtvrBefore = atvrBefore;
+        mAtvrAfter = atvrAfter;
+    }
+
+    public int getTriangleCount() {
+        return mTriangleCount;
+    }
+
+    public float getAcmrBefore() {
+        return mAcmrBefore;
+    }
+
+    public float getAcmrAfter() {
+        return mAcmrAfter;
+    }
+
+    public float getAtvrBefore() {
+        return mAtvrBefore;
+    }
+
+    public float getAtvrAfter() {
+        return mAtvrAfter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.ROOT,
+                "%d triangles, ACMR %.3f -> %.3f, ATVR %.3f -> %.3f",
+                mTriangleCount,
+                mAcmrBefore,
+                mAcmrAfter,
+                mAtvrBefore,
+                mAtvrAfter
+        );
+    }
+}
@@ -0,0 +1,208 @@
+package com.company.engine.graph.mesh;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL33.*;
+
+public class VertexLayout {
+
+    /**
+     * Describes how the position, texture coordinate and normal of a vertex are
+     * stored in the single interleaved VBO of a Mesh.
+     *
+     * Positions can be FLOAT or NORMALIZED_SHORT, NORMALIZED_SHORT positions are quantized
+     * into the bounds of the Mesh and decoded by the model matrix (see Mesh.applyPositionDecode).
+     * Texture coordinates can be FLOAT, HALF_FLOAT or NORMALIZED_SHORT, a Mesh with texture
+     * coordinates outside of 0 - 1 falls back to HALF_FLOAT.
+     * Normals can be FLOAT, HALF_FLOAT or INT_2_10_10_10_REV.
+     */
+
+    //full precision, as every Mesh was stored before the layouts were added
+    public static final VertexLayout FULL_PRECISION = new VertexLayout(
+            AttributeFormat.FLOAT,
+            AttributeFormat.FLOAT,
+            AttributeFormat.FLOAT
+    );
+
+    //full precision positions, 16 bytes per vertex instead of 32
+    public static final VertexLayout DEFAULT = new VertexLayout(
+            AttributeFormat.FLOAT,
+            AttributeFormat.NORMALIZED_SHORT,
+            AttributeFormat.INT_2_10_10_10_REV
+    );
+
+    //quantized positions, 12 bytes per vertex. Not for skinned meshes, joint matrices work in model space
+    public static final VertexLayout COMPACT = new VertexLayout(
+            AttributeFormat.NORMALIZED_SHORT,
+            AttributeFormat.NORMALIZED_SHORT,
+            AttributeFormat.INT_2_10_10_10_REV
+    );
+
+    private final AttributeFormat mPositionFormat;
+    private final AttributeFormat mTextCoordFormat;
+    private final AttributeFormat mNormalFormat;
+
+    public VertexLayout(
+            AttributeFormat positionFormat,
+            AttributeFormat textCoordFormat,
+            AttributeFormat normalFormat
+    ) {
+        if (positionFormat != AttributeFormat.FLOAT &&
+                positionFormat != AttributeFormat.NORMALIZED_SHORT) {
+            throw new IllegalArgumentException("Unsupported position format: " + positionFormat);
+        }
+
+        if (textCoordFormat == AttributeFormat.INT_2_10_10_10_REV) {
+            throw new IllegalArgumentException("Unsupported texture coordinate format: " + textCoordFormat);
+        }
+
+        if (normalFormat == AttributeFormat.NORMALIZED_SHORT) {
+            //unsigned, can't store negative normals
+            throw new IllegalArgumentException("Unsupported normal format: " + normalFormat);
+        }
+
+        mPositionFormat = positionFormat;
+        mTextCoordFormat = textCoordFormat;
+        mNormalFormat = normalFormat;
+    }
+
+    public AttributeFormat getPositionFormat() {
+        return mPositionFormat;
+    }
+
+    public AttributeFormat getTextCoordFormat() {
+        return mTextCoordFormat;
+    }
+
+    public AttributeFormat getNormalFormat() {
+        return mNormalFormat;
+    }
+
+    public boolean isQuantizingPositions() {
+        return mPositionFormat == AttributeFormat.NORMALIZED_SHORT;
+    }
+
+    /**
+     * Round to the nearest half float, values too large become infinity.
+     */
+    public static short packHalfFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+
+            //subnormal half float
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = (mantissa >> shift) + ((mantissa >> (shift - 1)) & 1);
+
+            return (short) (sign | half);
+        }
+
+        if (exponent >= 0x1F) {
+            boolean nan = ((bits >>> 23) & 0xFF) == 0xFF && mantissa != 0;
+
+            return (short) (sign | (nan ? 0x7E00 : 0x7C00));
+        }
+
+        //rounding may carry into the exponent, which is still the nearest half float
+        int half = sign | (exponent << 10) | (mantissa >> 13);
+
+        return (short) (half + ((mantissa >> 12) & 1));
+    }
+
+    /**
+     * Pack a vector with components between -1 and 1 into signed normalized 10 bit x, y and z.
+     */
+    public static int packInt2101010Rev(float x, float y, float z) {
+        return packSigned10(x) | packSigned10(y) << 10 | packSigned10(z) << 20;
+    }
+
+    private static int packSigned10(float value) {
+        return Math.round(Math.max(-1.0f, Math.min(1.0f, value)) * 511.0f) & 0x3FF;
+    }
+
+    public static short packUnsignedNormalizedShort(float value) {
+        return (short) Math.round(Math.max(0.0f, Math.min(1.0f, value)) * 65535.0f);
+    }
+
+    public enum AttributeFormat {
+
+        FLOAT(GL_FLOAT, false),
+        HALF_FLOAT(GL_HALF_FLOAT, false),
+        NORMALIZED_SHORT(GL_UNSIGNED_SHORT, true),
+        INT_2_10_10_10_REV(GL_INT_2_10_10_10_REV, true);
+
+        private final int mGlType;
+        private final boolean mNormalized;
+
+        AttributeFormat(int glType, boolean normalized) {
+            mGlType = glType;
+            mNormalized = normalized;
+        }
+
+        public int getGlType() {
+            return mGlType;
+        }
+
+        public boolean isNormalized() {
+            return mNormalized;
+        }
+
+        /**
+         * @return the component count given to glVertexAttribPointer
+         */
+        public int getGlComponentCount(int componentCount) {
+            //the packed format always has 4 components, w is ignored by the shaders
+            return this == INT_2_10_10_10_REV ? 4 : componentCount;
+        }
+
+        /**
+         * @return number of bytes used by the attribute, padded to 4 bytes
+         */
+        public int getSizeBytes(int componentCount) {
+            switch (this) {
+                case HALF_FLOAT:
+                case NORMALIZED_SHORT:
+                    return (componentCount * 2 + 3) & ~3;
+                case INT_2_10_10_10_REV:
+                    return 4;
+                case FLOAT:
+                default:
+                    return componentCount * 4;
+            }
+        }
+
+        /**
+         * Write the components at the absolute byte offset of the buffer.
+         */
+        public void put(ByteBuffer buffer, int offset, float[] components, int componentCount) {
+            switch (this) {
+                case HALF_FLOAT:
+                    for (int i = 0; i < componentCount; i++) {
+                        buffer.putShort(offset + i * 2, packHalfFloat(components[i]));
+                    }
+                    break;
+                case NORMALIZED_SHORT:
+                    for (int i = 0; i < componentCount; i++) {
+                        buffer.putShort(offset + i * 2, packUnsignedNormalizedShort(components[i]));
+                    }
+                    break;
+                case INT_2_10_10_10_REV:
+                    buffer.putInt(offset, packInt2101010Rev(components[0], components[1], components[2]));
+                    break;
+                case FLOAT:
+                default:
+                    for (int i = 0; i < componentCount; i++) {
+                        buffer.putFloat(offset + i * 4, components[i]);
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -106,13 +106,24 @@ public class Particle extends GameItem {
     public Particle(Particle baseParticle) {
         super(baseParticle.getMesh());
 
+        mSpeed = new Vector3f();
+        mParticleColour = baseParticle.getParticleColour();
+        reset(baseParticle);
+    }
+
+    /**
+     * Start the particle again as a copy of the base particle, so an emitter can reuse a dead
+     * particle rather than create a new one. The colour is kept, so an emitter that gives every
+     * particle its own colour can set it in place.
+     */
+    public void reset(Particle baseParticle) {
         Vector3f particlePos = baseParticle.getPosition();
         setPosition(particlePos.x, particlePos.y, particlePos.z);
         setRotation(baseParticle.getRotation());
         setScale(baseParticle.getScale());
+        setTexturePos(0);
 
-        mSpeed = new Vector3f(baseParticle.getSpeed());
-        mParticleColour = baseParticle.getParticleColour();
+        mSpeed.set(baseParticle.getSpeed());
         mTextured = baseParticle.isTextured();
         mParticleLifeSpan = baseParticle.getParticleLifeSpan();
         mAnimated = baseParticle.isAnimated();
@@ -8,6 +8,8 @@ public class Camera {
 
     private final Vector3f mPosition;
     private final Vector3f mRotation;
+    private final Vector3f mLatchedRotationOffset; //input received after the tick, only applied to the view matrix
+    private final Vector3f mViewRotation;
 
     private float mFov; //Field of view in radians
     private float mViewDistanceStart; //start rendering distance
@@ -17,6 +19,8 @@ public class Camera {
     public Camera() {
         mPosition = new Vector3f(0, 0, 0);
         mRotation = new Vector3f(0, 0, 0);
+        mLatchedRotationOffset = new Vector3f(0, 0, 0);
+        mViewRotation = new Vector3f();
         mFov = (float) Math.toRadians(90.0f);
         mViewDistanceStart = 0.01f;
         mViewDistanceEnd = 1000.f;
@@ -24,7 +28,29 @@ public class Camera {
     }
 
     public void updateViewMatrix() {
-        Transformation.updateGenericViewMatrix(mPosition, mRotation, mViewMatrix);
+        Transformation.updateGenericViewMatrix(
+                mPosition,
+                mViewRotation.set(mRotation).add(mLatchedRotationOffset),
+                mViewMatrix
+        );
+    }
+
+    /**
+     * Rotate the view by input that arrived after the last tick, late latching.
+     * The offset isn't added to the rotation, the next tick applies the same input itself,
+     * so it must be set again or cleared every frame.
+     * Offsets are in degrees, like the rotation.
+     */
+    public void setLatchedRotationOffset(float x, float y, float z) {
+        mLatchedRotationOffset.set(x, y, z);
+    }
+
+    public void clearLatchedRotationOffset() {
+        mLatchedRotationOffset.zero();
+    }
+
+    public Vector3f getLatchedRotationOffset() {
+        return mLatchedRotationOffset;
     }
 
     public float getFov() {
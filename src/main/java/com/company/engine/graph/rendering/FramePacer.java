@@ -0,0 +1,121 @@
+package com.company.engine.graph.rendering;
+
+import com.company.engine.IUsesResources;
+
+import static org.lwjgl.opengl.GL32.*;
+
+public class FramePacer implements IUsesResources {
+
+    /**
+     * Stops the CPU queueing more than a set number of frames ahead of the GPU, and measures
+     * the time from the newest input used by a frame to the frame being submitted.
+     *
+     * A fence is inserted after each frame's commands. Before a new frame samples its input,
+     * waitForFrameSlot waits for the fence of the frame maxFramesInFlight frames back, so the
+     * input isn't sampled early and left waiting behind queued frames.
+     */
+
+    public static final int DEFAULT_MAX_FRAMES_IN_FLIGHT = 1;
+
+    private static final long WAIT_TIMEOUT_NANOS = 1_000_000_000L; //give up on a fence rather than hang
+    private static final double LATENCY_AVERAGE_WEIGHT = 0.1; //weight of each new frame in the moving average
+
+    private final long[] mFences; //one per frame in flight, 0 when the slot is free
+    private int mFrameIndex;
+
+    private long mLastWaitNanos;
+    private long mLastLatencyNanos;
+    private double mAverageLatencyNanos;
+    private long mMaxLatencyNanos;
+
+    public FramePacer() {
+        this(DEFAULT_MAX_FRAMES_IN_FLIGHT);
+    }
+
+    public FramePacer(int maxFramesInFlight) {
+        if (maxFramesInFlight < 1) {
+            throw new IllegalArgumentException("At least one frame must be allowed in flight");
+        }
+
+        mFences = new long[maxFramesInFlight];
+        mLastLatencyNanos = -1;
+    }
+
+    /**
+     * Wait until the GPU has finished enough frames for a new one to be started.
+     */
+    public void waitForFrameSlot() {
+        long fence = mFences[mFrameIndex];
+
+        if (fence == 0) {
+            mLastWaitNanos = 0;
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        int result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, WAIT_TIMEOUT_NANOS);
+
+        if (result == GL_WAIT_FAILED) {
+            System.err.println("FramePacer: waiting for a frame fence failed");
+        }
+
+        glDeleteSync(fence);
+        mFences[mFrameIndex] = 0;
+        mLastWaitNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Mark the end of the frame's commands, call before swapping buffers.
+     * @param newestInputTimeNanos System.nanoTime of the newest input used by the frame, 0 if there was none
+     */
+    public void endFrame(long newestInputTimeNanos) {
+        mFences[mFrameIndex] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        mFrameIndex = (mFrameIndex + 1) % mFences.length;
+
+        if (newestInputTimeNanos == 0) {
+            return;
+        }
+
+        mLastLatencyNanos = System.nanoTime() - newestInputTimeNanos;
+        mMaxLatencyNanos = Math.max(mMaxLatencyNanos, mLastLatencyNanos);
+        mAverageLatencyNanos = mAverageLatencyNanos == 0 ?
+                mLastLatencyNanos :
+                mAverageLatencyNanos + (mLastLatencyNanos - mAverageLatencyNanos) * LATENCY_AVERAGE_WEIGHT;
+    }
+
+    public int getMaxFramesInFlight() {
+        return mFences.length;
+    }
+
+    /**
+     * @return nanoseconds the last waitForFrameSlot spent waiting for the GPU
+     */
+    public long getLastWaitNanos() {
+        return mLastWaitNanos;
+    }
+
+    /**
+     * @return input to submit latency of the last frame that had input, -1 before any input
+     */
+    public long getLastLatencyNanos() {
+        return mLastLatencyNanos;
+    }
+
+    public double getAverageLatencyNanos() {
+        return mAverageLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return mMaxLatencyNanos;
+    }
+
+    @Override
+    public void cleanUp() {
+        for (int i = 0; i < mFences.length; i++) {
+            if (mFences[i] != 0) {
+                glDeleteSync(mFences[i]);
+                mFences[i] = 0;
+            }
+        }
+    }
+}
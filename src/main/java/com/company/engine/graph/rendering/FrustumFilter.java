@@ -12,6 +12,10 @@ import java.util.Map;
 
 public class FrustumFilter {
 
+    /*
+    Runs every frame, lists are walked by index so filtering doesn't allocate iterators
+     */
+
     private final Matrix4f mProjectionViewMatrix;
 
     private FrustumIntersection mFrustumIntersection;
@@ -40,7 +44,9 @@ public class FrustumFilter {
         float boundingRadius;
         Vector3f position;
 
-        for (GameItem gameItem : gameItemList) {
+        for (int i = 0; i < gameItemList.size(); i++) {
+            GameItem gameItem = gameItemList.get(i);
+
             if (!gameItem.ignoresFrustumCulling()) {
                 boundingRadius = gameItem.getScale() * meshBoundingRadius;
                 position = gameItem.getPosition();
@@ -54,6 +60,17 @@ public class FrustumFilter {
         }
     }
 
+    /**
+     * @param meshList the keys of sceneMeshMap, see Scene.getMeshList
+     */
+    public void filter(List<? extends Mesh> meshList, Map<? extends Mesh, List<GameItem>> sceneMeshMap) {
+        for (int i = 0; i < meshList.size(); i++) {
+            Mesh mesh = meshList.get(i);
+
+            filter(sceneMeshMap.get(mesh), mesh.getBoundingRadius());
+        }
+    }
+
     public void filter(Map<? extends Mesh, List<GameItem>> sceneMeshMap) {
         for (
                 Map.Entry<? extends Mesh, List<GameItem>> entry
@@ -112,7 +129,9 @@ public class FrustumFilter {
             List<GameItem> filteredGameItemList
     ) {
         filteredGameItemList.clear();
-        for (GameItem gameItem : gameItemList) {
+        for (int i = 0; i < gameItemList.size(); i++) {
+            GameItem gameItem = gameItemList.get(i);
+
             if (gameItem.isInsideFrustum()) {
                 filteredGameItemList.add(gameItem);
             }
@@ -150,7 +169,11 @@ public class FrustumFilter {
     ) {
         filteredEmitterParticleList.clear();
         if (emitter.isFrustumCullingParticles()) {
-            for (GameItem gameItem : emitter.getParticleList()) {
+            List<GameItem> particleList = emitter.getParticleList();
+
+            for (int i = 0; i < particleList.size(); i++) {
+                GameItem gameItem = particleList.get(i);
+
                 if (gameItem.isInsideFrustum()) {
                     filteredEmitterParticleList.add(gameItem);
                 }
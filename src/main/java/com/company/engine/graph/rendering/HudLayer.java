@@ -0,0 +1,299 @@
+package com.company.engine.graph.rendering;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.graph.material.Texture;
+import com.company.engine.scene.items.GameItem;
+import com.company.engine.scene.items.ui.UiSpriteItem;
+import com.company.engine.scene.items.ui.UiTextItem;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL30.*;
+
+public class HudLayer implements IUsesResources {
+
+    /**
+     * Keeps the drawn HUD in an offscreen texture for the retained HUD mode.
+     *
+     * The HUD is only drawn into the texture when an item is marked dirty, every other frame
+     * the texture is composited over the scene with one full screen quad.
+     * When every dirty item has known screen bounds (UiSpriteItems and UiTextItems) only the
+     * rectangle covering their old and new bounds is cleared and redrawn, otherwise,
+     * or when the items or window size change, the whole layer is redrawn.
+     *
+     * The layer holds premultiplied alpha, it must be drawn into with blendForRedraw
+     * and composited with blendForComposite.
+     */
+
+    private static final float DIRTY_RECT_PADDING = 1.0f; //covers pixels touched by filtering at the edges
+
+    private final Map<GameItem, Vector4f> mBoundsMap; //screen bounds of each item when it was last drawn
+    private final List<GameItem> mLastGameItemList; //the items in the layer
+    private final Vector4f mDirtyRect; //min x, min y, max x, max y in pixels from the top left
+    private final Vector4f mItemBounds;
+    private final Matrix4f mModelMatrix;
+    private final Vector3f mCorner;
+    private final UiSpriteItem mCompositeSprite;
+    private final float[] mWindowClearColour;
+
+    private int mFboId;
+    private Texture mColourTexture;
+    private int mWidth;
+    private int mHeight;
+    private boolean mFullRedraw;
+    private int mRedrawCount;
+
+    public HudLayer() {
+        mBoundsMap = new IdentityHashMap<>();
+        mLastGameItemList = new ArrayList<>();
+        mDirtyRect = new Vector4f();
+        mItemBounds = new Vector4f();
+        mModelMatrix = new Matrix4f();
+        mCorner = new Vector3f();
+        mWindowClearColour = new float[4];
+        mCompositeSprite = new UiSpriteItem(null, 0, 0);
+        //the texture's first row is the bottom of the screen
+        mCompositeSprite.setAtlasRect(0, 1, 1, 0);
+        mFullRedraw = true;
+    }
+
+    /**
+     * Work out which part of the layer needs drawing again.
+     * @return true if the HUD must be redrawn between beginRedraw and endRedraw this frame
+     */
+    public boolean prepare(int width, int height, GameItem[] gameItems) {
+        if (width != mWidth || height != mHeight || mFboId == 0) {
+            resize(width, height);
+        }
+
+        if (!mFullRedraw && !isSameGameItems(gameItems)) {
+            mFullRedraw = true;
+        }
+
+        mDirtyRect.set(Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+
+        for (int i = 0; i < gameItems.length && !mFullRedraw; i++) {
+            GameItem gameItem = gameItems[i];
+
+            if (!gameItem.isDirty()) {
+                continue;
+            }
+
+            Vector4f lastBounds = mBoundsMap.get(gameItem);
+
+            if (lastBounds == null || !calculateBounds(gameItem, mItemBounds)) {
+                mFullRedraw = true;
+                break;
+            }
+
+            unionDirtyRect(lastBounds);
+            unionDirtyRect(mItemBounds);
+        }
+
+        return mFullRedraw || mDirtyRect.z >= mDirtyRect.x;
+    }
+
+    /**
+     * Bind the layer and clear the part being redrawn, drawing is clipped to that part.
+     */
+    public void beginRedraw() {
+        glBindFramebuffer(GL_FRAMEBUFFER, mFboId);
+
+        if (!mFullRedraw) {
+            int minX = Math.max(0, (int) Math.floor(mDirtyRect.x - DIRTY_RECT_PADDING));
+            int minY = Math.max(0, (int) Math.floor(mDirtyRect.y - DIRTY_RECT_PADDING));
+            int maxX = Math.min(mWidth, (int) Math.ceil(mDirtyRect.z + DIRTY_RECT_PADDING));
+            int maxY = Math.min(mHeight, (int) Math.ceil(mDirtyRect.w + DIRTY_RECT_PADDING));
+
+            //scissor boxes start at the bottom left
+            glEnable(GL_SCISSOR_TEST);
+            glScissor(minX, mHeight - maxY, Math.max(0, maxX - minX), Math.max(0, maxY - minY));
+        }
+
+        //clear to transparent without changing the window's clear colour
+        glGetFloatv(GL_COLOR_CLEAR_VALUE, mWindowClearColour);
+        glClearColor(0, 0, 0, 0);
+        glClear(GL_COLOR_BUFFER_BIT);
+        glClearColor(mWindowClearColour[0], mWindowClearColour[1], mWindowClearColour[2], mWindowClearColour[3]);
+
+        blendForRedraw();
+    }
+
+    /**
+     * Unbind the layer and remember where each item was drawn.
+     */
+    public void endRedraw(GameItem[] gameItems) {
+        glDisable(GL_SCISSOR_TEST);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        //the bounds of the same items are updated in place, only a changed item list starts again
+        if (!isSameGameItems(gameItems)) {
+            mLastGameItemList.clear();
+            mBoundsMap.clear();
+
+            for (GameItem gameItem : gameItems) {
+                mLastGameItemList.add(gameItem);
+            }
+        }
+
+        for (GameItem gameItem : gameItems) {
+            if (calculateBounds(gameItem, mItemBounds)) {
+                Vector4f bounds = mBoundsMap.get(gameItem);
+
+                if (bounds == null) {
+                    mBoundsMap.put(gameItem, new Vector4f(mItemBounds));
+                } else {
+                    bounds.set(mItemBounds);
+                }
+            } else {
+                mBoundsMap.remove(gameItem);
+            }
+
+            gameItem.clearDirty();
+        }
+
+        mFullRedraw = false;
+        mRedrawCount++;
+    }
+
+    /**
+     * Colour is blended as usual, alpha is accumulated so the layer ends up premultiplied.
+     */
+    public static void blendForRedraw() {
+        glBlendFuncSeparate(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    public static void blendForComposite() {
+        glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * Redraw the whole layer next frame.
+     */
+    public void invalidate() {
+        mFullRedraw = true;
+    }
+
+    private boolean isSameGameItems(GameItem[] gameItems) {
+        if (gameItems.length != mLastGameItemList.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < gameItems.length; i++) {
+            if (gameItems[i] != mLastGameItemList.get(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return false if the item's bounds can't be known without its Mesh
+     */
+    private boolean calculateBounds(GameItem gameItem, Vector4f dest) {
+        float width;
+        float height;
+
+        if (gameItem instanceof UiSpriteItem) {
+            UiSpriteItem sprite = (UiSpriteItem) gameItem;
+
+            width = sprite.getWidth();
+            height = sprite.getHeight();
+        } else if (gameItem instanceof UiTextItem) {
+            UiTextItem textItem = (UiTextItem) gameItem;
+            Texture fontTexture = textItem.getFontTexture();
+
+            width = textItem.getChars().length * (float) fontTexture.getWidth() / textItem.getFontAtlasColumnCount();
+            height = (float) fontTexture.getHeight() / textItem.getFontAtlasRowCount();
+        } else {
+            return false;
+        }
+
+        mModelMatrix.translationRotateScale(gameItem.getPosition(), gameItem.getRotation(), gameItem.getScale());
+        dest.set(Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+
+        for (int corner = 0; corner < 4; corner++) {
+            mModelMatrix.transformPosition(mCorner.set(corner % 2 * width, corner / 2 * height, 0));
+
+            dest.x = Math.min(dest.x, mCorner.x);
+            dest.y = Math.min(dest.y, mCorner.y);
+            dest.z = Math.max(dest.z, mCorner.x);
+            dest.w = Math.max(dest.w, mCorner.y);
+        }
+
+        return true;
+    }
+
+    private void unionDirtyRect(Vector4f bounds) {
+        mDirtyRect.x = Math.min(mDirtyRect.x, bounds.x);
+        mDirtyRect.y = Math.min(mDirtyRect.y, bounds.y);
+        mDirtyRect.z = Math.max(mDirtyRect.z, bounds.z);
+        mDirtyRect.w = Math.max(mDirtyRect.w, bounds.w);
+    }
+
+    private void resize(int width, int height) {
+        deleteFramebuffer();
+
+        mWidth = width;
+        mHeight = height;
+        mColourTexture = new Texture(width, height, GL_RGBA8, GL_RGBA, GL_UNSIGNED_BYTE);
+
+        mFboId = GlObjectRegistry.register(GlObjectType.FRAMEBUFFER, glGenFramebuffers());
+        glBindFramebuffer(GL_FRAMEBUFFER, mFboId);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, mColourTexture.getId(), 0);
+
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE) {
+            System.err.println("HudLayer: framebuffer is not complete, the HUD will not be retained");
+        }
+
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+
+        mCompositeSprite.setTexture(mColourTexture);
+        mCompositeSprite.setSize(width, height);
+        mFullRedraw = true;
+    }
+
+    private void deleteFramebuffer() {
+        if (mFboId != 0) {
+            glDeleteFramebuffers(mFboId);
+            GlObjectRegistry.unregister(GlObjectType.FRAMEBUFFER, mFboId);
+            mFboId = 0;
+        }
+
+        if (mColourTexture != null) {
+            mColourTexture.cleanUp();
+            mColourTexture = null;
+        }
+    }
+
+    /**
+     * @return a sprite covering the screen with the layer's texture
+     */
+    public UiSpriteItem getCompositeSprite() {
+        return mCompositeSprite;
+    }
+
+    /**
+     * @return number of times the layer has been redrawn
+     */
+    public int getRedrawCount() {
+        return mRedrawCount;
+    }
+
+    @Override
+    public void cleanUp() {
+        deleteFramebuffer();
+        mBoundsMap.clear();
+        mLastGameItemList.clear();
+    }
+}
@@ -0,0 +1,107 @@
+package com.company.engine.graph.rendering;
+
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import org.joml.Vector4f;
+
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+
+final class HudQuadFormat {
+
+    /**
+     * The vertex layout shared by the HUD batchers and the hud_batch shader.
+     *
+     * Vertices are in screen space: x, y, u, v as floats then the colour as 4 normalised bytes.
+     * Quads are 4 vertices, top left, bottom left, bottom right, top right, drawn as 2 triangles.
+     */
+
+    static final int VERTEX_SIZE_BYTES = 2 * 4 + 2 * 4 + 4;
+    static final int VERTICES_PER_QUAD = 4;
+    static final int INDICES_PER_QUAD = 6;
+    static final int QUAD_SIZE_BYTES = VERTICES_PER_QUAD * VERTEX_SIZE_BYTES;
+    static final int MAX_QUADS = 65536 / VERTICES_PER_QUAD; //16 bit indices
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private HudQuadFormat() {
+    }
+
+    /**
+     * Point the position, texture coordinate and colour attributes at the bound GL_ARRAY_BUFFER.
+     */
+    static void setUpVertexAttributes() {
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, VERTEX_SIZE_BYTES, 0);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, VERTEX_SIZE_BYTES, 8);
+        glVertexAttribPointer(2, 4, GL_UNSIGNED_BYTE, true, VERTEX_SIZE_BYTES, 16);
+        glEnableVertexAttribArray(0);
+        glEnableVertexAttribArray(1);
+        glEnableVertexAttribArray(2);
+    }
+
+    /**
+     * Create and bind a GL_ELEMENT_ARRAY_BUFFER indexing maxQuads quads, the VAO must be bound.
+     * @return id of the buffer
+     */
+    static int createQuadIndexBuffer(int maxQuads) {
+        if (maxQuads <= 0 || maxQuads > MAX_QUADS) {
+            throw new IllegalArgumentException("Max quads must be between 1 and " + MAX_QUADS);
+        }
+
+        ShortBuffer indexBuffer = NativeMemory.memAllocShort(maxQuads * INDICES_PER_QUAD, MemoryCategory.HUD);
+
+        try {
+            for (int i = 0; i < maxQuads; i++) {
+                int vertex = i * VERTICES_PER_QUAD;
+
+                indexBuffer.put((short) vertex);
+                indexBuffer.put((short) (vertex + 1));
+                indexBuffer.put((short) (vertex + 2));
+                indexBuffer.put((short) (vertex + 3));
+                indexBuffer.put((short) vertex);
+                indexBuffer.put((short) (vertex + 2));
+            }
+            indexBuffer.flip();
+
+            int id = GlObjectRegistry.register(
+                    GlObjectType.BUFFER,
+                    glGenBuffers(),
+                    (long) indexBuffer.remaining() * Short.BYTES
+            );
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, id);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+
+            return id;
+        } finally {
+            NativeMemory.memFree(indexBuffer);
+        }
+    }
+
+    /**
+     * @return byte offset of the first index of the quad in the quad index buffer
+     */
+    static long getIndexOffset(int quad) {
+        return (long) quad * INDICES_PER_QUAD * Short.BYTES;
+    }
+
+    /**
+     * @return the colour as 4 bytes in RGBA order in memory
+     */
+    static int packColour(Vector4f colour) {
+        int r = Math.round(Math.max(0, Math.min(1, colour.x)) * 255);
+        int g = Math.round(Math.max(0, Math.min(1, colour.y)) * 255);
+        int b = Math.round(Math.max(0, Math.min(1, colour.z)) * 255);
+        int a = Math.round(Math.max(0, Math.min(1, colour.w)) * 255);
+
+        //ByteBuffers from MemoryUtil are native order
+        return LITTLE_ENDIAN ?
+                r | g << 8 | b << 16 | a << 24 :
+                a | b << 8 | g << 16 | r << 24;
+    }
+}
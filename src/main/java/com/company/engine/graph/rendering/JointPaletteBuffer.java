@@ -0,0 +1,73 @@
+package com.company.engine.graph.rendering;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.graph.anim.AnimatedFrame;
+import com.company.engine.graph.anim.Animation;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+public class JointPaletteBuffer implements IUsesResources {
+
+    /**
+     * Uniform buffer holding the joint matrices of the AnimGameItem being rendered,
+     * uploaded with a single glBufferSubData per item.
+     * Shaders read it through the "JointPalette" uniform block.
+     */
+
+    public static final String BLOCK_NAME = "JointPalette";
+    public static final int BINDING_POINT = 0;
+
+    private static final int MAX_PALETTE_SIZE = AnimatedFrame.MAX_JOINTS * Animation.JOINT_MATRIX_SIZE;
+
+    private final int mUboId;
+    private final FloatBuffer mPaletteBuffer;
+    private final EngineMetrics mMetrics;
+
+    public JointPaletteBuffer() {
+        mPaletteBuffer = NativeMemory.memAllocFloat(MAX_PALETTE_SIZE, MemoryCategory.ANIMATION);
+        mMetrics = EngineMetrics.getInstance();
+
+        mUboId = GlObjectRegistry.register(
+                GlObjectType.BUFFER,
+                glGenBuffers(),
+                (long) MAX_PALETTE_SIZE * Float.BYTES
+        );
+        glBindBuffer(GL_UNIFORM_BUFFER, mUboId);
+        glBufferData(GL_UNIFORM_BUFFER, (long) MAX_PALETTE_SIZE * Float.BYTES, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+
+        glBindBufferBase(GL_UNIFORM_BUFFER, BINDING_POINT, mUboId);
+    }
+
+    /**
+     * @param palette joint matrices written by Animation.sample
+     * @param jointCount number of joint matrices to upload
+     */
+    public void upload(float[] palette, int jointCount) {
+        mPaletteBuffer.clear();
+        mPaletteBuffer.put(palette, 0, Math.min(jointCount, AnimatedFrame.MAX_JOINTS) * Animation.JOINT_MATRIX_SIZE);
+        mPaletteBuffer.flip();
+
+        glBindBuffer(GL_UNIFORM_BUFFER, mUboId);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, mPaletteBuffer);
+        mMetrics.add(MetricType.BUFFER_BYTES_UPLOADED, (long) mPaletteBuffer.remaining() * Float.BYTES);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    @Override
+    public void cleanUp() {
+        glDeleteBuffers(mUboId);
+        GlObjectRegistry.unregister(GlObjectType.BUFFER, mUboId);
+        NativeMemory.memFree(mPaletteBuffer);
+    }
+}
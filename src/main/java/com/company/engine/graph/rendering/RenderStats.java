@@ -0,0 +1,60 @@
+package com.company.engine.graph.rendering;
+
+public class RenderStats {
+
+    /**
+     * What the Renderer submitted to OpenGL during the last frame.
+     * Counted on the render thread and reset at the start of every Renderer.render.
+     */
+
+    private int mDrawCallCount;
+    private long mTriangleCount;
+    private int mInstanceCount; //items drawn, an instanced draw call draws several
+    private int mCulledItemCount; //items skipped because they were outside the frustum
+    private int mParticleCount; //live particles of every emitter, drawn or culled
+
+    void reset() {
+        mDrawCallCount = 0;
+        mTriangleCount = 0;
+        mInstanceCount = 0;
+        mCulledItemCount = 0;
+        mParticleCount = 0;
+    }
+
+    /**
+     * @param indexCount number of indices of the mesh, three per triangle
+     */
+    void addDraws(int drawCallCount, int instanceCount, int indexCount) {
+        mDrawCallCount += drawCallCount;
+        mInstanceCount += instanceCount;
+        mTriangleCount += (long) instanceCount * (indexCount / 3);
+    }
+
+    void addCulledItems(int culledItemCount) {
+        mCulledItemCount += culledItemCount;
+    }
+
+    void addParticles(int particleCount) {
+        mParticleCount += particleCount;
+    }
+
+    public int getDrawCallCount() {
+        return mDrawCallCount;
+    }
+
+    public long getTriangleCount() {
+        return mTriangleCount;
+    }
+
+    public int getInstanceCount() {
+        return mInstanceCount;
+    }
+
+    public int getCulledItemCount() {
+        return mCulledItemCount;
+    }
+
+    public int getParticleCount() {
+        return mParticleCount;
+    }
+}
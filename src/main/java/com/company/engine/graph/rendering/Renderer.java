@@ -1,37 +1,51 @@
 package com.company.engine.graph.rendering;
 
 import com.company.engine.IUsesResources;
+import com.company.engine.graph.anim.Animator;
+import com.company.engine.graph.anim.BakedAnimationTexture;
 import com.company.engine.graph.lighting.*;
 import com.company.engine.graph.material.Texture;
+import com.company.engine.graph.material.TextureStreamer;
 import com.company.engine.graph.Transformation;
 import com.company.engine.graph.particles.Particle;
+import com.company.engine.scene.items.AnimGameItem;
 import com.company.engine.scene.items.SceneLighting;
 import com.company.engine.utils.FileUtils;
 import com.company.engine.graph.mesh.InstancedMesh;
 import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
 import com.company.engine.graph.particles.IParticleEmitter;
 import com.company.engine.scene.items.SkyBox;
+import com.company.engine.scene.items.ui.UiSpriteItem;
+import com.company.engine.scene.items.ui.UiTextItem;
 import com.company.engine.utils.ShaderUtils;
 import com.company.engine.window.Window;
 import com.company.engine.scene.Scene;
 import com.company.engine.scene.items.GameItem;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
-import org.joml.Vector4f;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.lwjgl.opengl.GL11.*;
 
 public class Renderer implements IUsesResources {
 
-    private static final int MAX_POINT_LIGHTS = 5;
-    private static final int MAX_SPOT_LIGHTS = 5;
+    public static final int MAX_POINT_LIGHTS = 5;
+    public static final int MAX_SPOT_LIGHTS = 5;
     private static final float DEFAULT_SPECULAR_POWER = 10;
 
+    //names of the baked animation clip table uniforms, so they aren't built every frame
+    private static final String[] BAKED_CLIP_START_ROW_UNIFORMS =
+            ShaderUtils.createUniformArrayNames("bakedClipStartRows", BakedAnimationTexture.MAX_CLIPS);
+    private static final String[] BAKED_CLIP_ROW_COUNT_UNIFORMS =
+            ShaderUtils.createUniformArrayNames("bakedClipRowCounts", BakedAnimationTexture.MAX_CLIPS);
+
     /**
      * Integer Keys storing the location of
      * ShaderPrograms in mShaderProgramMap.
@@ -41,6 +55,7 @@ public class Renderer implements IUsesResources {
     private static final Integer SCENE_SHADER_KEY = 2;
     private static final Integer PARTICLE_SHADER_KEY = 3;
     private static final Integer HUD_SHADER_KEY = 4;
+    private static final Integer HUD_BATCH_SHADER_KEY = 5;
 
     /**
      * Location of which texture banks the engine uses to store
@@ -49,6 +64,7 @@ public class Renderer implements IUsesResources {
     public static final int TEXTURE_BANK_INDEX = 0;
     public static final int NORMAL_MAP_BANK_INDEX = 1;
 //    public static final int SHADOW_MAP_BANK_INDEX = 2;
+    public static final int BAKED_ANIMATION_BANK_INDEX = 3;
 
     private final Transformation mTransformation;
     private final float mSpecularPower;
@@ -58,10 +74,42 @@ public class Renderer implements IUsesResources {
     private final List<GameItem> mFilteredGameItemList;
     private final List<IParticleEmitter> mFilteredParticleEmitterList;
 
+    //Texture mip streaming
+    private final TextureStreamer mTextureStreamer;
+
+    //Skeletal animation
+    private final Animator mAnimator;
+    private JointPaletteBuffer mJointPaletteBuffer;
+
+    //HUD batching
+    private TextBatcher mTextBatcher;
+    private SpriteBatcher mSpriteBatcher;
+    private int mHudDrawCallCount;
+
+    //Retained HUD
+    private final HudLayer mHudLayer;
+
+    private final RenderStats mRenderStats;
+    private final EngineMetrics mMetrics;
+
     private Map<Integer, ShaderProgram> mShaderProgramMap;
 
     private boolean mCullingFacesEnabled;
 
+    //created once and reused every frame so rendering doesn't allocate
+    private final Consumer<GameItem> mNonInstancedItemRenderer;
+    private final Consumer<GameItem> mParticleItemRenderer;
+    private final PointLight mViewPointLight;
+    private final SpotLight mViewSpotLight;
+    private final DirectionalLight mViewDirectionalLight;
+
+    //state read by the item renderers above, set before each Mesh.renderList
+    private Mesh mItemMesh;
+    private Matrix4f mItemViewMatrix;
+    private ShaderProgram mParticleShaderProgram;
+    private Texture mParticleTexture;
+    private boolean mParticleUsesTexture;
+
     //Shadows
 //    private ShadowMap mShadowMap;
 
@@ -71,7 +119,17 @@ public class Renderer implements IUsesResources {
         mFrustumFilter = new FrustumFilter();
         mFilteredGameItemList = new ArrayList<>();
         mFilteredParticleEmitterList = new ArrayList<>();
+        mTextureStreamer = new TextureStreamer();
+        mAnimator = new Animator();
+        mHudLayer = new HudLayer();
+        mRenderStats = new RenderStats();
+        mMetrics = EngineMetrics.getInstance();
         mSpecularPower = DEFAULT_SPECULAR_POWER;
+        mNonInstancedItemRenderer = this::renderNonInstancedItem;
+        mParticleItemRenderer = this::renderParticleItem;
+        mViewPointLight = new PointLight(new Vector3f(), new Vector3f(), 0, false);
+        mViewSpotLight = new SpotLight(new PointLight(new Vector3f(), new Vector3f(), 0, false), new Vector3f(), 0);
+        mViewDirectionalLight = new DirectionalLight(new Vector3f(), new Vector3f(), 0);
     }
 
     @Override
@@ -81,18 +139,40 @@ public class Renderer implements IUsesResources {
                 shaderProgram.cleanUp();
             }
         }
+
+        if (mJointPaletteBuffer != null) {
+            mJointPaletteBuffer.cleanUp();
+        }
+
+        if (mTextBatcher != null) {
+            mTextBatcher.cleanUp();
+        }
+
+        if (mSpriteBatcher != null) {
+            mSpriteBatcher.cleanUp();
+        }
+
+        mHudLayer.cleanUp();
+
+        mAnimator.cleanUp();
     }
 
     public void init(Window window) throws Exception {
 //        mShadowMap = new ShadowMap(window.getOptions().shadowMapSizeMultiplier);
 
+        mJointPaletteBuffer = new JointPaletteBuffer();
+        mTextBatcher = new TextBatcher();
+        mSpriteBatcher = new SpriteBatcher();
+
 //        setUpDepthShader();
         setUpSkyBoxShader();
         setUpSceneShader();
         setUpParticleShader();
         setUpHudShader();
+        setUpHudBatchShader();
 
         mCullingFacesEnabled = window.getOptions().enableCullFaces;
+        mTextureStreamer.setMemoryBudgetBytes(window.getOptions().textureMemoryBudget);
     }
 
     private void setUpDepthShader() throws Exception {
@@ -148,6 +228,18 @@ public class Renderer implements IUsesResources {
         sceneShaderProgram.link();
 
         sceneShaderProgram.createUniform("isInstanced");
+        sceneShaderProgram.createUniform("isAnimated");
+        sceneShaderProgram.createUniformBlock(
+                JointPaletteBuffer.BLOCK_NAME,
+                JointPaletteBuffer.BINDING_POINT
+        );
+
+        //baked animations
+        sceneShaderProgram.createUniform("isUsingBakedAnimation");
+        sceneShaderProgram.createUniform("bakedAnimationTime");
+        sceneShaderProgram.createUniform("bakedAnimationSampleRate");
+        sceneShaderProgram.createUniformArray("bakedClipStartRows", BakedAnimationTexture.MAX_CLIPS);
+        sceneShaderProgram.createUniformArray("bakedClipRowCounts", BakedAnimationTexture.MAX_CLIPS);
 //        sceneShaderProgram.createUniform("isRenderingShadows");
 
         //matrices
@@ -161,6 +253,7 @@ public class Renderer implements IUsesResources {
         sceneShaderProgram.createUniform("normalMap");
         sceneShaderProgram.createUniform("textureColumnCount");
         sceneShaderProgram.createUniform("textureRowCount");
+        sceneShaderProgram.createUniform("bakedAnimationSampler");
 //        sceneShaderProgram.createUniform("shadowMap");
 
         //material
@@ -237,11 +330,44 @@ public class Renderer implements IUsesResources {
         mShaderProgramMap.put(HUD_SHADER_KEY, shaderProgram);
     }
 
+    private void setUpHudBatchShader() throws Exception {
+        ShaderProgram shaderProgram = new ShaderProgram();
+        shaderProgram.createVertexShader(FileUtils.loadResource(
+                "/shaders/hud_batch_vertex.vs"
+        ));
+        shaderProgram.createFragmentShader(FileUtils.loadResource(
+                "/shaders/hud_batch_fragment.fs"
+        ));
+        shaderProgram.link();
+
+        ShaderUtils.createShaderUniforms(
+                shaderProgram,
+                new String[] {
+                        "projectionMatrix",
+                        "textureSampler"
+                }
+        );
+
+        mShaderProgramMap.put(HUD_BATCH_SHADER_KEY, shaderProgram);
+    }
+
     public void render(Window window, Camera camera, Scene scene) throws Exception {
+        mRenderStats.reset();
         clear();
 
+        //update the view matrix before culling so the latest camera, including any latched input, is used
+        if (!window.getOptions().applicationUpdatesCamera) {
+            camera.updateViewMatrix();
+        }
+
         filter(window, scene, camera.getViewMatrix());
 
+        if (window.getOptions().textureStreaming) {
+            mTextureStreamer.update(window, camera, scene);
+        }
+
+        mAnimator.update(camera, scene);
+
         //set the viewport for the window each cycle
         glViewport(0, 0, window.getWidth(), window.getHeight());
 
@@ -252,10 +378,6 @@ public class Renderer implements IUsesResources {
                 camera.getViewDistanceEnd()
         );
 
-        if (!window.getOptions().applicationUpdatesCamera) {
-            camera.updateViewMatrix();
-        }
-
         renderScene(window, camera, scene);
 
         if (scene.getSkyBox() != null) {
@@ -268,7 +390,18 @@ public class Renderer implements IUsesResources {
 
         if (scene.getHud() != null) {
             renderHud(window, camera, scene);
+            mRenderStats.addDraws(mHudDrawCallCount, 0, 0);
         }
+
+        addRenderStatsToMetrics();
+    }
+
+    private void addRenderStatsToMetrics() {
+        mMetrics.add(MetricType.DRAW_CALLS, mRenderStats.getDrawCallCount());
+        mMetrics.add(MetricType.TRIANGLES, mRenderStats.getTriangleCount());
+        mMetrics.add(MetricType.INSTANCES, mRenderStats.getInstanceCount());
+        mMetrics.add(MetricType.ITEMS_CULLED, mRenderStats.getCulledItemCount());
+        mMetrics.add(MetricType.LIVE_PARTICLES, mRenderStats.getParticleCount());
     }
 
     /*
@@ -362,8 +495,8 @@ public class Renderer implements IUsesResources {
         //filter items outside of the camera's view frustum before rendering
         if (window.getOptions().frustumCulling) {
             mFrustumFilter.updateFrustum(window.getProjectionMatrix(), viewMatrix);
-            mFrustumFilter.filter(scene.getGameItemMeshMap());
-            mFrustumFilter.filter(scene.getGameItemInstancedMeshMap());
+            mFrustumFilter.filter(scene.getMeshList(), scene.getGameItemMeshMap());
+            mFrustumFilter.filter(scene.getInstancedMeshList(), scene.getGameItemInstancedMeshMap());
 
             if (scene.getParticleEmitters() != null && scene.getParticleEmitters().length > 0) {
                 mFrustumFilter.filterParticleEmitters(scene.getParticleEmitters());
@@ -390,6 +523,10 @@ public class Renderer implements IUsesResources {
                 "normalMap",
                 NORMAL_MAP_BANK_INDEX
         );
+        sceneShaderProgram.setUniform(
+                "bakedAnimationSampler",
+                BAKED_ANIMATION_BANK_INDEX
+        );
 //        sceneShaderProgram.setUniform(
 //                "shadowMap",
 //                SHADOW_MAP_BANK_INDEX
@@ -450,17 +587,10 @@ public class Renderer implements IUsesResources {
         int length = pointLightList != null ? pointLightList.size() : 0;
 
         for (int i = 0; i < length; i++) {
-            //get each point light object and transform its position to view coords
-            PointLight pointLight = new PointLight(pointLightList.get(i));
-            Vector3f lightPosition = pointLight.getPosition();
-            Vector4f aux = new Vector4f(lightPosition, 1);
+            //copy each point light into the scratch light and transform its position to view coords
+            setViewPointLight(mViewPointLight, pointLightList.get(i), viewMatrix);
 
-            aux.mul(viewMatrix);
-            lightPosition.x = aux.x;
-            lightPosition.y = aux.y;
-            lightPosition.z = aux.z;
-
-            sceneShaderProgram.setUniform("pointLightArray", pointLight, i);
+            sceneShaderProgram.setUniform("pointLightArray", mViewPointLight, i);
         }
 
         //spot lights
@@ -468,43 +598,35 @@ public class Renderer implements IUsesResources {
         length = spotLightList != null ? spotLightList.size() : 0;
 
         for (int i = 0; i < length; i++) {
-            SpotLight spotLight = new SpotLight(spotLightList.get(i));
-            Vector4f direction = new Vector4f(spotLight.getConeDirection(), 0);
-
-            direction.mul(viewMatrix);
-            spotLight.setConeDirection(new Vector3f(
-                    direction.x,
-                    direction.y,
-                    direction.z
-            ));
+            SpotLight spotLight = spotLightList.get(i);
 
-            Vector3f lightPosition = spotLight.getPointLight().getPosition();
-            Vector4f aux = new Vector4f(lightPosition, 1);
+            setViewPointLight(mViewSpotLight.getPointLight(), spotLight.getPointLight(), viewMatrix);
+            mViewSpotLight.getConeDirection().set(spotLight.getConeDirection()).mulDirection(viewMatrix);
+            mViewSpotLight.setCutOff(spotLight.getCutOff());
 
-            aux.mul(viewMatrix);
-            lightPosition.x = aux.x;
-            lightPosition.y = aux.y;
-            lightPosition.z = aux.z;
-
-            sceneShaderProgram.setUniform("spotLightArray", spotLight, i);
+            sceneShaderProgram.setUniform("spotLightArray", mViewSpotLight, i);
         }
 
         //directional light
-        if (sceneLighting.getDirectionLight() != null) {
-            DirectionalLight dirLight = new DirectionalLight(sceneLighting.getDirectionLight());
-            Vector4f direction = new Vector4f(dirLight.getDirection(), 0);
-
-            direction.mul(viewMatrix);
-
-            dirLight.setDirection(new Vector3f(
-                    direction.x,
-                    direction.y,
-                    direction.z
-            ));
-            sceneShaderProgram.setUniform("directionalLight", dirLight);
+        DirectionalLight dirLight = sceneLighting.getDirectionLight();
+
+        if (dirLight != null) {
+            mViewDirectionalLight.getColour().set(dirLight.getColour());
+            mViewDirectionalLight.getDirection().set(dirLight.getDirection()).mulDirection(viewMatrix);
+            mViewDirectionalLight.setIntensity(dirLight.getIntensity());
+
+            sceneShaderProgram.setUniform("directionalLight", mViewDirectionalLight);
         }
     }
 
+    private void setViewPointLight(PointLight viewPointLight, PointLight pointLight, Matrix4f viewMatrix) {
+        viewPointLight.getPosition().set(pointLight.getPosition()).mulPosition(viewMatrix);
+        viewPointLight.getColour().set(pointLight.getColour());
+        viewPointLight.setIntensity(pointLight.getIntensity());
+        viewPointLight.setAttenuation(pointLight.getAttenuation());
+        viewPointLight.setActive(pointLight.isActive());
+    }
+
     private void renderNonInstancedMeshes(
             Scene scene,
             ShaderProgram shaderProgram,
@@ -512,128 +634,135 @@ public class Renderer implements IUsesResources {
             Matrix4f lightViewMatrix,
             boolean windowCullsFaces
     ) {
-//        boolean isDepthShader = shaderProgram == mShaderProgramMap.get(DEPTH_SHADER_KEY);
-        Map<Mesh, List<GameItem>> meshGameItemMap;
+        List<Mesh> meshList = scene.getMeshList();
+
+        mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
+                "isInstanced",
+                ShaderProgram.SHADER_FALSE
+        );
 
         if (windowCullsFaces) {
-            Map<Mesh, List<GameItem>> cullFacesEnabledMeshMap =
-                    generateCullFacesMeshMap(
-                            scene.getGameItemMeshMap(),
-                            true
-                    );
-
-            Map<Mesh, List<GameItem>> cullFacesDisabledMeshMap =
-                    generateCullFacesMeshMap(
-                            scene.getGameItemMeshMap(),
-                            false
-                    );
-
-            //replace meshGameItemMap with the two above
-            meshGameItemMap = new HashMap<>();
-
-            //populate meshGameItemMap with cull faces enabled meshes
-            for (Mesh mesh :
-                    cullFacesEnabledMeshMap.keySet()
-            ) {
-                meshGameItemMap.put(
-                        mesh,
-                        cullFacesEnabledMeshMap.get(mesh)
-                );
+            //draw the meshes that cull faces first so GL_CULL_FACE is only toggled once
+            for (int i = 0; i < meshList.size(); i++) {
+                if (meshList.get(i).isCullingFaces()) {
+                    renderNonInstancedMesh(scene, meshList.get(i), shaderProgram, viewMatrix, lightViewMatrix);
+                }
             }
 
-            //populate meshGameItemMap with cull faces disabled meshes
-            for (Mesh mesh :
-                    cullFacesDisabledMeshMap.keySet()
-            ) {
-                meshGameItemMap.put(
-                        mesh,
-                        cullFacesDisabledMeshMap.get(mesh)
-                );
+            for (int i = 0; i < meshList.size(); i++) {
+                if (!meshList.get(i).isCullingFaces()) {
+                    renderNonInstancedMesh(scene, meshList.get(i), shaderProgram, viewMatrix, lightViewMatrix);
+                }
             }
         } else {
-            meshGameItemMap = scene.getGameItemMeshMap();
+            for (int i = 0; i < meshList.size(); i++) {
+                renderNonInstancedMesh(scene, meshList.get(i), shaderProgram, viewMatrix, lightViewMatrix);
+            }
         }
+    }
 
-        mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
-                "isInstanced",
-                ShaderProgram.SHADER_FALSE
-        );
+    private void renderNonInstancedMesh(
+            Scene scene,
+            Mesh mesh,
+            ShaderProgram shaderProgram,
+            Matrix4f viewMatrix,
+            Matrix4f lightViewMatrix
+    ) {
+//        boolean isDepthShader = shaderProgram == mShaderProgramMap.get(DEPTH_SHADER_KEY);
+        List<GameItem> gameItemList = scene.getGameItemMeshMap().get(mesh);
 
-        for (Mesh mesh : meshGameItemMap.keySet()) {
-            if (mesh.isCullingFaces()) {
-                enableFaceCulling(true);
-            } else {
-                enableFaceCulling(false);
-            }
+        if (mesh.isCullingFaces()) {
+            enableFaceCulling(true);
+        } else {
+            enableFaceCulling(false);
+        }
 
-            if (viewMatrix != null) {
-                shaderProgram.setUniform("material", mesh.getMaterial());
+        if (viewMatrix != null) {
+            shaderProgram.setUniform("material", mesh.getMaterial());
 
-//                if (scene.isRenderingShadows()) {
-//                    glActiveTexture(GL_TEXTURE_2D);
-//                    glBindTexture(GL_TEXTURE_2D, mShadowMap.getDepthMapTexture().getId());
-//                }
-            }
+//            if (scene.isRenderingShadows()) {
+//                glActiveTexture(GL_TEXTURE_2D);
+//                glBindTexture(GL_TEXTURE_2D, mShadowMap.getDepthMapTexture().getId());
+//            }
+        }
 
-            Texture texture = mesh.getMaterial().getTexture();
+        Texture texture = mesh.getMaterial().getTexture();
 
-            if (texture != null) {
-                mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
-                        "textureColumnCount",
-                        texture.getNumColumns()
-                );
-                mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
-                        "textureRowCount",
-                        texture.getNumRows()
-                );
-            }
+        if (texture != null) {
+            mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
+                    "textureColumnCount",
+                    texture.getNumColumns()
+            );
+            mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
+                    "textureRowCount",
+                    texture.getNumRows()
+            );
+        }
 
-            mFilteredGameItemList.clear();
-            for (GameItem gameItem : meshGameItemMap.get(mesh)) {
-                if (gameItem.isInsideFrustum()) {
-                    mFilteredGameItemList.add(gameItem);
-                }
-            }
+        mFrustumFilter.populateFilteredList(
+                gameItemList,
+                mFilteredGameItemList
+        );
+
+        mRenderStats.addCulledItems(gameItemList.size() - mFilteredGameItemList.size());
+        mRenderStats.addDraws(
+                mFilteredGameItemList.size(),
+                mFilteredGameItemList.size(),
+                mesh.getVertexCount()
+        );
 
-            mesh.renderList(mFilteredGameItemList, (GameItem gameItem) -> {
-                Matrix4f modelMatrix =
-                        mTransformation.generateModelMatrix(gameItem);
+        mItemMesh = mesh;
+        mItemViewMatrix = viewMatrix;
+        mesh.renderList(mFilteredGameItemList, mNonInstancedItemRenderer);
+    }
 
-//                if (isDepthShader) {
-//                    Matrix4f modelLightViewMatrix =
-//                            mTransformation.generateModelLightViewMatrix(modelMatrix, lightViewMatrix);
+    /**
+     * Per item work of renderNonInstancedMesh, reads the mesh and view matrix from mItemMesh and mItemViewMatrix.
+     */
+    private void renderNonInstancedItem(GameItem gameItem) {
+        Matrix4f modelMatrix =
+                mTransformation.generateModelMatrix(gameItem);
+
+//        if (isDepthShader) {
+//            Matrix4f modelLightViewMatrix =
+//                    mTransformation.generateModelLightViewMatrix(modelMatrix, lightViewMatrix);
 //
 //
-//                    shaderProgram.setUniform(
-//                            "nonInstancedModelLightViewMatrix",
-//                            modelLightViewMatrix
-//                    );
-//                }
-
-                if (viewMatrix != null) {
-                    mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
-                            "nonInstancedModelViewMatrix",
-                            mTransformation.generateModelViewMatrix(modelMatrix, viewMatrix)
-                    );
-                }
+//            shaderProgram.setUniform(
+//                    "nonInstancedModelLightViewMatrix",
+//                    modelLightViewMatrix
+//            );
+//        }
 
-//                if (lightViewMatrix != null && !isDepthShader) {
-//                    mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform("lightViewMatrix", lightViewMatrix);
-//                }
+        if (mItemViewMatrix != null) {
+            mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform(
+                    "nonInstancedModelViewMatrix",
+                    mItemMesh.applyPositionDecode(
+                            mTransformation.generateModelViewMatrix(modelMatrix, mItemViewMatrix)
+                    )
+            );
+        }
 
-//                if (gameItem instanceof AnimGameItem) {
-//                    AnimGameItem animGameItem = (AnimGameItem) gameItem;
-//                    AnimatedFrame animatedFrame = animGameItem.getCurrentFrame();
-//
-//                    shaderProgram.setUniform("jointMatrices", animFrame.getJointMatrices());
-//                }
-            });
+//        if (lightViewMatrix != null && !isDepthShader) {
+//            mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform("lightViewMatrix", lightViewMatrix);
+//        }
+
+        //one upload of the whole joint palette per item
+        if (gameItem instanceof AnimGameItem && ((AnimGameItem) gameItem).isPoseAvailable()) {
+            AnimGameItem animGameItem = (AnimGameItem) gameItem;
+
+            mJointPaletteBuffer.upload(
+                    animGameItem.getJointPalette(),
+                    animGameItem.getJointCount()
+            );
+            mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform("isAnimated", true);
+        } else {
+            mShaderProgramMap.get(SCENE_SHADER_KEY).setUniform("isAnimated", false);
         }
     }
 
-    /*
-    TODO:
-    Currently does not support animations
+    /**
+     * Animated instances use a BakedAnimationTexture, see setBakedAnimationUniforms
      */
     private void renderInstancedMeshes(
             Scene scene,
@@ -642,109 +771,198 @@ public class Renderer implements IUsesResources {
             Matrix4f lightViewMatrix,
             boolean windowCullsFaces
     ) {
-//        boolean isDepthShader = shaderProgram == mShaderProgramMap.get(DEPTH_SHADER_KEY);
+        List<InstancedMesh> instancedMeshList = scene.getInstancedMeshList();
 
         shaderProgram.setUniform("isInstanced", ShaderProgram.SHADER_TRUE);
 
-        Map<InstancedMesh, List<GameItem>> instancedMeshMap;
-
         if (windowCullsFaces) {
-            Map<InstancedMesh, List<GameItem>> cullFacesEnabledInstancedMeshMap =
-                    generateCullFacesInstancedMeshMap(
-                            scene.getGameItemInstancedMeshMap(),
-                            true
-                    );
-
-            Map<InstancedMesh, List<GameItem>> cullFacesDisabledInstancedMeshMap =
-                    generateCullFacesInstancedMeshMap(
-                            scene.getGameItemInstancedMeshMap(),
-                            false
-                    );
-
-            //replace instancedMeshMap with the two above
-            instancedMeshMap = new HashMap<>();
-
-            //populate instancedMeshMap with cull faces enabled meshes
-            for (InstancedMesh instancedMesh :
-                    cullFacesEnabledInstancedMeshMap.keySet()
-            ) {
-                instancedMeshMap.put(
-                        instancedMesh,
-                        cullFacesEnabledInstancedMeshMap.get(instancedMesh)
-                );
+            //draw the meshes that cull faces first so GL_CULL_FACE is only toggled once
+            for (int i = 0; i < instancedMeshList.size(); i++) {
+                if (instancedMeshList.get(i).isCullingFaces()) {
+                    renderInstancedMesh(scene, instancedMeshList.get(i), shaderProgram, viewMatrix, lightViewMatrix);
+                }
             }
 
-            //populate instancedMeshMap with cull faces disabled meshes
-            for (InstancedMesh instancedMesh :
-                    cullFacesDisabledInstancedMeshMap.keySet()
-            ) {
-                instancedMeshMap.put(
-                        instancedMesh,
-                        cullFacesDisabledInstancedMeshMap.get(instancedMesh)
-                );
+            for (int i = 0; i < instancedMeshList.size(); i++) {
+                if (!instancedMeshList.get(i).isCullingFaces()) {
+                    renderInstancedMesh(scene, instancedMeshList.get(i), shaderProgram, viewMatrix, lightViewMatrix);
+                }
             }
         } else {
-            instancedMeshMap = scene.getGameItemInstancedMeshMap();
+            for (int i = 0; i < instancedMeshList.size(); i++) {
+                renderInstancedMesh(scene, instancedMeshList.get(i), shaderProgram, viewMatrix, lightViewMatrix);
+            }
         }
+    }
 
-        for (InstancedMesh mesh : instancedMeshMap.keySet()) {
-            if (mesh.isCullingFaces()) {
-                enableFaceCulling(true);
-            } else {
-                enableFaceCulling(false);
-            }
+    private void renderInstancedMesh(
+            Scene scene,
+            InstancedMesh mesh,
+            ShaderProgram shaderProgram,
+            Matrix4f viewMatrix,
+            Matrix4f lightViewMatrix
+    ) {
+//        boolean isDepthShader = shaderProgram == mShaderProgramMap.get(DEPTH_SHADER_KEY);
+        List<GameItem> gameItemList = scene.getGameItemInstancedMeshMap().get(mesh);
 
-            Texture texture = mesh.getMaterial().getTexture();
+        if (mesh.isCullingFaces()) {
+            enableFaceCulling(true);
+        } else {
+            enableFaceCulling(false);
+        }
 
-            if (texture != null) {
-                shaderProgram.setUniform("textureColumnCount", texture.getNumColumns());
-                shaderProgram.setUniform("textureRowCount", texture.getNumRows());
-            }
+        Texture texture = mesh.getMaterial().getTexture();
 
-            if (viewMatrix != null) {
-                shaderProgram.setUniform("material", mesh.getMaterial());
+        if (texture != null) {
+            shaderProgram.setUniform("textureColumnCount", texture.getNumColumns());
+            shaderProgram.setUniform("textureRowCount", texture.getNumRows());
+        }
 
-//                if (scene.isRenderingShadows()) {
-//                    glActiveTexture(GL_TEXTURE2);
-//                    glBindTexture(GL_TEXTURE_2D, mShadowMap.getDepthMapTexture().getId());
-//                }
-            }
+        if (viewMatrix != null) {
+            shaderProgram.setUniform("material", mesh.getMaterial());
 
-//            if (lightViewMatrix != null /*&& !isDepthShader*/) {
-//                shaderProgram.setUniform("lightViewMatrix", lightViewMatrix);
+//            if (scene.isRenderingShadows()) {
+//                glActiveTexture(GL_TEXTURE2);
+//                glBindTexture(GL_TEXTURE_2D, mShadowMap.getDepthMapTexture().getId());
 //            }
+        }
 
-            mFrustumFilter.populateFilteredList(
-                    instancedMeshMap.get(mesh),
-                    mFilteredGameItemList
-            );
+//        if (lightViewMatrix != null /*&& !isDepthShader*/) {
+//            shaderProgram.setUniform("lightViewMatrix", lightViewMatrix);
+//        }
 
-            mesh.renderInstancedList(
-                    mFilteredGameItemList,
-                    mTransformation,
-                    viewMatrix,
-                    lightViewMatrix
+        setBakedAnimationUniforms(shaderProgram, mesh.getBakedAnimationTexture());
+
+        mFrustumFilter.populateFilteredList(
+                gameItemList,
+                mFilteredGameItemList
+        );
+
+        addInstancedDraws(mesh, mFilteredGameItemList.size());
+        mRenderStats.addCulledItems(gameItemList.size() - mFilteredGameItemList.size());
+
+        mesh.renderInstancedList(
+                mFilteredGameItemList,
+                mTransformation,
+                viewMatrix,
+                lightViewMatrix
+        );
+    }
+
+    private void setBakedAnimationUniforms(
+            ShaderProgram shaderProgram,
+            BakedAnimationTexture bakedAnimationTexture
+    ) {
+        if (bakedAnimationTexture == null || !bakedAnimationTexture.isUploaded()) {
+            shaderProgram.setUniform("isUsingBakedAnimation", false);
+            return;
+        }
+
+        bakedAnimationTexture.bind(BAKED_ANIMATION_BANK_INDEX);
+
+        shaderProgram.setUniform("isUsingBakedAnimation", true);
+        shaderProgram.setUniform("bakedAnimationTime", (float) mAnimator.getTime());
+        shaderProgram.setUniform("bakedAnimationSampleRate", bakedAnimationTexture.getSampleRate());
+
+        for (int i = 0; i < bakedAnimationTexture.getClipCount(); i++) {
+            shaderProgram.setUniform(
+                    BAKED_CLIP_START_ROW_UNIFORMS[i],
+                    bakedAnimationTexture.getClipStartRow(i)
+            );
+            shaderProgram.setUniform(
+                    BAKED_CLIP_ROW_COUNT_UNIFORMS[i],
+                    bakedAnimationTexture.getClipRowCount(i)
             );
         }
+
+        //clear what a texture with more clips left behind, the shader doesn't play clips without rows
+        for (int i = bakedAnimationTexture.getClipCount(); i < BakedAnimationTexture.MAX_CLIPS; i++) {
+            shaderProgram.setUniform(BAKED_CLIP_ROW_COUNT_UNIFORMS[i], 0);
+        }
     }
 
     private void renderHud(Window window, Camera camera, Scene scene) {
-        ShaderProgram hudShaderProgram = mShaderProgramMap.get(HUD_SHADER_KEY);
-        hudShaderProgram.bind();
+        GameItem[] gameItems = scene.getHud().getGameItems();
 
         Matrix4f orthoProjection = mTransformation.generateOrtho2DProjectionMatrix(
                 0, window.getWidth(), window.getHeight(), 0
         );
 
-        /*
-        TODO: MIGHT BE ABLE TO CHANGE THIS TO RENDERING PER MESH TYPE
-         */
-        for (GameItem gameItem : scene.getHud().getGameItems()) {
+        if (!window.getOptions().retainedHud) {
+            drawHudItems(gameItems, orthoProjection);
+            return;
+        }
+
+        mHudDrawCallCount = 0;
+
+        //only draw the HUD again when something on it has changed
+        if (mHudLayer.prepare(window.getWidth(), window.getHeight(), gameItems)) {
+            mHudLayer.beginRedraw();
+            drawHudItems(gameItems, orthoProjection);
+            mHudLayer.endRedraw(gameItems);
+        }
+
+        glDisable(GL_DEPTH_TEST);
+        HudLayer.blendForComposite();
+        bindHudBatchShader(orthoProjection);
+
+        mSpriteBatcher.begin();
+        mSpriteBatcher.add(mHudLayer.getCompositeSprite());
+        mSpriteBatcher.flush();
+        mHudDrawCallCount++;
+
+        mShaderProgramMap.get(HUD_BATCH_SHADER_KEY).unbind();
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        glEnable(GL_DEPTH_TEST);
+    }
+
+    private void drawHudItems(GameItem[] gameItems, Matrix4f orthoProjection) {
+        ShaderProgram hudShaderProgram = mShaderProgramMap.get(HUD_SHADER_KEY);
+        ShaderProgram hudBatchShaderProgram = mShaderProgramMap.get(HUD_BATCH_SHADER_KEY);
+        ShaderProgram boundShaderProgram = null;
+
+        mHudDrawCallCount = 0;
+        mSpriteBatcher.begin();
+        mTextBatcher.begin();
+
+        //items are drawn in order, sprites and text are batched until an item of another kind comes next
+        for (GameItem gameItem : gameItems) {
+            if (gameItem instanceof UiTextItem) {
+                if (boundShaderProgram != hudBatchShaderProgram) {
+                    bindHudBatchShader(orthoProjection);
+                    boundShaderProgram = hudBatchShaderProgram;
+                }
+
+                mSpriteBatcher.flush();
+                mTextBatcher.add((UiTextItem) gameItem);
+                continue;
+            }
+
+            if (gameItem instanceof UiSpriteItem) {
+                if (boundShaderProgram != hudBatchShaderProgram) {
+                    bindHudBatchShader(orthoProjection);
+                    boundShaderProgram = hudBatchShaderProgram;
+                }
+
+                mTextBatcher.render();
+                mSpriteBatcher.add((UiSpriteItem) gameItem);
+                continue;
+            }
+
+            if (boundShaderProgram != hudShaderProgram) {
+                mSpriteBatcher.flush();
+                mTextBatcher.render();
+                hudShaderProgram.bind();
+                boundShaderProgram = hudShaderProgram;
+            }
+
             hudShaderProgram.setUniform(
                     "projectionModelMatrix",
-                    mTransformation.generateOrthoProjectionModelMatrix(
-                            gameItem,
-                            orthoProjection
+                    gameItem.getMesh().applyPositionDecode(
+                            mTransformation.generateOrthoProjectionModelMatrix(
+                                    gameItem,
+                                    orthoProjection
+                            )
                     )
             );
             hudShaderProgram.setUniform(
@@ -753,9 +971,24 @@ public class Renderer implements IUsesResources {
             );
 
             gameItem.getMesh().render();
+            mHudDrawCallCount++;
+        }
+
+        mSpriteBatcher.flush();
+        mTextBatcher.render();
+        mHudDrawCallCount += mSpriteBatcher.getBatchCount() + mTextBatcher.getDrawCallCount();
+
+        if (boundShaderProgram != null) {
+            boundShaderProgram.unbind();
         }
+    }
 
-        hudShaderProgram.unbind();
+    private void bindHudBatchShader(Matrix4f orthoProjection) {
+        ShaderProgram hudBatchShaderProgram = mShaderProgramMap.get(HUD_BATCH_SHADER_KEY);
+
+        hudBatchShaderProgram.bind();
+        hudBatchShaderProgram.setUniform("projectionMatrix", orthoProjection);
+        hudBatchShaderProgram.setUniform("textureSampler", TEXTURE_BANK_INDEX);
     }
 
     private void renderSkyBox(Window window, Camera camera, Scene scene) {
@@ -782,10 +1015,6 @@ public class Renderer implements IUsesResources {
                 "projectionMatrix",
                 window.getProjectionMatrix()
         );
-        skyBoxShaderProgram.setUniform(
-                "modelViewMatrix",
-                mTransformation.generateModelViewMatrix(skybox, vm)
-        );
         skyBoxShaderProgram.setUniform(
                 "useTexture",
                 skybox.getMesh().getMaterial().isUsingTexture() ? 1 : 0
@@ -796,7 +1025,13 @@ public class Renderer implements IUsesResources {
         );
 
         for (Mesh mesh : skybox.getMeshArray()) {
+            skyBoxShaderProgram.setUniform(
+                    "modelViewMatrix",
+                    mesh.applyPositionDecode(mTransformation.generateModelViewMatrix(skybox, vm))
+            );
+
             mesh.render();
+            mRenderStats.addDraws(1, 1, mesh.getVertexCount());
         }
 
         if (skybox.isInFixedPosition()) {
@@ -851,7 +1086,8 @@ public class Renderer implements IUsesResources {
             Matrix4f viewMatrix,
             ShaderProgram particleShaderProgram
     ) throws Exception {
-        for (IParticleEmitter emitter : particleEmitterList) {
+        for (int i = 0; i < particleEmitterList.size(); i++) {
+            IParticleEmitter emitter = particleEmitterList.get(i);
 
             if (
                     (!emitter.isActive() || !emitter.isInsideFrustum()) &&
@@ -920,8 +1156,14 @@ public class Renderer implements IUsesResources {
                 mFilteredGameItemList
         );
 
+        List<GameItem> particleList =
+                emitter.isFrustumCullingParticles() ? mFilteredGameItemList : emitter.getParticleList();
+
+        mRenderStats.addParticles(emitter.getParticleList().size());
+        addInstancedDraws(instancedMesh, particleList.size());
+
         instancedMesh.renderInstancedList(
-                emitter.isFrustumCullingParticles() ? mFilteredGameItemList : emitter.getParticleList(),
+                particleList,
                 true,
                 mTransformation,
                 viewMatrix,
@@ -944,42 +1186,74 @@ public class Renderer implements IUsesResources {
                 mFilteredGameItemList
         );
 
-        mesh.renderList(
-                emitter.isFrustumCullingParticles() ? mFilteredGameItemList : emitter.getParticleList(),
-                (GameItem gameItem) -> {
-                    if (useTexture) {
-                        int column = gameItem.getTexturePos() % texture.getNumColumns();
-                        int row = gameItem.getTexturePos() / texture.getNumColumns();
-                        float textOffsetX = (float) column / texture.getNumColumns();
-                        float textOffsetY = (float) row / texture.getNumRows();
-
-                        particleShaderProgram.setUniform(
-                                "nonInstancedTextOffsetX",
-                                textOffsetX
-                        );
-                        particleShaderProgram.setUniform(
-                                "nonInstancedTextOffsetY",
-                                textOffsetY
-                        );
-                    }
-
-                    particleShaderProgram.setUniform(
-                            "nonInstancedParticleColour",
-                            ((Particle) gameItem).getParticleColour()
-                    );
-
-                    Matrix4f modelMatrix = mTransformation.generateModelMatrix(gameItem);
-                    viewMatrix.transpose3x3(modelMatrix);
-                    viewMatrix.scale(gameItem.getScale());
-                    Matrix4f modelViewMatrix = mTransformation.generateModelViewMatrix(
-                            modelMatrix, viewMatrix
-                    );
-                    modelViewMatrix.scale(gameItem.getScale());
-                    particleShaderProgram.setUniform(
-                            "nonInstancedModelViewMatrix",
-                            modelViewMatrix
-                    );
-                });
+        List<GameItem> particleList =
+                emitter.isFrustumCullingParticles() ? mFilteredGameItemList : emitter.getParticleList();
+
+        mRenderStats.addParticles(emitter.getParticleList().size());
+        mRenderStats.addDraws(particleList.size(), particleList.size(), mesh.getVertexCount());
+
+        mParticleShaderProgram = particleShaderProgram;
+        mItemMesh = mesh;
+        mItemViewMatrix = viewMatrix;
+        mParticleTexture = texture;
+        mParticleUsesTexture = useTexture;
+        mesh.renderList(particleList, mParticleItemRenderer);
+    }
+
+    /**
+     * Per particle work of renderNonInstancedParticleEmitter, reads its state from the fields it sets.
+     */
+    private void renderParticleItem(GameItem gameItem) {
+        ShaderProgram particleShaderProgram = mParticleShaderProgram;
+        Matrix4f viewMatrix = mItemViewMatrix;
+        Texture texture = mParticleTexture;
+
+        if (mParticleUsesTexture) {
+            int column = gameItem.getTexturePos() % texture.getNumColumns();
+            int row = gameItem.getTexturePos() / texture.getNumColumns();
+            float textOffsetX = (float) column / texture.getNumColumns();
+            float textOffsetY = (float) row / texture.getNumRows();
+
+            particleShaderProgram.setUniform(
+                    "nonInstancedTextOffsetX",
+                    textOffsetX
+            );
+            particleShaderProgram.setUniform(
+                    "nonInstancedTextOffsetY",
+                    textOffsetY
+            );
+        }
+
+        particleShaderProgram.setUniform(
+                "nonInstancedParticleColour",
+                ((Particle) gameItem).getParticleColour()
+        );
+
+        Matrix4f modelMatrix = mTransformation.generateModelMatrix(gameItem);
+        viewMatrix.transpose3x3(modelMatrix);
+        viewMatrix.scale(gameItem.getScale());
+        Matrix4f modelViewMatrix = mTransformation.generateModelViewMatrix(
+                modelMatrix, viewMatrix
+        );
+        modelViewMatrix.scale(gameItem.getScale());
+        mItemMesh.applyPositionDecode(modelViewMatrix);
+        particleShaderProgram.setUniform(
+                "nonInstancedModelViewMatrix",
+                modelViewMatrix
+        );
+    }
+
+    /**
+     * InstancedMesh.renderInstancedList makes one draw call per chunk of instances
+     */
+    private void addInstancedDraws(InstancedMesh instancedMesh, int instanceCount) {
+        int chunkSize = instancedMesh.getNumberOfInstances();
+
+        mRenderStats.addDraws(
+                (instanceCount + chunkSize - 1) / chunkSize,
+                instanceCount,
+                instancedMesh.getVertexCount()
+        );
     }
 
     /**
@@ -1004,50 +1278,34 @@ public class Renderer implements IUsesResources {
         }
     }
 
-    /**
-     * Sorts a Mesh GameItem Map to return a Map with
-     * the Meshes that either allow or disallow Face Culling
-     *
-     * @param meshGameItemMap The Map to be sorted
-     * @param getCullFaceEnableMeshes Whether to sort for Face Culling enable or disabled
-     * @return The sorted Map
-     */
-    private Map<Mesh, List<GameItem>> generateCullFacesMeshMap(
-            Map<Mesh, List<GameItem>> meshGameItemMap,
-            boolean getCullFaceEnableMeshes
-    ) {
-        Map<Mesh, List<GameItem>> result = new HashMap<>();
+    public Animator getAnimator() {
+        return mAnimator;
+    }
 
-        for (Mesh mesh : meshGameItemMap.keySet()) {
-            if (mesh.isCullingFaces() == getCullFaceEnableMeshes) {
-                result.put(mesh, meshGameItemMap.get(mesh));
-            }
-        }
+    public HudLayer getHudLayer() {
+        return mHudLayer;
+    }
 
-        return result;
+    public SpriteBatcher getSpriteBatcher() {
+        return mSpriteBatcher;
     }
 
     /**
-     * Sorts an InstancedMesh GameItem Map to return a Map with
-     * the Meshes that either allow or disallow Face Culling
-     *
-     * @param meshGameItemMap The Map to be sorted
-     * @param getCullFaceEnableMeshes Whether to sort for Face Culling enable or disabled
-     * @return The sorted Map
+     * @return number of draw calls the HUD made last frame, including sprite batches and text
      */
-    private Map<InstancedMesh, List<GameItem>> generateCullFacesInstancedMeshMap(
-            Map<InstancedMesh, List<GameItem>> meshGameItemMap,
-            boolean getCullFaceEnableMeshes
-    ) {
-        Map<InstancedMesh, List<GameItem>> result = new HashMap<>();
+    public int getHudDrawCallCount() {
+        return mHudDrawCallCount;
+    }
 
-        for (InstancedMesh mesh : meshGameItemMap.keySet()) {
-            if (mesh.isCullingFaces() == getCullFaceEnableMeshes) {
-                result.put(mesh, meshGameItemMap.get(mesh));
-            }
-        }
+    /**
+     * @return what was drawn by the last render
+     */
+    public RenderStats getRenderStats() {
+        return mRenderStats;
+    }
 
-        return result;
+    public TextureStreamer getTextureStreamer() {
+        return mTextureStreamer;
     }
 
     public void clear() {
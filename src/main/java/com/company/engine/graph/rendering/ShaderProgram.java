@@ -6,6 +6,11 @@ import com.company.engine.graph.lighting.DirectionalLight;
 import com.company.engine.graph.lighting.PointLight;
 import com.company.engine.graph.lighting.SpotLight;
 import com.company.engine.graph.material.Material;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
+import com.company.engine.utils.ShaderUtils;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
@@ -16,6 +21,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
 
 public class ShaderProgram implements IUsesResources {
 
@@ -28,24 +36,42 @@ public class ShaderProgram implements IUsesResources {
     public static final int SHADER_FALSE = 0;
     public static final int SHADER_TRUE = 1;
 
+    //members of the struct uniforms, in the order their full names are cached
+    private static final String[] MATERIAL_MEMBERS = {
+            ".useTexture", ".colour", ".diffuse", ".specular", ".reflectance", ".hasNormalMap"
+    };
+    private static final String[] POINT_LIGHT_MEMBERS = {
+            ".colour", ".position", ".intensity", ".isActive", ".attenuation"
+    };
+    private static final String[] SPOT_LIGHT_MEMBERS = {".pointLight", ".coneDir", ".cutOff"};
+    private static final String[] DIRECTIONAL_LIGHT_MEMBERS = {".colour", ".direction", ".intensity"};
+    private static final String[] ATTENUATION_MEMBERS = {".constant", ".linear", ".exponent"};
+
     private final int mProgramId;
     private final Map<String, Integer> mUniformIdMap;
+    //full uniform names built on first use so setting struct and array uniforms doesn't concatenate Strings
+    private final Map<String, String[]> mMemberNameMap;
+    private final Map<String, String[]> mElementNameMap;
+    private final EngineMetrics mMetrics;
 
     private int mVertexShaderId;
     private int mFragmentShaderId;
     private boolean mBound;
 
     public ShaderProgram() throws Exception {
-        mProgramId = glCreateProgram();
+        mProgramId = GlObjectRegistry.register(GlObjectType.PROGRAM, glCreateProgram());
         if (mProgramId == 0) {
             throw new Exception("Could not create shader program");
         }
         mUniformIdMap = new HashMap<>();
+        mMemberNameMap = new HashMap<>();
+        mElementNameMap = new HashMap<>();
+        mMetrics = EngineMetrics.getInstance();
         mBound = false;
     }
 
     private int createShader(String shaderCode, int shaderType) throws Exception {
-        int shaderId = glCreateShader(shaderType);
+        int shaderId = GlObjectRegistry.register(GlObjectType.SHADER, glCreateShader(shaderType));
 
         if (shaderId == 0) {
             throw new Exception("Error creating shader. Type: " + shaderType);
@@ -75,6 +101,18 @@ public class ShaderProgram implements IUsesResources {
         mUniformIdMap.put(uniformName, uniformLocation);
     }
 
+    /**
+     * Bind a uniform block of the program to a uniform buffer binding point.
+     */
+    public void createUniformBlock(String blockName, int bindingPoint) throws Exception {
+        int blockIndex = glGetUniformBlockIndex(mProgramId, blockName);
+
+        if (blockIndex == GL_INVALID_INDEX) {
+            throw new Exception("Could not find uniform block in compiled shader: " + blockName);
+        }
+        glUniformBlockBinding(mProgramId, blockIndex, bindingPoint);
+    }
+
     public void createUniformArray(String uniformName, int size) throws Exception {
         for (int i = 0; i < size; i++) {
             createUniform(uniformName + "[" + i + "]");
@@ -146,6 +184,7 @@ public class ShaderProgram implements IUsesResources {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             FloatBuffer floatBuffer = stack.mallocFloat(16);
             value.get(floatBuffer);
+            mMetrics.add(MetricType.UNIFORM_UPLOADS, 1);
             glUniformMatrix4fv(mUniformIdMap.get(uniformName), false, floatBuffer);
         }
     }
@@ -159,6 +198,7 @@ public class ShaderProgram implements IUsesResources {
                 matrixArray[i].get(16 * i, floatBuffer);
             }
 
+            mMetrics.add(MetricType.UNIFORM_UPLOADS, 1);
             glUniformMatrix4fv(mUniformIdMap.get(uniformName), false, floatBuffer);
         }
     }
@@ -168,6 +208,7 @@ public class ShaderProgram implements IUsesResources {
             throw new IllegalStateException("Can not create uniform when program is not bound");
         }
 
+        mMetrics.add(MetricType.UNIFORM_UPLOADS, 1);
         glUniform4f(
                 mUniformIdMap.get(uniformName),
                 value.x,
@@ -178,12 +219,14 @@ public class ShaderProgram implements IUsesResources {
     }
 
     public void setUniform(String uniformName, Material material) {
-        setUniform(uniformName + ".useTexture", material.isUsingTexture());
-        setUniform(uniformName + ".colour", material.getColour());
-        setUniform(uniformName + ".diffuse", material.getDiffuseColour());
-        setUniform(uniformName + ".specular", material.getSpecularColour());
-        setUniform(uniformName + ".reflectance", material.getReflectance());
-        setUniform(uniformName + ".hasNormalMap", material.hasNormalMap());
+        String[] names = getMemberNames(uniformName, MATERIAL_MEMBERS);
+
+        setUniform(names[0], material.isUsingTexture());
+        setUniform(names[1], material.getColour());
+        setUniform(names[2], material.getDiffuseColour());
+        setUniform(names[3], material.getSpecularColour());
+        setUniform(names[4], material.getReflectance());
+        setUniform(names[5], material.hasNormalMap());
     }
 
     public void setUniform(String uniformName, PointLight[] pointLightArray) {
@@ -195,12 +238,14 @@ public class ShaderProgram implements IUsesResources {
     }
 
     public void setUniform(String uniformName, PointLight pointLight) {
-        setUniform(uniformName + ".colour", pointLight.getColour());
-        setUniform(uniformName + ".position", pointLight.getPosition());
-        setUniform(uniformName + ".intensity", pointLight.getIntensity());
-        setUniform(uniformName + ".isActive", pointLight.isActive());
+        String[] names = getMemberNames(uniformName, POINT_LIGHT_MEMBERS);
+
+        setUniform(names[0], pointLight.getColour());
+        setUniform(names[1], pointLight.getPosition());
+        setUniform(names[2], pointLight.getIntensity());
+        setUniform(names[3], pointLight.isActive());
 
-        setUniform(uniformName + ".attenuation", pointLight.getAttenuation());
+        setUniform(names[4], pointLight.getAttenuation());
     }
 
     public void setUniform(String uniformName, SpotLight[] spotLightArray) {
@@ -212,37 +257,79 @@ public class ShaderProgram implements IUsesResources {
     }
 
     public void setUniform(String uniformName, SpotLight spotLight) {
-        setUniform(uniformName + ".pointLight", spotLight.getPointLight());
-        setUniform(uniformName + ".coneDir", spotLight.getConeDirection());
-        setUniform(uniformName + ".cutOff", spotLight.getCutOff());
+        String[] names = getMemberNames(uniformName, SPOT_LIGHT_MEMBERS);
+
+        setUniform(names[0], spotLight.getPointLight());
+        setUniform(names[1], spotLight.getConeDirection());
+        setUniform(names[2], spotLight.getCutOff());
     }
 
     public void setUniform(String uniformName, SpotLight spotLight, int index) {
-        setUniform(uniformName + "[" + index + "]", spotLight);
+        setUniform(getElementName(uniformName, index), spotLight);
     }
 
     public void setUniform(String uniformName, PointLight pointLight, int index) {
-        setUniform(uniformName + "[" + index + "]", pointLight);
+        setUniform(getElementName(uniformName, index), pointLight);
     }
 
     public void setUniform(String uniformName, DirectionalLight dirLight) {
-        setUniform(uniformName + ".colour", dirLight.getColour());
-        setUniform(uniformName + ".direction", dirLight.getDirection());
-        setUniform(uniformName + ".intensity", dirLight.getIntensity());
+        String[] names = getMemberNames(uniformName, DIRECTIONAL_LIGHT_MEMBERS);
+
+        setUniform(names[0], dirLight.getColour());
+        setUniform(names[1], dirLight.getDirection());
+        setUniform(names[2], dirLight.getIntensity());
     }
 
     public void setUniform(String uniformName, Attenuation attenuation) {
-        setUniform(uniformName + ".constant", attenuation.getConstant());
-        setUniform(uniformName + ".linear", attenuation.getLinear());
-        setUniform(uniformName + ".exponent", attenuation.getExponent());
+        String[] names = getMemberNames(uniformName, ATTENUATION_MEMBERS);
+
+        setUniform(names[0], attenuation.getConstant());
+        setUniform(names[1], attenuation.getLinear());
+        setUniform(names[2], attenuation.getExponent());
 
     }
 
+    /**
+     * A GLSL uniform has one type, so the struct's name alone is enough to key its member names.
+     *
+     * @return uniformName followed by each of members
+     */
+    private String[] getMemberNames(String uniformName, String[] members) {
+        String[] names = mMemberNameMap.get(uniformName);
+
+        if (names == null) {
+            names = new String[members.length];
+
+            for (int i = 0; i < members.length; i++) {
+                names[i] = uniformName + members[i];
+            }
+
+            mMemberNameMap.put(uniformName, names);
+        }
+
+        return names;
+    }
+
+    /**
+     * @return uniformName[index]
+     */
+    private String getElementName(String uniformName, int index) {
+        String[] names = mElementNameMap.get(uniformName);
+
+        if (names == null || index >= names.length) {
+            names = ShaderUtils.createUniformArrayNames(uniformName, index + 1);
+            mElementNameMap.put(uniformName, names);
+        }
+
+        return names[index];
+    }
+
     public void setUniform(String uniformName, Vector3f vector3f) {
         if (!mBound) {
             throw new IllegalStateException("Can not create uniform when program is not bound");
         }
 
+        mMetrics.add(MetricType.UNIFORM_UPLOADS, 1);
         glUniform3f(
                 mUniformIdMap.get(uniformName),
                 vector3f.x,
@@ -256,6 +343,7 @@ public class ShaderProgram implements IUsesResources {
             throw new IllegalStateException("Can not create uniform when program is not bound");
         }
 
+        mMetrics.add(MetricType.UNIFORM_UPLOADS, 1);
         glUniform1f(mUniformIdMap.get(uniformName), value);
     }
 
@@ -264,6 +352,7 @@ public class ShaderProgram implements IUsesResources {
             throw new IllegalStateException("Can not create uniform when program is not bound");
         }
 
+        mMetrics.add(MetricType.UNIFORM_UPLOADS, 1);
         glUniform1i(mUniformIdMap.get(uniformName), value);
     }
 
@@ -272,6 +361,7 @@ public class ShaderProgram implements IUsesResources {
             throw new IllegalStateException("Can not create uniform when program is not bound");
         }
 
+        mMetrics.add(MetricType.UNIFORM_UPLOADS, 1);
         glUniform1i(mUniformIdMap.get(uniformName), value ? SHADER_TRUE : SHADER_FALSE);
     }
 
@@ -287,12 +377,16 @@ public class ShaderProgram implements IUsesResources {
             );
         }
 
-        //detach the shaders after the program has been linked
+        //detach and delete the shaders after the program has been linked, the program keeps what it needs
         if (mVertexShaderId != 0) {
             glDetachShader(mProgramId, mVertexShaderId);
+            deleteShader(mVertexShaderId);
+            mVertexShaderId = 0;
         }
         if (mFragmentShaderId != 0) {
             glDetachShader(mProgramId, mFragmentShaderId);
+            deleteShader(mFragmentShaderId);
+            mFragmentShaderId = 0;
         }
 
         glValidateProgram(mProgramId);
@@ -304,6 +398,11 @@ public class ShaderProgram implements IUsesResources {
         }
     }
 
+    private static void deleteShader(int shaderId) {
+        glDeleteShader(shaderId);
+        GlObjectRegistry.unregister(GlObjectType.SHADER, shaderId);
+    }
+
     //the "activation" method
     public void bind() {
         glUseProgram(mProgramId);
@@ -320,6 +419,7 @@ public class ShaderProgram implements IUsesResources {
         unbind();
         if (mProgramId != 0) {
             glDeleteProgram(mProgramId);
+            GlObjectRegistry.unregister(GlObjectType.PROGRAM, mProgramId);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package com.company.engine.graph.rendering;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.graph.material.Texture;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
+import com.company.engine.scene.items.ui.UiSpriteItem;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL30.*;
+
+public class SpriteBatcher implements IUsesResources {
+
+    /**
+     * Collects UiSpriteItems into one dynamic vertex buffer and draws them in as few calls as possible.
+     *
+     * A batch is flushed when the next sprite uses a different texture, when flush is called
+     * because the Renderer is changing shader, or when the buffer is full.
+     * The buffer is orphaned at the start of every frame so the driver never waits for the GPU
+     * to finish drawing the last frame's sprites. The vertices use the HudQuadFormat.
+     *
+     * The hud_batch shader must be bound whenever a batch can be flushed.
+     */
+
+    public static final int DEFAULT_MAX_SPRITES = 4096;
+
+    private final int mMaxSprites;
+    private final int mVaoId;
+    private final int mVboId;
+    private final int mIboId;
+    private final int mWhiteTextureId; //used by sprites without a texture
+    private final ByteBuffer mVertexBuffer;
+    private final Matrix4f mModelMatrix;
+    private final Vector3f mCorner;
+    private final EngineMetrics mMetrics;
+
+    private Texture mBatchTexture;
+    private int mBatchStartSprite;
+    private int mSpriteCount; //sprites written to the buffer since it was orphaned
+    private boolean mOrphaned;
+
+    private int mBatchCount;
+    private int mFrameSpriteCount;
+
+    public SpriteBatcher() {
+        this(DEFAULT_MAX_SPRITES);
+    }
+
+    public SpriteBatcher(int maxSprites) {
+        if (maxSprites <= 0 || maxSprites > HudQuadFormat.MAX_QUADS) {
+            throw new IllegalArgumentException("Max sprites must be between 1 and " + HudQuadFormat.MAX_QUADS);
+        }
+
+        mMaxSprites = maxSprites;
+        mModelMatrix = new Matrix4f();
+        mCorner = new Vector3f();
+        mMetrics = EngineMetrics.getInstance();
+        mVertexBuffer = NativeMemory.memAlloc(maxSprites * HudQuadFormat.QUAD_SIZE_BYTES, MemoryCategory.HUD);
+
+        mVaoId = GlObjectRegistry.register(GlObjectType.VERTEX_ARRAY, glGenVertexArrays());
+        glBindVertexArray(mVaoId);
+
+        mVboId = GlObjectRegistry.register(GlObjectType.BUFFER, glGenBuffers(), mVertexBuffer.capacity());
+        glBindBuffer(GL_ARRAY_BUFFER, mVboId);
+        glBufferData(GL_ARRAY_BUFFER, mVertexBuffer.capacity(), GL_STREAM_DRAW);
+        HudQuadFormat.setUpVertexAttributes();
+
+        mIboId = HudQuadFormat.createQuadIndexBuffer(maxSprites);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+
+        mWhiteTextureId = createWhiteTexture();
+    }
+
+    private static int createWhiteTexture() {
+        int id = GlObjectRegistry.register(GlObjectType.TEXTURE, glGenTextures(), 4);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            ByteBuffer pixel = stack.bytes((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF);
+
+            glBindTexture(GL_TEXTURE_2D, id);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, 1, 1, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixel);
+            glBindTexture(GL_TEXTURE_2D, 0);
+        }
+
+        return id;
+    }
+
+    /**
+     * Start a new frame of sprites.
+     */
+    public void begin() {
+        mBatchTexture = null;
+        mBatchStartSprite = 0;
+        mSpriteCount = 0;
+        mOrphaned = false;
+        mBatchCount = 0;
+        mFrameSpriteCount = 0;
+    }
+
+    public void add(UiSpriteItem sprite) {
+        if (mSpriteCount > mBatchStartSprite && sprite.getTexture() != mBatchTexture) {
+            flush();
+        }
+
+        if (mSpriteCount == mMaxSprites) {
+            flush();
+            //start again at the beginning of a new buffer
+            mOrphaned = false;
+            mSpriteCount = 0;
+            mBatchStartSprite = 0;
+        }
+
+        mBatchTexture = sprite.getTexture();
+        writeSprite(sprite, mSpriteCount);
+        mSpriteCount++;
+        mFrameSpriteCount++;
+    }
+
+    /**
+     * Draw the sprites added since the last flush.
+     */
+    public void flush() {
+        int batchSpriteCount = mSpriteCount - mBatchStartSprite;
+
+        if (batchSpriteCount == 0) {
+            return;
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, mVboId);
+
+        if (!mOrphaned) {
+            //let the driver hand out new storage instead of waiting for the last draws using it
+            glBufferData(GL_ARRAY_BUFFER, mVertexBuffer.capacity(), GL_STREAM_DRAW);
+            mOrphaned = true;
+        }
+
+        mVertexBuffer.limit(mSpriteCount * HudQuadFormat.QUAD_SIZE_BYTES);
+        mVertexBuffer.position(mBatchStartSprite * HudQuadFormat.QUAD_SIZE_BYTES);
+        glBufferSubData(GL_ARRAY_BUFFER, mVertexBuffer.position(), mVertexBuffer);
+        mMetrics.add(MetricType.BUFFER_BYTES_UPLOADED, mVertexBuffer.remaining());
+        mVertexBuffer.clear();
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        glBindVertexArray(mVaoId);
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, mBatchTexture != null ? mBatchTexture.getId() : mWhiteTextureId);
+
+        glDrawElements(
+                GL_TRIANGLES,
+                batchSpriteCount * HudQuadFormat.INDICES_PER_QUAD,
+                GL_UNSIGNED_SHORT,
+                HudQuadFormat.getIndexOffset(mBatchStartSprite)
+        );
+
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindVertexArray(0);
+
+        mBatchStartSprite = mSpriteCount;
+        mBatchCount++;
+    }
+
+    private void writeSprite(UiSpriteItem sprite, int index) {
+        Vector4f atlasRect = sprite.getAtlasRect();
+        int colour = HudQuadFormat.packColour(sprite.getColour());
+        int offset = index * HudQuadFormat.QUAD_SIZE_BYTES;
+
+        mModelMatrix.translationRotateScale(sprite.getPosition(), sprite.getRotation(), sprite.getScale());
+
+        //top left, bottom left, bottom right, top right
+        writeVertex(offset, 0, 0, atlasRect.x, atlasRect.y, colour);
+        writeVertex(offset + HudQuadFormat.VERTEX_SIZE_BYTES, 0, sprite.getHeight(), atlasRect.x, atlasRect.w, colour);
+        writeVertex(
+                offset + HudQuadFormat.VERTEX_SIZE_BYTES * 2,
+                sprite.getWidth(),
+                sprite.getHeight(),
+                atlasRect.z,
+                atlasRect.w,
+                colour
+        );
+        writeVertex(offset + HudQuadFormat.VERTEX_SIZE_BYTES * 3, sprite.getWidth(), 0, atlasRect.z, atlasRect.y, colour);
+    }
+
+    private void writeVertex(int offset, float x, float y, float u, float v, int colour) {
+        mModelMatrix.transformPosition(mCorner.set(x, y, 0));
+
+        mVertexBuffer.putFloat(offset, mCorner.x);
+        mVertexBuffer.putFloat(offset + 4, mCorner.y);
+        mVertexBuffer.putFloat(offset + 8, u);
+        mVertexBuffer.putFloat(offset + 12, v);
+        mVertexBuffer.putInt(offset + 16, colour);
+    }
+
+    /**
+     * @return number of draw calls made since begin
+     */
+    public int getBatchCount() {
+        return mBatchCount;
+    }
+
+    /**
+     * @return number of sprites added since begin
+     */
+    public int getSpriteCount() {
+        return mFrameSpriteCount;
+    }
+
+    @Override
+    public void cleanUp() {
+        glDeleteBuffers(mVboId);
+        glDeleteBuffers(mIboId);
+        glDeleteVertexArrays(mVaoId);
+        glDeleteTextures(mWhiteTextureId);
+        GlObjectRegistry.unregister(GlObjectType.BUFFER, mVboId);
+        GlObjectRegistry.unregister(GlObjectType.BUFFER, mIboId);
+        GlObjectRegistry.unregister(GlObjectType.VERTEX_ARRAY, mVaoId);
+        GlObjectRegistry.unregister(GlObjectType.TEXTURE, mWhiteTextureId);
+        NativeMemory.memFree(mVertexBuffer);
+    }
+}
@@ -0,0 +1,392 @@
+package com.company.engine.graph.rendering;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.graph.material.Texture;
+import com.company.engine.metrics.EngineMetrics;
+import com.company.engine.metrics.MetricType;
+import com.company.engine.scene.items.ui.UiTextItem;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.GlObjectType;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL14.glMultiDrawElements;
+
+public class TextBatcher implements IUsesResources {
+
+    /**
+     * Draws every UiTextItem from one preallocated streaming vertex buffer.
+     *
+     * Each UiTextItem owns a range of glyph quads in the buffer. When its text changes only
+     * the glyphs that are different are rewritten, when it moves or changes colour its range
+     * is rewritten. Nothing is written for text that hasn't changed.
+     * All the text queued since the last render that uses the same font atlas is drawn with a
+     * single glMultiDrawElements, render can be called more than once a frame to keep text
+     * layered between other HUD items. The vertices use the HudQuadFormat.
+     */
+
+    public static final int DEFAULT_MAX_GLYPHS = 8192;
+
+    private static final int MIN_RANGE_GLYPHS = 16;
+
+    private final int mMaxGlyphs;
+    private final int mVaoId;
+    private final int mVboId;
+    private final int mIboId;
+    private final ByteBuffer mVertexBuffer; //copy of the whole VBO, changed glyphs are written here then uploaded
+
+    private final Map<UiTextItem, TextRange> mRangeMap;
+    private final List<TextRange> mRangeList; //sorted by first glyph
+    private final List<TextRange> mFrameRangeList; //ranges queued since the last render
+    private final List<Texture> mFrameTextureList; //font atlases queued since the last render
+    private final Matrix4f mModelMatrix;
+    private final Vector3f mCorner;
+    private final EngineMetrics mMetrics;
+
+    private long mFrame;
+    private int mDrawCallCount;
+    private int mUploadedGlyphCount;
+
+    public TextBatcher() {
+        this(DEFAULT_MAX_GLYPHS);
+    }
+
+    public TextBatcher(int maxGlyphs) {
+        if (maxGlyphs <= 0 || maxGlyphs > HudQuadFormat.MAX_QUADS) {
+            throw new IllegalArgumentException("Max glyphs must be between 1 and " + HudQuadFormat.MAX_QUADS);
+        }
+
+        mMaxGlyphs = maxGlyphs;
+        mRangeMap = new IdentityHashMap<>();
+        mRangeList = new ArrayList<>();
+        mFrameRangeList = new ArrayList<>();
+        mFrameTextureList = new ArrayList<>();
+        mModelMatrix = new Matrix4f();
+        mCorner = new Vector3f();
+        mMetrics = EngineMetrics.getInstance();
+        mVertexBuffer = NativeMemory.memCalloc(maxGlyphs * HudQuadFormat.QUAD_SIZE_BYTES, MemoryCategory.HUD);
+
+        mVaoId = GlObjectRegistry.register(GlObjectType.VERTEX_ARRAY, glGenVertexArrays());
+        glBindVertexArray(mVaoId);
+
+        mVboId = GlObjectRegistry.register(GlObjectType.BUFFER, glGenBuffers(), mVertexBuffer.capacity());
+        glBindBuffer(GL_ARRAY_BUFFER, mVboId);
+        glBufferData(GL_ARRAY_BUFFER, mVertexBuffer.capacity(), GL_DYNAMIC_DRAW);
+        HudQuadFormat.setUpVertexAttributes();
+
+        //the index buffer never changes, every quad is two triangles
+        mIboId = HudQuadFormat.createQuadIndexBuffer(maxGlyphs);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Start collecting the text drawn this frame.
+     */
+    public void begin() {
+        freeUnusedRanges();
+
+        mFrame++;
+        mFrameRangeList.clear();
+        mFrameTextureList.clear();
+        mDrawCallCount = 0;
+        mUploadedGlyphCount = 0;
+    }
+
+    /**
+     * Queue the text to be drawn, uploading any glyphs that changed since it was last drawn.
+     */
+    public void add(UiTextItem textItem) {
+        TextRange range = mRangeMap.get(textItem);
+        int glyphCount = textItem.getChars().length;
+
+        if (range != null && range.mGlyphCapacity < glyphCount) {
+            freeRange(range);
+            range = null;
+        }
+
+        if (range == null) {
+            range = allocateRange(textItem, glyphCount);
+
+            if (range == null) {
+                System.err.println("TextBatcher: out of glyph space, \"" + textItem.getText() + "\" is not drawn");
+                return;
+            }
+        }
+
+        range.mLastFrame = mFrame;
+
+        if (glyphCount == 0) {
+            range.mGlyphCount = 0;
+            return;
+        }
+
+        updateRange(range, textItem);
+
+        mFrameRangeList.add(range);
+
+        if (!mFrameTextureList.contains(textItem.getFontTexture())) {
+            mFrameTextureList.add(textItem.getFontTexture());
+        }
+    }
+
+    /**
+     * Draw the text queued since the last render, one draw call per font atlas.
+     * The batch shader must be bound with its projection matrix set.
+     */
+    public void render() {
+        if (mFrameRangeList.isEmpty()) {
+            return;
+        }
+
+        glBindVertexArray(mVaoId);
+        glActiveTexture(GL_TEXTURE0);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer counts = stack.mallocInt(mFrameRangeList.size());
+            PointerBuffer offsets = stack.mallocPointer(mFrameRangeList.size());
+
+            for (int i = 0; i < mFrameTextureList.size(); i++) {
+                Texture texture = mFrameTextureList.get(i);
+
+                counts.clear();
+                offsets.clear();
+
+                for (int j = 0; j < mFrameRangeList.size(); j++) {
+                    TextRange range = mFrameRangeList.get(j);
+
+                    if (range.mTexture == texture) {
+                        counts.put(range.mGlyphCount * HudQuadFormat.INDICES_PER_QUAD);
+                        offsets.put(HudQuadFormat.getIndexOffset(range.mFirstGlyph));
+                    }
+                }
+
+                counts.flip();
+                offsets.flip();
+
+                glBindTexture(GL_TEXTURE_2D, texture.getId());
+                glMultiDrawElements(GL_TRIANGLES, counts, GL_UNSIGNED_SHORT, offsets);
+                mDrawCallCount++;
+            }
+        }
+
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindVertexArray(0);
+
+        mFrameRangeList.clear();
+        mFrameTextureList.clear();
+    }
+
+    private void updateRange(TextRange range, UiTextItem textItem) {
+        byte[] chars = textItem.getChars();
+        boolean rewriteAll = range.mTexture != textItem.getFontTexture() ||
+                range.mScale != textItem.getScale() ||
+                !range.mPosition.equals(textItem.getPosition()) ||
+                !range.mRotation.equals(textItem.getRotation()) ||
+                !range.mColour.equals(textItem.getMaterial().getColour());
+
+        if (!rewriteAll && range.mTextVersion == textItem.getTextVersion()) {
+            return;
+        }
+
+        range.mTexture = textItem.getFontTexture();
+        range.mScale = textItem.getScale();
+        range.mPosition.set(textItem.getPosition());
+        range.mRotation.set(textItem.getRotation());
+        range.mColour.set(textItem.getMaterial().getColour());
+        range.mTextVersion = textItem.getTextVersion();
+
+        mModelMatrix.translationRotateScale(range.mPosition, range.mRotation, range.mScale);
+
+        int firstChanged = Integer.MAX_VALUE;
+        int lastChanged = -1;
+
+        for (int i = 0; i < chars.length; i++) {
+            if (rewriteAll || i >= range.mGlyphCount || range.mChars[i] != chars[i]) {
+                writeGlyph(range, textItem, i, chars[i]);
+                range.mChars[i] = chars[i];
+                firstChanged = Math.min(firstChanged, i);
+                lastChanged = i;
+            }
+        }
+
+        range.mGlyphCount = chars.length;
+
+        if (lastChanged < 0) {
+            return;
+        }
+
+        //upload the changed glyphs in one call
+        int glyphStride = HudQuadFormat.QUAD_SIZE_BYTES;
+        int start = (range.mFirstGlyph + firstChanged) * glyphStride;
+        int end = (range.mFirstGlyph + lastChanged + 1) * glyphStride;
+
+        mVertexBuffer.limit(end);
+        mVertexBuffer.position(start);
+
+        glBindBuffer(GL_ARRAY_BUFFER, mVboId);
+        glBufferSubData(GL_ARRAY_BUFFER, start, mVertexBuffer);
+        mMetrics.add(MetricType.BUFFER_BYTES_UPLOADED, end - start);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        mVertexBuffer.clear();
+        mUploadedGlyphCount += lastChanged - firstChanged + 1;
+    }
+
+    private void writeGlyph(TextRange range, UiTextItem textItem, int index, byte glyph) {
+        Texture texture = textItem.getFontTexture();
+        int columnCount = textItem.getFontAtlasColumnCount();
+        int rowCount = textItem.getFontAtlasRowCount();
+        float tileWidth = (float) texture.getWidth() / columnCount;
+        float tileHeight = (float) texture.getHeight() / rowCount;
+
+        int tile = glyph & 0xFF;
+        float left = index * tileWidth;
+        float right = (index + 1) * tileWidth;
+        float u0 = (float) (tile % columnCount) / columnCount;
+        float v0 = (float) (tile / columnCount) / rowCount;
+        float u1 = u0 + 1.0f / columnCount;
+        float v1 = v0 + 1.0f / rowCount;
+        int colour = HudQuadFormat.packColour(range.mColour);
+        int offset = (range.mFirstGlyph + index) * HudQuadFormat.QUAD_SIZE_BYTES;
+
+        //top left, bottom left, bottom right, top right
+        writeVertex(offset, left, 0, u0, v0, colour);
+        writeVertex(offset + HudQuadFormat.VERTEX_SIZE_BYTES, left, tileHeight, u0, v1, colour);
+        writeVertex(offset + HudQuadFormat.VERTEX_SIZE_BYTES * 2, right, tileHeight, u1, v1, colour);
+        writeVertex(offset + HudQuadFormat.VERTEX_SIZE_BYTES * 3, right, 0, u1, v0, colour);
+    }
+
+    private void writeVertex(int offset, float x, float y, float u, float v, int colour) {
+        mModelMatrix.transformPosition(mCorner.set(x, y, 0));
+
+        mVertexBuffer.putFloat(offset, mCorner.x);
+        mVertexBuffer.putFloat(offset + 4, mCorner.y);
+        mVertexBuffer.putFloat(offset + 8, u);
+        mVertexBuffer.putFloat(offset + 12, v);
+        mVertexBuffer.putInt(offset + 16, colour);
+    }
+
+    /**
+     * First fit in the gaps between the allocated ranges
+     */
+    private TextRange allocateRange(UiTextItem textItem, int glyphCount) {
+        int capacity = Math.max(MIN_RANGE_GLYPHS, Integer.highestOneBit(Math.max(1, glyphCount - 1)) << 1);
+        int insertIndex = 0;
+        int gapStart = 0;
+
+        for (; insertIndex <= mRangeList.size(); insertIndex++) {
+            int gapEnd = insertIndex < mRangeList.size() ? mRangeList.get(insertIndex).mFirstGlyph : mMaxGlyphs;
+
+            if (gapEnd - gapStart >= glyphCount) {
+                capacity = Math.min(capacity, gapEnd - gapStart);
+                break;
+            }
+
+            if (insertIndex < mRangeList.size()) {
+                TextRange range = mRangeList.get(insertIndex);
+                gapStart = range.mFirstGlyph + range.mGlyphCapacity;
+            }
+        }
+
+        if (insertIndex > mRangeList.size()) {
+            return null;
+        }
+
+        TextRange range = new TextRange(textItem, gapStart, capacity);
+        mRangeList.add(insertIndex, range);
+        mRangeMap.put(textItem, range);
+
+        return range;
+    }
+
+    private void freeRange(TextRange range) {
+        mRangeList.remove(range);
+        mRangeMap.remove(range.mTextItem);
+    }
+
+    /**
+     * Text that wasn't drawn last frame has been removed from the HUD, give its space back
+     */
+    private void freeUnusedRanges() {
+        for (int i = mRangeList.size() - 1; i >= 0; i--) {
+            TextRange range = mRangeList.get(i);
+
+            if (range.mLastFrame != mFrame) {
+                mRangeList.remove(i);
+                mRangeMap.remove(range.mTextItem);
+            }
+        }
+    }
+
+    /**
+     * @return number of draw calls made since begin
+     */
+    public int getDrawCallCount() {
+        return mDrawCallCount;
+    }
+
+    /**
+     * @return number of glyph quads uploaded this frame
+     */
+    public int getUploadedGlyphCount() {
+        return mUploadedGlyphCount;
+    }
+
+    @Override
+    public void cleanUp() {
+        glDeleteBuffers(mVboId);
+        glDeleteBuffers(mIboId);
+        glDeleteVertexArrays(mVaoId);
+        GlObjectRegistry.unregister(GlObjectType.BUFFER, mVboId);
+        GlObjectRegistry.unregister(GlObjectType.BUFFER, mIboId);
+        GlObjectRegistry.unregister(GlObjectType.VERTEX_ARRAY, mVaoId);
+        NativeMemory.memFree(mVertexBuffer);
+
+        mRangeMap.clear();
+        mRangeList.clear();
+    }
+
+    private static class TextRange {
+
+        private final UiTextItem mTextItem;
+        private final int mFirstGlyph;
+        private final int mGlyphCapacity;
+        private final byte[] mChars; //the glyphs currently in the buffer
+        private final Vector3f mPosition;
+        private final Quaternionf mRotation;
+        private final Vector4f mColour;
+
+        private Texture mTexture;
+        private float mScale;
+        private int mGlyphCount;
+        private int mTextVersion;
+        private long mLastFrame;
+
+        private TextRange(UiTextItem textItem, int firstGlyph, int glyphCapacity) {
+            mTextItem = textItem;
+            mFirstGlyph = firstGlyph;
+            mGlyphCapacity = glyphCapacity;
+            mChars = new byte[glyphCapacity];
+            mPosition = new Vector3f();
+            mRotation = new Quaternionf();
+            mColour = new Vector4f();
+            mTextVersion = -1;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.company.engine.input;
+
+public interface IInputEventListener {
+
+    /*
+    Receives events drained from an InputEventQueue or read from an input recording,
+    events are passed as values so draining the queue doesn't allocate
+     */
+
+    void onInputEvent(
+            InputEventType type,
+            int code,
+            int action,
+            int mods,
+            double x,
+            double y,
+            long timeNanos
+    );
+}
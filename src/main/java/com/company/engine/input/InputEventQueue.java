@@ -0,0 +1,130 @@
+package com.company.engine.input;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InputEventQueue {
+
+    /**
+     * A fixed size, lock free ring buffer of input events with one producer,
+     * the GLFW callbacks, and one consumer, the game loop.
+     *
+     * Events are stored in parallel arrays so neither side allocates. When the queue is full
+     * new events are dropped and counted rather than blocking the thread polling GLFW.
+     */
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final InputEventType[] EVENT_TYPES = InputEventType.values();
+
+    private final int mMask;
+    private final byte[] mTypes;
+    private final int[] mCodes;
+    private final int[] mActions;
+    private final int[] mMods;
+    private final double[] mXs;
+    private final double[] mYs;
+    private final long[] mTimesNanos;
+
+    private final AtomicLong mHead; //next event to read, only written by the consumer
+    private final AtomicLong mTail; //next slot to write, only written by the producer
+    private final AtomicLong mDroppedEventCount;
+
+    public InputEventQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public InputEventQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 24) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + (1 << 24));
+        }
+
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+
+        mMask = size - 1;
+        mTypes = new byte[size];
+        mCodes = new int[size];
+        mActions = new int[size];
+        mMods = new int[size];
+        mXs = new double[size];
+        mYs = new double[size];
+        mTimesNanos = new long[size];
+        mHead = new AtomicLong();
+        mTail = new AtomicLong();
+        mDroppedEventCount = new AtomicLong();
+    }
+
+    /**
+     * Called by the producer.
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean offer(
+            InputEventType type,
+            int code,
+            int action,
+            int mods,
+            double x,
+            double y,
+            long timeNanos
+    ) {
+        long tail = mTail.get();
+
+        if (tail - mHead.get() > mMask) {
+            mDroppedEventCount.incrementAndGet();
+            return false;
+        }
+
+        int slot = (int) (tail & mMask);
+
+        mTypes[slot] = (byte) type.ordinal();
+        mCodes[slot] = code;
+        mActions[slot] = action;
+        mMods[slot] = mods;
+        mXs[slot] = x;
+        mYs[slot] = y;
+        mTimesNanos[slot] = timeNanos;
+
+        //publishes the slot to the consumer
+        mTail.lazySet(tail + 1);
+
+        return true;
+    }
+
+    /**
+     * Called by the consumer, passes every queued event to the listener in the order they were offered.
+     * @return number of events drained
+     */
+    public int drain(IInputEventListener listener) {
+        long head = mHead.get();
+        long tail = mTail.get();
+
+        for (long i = head; i < tail; i++) {
+            int slot = (int) (i & mMask);
+
+            listener.onInputEvent(
+                    EVENT_TYPES[mTypes[slot]],
+                    mCodes[slot],
+                    mActions[slot],
+                    mMods[slot],
+                    mXs[slot],
+                    mYs[slot],
+                    mTimesNanos[slot]
+            );
+        }
+
+        //frees the slots for the producer
+        mHead.lazySet(tail);
+
+        return (int) (tail - head);
+    }
+
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    public long getDroppedEventCount() {
+        return mDroppedEventCount.get();
+    }
+}
@@ -0,0 +1,9 @@
+package com.company.engine.input;
+
+public enum InputEventType {
+    KEY, //code is the GLFW key, action is GLFW_PRESS, GLFW_REPEAT or GLFW_RELEASE
+    MOUSE_BUTTON, //code is the GLFW mouse button, action is GLFW_PRESS or GLFW_RELEASE
+    CURSOR_POSITION, //x and y are the cursor position in screen coordinates
+    CURSOR_ENTER, //action is GLFW_TRUE when the cursor entered the window
+    SCROLL //x and y are the scroll offsets
+}
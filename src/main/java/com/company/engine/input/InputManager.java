@@ -0,0 +1,237 @@
+package com.company.engine.input;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.window.Window;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+public class InputManager implements IInputEventListener, IUsesResources {
+
+    /**
+     * Buffers GLFW input events and applies them to an InputState once per tick of the game loop.
+     *
+     * The GLFW callbacks only push events into a lock free InputEventQueue, the game loop drains
+     * the queue at the start of each tick. Games read the InputState instead of asking GLFW
+     * about each key.
+     * The events of each tick can be recorded to a file and replayed in place of live input,
+     * giving deterministic sessions for benchmarks. The number of updates the game loop ran in
+     * each tick is recorded with them, a replay runs the recorded number instead of following
+     * the clock.
+     */
+
+    //live events are thrown away while replaying
+    private static final IInputEventListener DISCARDING_LISTENER =
+            (type, code, action, mods, x, y, timeNanos) -> { };
+
+    private final InputEventQueue mEventQueue;
+    private final InputEventQueue mLatchedEventQueue; //events taken by latch, applied at the start of the next tick
+    private final InputState mInputState;
+    private final IInputEventListener mLatchingListener;
+
+    private InputRecorder mRecorder;
+    private InputReplayer mReplayer;
+    private long mTick;
+    private long mRecordingStartTick;
+    private long mReplayStartTick;
+    private long mNewestLatchedEventTimeNanos;
+    private int mReplayedUpdateCount;
+
+    public InputManager() {
+        mEventQueue = new InputEventQueue();
+        mLatchedEventQueue = new InputEventQueue();
+        mInputState = new InputState();
+        mLatchingListener = this::latchEvent;
+        mTick = 0;
+        mReplayedUpdateCount = InputReplayer.NO_UPDATE_COUNT;
+    }
+
+    public void init(Window window) {
+        long windowHandle = window.getWindowHandle();
+
+        glfwSetKeyCallback(windowHandle, (handle, key, scanCode, action, mods) -> {
+            mEventQueue.offer(InputEventType.KEY, key, action, mods, 0, 0, System.nanoTime());
+        });
+        glfwSetMouseButtonCallback(windowHandle, (handle, button, action, mods) -> {
+            mEventQueue.offer(InputEventType.MOUSE_BUTTON, button, action, mods, 0, 0, System.nanoTime());
+        });
+        glfwSetCursorPosCallback(windowHandle, (handle, posX, posY) -> {
+            mEventQueue.offer(InputEventType.CURSOR_POSITION, 0, 0, 0, posX, posY, System.nanoTime());
+        });
+        glfwSetCursorEnterCallback(windowHandle, (handle, entered) -> {
+            mEventQueue.offer(
+                    InputEventType.CURSOR_ENTER,
+                    0,
+                    entered ? GLFW_TRUE : GLFW_FALSE,
+                    0,
+                    0,
+                    0,
+                    System.nanoTime()
+            );
+        });
+        glfwSetScrollCallback(windowHandle, (handle, offsetX, offsetY) -> {
+            mEventQueue.offer(InputEventType.SCROLL, 0, 0, 0, offsetX, offsetY, System.nanoTime());
+        });
+    }
+
+    /**
+     * Start a new tick, applying the events received since the last one.
+     */
+    public void update() {
+        mTick++;
+        mInputState.beginTick();
+        mNewestLatchedEventTimeNanos = 0;
+        mReplayedUpdateCount = InputReplayer.NO_UPDATE_COUNT;
+
+        if (mReplayer != null) {
+            mLatchedEventQueue.drain(DISCARDING_LISTENER);
+            mEventQueue.drain(DISCARDING_LISTENER);
+            mReplayer.replay(mTick - mReplayStartTick, mInputState);
+            mReplayedUpdateCount = mReplayer.getUpdateCount();
+
+            if (mReplayer.isFinished(mTick - mReplayStartTick)) {
+                mReplayer = null;
+            }
+        } else {
+            if (mRecorder != null) {
+                mRecorder.setTick(mTick - mRecordingStartTick);
+            }
+
+            mLatchedEventQueue.drain(this);
+            mEventQueue.drain(this);
+        }
+    }
+
+    /**
+     * Record how many updates the game loop ran in this tick, ignored unless recording.
+     */
+    public void recordUpdateCount(int updateCount) {
+        if (mRecorder != null) {
+            mRecorder.recordUpdateCount(updateCount);
+        }
+    }
+
+    /**
+     * @return number of updates the replayed tick ran when it was recorded,
+     * InputReplayer.NO_UPDATE_COUNT if the tick isn't replayed
+     */
+    public int getReplayedUpdateCount() {
+        return mReplayedUpdateCount;
+    }
+
+    /**
+     * Take the events received since the tick started so the latest cursor position can be used
+     * just before the frame is submitted, see InputState.getLatchedCursorDeltaX.
+     * The events are kept in order and applied to the next tick as usual.
+     * GLFW events must have been polled first.
+     */
+    public void latch() {
+        if (mReplayer != null) {
+            return;
+        }
+
+        mEventQueue.drain(mLatchingListener);
+    }
+
+    private void latchEvent(
+            InputEventType type,
+            int code,
+            int action,
+            int mods,
+            double x,
+            double y,
+            long timeNanos
+    ) {
+        if (type == InputEventType.CURSOR_POSITION) {
+            mInputState.latchCursorPosition(x, y);
+        }
+
+        mNewestLatchedEventTimeNanos = Math.max(mNewestLatchedEventTimeNanos, timeNanos);
+        mLatchedEventQueue.offer(type, code, action, mods, x, y, timeNanos);
+    }
+
+    /**
+     * @return time of the newest event used by this frame, including latched events, 0 if there were none
+     */
+    public long getNewestInputTimeNanos() {
+        //replayed events have the times they were recorded at
+        if (mReplayer != null) {
+            return 0;
+        }
+
+        return Math.max(mInputState.getNewestEventTimeNanos(), mNewestLatchedEventTimeNanos);
+    }
+
+    @Override
+    public void onInputEvent(
+            InputEventType type,
+            int code,
+            int action,
+            int mods,
+            double x,
+            double y,
+            long timeNanos
+    ) {
+        mInputState.onInputEvent(type, code, action, mods, x, y, timeNanos);
+
+        if (mRecorder != null) {
+            mRecorder.onInputEvent(type, code, action, mods, x, y, timeNanos);
+        }
+    }
+
+    /**
+     * Record the input of every following tick to the file.
+     */
+    public void startRecording(String filePath) throws Exception {
+        stopRecording();
+
+        mRecorder = new InputRecorder(filePath);
+        //the recording's first tick is the next one
+        mRecordingStartTick = mTick;
+    }
+
+    public void stopRecording() {
+        if (mRecorder != null) {
+            mRecorder.cleanUp();
+            mRecorder = null;
+        }
+    }
+
+    /**
+     * Drive the following ticks with the recorded input instead of live input.
+     */
+    public void startReplay(String filePath) throws Exception {
+        mReplayer = new InputReplayer(filePath);
+        mReplayStartTick = mTick;
+        mInputState.reset();
+    }
+
+    public void stopReplay() {
+        mReplayer = null;
+    }
+
+    public boolean isRecording() {
+        return mRecorder != null;
+    }
+
+    public boolean isReplaying() {
+        return mReplayer != null;
+    }
+
+    public InputState getInputState() {
+        return mInputState;
+    }
+
+    public InputEventQueue getEventQueue() {
+        return mEventQueue;
+    }
+
+    public long getTick() {
+        return mTick;
+    }
+
+    @Override
+    public void cleanUp() {
+        stopRecording();
+        stopReplay();
+    }
+}
@@ -0,0 +1,123 @@
+package com.company.engine.input;
+
+import com.company.engine.IUsesResources;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class InputRecorder implements IInputEventListener, IUsesResources {
+
+    /**
+     * Writes the input events of each tick to a file so the session can be replayed
+     * by an InputReplayer.
+     *
+     * The file is a header followed by fixed size records, see RECORD_SIZE_BYTES.
+     * Events are recorded against the tick they were applied in rather than their time,
+     * so a replay gives every tick exactly the same input. The number of updates the game ran
+     * in each tick is recorded after the tick's events, the time between frames decides it
+     * live so a replay has to run the same number to play out the same.
+     */
+
+    static final int MAGIC = 0x494E5054; //"INPT"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE_BYTES = 4 + 4;
+    //tick, type, code, action, mods, x, y, time
+    static final int RECORD_SIZE_BYTES = 4 + 1 + 4 + 4 + 4 + 8 + 8 + 8;
+    static final byte UPDATE_COUNT_RECORD = -1; //type of a record holding the tick's update count as its code
+
+    private final String mFilePath;
+    private final DataOutputStream mOutputStream;
+
+    private long mTick;
+    private long mRecordedEventCount;
+    private boolean mFailed;
+
+    public InputRecorder(String filePath) throws Exception {
+        mFilePath = filePath;
+        mOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)));
+        mOutputStream.writeInt(MAGIC);
+        mOutputStream.writeInt(VERSION);
+    }
+
+    /**
+     * @param tick the tick the following events are applied in
+     */
+    public void setTick(long tick) {
+        mTick = tick;
+    }
+
+    @Override
+    public void onInputEvent(
+            InputEventType type,
+            int code,
+            int action,
+            int mods,
+            double x,
+            double y,
+            long timeNanos
+    ) {
+        if (mFailed) {
+            return;
+        }
+
+        try {
+            mOutputStream.writeInt((int) mTick);
+            mOutputStream.writeByte(type.ordinal());
+            mOutputStream.writeInt(code);
+            mOutputStream.writeInt(action);
+            mOutputStream.writeInt(mods);
+            mOutputStream.writeDouble(x);
+            mOutputStream.writeDouble(y);
+            mOutputStream.writeLong(timeNanos);
+            mRecordedEventCount++;
+        } catch (IOException e) {
+            //keep the game running, the recording ends here
+            mFailed = true;
+            System.err.println("Failed to record input to " + mFilePath);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param updateCount number of updates the game ran in the current tick
+     */
+    public void recordUpdateCount(int updateCount) {
+        if (mFailed) {
+            return;
+        }
+
+        try {
+            mOutputStream.writeInt((int) mTick);
+            mOutputStream.writeByte(UPDATE_COUNT_RECORD);
+            mOutputStream.writeInt(updateCount);
+            mOutputStream.writeInt(0);
+            mOutputStream.writeInt(0);
+            mOutputStream.writeDouble(0);
+            mOutputStream.writeDouble(0);
+            mOutputStream.writeLong(0);
+        } catch (IOException e) {
+            mFailed = true;
+            System.err.println("Failed to record input to " + mFilePath);
+            e.printStackTrace();
+        }
+    }
+
+    public String getFilePath() {
+        return mFilePath;
+    }
+
+    public long getRecordedEventCount() {
+        return mRecordedEventCount;
+    }
+
+    @Override
+    public void cleanUp() {
+        try {
+            mOutputStream.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
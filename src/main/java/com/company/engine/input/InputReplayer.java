@@ -0,0 +1,116 @@
+package com.company.engine.input;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class InputReplayer {
+
+    /**
+     * Plays back a file written by an InputRecorder, giving each tick the events that were
+     * recorded in it and the number of updates the game ran in it.
+     * The whole recording is read up front so replaying doesn't touch the disk.
+     */
+
+    public static final int NO_UPDATE_COUNT = -1;
+
+    private static final InputEventType[] EVENT_TYPES = InputEventType.values();
+
+    private final String mFilePath;
+    private final ByteBuffer mRecording;
+    private final int mRecordCount;
+    private final long mLastTick;
+
+    private int mUpdateCount;
+
+    public InputReplayer(String filePath) throws Exception {
+        mFilePath = filePath;
+        mRecording = ByteBuffer.wrap(Files.readAllBytes(Paths.get(filePath)));
+
+        if (mRecording.remaining() < InputRecorder.HEADER_SIZE_BYTES ||
+                mRecording.getInt() != InputRecorder.MAGIC) {
+            throw new Exception("Not an input recording: " + filePath);
+        }
+
+        int version = mRecording.getInt();
+
+        if (version != InputRecorder.VERSION) {
+            throw new Exception("Unsupported input recording version " + version + ": " + filePath);
+        }
+
+        //ignore a partly written last record
+        mRecordCount = mRecording.remaining() / InputRecorder.RECORD_SIZE_BYTES;
+        mLastTick = mRecordCount == 0 ? -1 : mRecording.getInt(
+                InputRecorder.HEADER_SIZE_BYTES + (mRecordCount - 1) * InputRecorder.RECORD_SIZE_BYTES
+        );
+        mUpdateCount = NO_UPDATE_COUNT;
+    }
+
+    /**
+     * Pass the events recorded in the tick to the listener, ticks must be replayed in order.
+     * Events of earlier ticks that were skipped are passed as well.
+     * @return number of events replayed
+     */
+    public int replay(long tick, IInputEventListener listener) {
+        int eventCount = 0;
+        int end = InputRecorder.HEADER_SIZE_BYTES + mRecordCount * InputRecorder.RECORD_SIZE_BYTES;
+
+        mUpdateCount = NO_UPDATE_COUNT;
+
+        while (mRecording.position() < end && mRecording.getInt(mRecording.position()) <= tick) {
+            mRecording.getInt(); //tick
+
+            byte type = mRecording.get();
+            int code = mRecording.getInt();
+            int action = mRecording.getInt();
+            int mods = mRecording.getInt();
+            double x = mRecording.getDouble();
+            double y = mRecording.getDouble();
+            long timeNanos = mRecording.getLong();
+
+            if (type == InputRecorder.UPDATE_COUNT_RECORD) {
+                mUpdateCount = code;
+                continue;
+            }
+
+            listener.onInputEvent(EVENT_TYPES[type], code, action, mods, x, y, timeNanos);
+            eventCount++;
+        }
+
+        return eventCount;
+    }
+
+    /**
+     * @return number of updates the game ran in the last replayed tick or NO_UPDATE_COUNT if it wasn't recorded
+     */
+    public int getUpdateCount() {
+        return mUpdateCount;
+    }
+
+    /**
+     * Start the recording again from the first tick.
+     */
+    public void rewind() {
+        mRecording.position(InputRecorder.HEADER_SIZE_BYTES);
+        mUpdateCount = NO_UPDATE_COUNT;
+    }
+
+    /**
+     * @return true once the last recorded tick has been replayed
+     */
+    public boolean isFinished(long tick) {
+        return tick >= mLastTick;
+    }
+
+    public String getFilePath() {
+        return mFilePath;
+    }
+
+    public int getRecordCount() {
+        return mRecordCount;
+    }
+
+    public long getLastTick() {
+        return mLastTick;
+    }
+}
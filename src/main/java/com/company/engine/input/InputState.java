@@ -0,0 +1,225 @@
+package com.company.engine.input;
+
+import java.util.Arrays;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+public class InputState implements IInputEventListener {
+
+    /**
+     * The keyboard and mouse state seen by one tick of the game loop.
+     *
+     * As well as which keys and buttons are down, the state keeps which went down or came up
+     * during the tick, so a key pressed and released between two ticks is still seen as pressed.
+     * Cursor movement and scrolling are accumulated over the tick.
+     */
+
+    private static final int KEY_COUNT = GLFW_KEY_LAST + 1;
+    private static final int MOUSE_BUTTON_COUNT = GLFW_MOUSE_BUTTON_LAST + 1;
+
+    private final boolean[] mKeysDown;
+    private final boolean[] mKeysPressed; //went down this tick
+    private final boolean[] mKeysReleased; //came up this tick
+    private final boolean[] mMouseButtonsDown;
+    private final boolean[] mMouseButtonsPressed;
+    private final boolean[] mMouseButtonsReleased;
+
+    private double mCursorX;
+    private double mCursorY;
+    private double mCursorDeltaX;
+    private double mCursorDeltaY;
+    private double mScrollX;
+    private double mScrollY;
+    private boolean mCursorPositionKnown;
+    private boolean mCursorInWindow;
+    private int mEventCount; //events applied this tick
+    private long mNewestEventTimeNanos; //time of the newest event applied this tick, 0 if there were none
+    private double mLatchedCursorX; //cursor position received after the tick started, see InputManager.latch
+    private double mLatchedCursorY;
+    private boolean mCursorLatched;
+
+    public InputState() {
+        mKeysDown = new boolean[KEY_COUNT];
+        mKeysPressed = new boolean[KEY_COUNT];
+        mKeysReleased = new boolean[KEY_COUNT];
+        mMouseButtonsDown = new boolean[MOUSE_BUTTON_COUNT];
+        mMouseButtonsPressed = new boolean[MOUSE_BUTTON_COUNT];
+        mMouseButtonsReleased = new boolean[MOUSE_BUTTON_COUNT];
+    }
+
+    /**
+     * Clear the edges and accumulated movement of the last tick, before the tick's events are applied.
+     */
+    public void beginTick() {
+        Arrays.fill(mKeysPressed, false);
+        Arrays.fill(mKeysReleased, false);
+        Arrays.fill(mMouseButtonsPressed, false);
+        Arrays.fill(mMouseButtonsReleased, false);
+
+        mCursorDeltaX = 0;
+        mCursorDeltaY = 0;
+        mScrollX = 0;
+        mScrollY = 0;
+        mEventCount = 0;
+        mNewestEventTimeNanos = 0;
+        mCursorLatched = false;
+    }
+
+    @Override
+    public void onInputEvent(
+            InputEventType type,
+            int code,
+            int action,
+            int mods,
+            double x,
+            double y,
+            long timeNanos
+    ) {
+        mEventCount++;
+        mNewestEventTimeNanos = Math.max(mNewestEventTimeNanos, timeNanos);
+
+        switch (type) {
+            case KEY:
+                applyButton(mKeysDown, mKeysPressed, mKeysReleased, code, action);
+                break;
+            case MOUSE_BUTTON:
+                applyButton(mMouseButtonsDown, mMouseButtonsPressed, mMouseButtonsReleased, code, action);
+                break;
+            case CURSOR_POSITION:
+                //the first position is where the cursor is, not a movement
+                if (mCursorPositionKnown) {
+                    mCursorDeltaX += x - mCursorX;
+                    mCursorDeltaY += y - mCursorY;
+                }
+
+                mCursorX = x;
+                mCursorY = y;
+                mCursorPositionKnown = true;
+                break;
+            case CURSOR_ENTER:
+                mCursorInWindow = action == GLFW_TRUE;
+                break;
+            case SCROLL:
+                mScrollX += x;
+                mScrollY += y;
+                break;
+        }
+    }
+
+    private static void applyButton(boolean[] down, boolean[] pressed, boolean[] released, int code, int action) {
+        //GLFW_KEY_UNKNOWN is -1
+        if (code < 0 || code >= down.length) {
+            return;
+        }
+
+        if (action == GLFW_PRESS) {
+            if (!down[code]) {
+                pressed[code] = true;
+            }
+
+            down[code] = true;
+        } else if (action == GLFW_RELEASE) {
+            if (down[code]) {
+                released[code] = true;
+            }
+
+            down[code] = false;
+        }
+    }
+
+    /**
+     * Release everything, used when a replay starts so live input doesn't leak into it.
+     */
+    public void reset() {
+        beginTick();
+        Arrays.fill(mKeysDown, false);
+        Arrays.fill(mMouseButtonsDown, false);
+        mCursorPositionKnown = false;
+    }
+
+    /**
+     * Remember where the cursor has moved to since the tick started without changing the tick's state.
+     */
+    public void latchCursorPosition(double x, double y) {
+        mLatchedCursorX = x;
+        mLatchedCursorY = y;
+        mCursorLatched = true;
+    }
+
+    /**
+     * @return cursor movement received after the tick's events, 0 if nothing was latched
+     */
+    public double getLatchedCursorDeltaX() {
+        return mCursorLatched && mCursorPositionKnown ? mLatchedCursorX - mCursorX : 0;
+    }
+
+    public double getLatchedCursorDeltaY() {
+        return mCursorLatched && mCursorPositionKnown ? mLatchedCursorY - mCursorY : 0;
+    }
+
+    public boolean isKeyDown(int key) {
+        return key >= 0 && key < KEY_COUNT && mKeysDown[key];
+    }
+
+    /**
+     * @return true if the key went down during this tick
+     */
+    public boolean isKeyPressed(int key) {
+        return key >= 0 && key < KEY_COUNT && mKeysPressed[key];
+    }
+
+    /**
+     * @return true if the key came up during this tick
+     */
+    public boolean isKeyReleased(int key) {
+        return key >= 0 && key < KEY_COUNT && mKeysReleased[key];
+    }
+
+    public boolean isMouseButtonDown(int button) {
+        return button >= 0 && button < MOUSE_BUTTON_COUNT && mMouseButtonsDown[button];
+    }
+
+    public boolean isMouseButtonPressed(int button) {
+        return button >= 0 && button < MOUSE_BUTTON_COUNT && mMouseButtonsPressed[button];
+    }
+
+    public boolean isMouseButtonReleased(int button) {
+        return button >= 0 && button < MOUSE_BUTTON_COUNT && mMouseButtonsReleased[button];
+    }
+
+    public double getCursorX() {
+        return mCursorX;
+    }
+
+    public double getCursorY() {
+        return mCursorY;
+    }
+
+    public double getCursorDeltaX() {
+        return mCursorDeltaX;
+    }
+
+    public double getCursorDeltaY() {
+        return mCursorDeltaY;
+    }
+
+    public double getScrollX() {
+        return mScrollX;
+    }
+
+    public double getScrollY() {
+        return mScrollY;
+    }
+
+    public boolean isCursorInWindow() {
+        return mCursorInWindow;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    public long getNewestEventTimeNanos() {
+        return mNewestEventTimeNanos;
+    }
+}
@@ -7,12 +7,15 @@ import static org.lwjgl.glfw.GLFW.*;
 public class KeyboardInput {
 
     /**
-     * NOT IMPLEMENTED SO THERE IS NO REASON TO USE THIS
+     * The keyboard as seen by the current tick, read from the InputManager's InputState.
      */
 
+    private final InputState mInputState;
+
     private boolean mAcceptingInput;
 
-    public KeyboardInput() {
+    public KeyboardInput(InputState inputState) {
+        mInputState = inputState;
         mAcceptingInput = true;
     }
 
@@ -24,10 +27,31 @@ public class KeyboardInput {
 
     }
 
+    /**
+     * Polls GLFW directly, prefer isKeyDown which reads the buffered state.
+     */
     public boolean isKeyPressed(long windowHandle, int key) {
         return glfwGetKey(windowHandle, key) == GLFW_PRESS;
     }
 
+    public boolean isKeyDown(int key) {
+        return mAcceptingInput && mInputState.isKeyDown(key);
+    }
+
+    /**
+     * @return true if the key went down this tick
+     */
+    public boolean isKeyJustPressed(int key) {
+        return mAcceptingInput && mInputState.isKeyPressed(key);
+    }
+
+    /**
+     * @return true if the key came up this tick
+     */
+    public boolean isKeyJustReleased(int key) {
+        return mAcceptingInput && mInputState.isKeyReleased(key);
+    }
+
     public void setAcceptingInput(boolean acceptingInput) {
         mAcceptingInput = acceptingInput;
     }
@@ -35,4 +59,4 @@ public class KeyboardInput {
     public boolean isAcceptingInput() {
         return mAcceptingInput;
     }
-}
\ No newline at end of file
+}
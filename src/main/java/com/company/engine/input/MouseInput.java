@@ -8,45 +8,66 @@ import static org.lwjgl.glfw.GLFW.*;
 
 public class MouseInput {
 
+    private final InputState mInputState;
     private final Vector2d mPreviousPosition;
     private final Vector2d mCurrentPosition;
     private final Vector2f mDisplayVector;
+    private final Vector2f mLatchedDisplayVector;
 
     private boolean mAcceptingInput;
     private boolean mInWindow;
     private boolean mLeftBtnPressed;
     private boolean mRightBtnPressed;
 
-    public MouseInput() {
+    public MouseInput(InputState inputState) {
+        mInputState = inputState;
         mAcceptingInput = true;
         mPreviousPosition = new Vector2d(-1, -1);
         mCurrentPosition = new Vector2d(0, 0);
         mDisplayVector = new Vector2f();
+        mLatchedDisplayVector = new Vector2f();
         mInWindow = false;
         mLeftBtnPressed = false;
         mRightBtnPressed = false;
     }
 
     public void init(Window window) {
-        setUpInputCallbacks(window);
-    }
 
-    private void setUpInputCallbacks(Window window) {
-        glfwSetMouseButtonCallback(window.getWindowHandle(), (windowHandle, button, action, mods) -> {
-            mLeftBtnPressed = button == GLFW_MOUSE_BUTTON_1 && action == GLFW_PRESS;
-            mRightBtnPressed = button == GLFW_MOUSE_BUTTON_2 && action == GLFW_PRESS;
-        });
-        glfwSetCursorEnterCallback(window.getWindowHandle(), (windowHandle, entered) -> {
-            mInWindow = entered;
-        });
-        glfwSetCursorPosCallback(window.getWindowHandle(), (windowHandle, posX, posY) -> {
-            mCurrentPosition.x = posX;
-            mCurrentPosition.y = posY;
-        });
     }
 
+    /**
+     * Copy the mouse state of this tick from the InputState,
+     * the GLFW callbacks are owned by the InputManager.
+     */
     public void input(Window window) {
+        mPreviousPosition.set(mCurrentPosition);
+        mCurrentPosition.set(mInputState.getCursorX(), mInputState.getCursorY());
+        mInWindow = mInputState.isCursorInWindow();
+        mLatchedDisplayVector.zero();
+
+        if (mAcceptingInput) {
+            //moving the mouse vertically rotates around the x axis
+            mDisplayVector.x = (float) mInputState.getCursorDeltaY();
+            mDisplayVector.y = (float) mInputState.getCursorDeltaX();
+            mLeftBtnPressed = mInputState.isMouseButtonDown(GLFW_MOUSE_BUTTON_1);
+            mRightBtnPressed = mInputState.isMouseButtonDown(GLFW_MOUSE_BUTTON_2);
+        } else {
+            mDisplayVector.zero();
+            mLeftBtnPressed = false;
+            mRightBtnPressed = false;
+        }
+    }
 
+    /**
+     * Read the cursor movement received after this tick's input, see InputManager.latch.
+     */
+    public void latch() {
+        if (mAcceptingInput) {
+            mLatchedDisplayVector.x = (float) mInputState.getLatchedCursorDeltaY();
+            mLatchedDisplayVector.y = (float) mInputState.getLatchedCursorDeltaX();
+        } else {
+            mLatchedDisplayVector.zero();
+        }
     }
 
     public Vector2d getPreviousPosition() {
@@ -61,6 +82,13 @@ public class MouseInput {
         return mDisplayVector;
     }
 
+    /**
+     * @return movement since getDisplayVector was read, in the same axes
+     */
+    public Vector2f getLatchedDisplayVector() {
+        return mLatchedDisplayVector;
+    }
+
     public boolean isInWindow() {
         return mInWindow;
     }
@@ -77,6 +105,14 @@ public class MouseInput {
         return mRightBtnPressed;
     }
 
+    public double getScrollX() {
+        return mAcceptingInput ? mInputState.getScrollX() : 0;
+    }
+
+    public double getScrollY() {
+        return mAcceptingInput ? mInputState.getScrollY() : 0;
+    }
+
     public boolean isAcceptingInput() {
         return mAcceptingInput;
     }
@@ -0,0 +1,406 @@
+package com.company.engine.loaders;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.audio.AudioBuffer;
+import com.company.engine.audio.AudioBufferCache;
+import com.company.engine.audio.PcmCache;
+import com.company.engine.audio.PcmData;
+import com.company.engine.graph.material.ImageData;
+import com.company.engine.graph.material.Material;
+import com.company.engine.graph.material.MipLevelData;
+import com.company.engine.graph.material.Texture;
+import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.graph.mesh.MeshType;
+import com.company.engine.loaders.assimp.StaticMeshesLoader;
+import com.company.engine.loaders.assimp.TextureCache;
+import com.company.engine.utils.MeshUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AssetManager implements IUsesResources {
+
+    /**
+     * Loads models, textures and audio without blocking the game loop.
+     *
+     * Files are read, parsed and decoded on a pool of worker threads, only the creation of
+     * OpenGL/OpenAL objects is queued for the game loop thread, which runs the queue for
+     * a limited time each frame (see processUploads).
+     *
+     * Every load returns a CompletableFuture that is completed on the game loop thread,
+     * so callbacks chained with thenAccept can add the asset to the Scene straight away.
+     */
+
+    public static final long DEFAULT_UPLOAD_TIME_SLICE_NANOS = 4L * 1000 * 1000;
+
+    private static AssetManager INSTANCE;
+
+    private final Queue<Runnable> mUploadQueue;
+    private final Map<String, CompletableFuture<Texture>> mTextureFutureMap;
+    private final Map<String, CompletableFuture<AudioBuffer>> mAudioBufferFutureMap;
+    private final AtomicInteger mRequestedCount;
+    private final AtomicInteger mCompletedCount;
+
+    private ExecutorService mWorkerPool;
+    private long mUploadTimeSliceNanos;
+
+    private AssetManager() {
+        mUploadQueue = new ConcurrentLinkedQueue<>();
+        mTextureFutureMap = new ConcurrentHashMap<>();
+        mAudioBufferFutureMap = new ConcurrentHashMap<>();
+        mRequestedCount = new AtomicInteger();
+        mCompletedCount = new AtomicInteger();
+        mUploadTimeSliceNanos = DEFAULT_UPLOAD_TIME_SLICE_NANOS;
+    }
+
+    public static synchronized AssetManager getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new AssetManager();
+        }
+
+        return INSTANCE;
+    }
+
+    public CompletableFuture<Mesh[]> loadMeshes(
+            String filePath,
+            String texturesDirectory,
+            int instances,
+            MeshType meshType
+    ) {
+        return loadMeshes(
+                filePath,
+                texturesDirectory,
+                StaticMeshesLoader.DEFAULT_IMPORT_FLAGS,
+                instances,
+                meshType
+        );
+    }
+
+    /**
+     * Import a model and the textures used by its materials.
+     */
+    public CompletableFuture<Mesh[]> loadMeshes(
+            String filePath,
+            String texturesDirectory,
+            int flags,
+            int instances,
+            MeshType meshType
+    ) {
+        CompletableFuture<Mesh[]> future = createFuture();
+
+        submit(future, () -> {
+            ModelData modelData = StaticMeshesLoader.loadModelData(filePath, flags);
+            List<String> texturePathList = StaticMeshesLoader.getTexturePaths(modelData);
+            CompletableFuture<?>[] textureFutures = new CompletableFuture<?>[texturePathList.size()];
+
+            for (int i = 0; i < textureFutures.length; i++) {
+                textureFutures[i] = loadTexture(texturesDirectory + "/" + texturePathList.get(i));
+            }
+
+            //the Materials can only be created once every texture is in the TextureCache
+            CompletableFuture.allOf(textureFutures).whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    modelData.cleanUp();
+                    future.completeExceptionally(throwable);
+                    return;
+                }
+
+                queueUpload(future, () -> {
+                    try {
+                        return StaticMeshesLoader.createMeshes(modelData, texturesDirectory, instances, meshType);
+                    } finally {
+                        modelData.cleanUp();
+                    }
+                });
+            });
+        });
+
+        return future;
+    }
+
+    /**
+     * Import a model, using the given Material for every Mesh.
+     */
+    public CompletableFuture<Mesh[]> loadMeshes(
+            String filePath,
+            Material material,
+            int instances,
+            MeshType meshType
+    ) {
+        CompletableFuture<Mesh[]> future = createFuture();
+
+        submit(future, () -> {
+            ModelData modelData = StaticMeshesLoader.loadModelData(filePath, StaticMeshesLoader.DEFAULT_IMPORT_FLAGS);
+
+            queueUpload(future, () -> {
+                try {
+                    return StaticMeshesLoader.createMeshes(modelData, material, instances, meshType);
+                } finally {
+                    modelData.cleanUp();
+                }
+            });
+        });
+
+        return future;
+    }
+
+    public CompletableFuture<Mesh> loadObjMesh(
+            String fileName,
+            int instances,
+            MeshType meshType
+    ) {
+        CompletableFuture<Mesh> future = createFuture();
+
+        submit(future, () -> {
+            ModelData modelData = ObjLoader.loadModelData(fileName);
+
+            queueUpload(future, () -> {
+                try {
+                    return MeshUtils.createMeshByType(modelData.getMeshDataArray()[0], instances, meshType);
+                } finally {
+                    modelData.cleanUp();
+                }
+            });
+        });
+
+        return future;
+    }
+
+    /**
+     * Load a texture into the TextureCache. Loading the same path more than once
+     * returns the same future, textures already in the TextureCache are not reloaded.
+     * A load that failed is tried again the next time the path is loaded.
+     */
+    public CompletableFuture<Texture> loadTexture(String filePath) {
+        return mTextureFutureMap.computeIfAbsent(filePath, key -> {
+            CompletableFuture<Texture> future = createFuture();
+
+            forgetOnFailure(mTextureFutureMap, filePath, future);
+
+            submit(future, () -> {
+                if (TextureCache.getInstance().containsTexture(filePath)) {
+                    queueUpload(future, () -> TextureCache.getInstance().getTexture(filePath));
+                    return;
+                }
+
+                ImageData imageData = new ImageData(filePath);
+
+                queueUpload(future, () -> {
+                    try {
+                        return TextureCache.getInstance().addTexture(filePath, new Texture(imageData));
+                    } finally {
+                        imageData.cleanUp();
+                    }
+                });
+            });
+
+            return future;
+        });
+    }
+
+    /**
+     * Decode and resize mip levels of a streamed texture's source image.
+     * Only the OpenGL upload is left for the game loop thread, the caller owns the MipLevelData.
+     * Streaming is not counted in the load progress, it carries on for as long as the scene is drawn.
+     * The future completes in processUploads on the game loop thread, whether the load succeeds or fails.
+     */
+    public CompletableFuture<MipLevelData> loadMipLevels(String filePath, int firstLevel, int endLevel) {
+        CompletableFuture<MipLevelData> future = new CompletableFuture<>();
+
+        submit(future, () -> {
+            MipLevelData mipLevelData;
+
+            try {
+                mipLevelData = new MipLevelData(filePath, firstLevel, endLevel);
+            } catch (Throwable throwable) {
+                //fail on the game loop thread too, the callbacks change the texture and its streamer
+                queueFailure(future, throwable);
+                return;
+            }
+
+            queueUpload(future, () -> mipLevelData);
+        });
+
+        return future;
+    }
+
+    /**
+     * Load a sound file into the AudioBufferCache. Loading the same path more than once
+     * returns the same future, files are decoded in parallel on the worker threads
+     * or read from the PcmCache if it is enabled.
+     * A load that failed is tried again the next time the file is loaded.
+     */
+    public CompletableFuture<AudioBuffer> loadAudioBuffer(String fileName) {
+        return mAudioBufferFutureMap.computeIfAbsent(fileName, key -> {
+            CompletableFuture<AudioBuffer> future = createFuture();
+
+            forgetOnFailure(mAudioBufferFutureMap, fileName, future);
+
+            submit(future, () -> {
+                AudioBuffer cachedAudioBuffer = AudioBufferCache.getInstance().findAudioBuffer(fileName);
+
+                if (cachedAudioBuffer != null) {
+                    queueUpload(future, () -> cachedAudioBuffer);
+                    return;
+                }
+
+                PcmData pcmData = PcmCache.getInstance().loadPcmData(fileName);
+
+                queueUpload(future, () -> AudioBufferCache.getInstance().addAudioBuffer(
+                        fileName,
+                        new AudioBuffer(pcmData)
+                ));
+            });
+
+            return future;
+        });
+    }
+
+    /**
+     * Create the OpenGL/OpenAL objects of finished loads until the time slice is used up.
+     * Must be called on the game loop thread, at least one upload is done per call.
+     */
+    public void processUploads() {
+        long startTime = System.nanoTime();
+        Runnable upload;
+
+        while ((upload = mUploadQueue.poll()) != null) {
+            upload.run();
+
+            if (System.nanoTime() - startTime >= mUploadTimeSliceNanos) {
+                break;
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> createFuture() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        mRequestedCount.incrementAndGet();
+        future.whenComplete((result, throwable) -> mCompletedCount.incrementAndGet());
+
+        return future;
+    }
+
+    /**
+     * Remove a failed load from the future map, must be called before the load is submitted.
+     */
+    private static <T> void forgetOnFailure(
+            Map<String, CompletableFuture<T>> futureMap,
+            String filePath,
+            CompletableFuture<T> future
+    ) {
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                futureMap.remove(filePath, future);
+            }
+        });
+    }
+
+    private synchronized ExecutorService getWorkerPool() {
+        if (mWorkerPool == null) {
+            //leave a core for the game loop thread
+            int workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            AtomicInteger workerNumber = new AtomicInteger();
+
+            mWorkerPool = Executors.newFixedThreadPool(workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "ASSET_WORKER_THREAD_" + workerNumber.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        return mWorkerPool;
+    }
+
+    private void submit(CompletableFuture<?> future, WorkerTask workerTask) {
+        getWorkerPool().execute(() -> {
+            try {
+                workerTask.run();
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    private <T> void queueUpload(CompletableFuture<T> future, UploadTask<T> uploadTask) {
+        mUploadQueue.add(() -> {
+            try {
+                future.complete(uploadTask.run());
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    private void queueFailure(CompletableFuture<?> future, Throwable throwable) {
+        mUploadQueue.add(() -> future.completeExceptionally(throwable));
+    }
+
+    /**
+     * @return number of loads that have been requested
+     */
+    public int getRequestedCount() {
+        return mRequestedCount.get();
+    }
+
+    /**
+     * @return number of loads that have finished, successfully or not
+     */
+    public int getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    /**
+     * @return fraction of the requested loads that have finished, between 0 and 1
+     */
+    public float getProgress() {
+        int requestedCount = mRequestedCount.get();
+
+        return requestedCount > 0 ? (float) mCompletedCount.get() / requestedCount : 1.0f;
+    }
+
+    public boolean isIdle() {
+        return mCompletedCount.get() >= mRequestedCount.get();
+    }
+
+    public void setUploadTimeSliceNanos(long uploadTimeSliceNanos) {
+        mUploadTimeSliceNanos = uploadTimeSliceNanos;
+    }
+
+    public long getUploadTimeSliceNanos() {
+        return mUploadTimeSliceNanos;
+    }
+
+    @Override
+    public void cleanUp() {
+        synchronized (this) {
+            if (mWorkerPool != null) {
+                mWorkerPool.shutdownNow();
+                mWorkerPool = null;
+            }
+        }
+
+        mUploadQueue.clear();
+        mTextureFutureMap.clear();
+        mAudioBufferFutureMap.clear();
+
+        INSTANCE = null;
+    }
+
+    private interface WorkerTask {
+        void run() throws Exception;
+    }
+
+    private interface UploadTask<T> {
+        T run() throws Exception;
+    }
+}
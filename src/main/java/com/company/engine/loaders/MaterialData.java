@@ -0,0 +1,58 @@
+package com.company.engine.loaders;
+
+import org.joml.Vector4f;
+
+public class MaterialData {
+
+    /**
+     * The values needed to create a Material, without creating any textures.
+     * Textures are stored as paths relative to the textures directory the model is loaded with.
+     */
+
+    private final Vector4f mAmbientColour;
+    private final Vector4f mDiffuseColour;
+    private final Vector4f mSpecularColour;
+    private final float mReflectance;
+    private final String mTexturePath;
+    private final String mNormalMapPath;
+
+    public MaterialData(
+            Vector4f ambientColour,
+            Vector4f diffuseColour,
+            Vector4f specularColour,
+            float reflectance,
+            String texturePath,
+            String normalMapPath
+    ) {
+        mAmbientColour = ambientColour;
+        mDiffuseColour = diffuseColour;
+        mSpecularColour = specularColour;
+        mReflectance = reflectance;
+        mTexturePath = texturePath;
+        mNormalMapPath = normalMapPath;
+    }
+
+    public Vector4f getAmbientColour() {
+        return mAmbientColour;
+    }
+
+    public Vector4f getDiffuseColour() {
+        return mDiffuseColour;
+    }
+
+    public Vector4f getSpecularColour() {
+        return mSpecularColour;
+    }
+
+    public float getReflectance() {
+        return mReflectance;
+    }
+
+    public String getTexturePath() {
+        return mTexturePath;
+    }
+
+    public String getNormalMapPath() {
+        return mNormalMapPath;
+    }
+}
@@ -0,0 +1,412 @@
+package com.company.engine.loaders;
+
+import com.company.engine.graph.mesh.MeshData;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
+import com.company.engine.utils.CacheUtils;
+import org.joml.Vector4f;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class MeshCache {
+
+    /**
+     * Stores the processed vertex and index data of imported models on disk
+     * so later loads can skip importing, welding and optimising the model.
+     *
+     * A cache file is named after a hash of the source path and the import flags. Its header holds
+     * the format version, the source path, the files the model was made from besides the source
+     * (e.g. OBJ material libraries) and a hash of all of their content, so a file that no longer
+     * matches its sources is ignored and overwritten by the next import.
+     *
+     * Cache files are memory mapped when loaded and the Meshes are uploaded straight from the mapping.
+     */
+
+    public static final long NO_CONTENT_HASH = CacheUtils.NO_CONTENT_HASH;
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x4C4D5348; //"LMSH", read back differently if the byte order changed
+    private static final int FIXED_HEADER_SIZE_BYTES = 4 * 4 + 8 + 4 * 2; //followed by the source and dependency paths
+    private static final int NO_DATA = -1;
+    private static final String FILE_EXTENSION = ".meshcache";
+    private static final Path DEFAULT_CACHE_DIRECTORY = Paths.get("cache", "meshes");
+
+    private static MeshCache INSTANCE;
+
+    private Path mCacheDirectory;
+    private boolean mEnabled;
+
+    private MeshCache() {
+        mCacheDirectory = DEFAULT_CACHE_DIRECTORY;
+        mEnabled = true;
+    }
+
+    public static synchronized MeshCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new MeshCache();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * @param fileName the file system path or resource name of the source file
+     * @return hash of the source's content or NO_CONTENT_HASH if it can not be read
+     */
+    public long calculateContentHash(String fileName) {
+        if (!mEnabled) {
+            return NO_CONTENT_HASH;
+        }
+
+        return CacheUtils.calculateContentHash(fileName);
+    }
+
+    /**
+     * @param source the content of the source file, its position is not changed
+     * @return hash of the source's content
+     */
+    public long calculateContentHash(ByteBuffer source) {
+        return CacheUtils.calculateContentHash(source);
+    }
+
+    /**
+     * @param sourceHash hash of the source file's content, the dependencies named in the cache file are hashed here
+     * @return the cached model or null if there is no up to date cache file
+     */
+    public ModelData load(String sourcePath, int importFlags, long sourceHash) {
+        if (!mEnabled || sourceHash == NO_CONTENT_HASH) {
+            return null;
+        }
+
+        Path cachePath = getCachePath(sourcePath, importFlags);
+
+        if (!Files.isReadable(cachePath)) {
+            return null;
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            //check the header before mapping, a stale file can then be replaced straight away
+            ByteBuffer header = CacheUtils.readHeader(fileChannel, 0, FIXED_HEADER_SIZE_BYTES);
+
+            if (header == null ||
+                    header.getInt() != MAGIC ||
+                    header.getInt() != FORMAT_VERSION ||
+                    header.getInt() != importFlags) {
+                return null;
+            }
+
+            int headerSizeBytes = header.getInt();
+            long contentHash = header.getLong();
+            MaterialData[] materials = new MaterialData[header.getInt()];
+            MeshData[] meshDataArray = new MeshData[header.getInt()];
+
+            if (headerSizeBytes < FIXED_HEADER_SIZE_BYTES || headerSizeBytes > fileChannel.size()) {
+                return null;
+            }
+
+            ByteBuffer pathHeader = CacheUtils.readHeader(
+                    fileChannel,
+                    FIXED_HEADER_SIZE_BYTES,
+                    headerSizeBytes - FIXED_HEADER_SIZE_BYTES
+            );
+
+            //another source whose name hashed to the same file, or a source that has changed
+            if (pathHeader == null ||
+                    !CacheUtils.normalisePath(sourcePath).equals(CacheUtils.readString(pathHeader)) ||
+                    CacheUtils.calculateContentHash(sourceHash, readDependencyPaths(pathHeader)) != contentHash) {
+                return null;
+            }
+
+            ByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.position(headerSizeBytes);
+
+            for (int i = 0; i < materials.length; i++) {
+                materials[i] = readMaterial(buffer);
+            }
+
+            for (int i = 0; i < meshDataArray.length; i++) {
+                meshDataArray[i] = readMeshData(buffer);
+            }
+
+            return new ModelData(meshDataArray, materials);
+        } catch (Exception e) {
+            //a damaged cache file is treated the same as a missing one
+            System.err.println("MeshCache: unable to read " + cachePath + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the processed model of a source that doesn't read any other files to the cache.
+     */
+    public void save(
+            String sourcePath,
+            int importFlags,
+            long sourceHash,
+            ModelData modelData
+    ) {
+        save(sourcePath, importFlags, sourceHash, Collections.emptyList(), modelData);
+    }
+
+    /**
+     * Write the processed model to the cache, failures are reported but not thrown
+     * as the model has already been loaded.
+     *
+     * @param dependencyPaths files the model was made from besides the source, the cache file
+     *                        is ignored when any of them change
+     */
+    public void save(
+            String sourcePath,
+            int importFlags,
+            long sourceHash,
+            List<String> dependencyPaths,
+            ModelData modelData
+    ) {
+        if (!mEnabled || sourceHash == NO_CONTENT_HASH) {
+            return;
+        }
+
+        MeshData[] meshDataArray = modelData.getMeshDataArray();
+        MaterialData[] materials = modelData.getMaterials();
+        String normalisedSourcePath = CacheUtils.normalisePath(sourcePath);
+
+        Path cachePath = getCachePath(sourcePath, importFlags);
+        ByteBuffer buffer = null;
+
+        try {
+            int headerSizeBytes = FIXED_HEADER_SIZE_BYTES + CacheUtils.calculateStringSize(normalisedSourcePath) + 4;
+
+            for (String dependencyPath : dependencyPaths) {
+                headerSizeBytes += CacheUtils.calculateStringSize(dependencyPath);
+            }
+
+            int sizeBytes = headerSizeBytes;
+
+            for (MaterialData material : materials) {
+                sizeBytes += calculateMaterialSize(material);
+            }
+
+            for (MeshData meshData : meshDataArray) {
+                sizeBytes += calculateMeshDataSize(meshData);
+            }
+
+            buffer = NativeMemory.memAlloc(sizeBytes, MemoryCategory.CACHE).order(ByteOrder.nativeOrder());
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.putInt(importFlags);
+            buffer.putInt(headerSizeBytes);
+            buffer.putLong(CacheUtils.calculateContentHash(sourceHash, dependencyPaths));
+            buffer.putInt(materials.length);
+            buffer.putInt(meshDataArray.length);
+            CacheUtils.writeString(buffer, normalisedSourcePath);
+            buffer.putInt(dependencyPaths.size());
+
+            for (String dependencyPath : dependencyPaths) {
+                CacheUtils.writeString(buffer, dependencyPath);
+            }
+
+            for (MaterialData material : materials) {
+                writeMaterial(buffer, material);
+            }
+
+            for (MeshData meshData : meshDataArray) {
+                writeMeshData(buffer, meshData);
+            }
+
+            buffer.flip();
+
+            //write to a temporary file first so a partly written file is never read
+            Files.createDirectories(mCacheDirectory);
+            Path tempPath = Files.createTempFile(mCacheDirectory, "mesh", ".tmp");
+
+            try (FileChannel fileChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
+            }
+
+            Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("MeshCache: unable to write " + cachePath + " - " + e.getMessage());
+        } finally {
+            NativeMemory.memFree(buffer);
+        }
+    }
+
+    private Path getCachePath(String sourcePath, int importFlags) {
+        return mCacheDirectory.resolve(CacheUtils.getCacheFileName(
+                sourcePath,
+                "_" + Integer.toHexString(importFlags) + FILE_EXTENSION
+        ));
+    }
+
+    private static List<String> readDependencyPaths(ByteBuffer pathHeader) {
+        int dependencyCount = pathHeader.getInt();
+        List<String> dependencyPathList = new ArrayList<>();
+
+        for (int i = 0; i < dependencyCount; i++) {
+            dependencyPathList.add(CacheUtils.readString(pathHeader));
+        }
+
+        return dependencyPathList;
+    }
+
+    private static int calculateMaterialSize(MaterialData material) {
+        return 4 * 4 * 3 + 4 +
+                CacheUtils.calculateStringSize(material.getTexturePath()) +
+                CacheUtils.calculateStringSize(material.getNormalMapPath());
+    }
+
+    private static int calculateMeshDataSize(MeshData meshData) {
+        int size = CacheUtils.calculateStringSize(meshData.getName()) + 4 * 5;
+
+        size += meshData.getPositionBuffer().remaining() * 4;
+        size += meshData.getTextCoordBuffer() != null ? meshData.getTextCoordBuffer().remaining() * 4 : 0;
+        size += meshData.getNormalBuffer() != null ? meshData.getNormalBuffer().remaining() * 4 : 0;
+        size += meshData.getIndexBuffer().remaining() * 4;
+
+        return size;
+    }
+
+    private static void writeVector4f(ByteBuffer buffer, Vector4f vector) {
+        buffer.putFloat(vector.x);
+        buffer.putFloat(vector.y);
+        buffer.putFloat(vector.z);
+        buffer.putFloat(vector.w);
+    }
+
+    private static Vector4f readVector4f(ByteBuffer buffer) {
+        return new Vector4f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+    }
+
+    private static void writeMaterial(ByteBuffer buffer, MaterialData material) {
+        writeVector4f(buffer, material.getAmbientColour());
+        writeVector4f(buffer, material.getDiffuseColour());
+        writeVector4f(buffer, material.getSpecularColour());
+        buffer.putFloat(material.getReflectance());
+        CacheUtils.writeString(buffer, material.getTexturePath());
+        CacheUtils.writeString(buffer, material.getNormalMapPath());
+    }
+
+    private static MaterialData readMaterial(ByteBuffer buffer) {
+        Vector4f ambientColour = readVector4f(buffer);
+        Vector4f diffuseColour = readVector4f(buffer);
+        Vector4f specularColour = readVector4f(buffer);
+        float reflectance = buffer.getFloat();
+        String texturePath = CacheUtils.readString(buffer);
+        String normalMapPath = CacheUtils.readString(buffer);
+
+        return new MaterialData(
+                ambientColour,
+                diffuseColour,
+                specularColour,
+                reflectance,
+                texturePath,
+                normalMapPath
+        );
+    }
+
+    private static void writeMeshData(ByteBuffer buffer, MeshData meshData) {
+        FloatBuffer textCoordBuffer = meshData.getTextCoordBuffer();
+        FloatBuffer normalBuffer = meshData.getNormalBuffer();
+
+        CacheUtils.writeString(buffer, meshData.getName());
+        buffer.putInt(meshData.getMaterialIndex());
+        buffer.putInt(meshData.getPositionBuffer().remaining());
+        buffer.putInt(textCoordBuffer != null ? textCoordBuffer.remaining() : NO_DATA);
+        buffer.putInt(normalBuffer != null ? normalBuffer.remaining() : NO_DATA);
+        buffer.putInt(meshData.getIndexBuffer().remaining());
+
+        writeFloatBuffer(buffer, meshData.getPositionBuffer());
+        writeFloatBuffer(buffer, textCoordBuffer);
+        writeFloatBuffer(buffer, normalBuffer);
+
+        IntBuffer target = buffer.asIntBuffer();
+        target.put(meshData.getIndexBuffer().duplicate());
+        buffer.position(buffer.position() + meshData.getIndexBuffer().remaining() * 4);
+    }
+
+    private static void writeFloatBuffer(ByteBuffer buffer, FloatBuffer source) {
+        if (source == null) {
+            return;
+        }
+
+        FloatBuffer target = buffer.asFloatBuffer();
+        target.put(source.duplicate());
+        buffer.position(buffer.position() + source.remaining() * 4);
+    }
+
+    private static MeshData readMeshData(ByteBuffer buffer) {
+        String name = CacheUtils.readString(buffer);
+        int materialIndex = buffer.getInt();
+        int positionCount = buffer.getInt();
+        int textCoordCount = buffer.getInt();
+        int normalCount = buffer.getInt();
+        int indexCount = buffer.getInt();
+
+        FloatBuffer positionBuffer = readFloatBuffer(buffer, positionCount);
+        FloatBuffer textCoordBuffer = readFloatBuffer(buffer, textCoordCount);
+        FloatBuffer normalBuffer = readFloatBuffer(buffer, normalCount);
+
+        ByteBuffer slice = buffer.slice().order(ByteOrder.nativeOrder());
+        slice.limit(indexCount * 4);
+        buffer.position(buffer.position() + indexCount * 4);
+
+        MeshData meshData = new MeshData(
+                name,
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                slice.asIntBuffer(),
+                false
+        );
+        meshData.setMaterialIndex(materialIndex);
+
+        return meshData;
+    }
+
+    /**
+     * @return a view of the mapped file, no data is copied
+     */
+    private static FloatBuffer readFloatBuffer(ByteBuffer buffer, int count) {
+        if (count == NO_DATA) {
+            return null;
+        }
+
+        ByteBuffer slice = buffer.slice().order(ByteOrder.nativeOrder());
+        slice.limit(count * 4);
+        buffer.position(buffer.position() + count * 4);
+
+        return slice.asFloatBuffer();
+    }
+
+    public void setCacheDirectory(Path cacheDirectory) {
+        mCacheDirectory = cacheDirectory;
+    }
+
+    public Path getCacheDirectory() {
+        return mCacheDirectory;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+}
@@ -0,0 +1,37 @@
+package com.company.engine.loaders;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.graph.mesh.MeshData;
+
+public class ModelData implements IUsesResources {
+
+    /**
+     * Everything loaded from a model file before any OpenGL objects are created,
+     * so it can be produced on any thread.
+     */
+
+    private final MeshData[] mMeshDataArray;
+    private final MaterialData[] mMaterials;
+
+    public ModelData(MeshData[] meshDataArray, MaterialData[] materials) {
+        mMeshDataArray = meshDataArray;
+        mMaterials = materials;
+    }
+
+    @Override
+    public void cleanUp() {
+        for (MeshData meshData : mMeshDataArray) {
+            if (meshData != null) {
+                meshData.cleanUp();
+            }
+        }
+    }
+
+    public MeshData[] getMeshDataArray() {
+        return mMeshDataArray;
+    }
+
+    public MaterialData[] getMaterials() {
+        return mMaterials;
+    }
+}
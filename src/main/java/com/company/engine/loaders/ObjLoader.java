@@ -1,18 +1,20 @@
 package com.company.engine.loaders;
 
-import com.company.engine.utils.ArrayUtils;
 import com.company.engine.utils.FileUtils;
+import com.company.engine.utils.GrowableFloatArray;
 import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.graph.mesh.MeshData;
+import com.company.engine.graph.mesh.MeshOptimiser;
 import com.company.engine.graph.mesh.MeshType;
 import com.company.engine.utils.MeshUtils;
-import org.joml.Vector2f;
-import org.joml.Vector3f;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class ObjLoader {
 
+    private static final int CACHE_IMPORT_FLAGS = 0; //OBJ files are always imported the same way
+
     public static Mesh loadMesh(String fileName, MeshType meshType) throws Exception {
         return loadMesh(fileName, 1, meshType);
     }
@@ -23,201 +25,200 @@ public class ObjLoader {
             throw new Exception("Mesh type must be instanced if instance count is greater that 1");
         }
 
-        List<String> lines = FileUtils.readAllLines(fileName);
-
-        List<Vector3f> positionsList = new ArrayList<>();
-        List<Vector2f> textCoordsList = new ArrayList<>();
-        List<Vector3f> normalsList = new ArrayList<>();
-        List<Face> facesList = new ArrayList<>();
-
-        for (String line : lines) {
-            String[] tokens = line.split("\\s+");
-
-            switch(tokens[0]) {
-                case "v":
-                    //geometric vertex
-                    Vector3f geoVec3f = new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3])
-                    );
-                    positionsList.add(geoVec3f);
-                break;
-                case "vt":
-                    //texture coordinate
-                    Vector2f textVec2f = new Vector2f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2])
-                    );
-                    textCoordsList.add(textVec2f);
-                break;
-                case "vn":
-                    //vector normal
-                    Vector3f normVec3f = new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3])
-                    );
-                    normalsList.add(normVec3f);
-                break;
-                case "f":
-                    //face
-                    Face face = new Face(
-                            tokens[1],
-                            tokens[2],
-                            tokens[3]
-                    );
-                    facesList.add(face);
-                break;
-            }
+        ModelData modelData = loadModelData(fileName);
+
+        try {
+            return MeshUtils.createMeshByType(modelData.getMeshDataArray()[0], instances, meshType);
+        } finally {
+            modelData.cleanUp();
         }
+    }
 
-        return reorderMeshLists(
-                positionsList,
-                textCoordsList,
-                normalsList,
-                facesList,
-                instances,
-                meshType
-        );
+    /**
+     * Parse the OBJ file, or read it from the MeshCache, without creating any OpenGL objects.
+     * Safe to call from any thread.
+     *
+     * @return a model holding the single mesh, must be cleaned up once the Mesh is created
+     */
+    public static ModelData loadModelData(String fileName) throws Exception {
+        ByteBuffer source = FileUtils.mapResource(fileName);
+        MeshCache meshCache = MeshCache.getInstance();
+        long contentHash = meshCache.calculateContentHash(source);
+        ModelData modelData = meshCache.load(fileName, CACHE_IMPORT_FLAGS, contentHash);
+
+        if (modelData != null) {
+            return modelData;
+        }
+
+        ObjParser.ObjData objData = ObjParser.parse(source);
+        MeshData meshData = reorderMeshLists(fileName, objData);
+
+        MeshOptimiser.optimise(meshData);
+
+        modelData = new ModelData(new MeshData[] { meshData }, new MaterialData[0]);
+        meshCache.save(fileName, CACHE_IMPORT_FLAGS, contentHash, modelData);
+
+        return modelData;
     }
 
-    private static Mesh reorderMeshLists(
-            List<Vector3f> positionsList,
-            List<Vector2f> textCoordsList,
-            List<Vector3f> normalsList,
-            List<Face> facesList,
-            int instances,
-            MeshType meshType
+    private static MeshData reorderMeshLists(
+            String fileName,
+            ObjParser.ObjData objData
     ) {
         //the lists need to be reordered because the order of definition for texture coordinates
-        //and normal coordinates does not correspond to the vertices order
-        List<Integer> indices = new ArrayList<>();
-
-        //create position array in the order it has been declared
-        //puts each x, y and z of each positions element into an array
-        //positions.size() * 3 is used as an array initialiser because each position has an x, y, and z value that needs to be stored
-        float[] positionsArr = new float[positionsList.size() * 3];
-        int i = 0;
-        for (Vector3f position : positionsList) {
-            positionsArr[i * 3] = position.x;
-            positionsArr[i * 3 + 1] = position.y;
-            positionsArr[i * 3 + 2] = position.z;
-            i++;
+        //and normal coordinates does not correspond to the vertices order.
+        //a vertex is created for every unique position, texture coordinate and normal combination
+        int[] faceIndices = objData.getFaceIndices().getArray();
+        int cornerCount = objData.getFaceIndices().size() / 3;
+        int[] indicesArr = new int[cornerCount];
+
+        VertexIndexMap vertexIndexMap = new VertexIndexMap(cornerCount);
+        GrowableFloatArray positions = new GrowableFloatArray(cornerCount * 3);
+        GrowableFloatArray textCoords = new GrowableFloatArray(cornerCount * 2);
+        GrowableFloatArray normals = new GrowableFloatArray(cornerCount * 3);
+
+        for (int i = 0; i < cornerCount; i++) {
+            indicesArr[i] = processFaceVertex(
+                    faceIndices[i * 3],
+                    faceIndices[i * 3 + 1],
+                    faceIndices[i * 3 + 2],
+                    objData,
+                    vertexIndexMap,
+                    positions,
+                    textCoords,
+                    normals
+            );
         }
 
-        float[] textureCoordinatesArr = new float[positionsList.size() * 2]; //textures are 2D so only need an x and y
-        float[] normalsArr = new float[positionsList.size() * 3]; //normals are 3D so they need an x, y and z
-
-        for (Face face : facesList) {
-            for (IdxGroup idxValue : face.getFaceVertexIndices()) {
-                processFaceVertex(
-                        idxValue,
-                        textCoordsList,
-                        normalsList,
-                        indices,
-                        textureCoordinatesArr,
-                        normalsArr
-                );
-            }
+        if (MeshData.LOGGING_IMPORTS) {
+            System.out.println(
+                    "ObjLoader: " + fileName + " - " + cornerCount + " unshared vertices welded to " +
+                            vertexIndexMap.size() + " (" + objData.getPositions().size() / 3 + " positions declared)"
+            );
         }
 
-        int[] indicesArr = ArrayUtils.listToIntArray(indices);
-
-        return MeshUtils.createMeshByType(
-                positionsArr,
-                textureCoordinatesArr,
-                normalsArr,
-                indicesArr,
-                instances,
-                meshType
+        return new MeshData(
+                fileName,
+                positions.toArray(),
+                textCoords.toArray(),
+                normals.toArray(),
+                indicesArr
         );
     }
 
-    private static void processFaceVertex(
-            IdxGroup indices,
-            List<Vector2f> textCoordsList,
-            List<Vector3f> normalsList,
-            List<Integer> indicesList,
-            float[] textCoordsArr,
-            float[] normalsArr
+    private static int processFaceVertex(
+            int posIndex,
+            int textCoordIndex,
+            int normalIndex,
+            ObjParser.ObjData objData,
+            VertexIndexMap vertexIndexMap,
+            GrowableFloatArray positions,
+            GrowableFloatArray textCoords,
+            GrowableFloatArray normals
     ) {
-        //set index for vertex coordinates
-        int posIndex = indices.idxPos; //defines the geometric vertex's index
-        indicesList.add(posIndex);
-
-        //reorder texture coordinates
-        if (indices.idxTextCoord >= 0) {
-            Vector2f textCoord = textCoordsList.get(indices.idxTextCoord);
-            textCoordsArr[posIndex * 2] = textCoord.x;
-            textCoordsArr[posIndex * 2 + 1] = 1 - textCoord.y;
+        int vertexIndex = vertexIndexMap.get(posIndex, textCoordIndex, normalIndex);
+
+        //share the vertex if this exact combination has already been created
+        if (vertexIndex != VertexIndexMap.NO_VALUE) {
+            return vertexIndex;
+        }
+
+        vertexIndex = vertexIndexMap.put(posIndex, textCoordIndex, normalIndex);
+
+        float[] objPositions = objData.getPositions().getArray();
+        positions.add(
+                objPositions[posIndex * 3],
+                objPositions[posIndex * 3 + 1],
+                objPositions[posIndex * 3 + 2]
+        );
+
+        if (textCoordIndex != ObjParser.NO_VALUE) {
+            float[] objTextCoords = objData.getTextCoords().getArray();
+            textCoords.add(
+                    objTextCoords[textCoordIndex * 2],
+                    1 - objTextCoords[textCoordIndex * 2 + 1]
+            );
+        } else {
+            textCoords.add(0, 0);
         }
 
-        //reorder vector normals
-        if (indices.idxVecNormal >= 0) {
-            Vector3f vecNorm = normalsList.get(indices.idxVecNormal);
-            normalsArr[posIndex * 3] = vecNorm.x;
-            normalsArr[posIndex * 3 + 1] = vecNorm.x;
-            normalsArr[posIndex * 3 + 2] = vecNorm.x;
+        if (normalIndex != ObjParser.NO_VALUE) {
+            float[] objNormals = objData.getNormals().getArray();
+            normals.add(
+                    objNormals[normalIndex * 3],
+                    objNormals[normalIndex * 3 + 1],
+                    objNormals[normalIndex * 3 + 2]
+            );
+        } else {
+            normals.add(0, 0, 0);
         }
+
+        return vertexIndex;
     }
 
-    protected static class Face {
+    private static class VertexIndexMap {
 
-        //List of index group for a triangle face (3 vertices per face)
+        /**
+         * Open addressing hash map from a (position, texture coordinate, normal)
+         * index triple to the index of the vertex created for it.
+         */
 
-        private IdxGroup[] idxGroups;
+        private static final int NO_VALUE = -1;
 
-        public Face (String v1, String v2, String v3) {
-            idxGroups = new IdxGroup[3];
+        private final int[] mKeys;
+        private final int[] mValues;
+        private final int mMask;
 
-            idxGroups[0] = parseLine(v1);
-            idxGroups[1] = parseLine(v2);
-            idxGroups[2] = parseLine(v3);
-        }
+        private int mSize;
 
-        private IdxGroup parseLine(String line) {
-            //uses the "f x/x/x" from the .obj file
-            //turns the string data into values and, if available, puts it into the face's IdxGroup
-            IdxGroup idxGroup = new IdxGroup();
-            String[] tokens = line.split("/");
-            int length = tokens.length;
+        private VertexIndexMap(int maxEntries) {
+            int capacity = Integer.highestOneBit(Math.max(maxEntries, 8) * 2 - 1) << 1;
 
-            idxGroup.idxPos = Integer.parseInt(tokens[0]) - 1;
+            mKeys = new int[capacity * 3];
+            mValues = new int[capacity];
+            mMask = capacity - 1;
+            mSize = 0;
 
-            if (length > 1) {
-                //it can be empty if the .obj file does not define texture coords
-                String texCoord = tokens[1];
-                idxGroup.idxTextCoord = texCoord.length() > 0 ?
-                        Integer.parseInt(texCoord) - 1 : IdxGroup.NO_VALUE;
+            Arrays.fill(mValues, NO_VALUE);
+        }
 
-                if (length > 2) {
-                    idxGroup.idxVecNormal = Integer.parseInt(tokens[2]) - 1;
-                }
-            }
+        private int get(int position, int textCoord, int normal) {
+            int slot = findSlot(position, textCoord, normal);
 
-            return idxGroup;
+            return mValues[slot];
         }
 
-        public IdxGroup[] getFaceVertexIndices() {
-            return idxGroups;
-        }
-    }
+        /**
+         * @return the index of the new vertex
+         */
+        private int put(int position, int textCoord, int normal) {
+            int slot = findSlot(position, textCoord, normal);
 
-    protected static class IdxGroup {
+            mKeys[slot * 3] = position;
+            mKeys[slot * 3 + 1] = textCoord;
+            mKeys[slot * 3 + 2] = normal;
+            mValues[slot] = mSize;
 
-        //holds info on a vertex of a face
+            return mSize++;
+        }
 
-        public static final int NO_VALUE = -1;
+        private int findSlot(int position, int textCoord, int normal) {
+            int hash = position * 73856093 ^ textCoord * 19349663 ^ normal * 83492791;
+            int slot = (hash ^ (hash >>> 16)) & mMask;
 
-        public int idxPos;
-        public int idxTextCoord;
-        public int idxVecNormal;
+            while (mValues[slot] != NO_VALUE && (
+                    mKeys[slot * 3] != position ||
+                    mKeys[slot * 3 + 1] != textCoord ||
+                    mKeys[slot * 3 + 2] != normal
+            )) {
+                slot = (slot + 1) & mMask;
+            }
+
+            return slot;
+        }
 
-        public IdxGroup() {
-            idxPos = NO_VALUE;
-            idxTextCoord = NO_VALUE;
-            idxVecNormal = NO_VALUE;
+        private int size() {
+            return mSize;
         }
     }
-}
\ No newline at end of file
+}
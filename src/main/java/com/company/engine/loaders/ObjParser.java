@@ -0,0 +1,477 @@
+package com.company.engine.loaders;
+
+import com.company.engine.utils.GrowableFloatArray;
+import com.company.engine.utils.GrowableIntArray;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public class ObjParser {
+
+    /**
+     * Parses Wavefront .obj data straight from a ByteBuffer (ideally memory mapped).
+     *
+     * Numbers are parsed in place from the bytes into growable primitive arrays,
+     * nothing is allocated per line or per element. Large inputs are split at
+     * line boundaries and the chunks are parsed in parallel, then merged in order.
+     *
+     * Faces with more than three vertices are triangulated as a fan.
+     */
+
+    public static final int NO_VALUE = -1;
+
+    private static final int PARALLEL_THRESHOLD_BYTES = 4 * 1024 * 1024;
+    private static final int MIN_CHUNK_BYTES = 1024 * 1024;
+
+    //face index markers that are resolved to absolute indices when the chunks are merged
+    private static final int MISSING_INDEX = Integer.MIN_VALUE;
+    private static final int RELATIVE_INDEX_OFFSET = Integer.MIN_VALUE / 2;
+
+    private static final double[] POWERS_OF_TEN = new double[] {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    public static ObjData parse(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        int length = end - start;
+        int chunkCount = 1;
+
+        if (length >= PARALLEL_THRESHOLD_BYTES) {
+            chunkCount = Math.max(
+                    1,
+                    Math.min(Runtime.getRuntime().availableProcessors(), length / MIN_CHUNK_BYTES)
+            );
+        }
+
+        int[] chunkStarts = splitAtLineBoundaries(buffer, start, end, chunkCount);
+        Chunk[] chunks = new Chunk[chunkStarts.length - 1];
+
+        IntStream.range(0, chunks.length).parallel().forEach(i -> {
+            Chunk chunk = new Chunk(buffer);
+            chunk.parse(chunkStarts[i], chunkStarts[i + 1]);
+            chunks[i] = chunk;
+        });
+
+        return merge(chunks);
+    }
+
+    /**
+     * @return the offsets each chunk starts at, followed by the end offset
+     */
+    private static int[] splitAtLineBoundaries(ByteBuffer buffer, int start, int end, int chunkCount) {
+        int[] chunkStarts = new int[chunkCount + 1];
+        int chunkSize = (end - start) / chunkCount;
+        int count = 1;
+
+        chunkStarts[0] = start;
+
+        for (int i = 1; i < chunkCount; i++) {
+            int offset = Math.max(start + i * chunkSize, chunkStarts[count - 1]);
+
+            //move to the first byte after the next new line
+            while (offset < end && buffer.get(offset) != '\n') {
+                offset++;
+            }
+
+            if (offset >= end - 1) {
+                break;
+            }
+
+            chunkStarts[count++] = offset + 1;
+        }
+
+        chunkStarts[count] = end;
+
+        return count == chunkCount ? chunkStarts : Arrays.copyOf(chunkStarts, count + 1);
+    }
+
+    private static ObjData merge(Chunk[] chunks) {
+        if (chunks.length == 1) {
+            chunks[0].resolveFaceIndices(0, 0, 0);
+
+            return new ObjData(
+                    chunks[0].mPositions,
+                    chunks[0].mTextCoords,
+                    chunks[0].mNormals,
+                    chunks[0].mFaceIndices
+            );
+        }
+
+        GrowableFloatArray positions = new GrowableFloatArray(sumSizes(chunks, 0));
+        GrowableFloatArray textCoords = new GrowableFloatArray(sumSizes(chunks, 1));
+        GrowableFloatArray normals = new GrowableFloatArray(sumSizes(chunks, 2));
+        GrowableIntArray faceIndices = new GrowableIntArray(sumSizes(chunks, 3));
+
+        for (Chunk chunk : chunks) {
+            chunk.resolveFaceIndices(
+                    positions.size() / 3,
+                    textCoords.size() / 2,
+                    normals.size() / 3
+            );
+
+            positions.addAll(chunk.mPositions);
+            textCoords.addAll(chunk.mTextCoords);
+            normals.addAll(chunk.mNormals);
+            faceIndices.addAll(chunk.mFaceIndices);
+        }
+
+        return new ObjData(positions, textCoords, normals, faceIndices);
+    }
+
+    private static int sumSizes(Chunk[] chunks, int array) {
+        int size = 0;
+
+        for (Chunk chunk : chunks) {
+            switch (array) {
+                case 0:
+                    size += chunk.mPositions.size();
+                    break;
+                case 1:
+                    size += chunk.mTextCoords.size();
+                    break;
+                case 2:
+                    size += chunk.mNormals.size();
+                    break;
+                default:
+                    size += chunk.mFaceIndices.size();
+                    break;
+            }
+        }
+
+        return size;
+    }
+
+    private static class Chunk {
+
+        private final ByteBuffer mBuffer;
+        private final GrowableFloatArray mPositions;
+        private final GrowableFloatArray mTextCoords;
+        private final GrowableFloatArray mNormals;
+        private final GrowableIntArray mFaceIndices; //position, texture coordinate and normal index per triangle corner
+        private final GrowableIntArray mPolygon; //corners of the face currently being parsed
+
+        private int mOffset;
+        private int mEnd;
+
+        private Chunk(ByteBuffer buffer) {
+            mBuffer = buffer;
+            mPositions = new GrowableFloatArray(1024);
+            mTextCoords = new GrowableFloatArray(1024);
+            mNormals = new GrowableFloatArray(1024);
+            mFaceIndices = new GrowableIntArray(1024);
+            mPolygon = new GrowableIntArray(12);
+        }
+
+        private void parse(int start, int end) {
+            mOffset = start;
+            mEnd = end;
+
+            while (mOffset < mEnd) {
+                skipSpaces();
+
+                if (mOffset >= mEnd) {
+                    break;
+                }
+
+                byte first = mBuffer.get(mOffset);
+                byte second = mOffset + 1 < mEnd ? mBuffer.get(mOffset + 1) : (byte) '\n';
+
+                if (first == 'v' && isSpace(second)) {
+                    //geometric vertex
+                    mOffset += 2;
+                    mPositions.add(parseFloat(), parseFloat(), parseFloat());
+                } else if (first == 'v' && second == 't') {
+                    //texture coordinate
+                    mOffset += 2;
+                    mTextCoords.add(parseFloat(), parseFloat());
+                } else if (first == 'v' && second == 'n') {
+                    //vector normal
+                    mOffset += 2;
+                    mNormals.add(parseFloat(), parseFloat(), parseFloat());
+                } else if (first == 'f' && isSpace(second)) {
+                    //face
+                    mOffset += 1;
+                    parseFace();
+                }
+
+                skipLine();
+            }
+        }
+
+        private void parseFace() {
+            mPolygon.clear();
+
+            while (true) {
+                skipSpaces();
+
+                if (mOffset >= mEnd || isLineEnd(mBuffer.get(mOffset))) {
+                    break;
+                }
+
+                int positionIndex = parseIndex(mPositions.size() / 3);
+
+                if (positionIndex == MISSING_INDEX) {
+                    //not a vertex reference, ignore the rest of the line
+                    break;
+                }
+
+                int textCoordIndex = MISSING_INDEX;
+                int normalIndex = MISSING_INDEX;
+
+                if (mOffset < mEnd && mBuffer.get(mOffset) == '/') {
+                    mOffset++;
+
+                    //it can be empty if the .obj file does not define texture coords
+                    if (mOffset < mEnd && mBuffer.get(mOffset) != '/') {
+                        textCoordIndex = parseIndex(mTextCoords.size() / 2);
+                    }
+
+                    if (mOffset < mEnd && mBuffer.get(mOffset) == '/') {
+                        mOffset++;
+                        normalIndex = parseIndex(mNormals.size() / 3);
+                    }
+                }
+
+                mPolygon.add(positionIndex, textCoordIndex, normalIndex);
+            }
+
+            //triangulate the polygon as a fan around its first corner
+            int cornerCount = mPolygon.size() / 3;
+            int[] corners = mPolygon.getArray();
+
+            for (int i = 1; i < cornerCount - 1; i++) {
+                mFaceIndices.add(corners[0], corners[1], corners[2]);
+                mFaceIndices.add(corners[i * 3], corners[i * 3 + 1], corners[i * 3 + 2]);
+                mFaceIndices.add(corners[(i + 1) * 3], corners[(i + 1) * 3 + 1], corners[(i + 1) * 3 + 2]);
+            }
+        }
+
+        /**
+         * Parse a 1 based (or negative, relative) .obj index.
+         *
+         * Absolute indices are returned 0 based. Relative indices depend on how many
+         * elements were declared before this chunk, so they are returned offset by
+         * RELATIVE_INDEX_OFFSET and resolved when the chunks are merged.
+         */
+        private int parseIndex(int localCount) {
+            boolean negative = false;
+
+            if (mOffset < mEnd && mBuffer.get(mOffset) == '-') {
+                negative = true;
+                mOffset++;
+            }
+
+            int value = 0;
+            boolean hasDigits = false;
+
+            while (mOffset < mEnd) {
+                int digit = mBuffer.get(mOffset) - '0';
+
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+
+                value = value * 10 + digit;
+                hasDigits = true;
+                mOffset++;
+            }
+
+            if (!hasDigits) {
+                return MISSING_INDEX;
+            }
+
+            return negative ? RELATIVE_INDEX_OFFSET + localCount - value : value - 1;
+        }
+
+        private void resolveFaceIndices(int positionOffset, int textCoordOffset, int normalOffset) {
+            int[] faceIndices = mFaceIndices.getArray();
+            int length = mFaceIndices.size();
+
+            for (int i = 0; i < length; i += 3) {
+                faceIndices[i] = resolveIndex(faceIndices[i], positionOffset);
+                faceIndices[i + 1] = resolveIndex(faceIndices[i + 1], textCoordOffset);
+                faceIndices[i + 2] = resolveIndex(faceIndices[i + 2], normalOffset);
+            }
+        }
+
+        private static int resolveIndex(int index, int offset) {
+            if (index == MISSING_INDEX) {
+                return NO_VALUE;
+            }
+
+            return index < 0 ? offset + index - RELATIVE_INDEX_OFFSET : index;
+        }
+
+        private float parseFloat() {
+            skipSpaces();
+
+            boolean negative = false;
+            byte current = mOffset < mEnd ? mBuffer.get(mOffset) : (byte) '\n';
+
+            if (current == '-' || current == '+') {
+                negative = current == '-';
+                mOffset++;
+            }
+
+            long mantissa = 0;
+            int digitCount = 0;
+            int exponent = 0;
+
+            //integer part
+            while (mOffset < mEnd) {
+                int digit = mBuffer.get(mOffset) - '0';
+
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+
+                if (digitCount < 18) {
+                    mantissa = mantissa * 10 + digit;
+                    digitCount++;
+                } else {
+                    exponent++;
+                }
+
+                mOffset++;
+            }
+
+            //fractional part
+            if (mOffset < mEnd && mBuffer.get(mOffset) == '.') {
+                mOffset++;
+
+                while (mOffset < mEnd) {
+                    int digit = mBuffer.get(mOffset) - '0';
+
+                    if (digit < 0 || digit > 9) {
+                        break;
+                    }
+
+                    if (digitCount < 18) {
+                        mantissa = mantissa * 10 + digit;
+                        digitCount++;
+                        exponent--;
+                    }
+
+                    mOffset++;
+                }
+            }
+
+            //exponent
+            if (mOffset < mEnd && (mBuffer.get(mOffset) == 'e' || mBuffer.get(mOffset) == 'E')) {
+                mOffset++;
+
+                boolean negativeExponent = false;
+
+                if (mOffset < mEnd && (mBuffer.get(mOffset) == '-' || mBuffer.get(mOffset) == '+')) {
+                    negativeExponent = mBuffer.get(mOffset) == '-';
+                    mOffset++;
+                }
+
+                int exponentValue = 0;
+
+                while (mOffset < mEnd) {
+                    int digit = mBuffer.get(mOffset) - '0';
+
+                    if (digit < 0 || digit > 9) {
+                        break;
+                    }
+
+                    exponentValue = exponentValue * 10 + digit;
+                    mOffset++;
+                }
+
+                exponent += negativeExponent ? -exponentValue : exponentValue;
+            }
+
+            double value = mantissa;
+
+            if (exponent < 0) {
+                value = -exponent < POWERS_OF_TEN.length ?
+                        value / POWERS_OF_TEN[-exponent] : value * Math.pow(10, exponent);
+            } else if (exponent > 0) {
+                value = exponent < POWERS_OF_TEN.length ?
+                        value * POWERS_OF_TEN[exponent] : value * Math.pow(10, exponent);
+            }
+
+            return (float) (negative ? -value : value);
+        }
+
+        private void skipSpaces() {
+            while (mOffset < mEnd && isSpace(mBuffer.get(mOffset))) {
+                mOffset++;
+            }
+        }
+
+        private void skipLine() {
+            while (mOffset < mEnd && mBuffer.get(mOffset) != '\n') {
+                mOffset++;
+            }
+
+            mOffset++;
+        }
+
+        private static boolean isSpace(byte value) {
+            return value == ' ' || value == '\t';
+        }
+
+        private static boolean isLineEnd(byte value) {
+            return value == '\n' || value == '\r' || value == '#';
+        }
+    }
+
+    public static class ObjData {
+
+        private final GrowableFloatArray mPositions;
+        private final GrowableFloatArray mTextCoords;
+        private final GrowableFloatArray mNormals;
+        private final GrowableIntArray mFaceIndices;
+
+        private ObjData(
+                GrowableFloatArray positions,
+                GrowableFloatArray textCoords,
+                GrowableFloatArray normals,
+                GrowableIntArray faceIndices
+        ) {
+            mPositions = positions;
+            mTextCoords = textCoords;
+            mNormals = normals;
+            mFaceIndices = faceIndices;
+        }
+
+        /**
+         * @return x, y and z of each declared geometric vertex
+         */
+        public GrowableFloatArray getPositions() {
+            return mPositions;
+        }
+
+        /**
+         * @return u and v of each declared texture coordinate
+         */
+        public GrowableFloatArray getTextCoords() {
+            return mTextCoords;
+        }
+
+        /**
+         * @return x, y and z of each declared vector normal
+         */
+        public GrowableFloatArray getNormals() {
+            return mNormals;
+        }
+
+        /**
+         * @return position, texture coordinate and normal index (0 based, NO_VALUE if missing)
+         * for each corner of each triangle
+         */
+        public GrowableIntArray getFaceIndices() {
+            return mFaceIndices;
+        }
+
+        public int getTriangleCount() {
+            return mFaceIndices.size() / 9;
+        }
+    }
+}
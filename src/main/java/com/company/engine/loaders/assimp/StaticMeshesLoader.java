@@ -3,20 +3,36 @@ package com.company.engine.loaders.assimp;
 import com.company.engine.graph.material.Material;
 import com.company.engine.graph.material.Texture;
 import com.company.engine.graph.mesh.*;
+import com.company.engine.loaders.MaterialData;
+import com.company.engine.loaders.MeshCache;
+import com.company.engine.loaders.ModelData;
+import com.company.engine.utils.CacheUtils;
+import com.company.engine.utils.FileUtils;
 import com.company.engine.utils.MeshUtils;
+import com.company.engine.memory.MemoryCategory;
+import com.company.engine.memory.NativeMemory;
 import org.joml.Vector4f;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.assimp.*;
+import org.lwjgl.system.MemoryUtil;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.company.engine.utils.ArrayUtils.*;
 import static org.lwjgl.assimp.Assimp.*;
 
 public class StaticMeshesLoader {
 
+    public static final int DEFAULT_IMPORT_FLAGS = aiProcess_JoinIdenticalVertices |
+            aiProcess_Triangulate |
+            aiProcess_FixInfacingNormals;
+
     public static Mesh[] loadMeshes(
             String filePath,
             String texturesDirectory,
@@ -26,9 +42,7 @@ public class StaticMeshesLoader {
         return loadMeshes(
                 filePath,
                 texturesDirectory,
-                aiProcess_JoinIdenticalVertices |
-                        aiProcess_Triangulate |
-                        aiProcess_FixInfacingNormals,
+                DEFAULT_IMPORT_FLAGS,
                 instances,
                 meshType
         );
@@ -43,9 +57,7 @@ public class StaticMeshesLoader {
         return loadMeshes(
                 filePath,
                 material,
-                aiProcess_JoinIdenticalVertices |
-                        aiProcess_Triangulate |
-                        aiProcess_FixInfacingNormals,
+                DEFAULT_IMPORT_FLAGS,
                 instances,
                 meshType
         );
@@ -58,77 +70,268 @@ public class StaticMeshesLoader {
             int instances,
             MeshType meshType
     ) throws Exception {
+        checkArguments(instances, meshType);
+
+        ModelData modelData = loadModelData(filePath, flags);
+
+        try {
+            return createMeshes(modelData, texturesDirectory, instances, meshType);
+        } finally {
+            modelData.cleanUp();
+        }
+    }
+
+    public static Mesh[] loadMeshes(
+            String filePath,
+            Material material,
+            int flags,
+            int instances,
+            MeshType meshType
+    ) throws Exception {
+        checkArguments(instances, meshType);
+
+        ModelData modelData = loadModelData(filePath, flags);
+
+        try {
+            return createMeshes(modelData, material, instances, meshType);
+        } finally {
+            modelData.cleanUp();
+        }
+    }
+
+    /**
+     * Import the model, or read it from the MeshCache, without creating any OpenGL objects.
+     * Safe to call from any thread.
+     *
+     * @return the model's meshes and materials, must be cleaned up once the Meshes are created
+     */
+    public static ModelData loadModelData(String filePath, int flags) throws Exception {
+        MeshCache meshCache = MeshCache.getInstance();
+        long contentHash = meshCache.calculateContentHash(filePath);
+        ModelData modelData = meshCache.load(filePath, flags, contentHash);
+
+        if (modelData != null) {
+            return modelData;
+        }
+
         AIScene aiScene = aiImportFile(filePath, flags);
-        ModelFileType modelFileType = determineFileType(filePath);
 
-        checkForErrors(aiScene, instances, meshType);
+        if (aiScene == null) {
+            throw new Exception("Error loading model");
+        }
 
-        int numMaterials = aiScene.mNumMaterials();
-        PointerBuffer aiMaterials = aiScene.mMaterials();
-        List<Material> materialList = new ArrayList<>();
+        try {
+            ModelFileType modelFileType = determineFileType(filePath);
+            int numMaterials = aiScene.mNumMaterials();
+            PointerBuffer aiMaterials = aiScene.mMaterials();
+            MaterialData[] materials = new MaterialData[aiMaterials != null ? numMaterials : 0];
 
-        if (aiMaterials != null) {
-            for (int i = 0; i < numMaterials; i++) {
+            for (int i = 0; i < materials.length; i++) {
                 AIMaterial aiMaterial = AIMaterial.create(aiMaterials.get(i));
-                processMaterial(aiMaterial, materialList, texturesDirectory, modelFileType);
+                materials[i] = processMaterial(aiMaterial, modelFileType);
             }
+
+            modelData = new ModelData(generateMeshDataArray(aiScene), materials);
+        } finally {
+            //everything needed has been copied out of the native scene
+            aiReleaseImport(aiScene);
+        }
+
+        if (contentHash != MeshCache.NO_CONTENT_HASH) {
+            meshCache.save(filePath, flags, contentHash, findDependencyPaths(filePath, modelData), modelData);
         }
 
-        return generateMeshArray(aiScene, materialList, instances, meshType);
+        return modelData;
     }
 
-    private static ModelFileType determineFileType(String filePath) {
-        for (ModelFileType modelFileType : ModelFileType.values()) {
-            if (filePath.contains(modelFileType.getFileExtension())) {
-                return modelFileType;
+    /**
+     * @return the files, besides the model itself, that the import depends on: OBJ material libraries
+     * and the textures named by the materials, resolved against the model's directory
+     */
+    private static List<String> findDependencyPaths(String filePath, ModelData modelData) {
+        List<String> dependencyPathList = new ArrayList<>();
+
+        if (determineFileType(filePath) == ModelFileType.OBJ) {
+            try {
+                for (String materialLibrary : findMaterialLibraries(FileUtils.mapResource(filePath))) {
+                    addDependencyPath(dependencyPathList, filePath, materialLibrary);
+                }
+            } catch (Exception e) {
+                //the model was just imported from this file so it can be read, but the cache is only an optimisation
+                System.err.println("StaticMeshesLoader: unable to read the material libraries of " + filePath);
             }
         }
 
-        return ModelFileType.UNKNOWN;
+        for (String texturePath : getTexturePaths(modelData)) {
+            addDependencyPath(dependencyPathList, filePath, texturePath);
+        }
+
+        return dependencyPathList;
     }
 
-    public static Mesh[] loadMeshes(
-            String filePath,
-            Material material,
-            int flags,
+    private static void addDependencyPath(List<String> dependencyPathList, String modelPath, String relativePath) {
+        Path modelDirectory = Paths.get(modelPath).getParent();
+        String dependencyPath = CacheUtils.normalisePath(
+                modelDirectory != null ? modelDirectory.resolve(relativePath).toString() : relativePath
+        );
+
+        if (!dependencyPathList.contains(dependencyPath)) {
+            dependencyPathList.add(dependencyPath);
+        }
+    }
+
+    /**
+     * @return the file names given by the mtllib statements of an OBJ file
+     */
+    private static List<String> findMaterialLibraries(ByteBuffer source) {
+        List<String> materialLibraryList = new ArrayList<>();
+        byte[] statement = "mtllib".getBytes(StandardCharsets.US_ASCII);
+        int lineStart = source.position();
+
+        while (lineStart < source.limit()) {
+            int lineEnd = lineStart;
+
+            while (lineEnd < source.limit() && source.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            if (startsWith(source, lineStart, lineEnd, statement)) {
+                byte[] line = new byte[lineEnd - lineStart - statement.length];
+
+                for (int i = 0; i < line.length; i++) {
+                    line[i] = source.get(lineStart + statement.length + i);
+                }
+
+                for (String fileName : new String(line, StandardCharsets.UTF_8).trim().split("\\s+")) {
+                    if (!fileName.isEmpty()) {
+                        materialLibraryList.add(fileName);
+                    }
+                }
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return materialLibraryList;
+    }
+
+    private static boolean startsWith(ByteBuffer source, int start, int end, byte[] prefix) {
+        //the statement has to be followed by whitespace, e.g. not "mtllibrary"
+        if (end - start <= prefix.length || source.get(start + prefix.length) > ' ') {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (source.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Create the Meshes and the model's Materials, must be called on the thread that owns the OpenGL context.
+     * Textures are loaded through the TextureCache.
+     */
+    public static Mesh[] createMeshes(
+            ModelData modelData,
+            String texturesDirectory,
             int instances,
             MeshType meshType
     ) throws Exception {
-        AIScene aiScene = aiImportFile(filePath, flags);
+        List<Material> materialList = new ArrayList<>();
+
+        for (MaterialData materialData : modelData.getMaterials()) {
+            materialList.add(createMaterial(materialData, texturesDirectory));
+        }
 
-        checkForErrors(aiScene, instances, meshType);
+        MeshData[] meshDataArray = modelData.getMeshDataArray();
+        Mesh[] meshArray = new Mesh[meshDataArray.length];
 
-        if (instances > 1 && meshType != MeshType.INSTANCED) {
-            throw new Exception("Mesh type must be instanced if instance count is greater that 1");
+        for (int i = 0; i < meshDataArray.length; i++) {
+            meshArray[i] = processMesh(meshDataArray[i], materialList, instances, meshType);
         }
 
-        return generateMeshArray(aiScene, material, instances, meshType);
+        return meshArray;
     }
 
-    private static void processMaterial(
-            AIMaterial aiMaterial,
-            List<Material> materialList,
-            String texturesDirectory,
-            ModelFileType modelFileType
-    ) throws Exception {
-        AIColor4D colour = AIColor4D.create();
-        AIString aiStringTexturePath = AIString.calloc();
-        AIString aiStringNormalPath = AIString.calloc();
+    /**
+     * Create the Meshes using the given Material instead of the model's,
+     * must be called on the thread that owns the OpenGL context.
+     */
+    public static Mesh[] createMeshes(
+            ModelData modelData,
+            Material material,
+            int instances,
+            MeshType meshType
+    ) {
+        MeshData[] meshDataArray = modelData.getMeshDataArray();
+        Mesh[] meshArray = new Mesh[meshDataArray.length];
 
-        loadTexturePath(aiMaterial, aiTextureType_DIFFUSE, aiStringTexturePath);
-        /*
-          CAUTION:
-            AssImp loads many Normal maps thinking they are Height Maps,
-            therefore this uses aiTextureType_HEIGHT
+        for (int i = 0; i < meshDataArray.length; i++) {
+            meshArray[i] = processMesh(meshDataArray[i], material, instances, meshType);
+        }
 
-          NOTE:
-            This engine only supports Object-Space normals.
-            Tangent Space Normal Maps MUST be converted before loaded here
-         */
-        loadTexturePath(aiMaterial, aiTextureType_HEIGHT, aiStringNormalPath);
+        return meshArray;
+    }
+
+    /**
+     * @return the texture paths used by the model's materials, relative to the textures directory
+     */
+    public static List<String> getTexturePaths(ModelData modelData) {
+        List<String> texturePathList = new ArrayList<>();
 
-        Texture texture = loadTexture(aiStringTexturePath, texturesDirectory, modelFileType);
-        Texture normalMap = loadTexture(aiStringNormalPath, texturesDirectory, modelFileType);
+        for (MaterialData materialData : modelData.getMaterials()) {
+            if (materialData.getTexturePath() != null) {
+                texturePathList.add(materialData.getTexturePath());
+            }
+
+            if (materialData.getNormalMapPath() != null) {
+                texturePathList.add(materialData.getNormalMapPath());
+            }
+        }
+
+        return texturePathList;
+    }
+
+    private static ModelFileType determineFileType(String filePath) {
+        for (ModelFileType modelFileType : ModelFileType.values()) {
+            if (filePath.contains(modelFileType.getFileExtension())) {
+                return modelFileType;
+            }
+        }
+
+        return ModelFileType.UNKNOWN;
+    }
+
+    private static MaterialData processMaterial(
+            AIMaterial aiMaterial,
+            ModelFileType modelFileType
+    ) {
+        AIColor4D colour = AIColor4D.create();
+        String texturePath;
+        String normalMapPath;
+
+        try (
+                AIString aiStringTexturePath = AIString.calloc();
+                AIString aiStringNormalPath = AIString.calloc()
+        ) {
+            loadTexturePath(aiMaterial, aiTextureType_DIFFUSE, aiStringTexturePath);
+            /*
+              CAUTION:
+                AssImp loads many Normal maps thinking they are Height Maps,
+                therefore this uses aiTextureType_HEIGHT
+
+              NOTE:
+                This engine only supports Object-Space normals.
+                Tangent Space Normal Maps MUST be converted before loaded here
+             */
+            loadTexturePath(aiMaterial, aiTextureType_HEIGHT, aiStringNormalPath);
+
+            texturePath = getTexturePath(aiStringTexturePath, modelFileType);
+            normalMapPath = getTexturePath(aiStringNormalPath, modelFileType);
+        }
 
         Vector4f ambient = Material.DEFAULT_COLOUR;
         loadMeshLightValue(aiMaterial, ambient, AI_MATKEY_COLOR_AMBIENT, colour);
@@ -139,17 +342,32 @@ public class StaticMeshesLoader {
         Vector4f diffuse = Material.DEFAULT_COLOUR;
         loadMeshLightValue(aiMaterial, diffuse, AI_MATKEY_COLOR_DIFFUSE, colour);
 
-        Material material = new Material(
+        return new MaterialData(
                 ambient,
                 diffuse,
                 specular,
+                Material.DEFAULT_REFLECTANCE,
+                texturePath,
+                normalMapPath
+        );
+    }
+
+    private static Material createMaterial(
+            MaterialData materialData,
+            String texturesDirectory
+    ) throws Exception {
+        Texture texture = loadTexture(materialData.getTexturePath(), texturesDirectory);
+        Texture normalMap = loadTexture(materialData.getNormalMapPath(), texturesDirectory);
+
+        return new Material(
+                materialData.getAmbientColour(),
+                materialData.getDiffuseColour(),
+                materialData.getSpecularColour(),
                 Material.DEFAULT_COLOUR,
                 texture,
                 normalMap,
-                Material.DEFAULT_REFLECTANCE
+                materialData.getReflectance()
         );
-
-        materialList.add(material);
     }
 
     private static void loadTexturePath(AIMaterial aiMaterial, int aiTextureType, AIString target) {
@@ -167,27 +385,33 @@ public class StaticMeshesLoader {
         );
     }
 
-    private static Texture loadTexture(
+    /**
+     * @return the texture path relative to the textures directory or null if there is no usable texture
+     */
+    private static String getTexturePath(
             AIString aiString,
-            String texturesDirectory,
             ModelFileType modelFileType
-    ) throws Exception{
+    ) {
         String texturePath = aiString.dataString();
 
         if (texturePath != null && texturePath.length() > 0) {
+            return cleanTextureFilePath(texturePath, modelFileType);
+        }
 
-            texturePath = cleanTextureFilePath(texturePath, modelFileType);
-
-            if (texturePath == null) {
-                return null;
-            }
-
-            TextureCache textureCache = TextureCache.getInstance();
+        return null;
+    }
 
-            return textureCache.getTexture(texturesDirectory + "/" + texturePath);
+    private static Texture loadTexture(
+            String texturePath,
+            String texturesDirectory
+    ) throws Exception {
+        if (texturePath == null) {
+            return null;
         }
 
-        return null;
+        TextureCache textureCache = TextureCache.getInstance();
+
+        return textureCache.getTexture(texturesDirectory + "/" + texturePath);
     }
 
     private static String cleanTextureFilePath(
@@ -234,51 +458,41 @@ public class StaticMeshesLoader {
         }
     }
 
+    /**
+     * Copies the mesh out of Assimp's native memory straight into off-heap buffers,
+     * nothing is copied onto the heap.
+     */
+    private static MeshData processMeshData(AIMesh aiMesh) {
+        FloatBuffer positionBuffer = processVertexList(aiMesh.mVertices());
+        FloatBuffer textCoordBuffer = processTextCoordList(aiMesh.mTextureCoords(0));
+        FloatBuffer normalBuffer = processNormalList(aiMesh.mNormals());
+        IntBuffer indexBuffer = processIndexList(aiMesh.mNumFaces(), aiMesh.mFaces());
+
+        MeshData meshData = new MeshData(
+                aiMesh.mName().dataString(),
+                positionBuffer,
+                textCoordBuffer,
+                normalBuffer,
+                indexBuffer,
+                true
+        );
+        meshData.setMaterialIndex(aiMesh.mMaterialIndex());
+
+        MeshOptimiser.optimise(meshData);
+
+        return meshData;
+    }
+
     private static Mesh processMesh(
-            AIMesh aiMesh,
+            MeshData meshData,
             List<Material> materialList,
             int instances,
             MeshType meshType
     ) {
-        List<Float> vertexList = new ArrayList<>();
-        List<Float> textCoordList = new ArrayList<>();
-        List<Float> normalList = new ArrayList<>();
-        List<Integer> indexList = new ArrayList<>();
-
-        populateMeshLists(aiMesh, vertexList, textCoordList, normalList, indexList);
-
-        Mesh mesh;
-
-        switch (meshType) {
-            case STANDARD:
-                mesh = new Mesh(
-                        listToFloatArray(vertexList),
-                        listToFloatArray(textCoordList),
-                        listToFloatArray(normalList),
-                        listToIntArray(indexList)
-                );
-                break;
-            case INSTANCED:
-                mesh = new InstancedMesh(
-                        listToFloatArray(vertexList),
-                        listToFloatArray(textCoordList),
-                        listToFloatArray(normalList),
-                        listToIntArray(indexList),
-                        instances
-                );
-                break;
-            default:
-                mesh = new Mesh(
-                        listToFloatArray(vertexList),
-                        listToFloatArray(textCoordList),
-                        listToFloatArray(normalList),
-                        listToIntArray(indexList)
-                );
-                break;
-        }
+        Mesh mesh = MeshUtils.createMeshByType(meshData, instances, meshType);
 
         Material material;
-        int materialIndex = aiMesh.mMaterialIndex();
+        int materialIndex = meshData.getMaterialIndex();
 
         if (materialIndex >= 0 && materialIndex < materialList.size()) {
             material = materialList.get(materialIndex);
@@ -292,26 +506,12 @@ public class StaticMeshesLoader {
     }
 
     private static Mesh processMesh(
-            AIMesh aiMesh,
+            MeshData meshData,
             Material material,
             int instances,
             MeshType meshType
     ) {
-        List<Float> vertexList = new ArrayList<>();
-        List<Float> textCoordList = new ArrayList<>();
-        List<Float> normalList = new ArrayList<>();
-        List<Integer> indexList = new ArrayList<>();
-
-        populateMeshLists(aiMesh, vertexList, textCoordList, normalList, indexList);
-
-        Mesh mesh = MeshUtils.createMeshByType(
-                vertexList,
-                textCoordList,
-                normalList,
-                indexList,
-                instances,
-                meshType
-        );
+        Mesh mesh = MeshUtils.createMeshByType(meshData, instances, meshType);
 
         if (material.getTexture() != null) {
             material.setUsingTexture(true);
@@ -321,96 +521,79 @@ public class StaticMeshesLoader {
         return mesh;
     }
 
-    private static void populateMeshLists(
-            AIMesh aiMesh,
-            List<Float> vertexList,
-            List<Float> textCoordList,
-            List<Float> normalList,
-            List<Integer> indexList
-    ) {
-        processVertexList(
-                aiMesh.mVertices(),
-                vertexList
-        );
-        processTextCoordList(
-                aiMesh.mTextureCoords(0),
-                textCoordList
-        );
-        processNormalList(
-                aiMesh.mNormals(),
-                normalList
-        );
-        processIndexList(
-                aiMesh.mNumFaces(),
-                aiMesh.mFaces(),
-                indexList
-        );
-    }
+    private static FloatBuffer processVertexList(AIVector3D.Buffer aiVertices) {
+        //AIVector3D is 3 tightly packed floats so the whole array is copied at once
+        FloatBuffer vertexBuffer = NativeMemory.memAllocFloat(aiVertices.remaining() * 3, MemoryCategory.MESH);
 
-    private static void processVertexList(
-            AIVector3D.Buffer aiVertices,
-            List<Float> vertexList
-    ) {
+        MemoryUtil.memCopy(
+                aiVertices.address(),
+                MemoryUtil.memAddress(vertexBuffer),
+                (long) aiVertices.remaining() * AIVector3D.SIZEOF
+        );
 
-        while (aiVertices.remaining() > 0) {
-            AIVector3D aiVertex = aiVertices.get();
+        return vertexBuffer;
+    }
 
-            vertexList.add(aiVertex.x());
-            vertexList.add(aiVertex.y());
-            vertexList.add(aiVertex.z());
+    private static FloatBuffer processTextCoordList(AIVector3D.Buffer aiTextCoords) {
+        if (aiTextCoords == null) {
+            return null;
         }
-    }
 
-    private static void processTextCoordList(
-            AIVector3D.Buffer aiTextCoords,
-            List<Float> textCoordList
-    ) {
-        int textCoordCount = aiTextCoords != null ? aiTextCoords.remaining() : 0;
+        //only the x and y of each AIVector3D are used and y is flipped, so this is a strided copy
+        int textCoordCount = aiTextCoords.remaining();
+        FloatBuffer source = MemoryUtil.memFloatBuffer(aiTextCoords.address(), textCoordCount * 3);
+        FloatBuffer textCoordBuffer = NativeMemory.memAllocFloat(textCoordCount * 2, MemoryCategory.MESH);
 
         for (int i = 0; i < textCoordCount; i++) {
-            AIVector3D textCoord = aiTextCoords.get();
-            textCoordList.add(textCoord.x());
-            textCoordList.add(1 - textCoord.y());
+            textCoordBuffer.put(i * 2, source.get(i * 3));
+            textCoordBuffer.put(i * 2 + 1, 1 - source.get(i * 3 + 1));
         }
-    }
 
-    private static void processNormalList(
-            AIVector3D.Buffer aiNormals,
-            List<Float> normalList
-    ) {
-        while (aiNormals != null && aiNormals.remaining() > 0) {
-            AIVector3D aiNormal = aiNormals.get();
+        return textCoordBuffer;
+    }
 
-            normalList.add(aiNormal.x());
-            normalList.add(aiNormal.y());
-            normalList.add(aiNormal.z());
+    private static FloatBuffer processNormalList(AIVector3D.Buffer aiNormals) {
+        if (aiNormals == null) {
+            return null;
         }
+
+        return processVertexList(aiNormals);
     }
 
-    private static void processIndexList(
+    private static IntBuffer processIndexList(
             int faceCount,
-            AIFace.Buffer aiFaces,
-            List<Integer> indexList
+            AIFace.Buffer aiFaces
     ) {
+        //every face stores a pointer to its own index array, read them without creating AIFace instances
+        long facesAddress = aiFaces.address();
+        int indexCount = 0;
+
         for (int i = 0; i < faceCount; i++) {
-            AIFace aiFace = aiFaces.get(i);
-            IntBuffer intBuffer = aiFace.mIndices();
+            indexCount += AIFace.nmNumIndices(facesAddress + (long) i * AIFace.SIZEOF);
+        }
 
-            while (intBuffer.remaining() > 0) {
-                indexList.add(intBuffer.get());
-            }
+        IntBuffer indexBuffer = NativeMemory.memAllocInt(indexCount, MemoryCategory.MESH);
+        long targetAddress = MemoryUtil.memAddress(indexBuffer);
+
+        for (int i = 0; i < faceCount; i++) {
+            long faceAddress = facesAddress + (long) i * AIFace.SIZEOF;
+            long faceIndexBytes = (long) AIFace.nmNumIndices(faceAddress) * Integer.BYTES;
+
+            MemoryUtil.memCopy(
+                    MemoryUtil.memGetAddress(faceAddress + AIFace.MINDICES),
+                    targetAddress,
+                    faceIndexBytes
+            );
+            targetAddress += faceIndexBytes;
         }
+
+        return indexBuffer;
     }
 
-    private static void checkForErrors(
-            AIScene aiScene,
+    private static void checkArguments(
             int instances,
             MeshType meshType
     ) throws Exception {
-        if (aiScene == null) {
-            throw new Exception("Error loading model");
-        }
-
         if (instances < 1) {
             throw new Exception("Must have at least one instance");
         }
@@ -420,49 +603,20 @@ public class StaticMeshesLoader {
         }
     }
 
-    private static Mesh[] generateMeshArray(
-            AIScene aiScene,
-            List<Material> materialList,
-            int instances,
-            MeshType meshType
-    ) throws Exception {
+    private static MeshData[] generateMeshDataArray(AIScene aiScene) throws Exception {
         int numMeshes = aiScene.mNumMeshes();
         PointerBuffer aiMeshes = aiScene.mMeshes();
-        Mesh[] meshArray = new Mesh[numMeshes];
+        MeshData[] meshDataArray = new MeshData[numMeshes];
 
         if (aiMeshes != null) {
             for (int i = 0; i < numMeshes; i++) {
                 AIMesh aiMesh = AIMesh.create(aiMeshes.get(i));
-                Mesh mesh = processMesh(aiMesh, materialList, instances, meshType);
-                meshArray[i] = mesh;
+                meshDataArray[i] = processMeshData(aiMesh);
             }
         } else {
             throw new Exception("No Meshes were loaded.");
         }
 
-        return meshArray;
-    }
-
-    private static Mesh[] generateMeshArray(
-            AIScene aiScene,
-            Material material,
-            int instances,
-            MeshType meshType
-    ) throws Exception {
-        int numMeshes = aiScene.mNumMeshes();
-        PointerBuffer aiMeshes = aiScene.mMeshes();
-        Mesh[] meshArray = new Mesh[numMeshes];
-
-        if (aiMeshes != null) {
-            for (int i = 0; i < numMeshes; i++) {
-                AIMesh aiMesh = AIMesh.create(aiMeshes.get(i));
-                Mesh mesh = processMesh(aiMesh, material, instances, meshType);
-                meshArray[i] = mesh;
-            }
-        } else {
-            throw new Exception("No Meshes were loaded.");
-        }
-
-        return meshArray;
+        return meshDataArray;
     }
-}
\ No newline at end of file
+}
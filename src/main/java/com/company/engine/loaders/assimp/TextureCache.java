@@ -24,7 +24,7 @@ public class TextureCache implements IUsesResources {
         return INSTANCE;
     }
 
-    public Texture getTexture(String filePath) throws Exception {
+    public synchronized Texture getTexture(String filePath) throws Exception {
         Texture texture = mTextureMap.get(filePath);
 
         //store texture if not already instanced
@@ -36,16 +36,37 @@ public class TextureCache implements IUsesResources {
         return texture;
     }
 
+    /**
+     * Store a texture that was created elsewhere, e.g. by the AssetManager.
+     * An already cached texture with the same path is kept and returned instead, and the new one is cleaned up.
+     */
+    public synchronized Texture addTexture(String filePath, Texture texture) {
+        Texture cachedTexture = mTextureMap.get(filePath);
+
+        if (cachedTexture != null) {
+            if (cachedTexture != texture) {
+                texture.cleanUp();
+            }
+
+            return cachedTexture;
+        }
+
+        mTextureMap.put(filePath, texture);
+
+        return texture;
+    }
+
+    public synchronized boolean containsTexture(String filePath) {
+        return mTextureMap.containsKey(filePath);
+    }
+
     @Override
     public void cleanUp() {
-        for (String string : mTextureMap.keySet()) {
-            Texture texture = mTextureMap.get(string);
-
+        //removing while iterating the key set threw a ConcurrentModificationException
+        for (Texture texture : mTextureMap.values()) {
             if (texture != null) {
                 texture.cleanUp();
             }
-
-            mTextureMap.remove(string);
         }
 
         mTextureMap.clear();
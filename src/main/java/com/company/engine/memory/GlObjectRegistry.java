@@ -0,0 +1,71 @@
+package com.company.engine.memory;
+
+public final class GlObjectRegistry {
+
+    /**
+     * Every live OpenGL and OpenAL object with its type, estimated size and creation site.
+     *
+     * Wrap the call that creates the object, e.g.
+     * mVboId = GlObjectRegistry.register(GlObjectType.BUFFER, glGenBuffers());
+     * and call unregister next to the matching delete.
+     */
+
+    private static final ResourceTracker<GlObjectType> TRACKER =
+            new ResourceTracker<GlObjectType>("GlObjectRegistry", GlObjectType.class) {
+                @Override
+                protected String formatKey(long key) {
+                    return "id " + (int) key;
+                }
+            };
+
+    private GlObjectRegistry() {
+    }
+
+    /**
+     * @return id
+     */
+    public static int register(GlObjectType type, int id) {
+        return register(type, id, 0);
+    }
+
+    /**
+     * @param sizeBytes estimated GPU memory used by the object, 0 if it is not known yet
+     * @return id
+     */
+    public static int register(GlObjectType type, int id, long sizeBytes) {
+        if (ResourceTracker.TRACKING && id != 0) {
+            TRACKER.add(toKey(type, id), type, sizeBytes);
+        }
+
+        return id;
+    }
+
+    public static void setSize(GlObjectType type, int id, long sizeBytes) {
+        if (ResourceTracker.TRACKING && id != 0) {
+            TRACKER.setBytes(toKey(type, id), sizeBytes);
+        }
+    }
+
+    public static void unregister(GlObjectType type, int id) {
+        if (ResourceTracker.TRACKING && id != 0) {
+            TRACKER.remove(toKey(type, id));
+        }
+    }
+
+    public static void unregister(GlObjectType type, int[] ids) {
+        for (int id : ids) {
+            unregister(type, id);
+        }
+    }
+
+    /**
+     * Ids are only unique within a type, so the type is kept in the upper half of the key
+     */
+    private static long toKey(GlObjectType type, int id) {
+        return ((long) type.ordinal() << 32) | (id & 0xffffffffL);
+    }
+
+    public static ResourceTracker<GlObjectType> getTracker() {
+        return TRACKER;
+    }
+}
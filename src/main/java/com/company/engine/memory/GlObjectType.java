@@ -0,0 +1,13 @@
+package com.company.engine.memory;
+
+public enum GlObjectType {
+    BUFFER,
+    VERTEX_ARRAY,
+    TEXTURE,
+    FRAMEBUFFER,
+    SHADER,
+    PROGRAM,
+    //OpenAL objects are managed the same way so they are tracked alongside
+    AL_BUFFER,
+    AL_SOURCE
+}
@@ -0,0 +1,10 @@
+package com.company.engine.memory;
+
+public enum MemoryCategory {
+    MESH, //vertex and index data before it is uploaded, and instance data buffers
+    TEXTURE, //decoded images and mip levels
+    ANIMATION, //joint palettes and baked animation textures
+    HUD, //text and sprite batch vertices
+    AUDIO, //decoded and streamed PCM samples
+    CACHE //buffers used to read and write the on disk caches
+}
@@ -0,0 +1,96 @@
+package com.company.engine.memory;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+public final class NativeMemory {
+
+    /**
+     * MemoryUtil's allocation methods, recording the category, size and creation site of every buffer
+     * until it is freed. Memory allocated by a native library, e.g. an image decoded by stb_image,
+     * can be recorded with track and untrack.
+     *
+     * Buffers must be freed with memFree here so they stop being tracked.
+     */
+
+    private static final ResourceTracker<MemoryCategory> TRACKER =
+            new ResourceTracker<>("NativeMemory", MemoryCategory.class);
+
+    private NativeMemory() {
+    }
+
+    public static ByteBuffer memAlloc(int size, MemoryCategory category) {
+        return track(MemoryUtil.memAlloc(size), category);
+    }
+
+    public static ByteBuffer memCalloc(int size, MemoryCategory category) {
+        return track(MemoryUtil.memCalloc(size), category);
+    }
+
+    public static FloatBuffer memAllocFloat(int size, MemoryCategory category) {
+        return track(MemoryUtil.memAllocFloat(size), category);
+    }
+
+    public static IntBuffer memAllocInt(int size, MemoryCategory category) {
+        return track(MemoryUtil.memAllocInt(size), category);
+    }
+
+    public static ShortBuffer memAllocShort(int size, MemoryCategory category) {
+        return track(MemoryUtil.memAllocShort(size), category);
+    }
+
+    /**
+     * @param buffer a buffer from one of the allocation methods, may be null
+     */
+    public static void memFree(Buffer buffer) {
+        untrack(buffer);
+        MemoryUtil.memFree(buffer);
+    }
+
+    /**
+     * Record a buffer that was allocated outside of NativeMemory, it is counted from its capacity.
+     *
+     * @return buffer
+     */
+    public static <B extends Buffer> B track(B buffer, MemoryCategory category) {
+        if (ResourceTracker.TRACKING && buffer != null) {
+            TRACKER.add(MemoryUtil.memAddress0(buffer), category, getSizeBytes(buffer));
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Stop recording a buffer, call before it is freed by whatever allocated it.
+     */
+    public static void untrack(Buffer buffer) {
+        if (ResourceTracker.TRACKING && buffer != null) {
+            TRACKER.remove(MemoryUtil.memAddress0(buffer));
+        }
+    }
+
+    private static long getSizeBytes(Buffer buffer) {
+        long capacity = buffer.capacity();
+
+        if (buffer instanceof ByteBuffer) {
+            return capacity;
+        } else if (buffer instanceof ShortBuffer) {
+            return capacity * Short.BYTES;
+        } else if (buffer instanceof FloatBuffer) {
+            return capacity * Float.BYTES;
+        } else if (buffer instanceof IntBuffer) {
+            return capacity * Integer.BYTES;
+        }
+
+        return capacity * Long.BYTES;
+    }
+
+    public static ResourceTracker<MemoryCategory> getTracker() {
+        return TRACKER;
+    }
+}
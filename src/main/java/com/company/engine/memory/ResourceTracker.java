@@ -0,0 +1,224 @@
+package com.company.engine.memory;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ResourceTracker<T extends Enum<T>> {
+
+    /**
+     * The live resources of one kind, keyed by address or id, with counts and bytes per category.
+     *
+     * Adding and removing a resource is a map operation under the tracker's lock, resources are created
+     * at load time rather than every frame so this is cheap enough to leave on. The creation site is kept
+     * as a Throwable, its stack trace is only turned into StackTraceElements if a leak is printed.
+     *
+     * -Dengine.trackResources=false turns tracking off, -Dengine.trackResourceSites=false keeps the
+     * totals but stops recording where each resource was created.
+     */
+
+    public static final boolean TRACKING = !"false".equals(System.getProperty("engine.trackResources"));
+    public static final boolean CAPTURING_SITES =
+            TRACKING && !"false".equals(System.getProperty("engine.trackResourceSites"));
+
+    private static final int MAX_PRINTED_LEAKS = 50;
+    private static final int MAX_PRINTED_FRAMES = 8;
+
+    private final String mName;
+    private final T[] mCategories;
+    private final Map<Long, Resource<T>> mLiveResources;
+    private final long[] mLiveCounts;
+    private final long[] mLiveBytes;
+    private final long[] mPeakBytes;
+
+    ResourceTracker(String name, Class<T> categoryClass) {
+        mName = name;
+        mCategories = categoryClass.getEnumConstants();
+        mLiveResources = new HashMap<>();
+        mLiveCounts = new long[mCategories.length];
+        mLiveBytes = new long[mCategories.length];
+        mPeakBytes = new long[mCategories.length];
+    }
+
+    synchronized void add(long key, T category, long bytes) {
+        Resource<T> resource = new Resource<>(category, bytes, CAPTURING_SITES ? new Throwable() : null);
+        Resource<T> replaced = mLiveResources.put(key, resource);
+
+        //the key was reused without being removed, e.g. a GL id deleted without going through the registry
+        if (replaced != null) {
+            subtract(replaced);
+        }
+
+        int ordinal = category.ordinal();
+        mLiveCounts[ordinal]++;
+        addBytes(ordinal, bytes);
+    }
+
+    synchronized void setBytes(long key, long bytes) {
+        Resource<T> resource = mLiveResources.get(key);
+
+        if (resource != null) {
+            addBytes(resource.mCategory.ordinal(), bytes - resource.mBytes);
+            resource.mBytes = bytes;
+        }
+    }
+
+    /**
+     * @return false if nothing was tracked with the key
+     */
+    synchronized boolean remove(long key) {
+        Resource<T> resource = mLiveResources.remove(key);
+
+        if (resource == null) {
+            return false;
+        }
+
+        subtract(resource);
+
+        return true;
+    }
+
+    private void subtract(Resource<T> resource) {
+        int ordinal = resource.mCategory.ordinal();
+        mLiveCounts[ordinal]--;
+        mLiveBytes[ordinal] -= resource.mBytes;
+    }
+
+    private void addBytes(int ordinal, long bytes) {
+        mLiveBytes[ordinal] += bytes;
+        mPeakBytes[ordinal] = Math.max(mPeakBytes[ordinal], mLiveBytes[ordinal]);
+    }
+
+    public synchronized long getLiveCount(T category) {
+        return mLiveCounts[category.ordinal()];
+    }
+
+    public synchronized long getLiveBytes(T category) {
+        return mLiveBytes[category.ordinal()];
+    }
+
+    public synchronized long getPeakBytes(T category) {
+        return mPeakBytes[category.ordinal()];
+    }
+
+    public synchronized long getTotalLiveCount() {
+        return mLiveResources.size();
+    }
+
+    public synchronized long getTotalLiveBytes() {
+        long bytes = 0;
+
+        for (long categoryBytes : mLiveBytes) {
+            bytes += categoryBytes;
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Print the live count, live bytes and peak bytes of every category that has been used.
+     */
+    public synchronized void printTotals(PrintStream out) {
+        out.println(mName + ": " + mLiveResources.size() + " live, " + getTotalLiveBytes() + " bytes");
+
+        for (int i = 0; i < mCategories.length; i++) {
+            if (mLiveCounts[i] == 0 && mPeakBytes[i] == 0) {
+                continue;
+            }
+
+            out.println(
+                    "    " + mCategories[i] +
+                            ": " + mLiveCounts[i] + " live, " +
+                            mLiveBytes[i] + " bytes, peak " +
+                            mPeakBytes[i] + " bytes"
+            );
+        }
+    }
+
+    /**
+     * Print every resource that is still live with where it was created, call once everything has been cleaned up.
+     *
+     * @return the number of leaked resources
+     */
+    public int printLeaks(PrintStream out) {
+        List<Map.Entry<Long, Resource<T>>> leaks;
+
+        if (!TRACKING) {
+            out.println(mName + ": tracking is off, see -Dengine.trackResources");
+            return 0;
+        }
+
+        synchronized (this) {
+            leaks = new ArrayList<>(mLiveResources.entrySet());
+        }
+
+        if (leaks.isEmpty()) {
+            out.println(mName + ": no leaks");
+            return 0;
+        }
+
+        printTotals(out);
+        out.println(mName + ": " + leaks.size() + " leaked");
+
+        for (int i = 0; i < leaks.size() && i < MAX_PRINTED_LEAKS; i++) {
+            Resource<T> resource = leaks.get(i).getValue();
+
+            out.println(
+                    "  " + resource.mCategory +
+                            " " + formatKey(leaks.get(i).getKey()) +
+                            ", " + resource.mBytes + " bytes"
+            );
+            printSite(out, resource.mSite);
+        }
+
+        if (leaks.size() > MAX_PRINTED_LEAKS) {
+            out.println("  ..." + (leaks.size() - MAX_PRINTED_LEAKS) + " more");
+        }
+
+        return leaks.size();
+    }
+
+    /**
+     * How a key is shown in a leak report, an address by default.
+     */
+    protected String formatKey(long key) {
+        return "0x" + Long.toHexString(key);
+    }
+
+    private static void printSite(PrintStream out, Throwable site) {
+        if (site == null) {
+            out.println("    created at an unknown site, see -Dengine.trackResourceSites");
+            return;
+        }
+
+        int printedFrames = 0;
+
+        for (StackTraceElement element : site.getStackTrace()) {
+            //skip the trackers' own frames so the first line is the caller
+            if (element.getClassName().startsWith(ResourceTracker.class.getPackage().getName())) {
+                continue;
+            }
+
+            out.println("    at " + element);
+
+            if (++printedFrames == MAX_PRINTED_FRAMES) {
+                break;
+            }
+        }
+    }
+
+    private static class Resource<C extends Enum<C>> {
+
+        private final C mCategory;
+        private final Throwable mSite; //null when sites aren't captured
+        private long mBytes;
+
+        private Resource(C category, long bytes, Throwable site) {
+            mCategory = category;
+            mBytes = bytes;
+            mSite = site;
+        }
+    }
+}
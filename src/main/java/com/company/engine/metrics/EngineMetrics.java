@@ -0,0 +1,312 @@
+package com.company.engine.metrics;
+
+import com.company.engine.IUsesResources;
+import com.company.engine.memory.GlObjectRegistry;
+import com.company.engine.memory.NativeMemory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+public class EngineMetrics implements EngineMetricsMXBean, IUsesResources {
+
+    /**
+     * Per frame counters of the engine, with rolling means and maxima over the last WINDOW_FRAMES frames.
+     *
+     * Counters are plain longs added to on the game loop thread, which owns the OpenGL context,
+     * so counting costs an array add. Only endFrame takes a lock, to move the frame into the window
+     * read by JMX. Other threads publish through their own setters, see setAudioVoiceCount.
+     *
+     * register publishes the aggregates as the MBean com.company.engine:type=EngineMetrics.
+     * While a JFR recording enables com.company.engine.Frame every frame is also emitted as an event,
+     * so engine behaviour can be lined up with the GC and CPU samples of the same recording.
+     */
+
+    public static final int WINDOW_FRAMES = 120;
+    public static final String OBJECT_NAME = "com.company.engine:type=EngineMetrics";
+
+    private static final MetricType[] METRIC_TYPES = MetricType.values();
+
+    private static EngineMetrics INSTANCE;
+
+    private final long[] mFrameValues; //the frame being counted, indexed by MetricType ordinal
+    private final long[][] mWindowValues; //[MetricType ordinal][frame], a ring of finished frames
+    private final long[] mWindowSums;
+    private final FrameEventRecorder mFrameEventRecorder; //null without JFR
+
+    private long mFrameStartNanos;
+    private long mFrameCount;
+    private int mWindowIndex;
+    private int mWindowFrameCount;
+    private volatile int mAudioVoiceCount;
+    private ObjectName mObjectName; //null while not registered
+
+    private EngineMetrics() {
+        mFrameValues = new long[METRIC_TYPES.length];
+        mWindowValues = new long[METRIC_TYPES.length][WINDOW_FRAMES];
+        mWindowSums = new long[METRIC_TYPES.length];
+        mFrameEventRecorder = FrameEventRecorder.create();
+    }
+
+    public static synchronized EngineMetrics getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new EngineMetrics();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Publish the metrics over JMX, does nothing if they already are.
+     */
+    public void register() {
+        if (mObjectName != null) {
+            return;
+        }
+
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+
+            mObjectName = objectName;
+        } catch (Exception e) {
+            System.err.println("EngineMetrics: could not register the MBean, " + e.getMessage());
+        }
+    }
+
+    public void beginFrame() {
+        mFrameStartNanos = System.nanoTime();
+
+        if (mFrameEventRecorder != null) {
+            mFrameEventRecorder.beginFrame();
+        }
+    }
+
+    /**
+     * Move the frame into the rolling window and start counting the next one from 0.
+     */
+    public void endFrame() {
+        long[] frameValues = mFrameValues;
+
+        if (mFrameStartNanos != 0) {
+            frameValues[MetricType.FRAME_NANOS.ordinal()] = System.nanoTime() - mFrameStartNanos;
+        }
+
+        frameValues[MetricType.AUDIO_VOICES.ordinal()] = mAudioVoiceCount;
+
+        if (mFrameEventRecorder != null) {
+            mFrameEventRecorder.endFrame(frameValues);
+        }
+
+        synchronized (mWindowValues) {
+            for (int i = 0; i < frameValues.length; i++) {
+                mWindowSums[i] += frameValues[i] - mWindowValues[i][mWindowIndex];
+                mWindowValues[i][mWindowIndex] = frameValues[i];
+            }
+
+            mWindowIndex = (mWindowIndex + 1) % WINDOW_FRAMES;
+            mWindowFrameCount = Math.min(mWindowFrameCount + 1, WINDOW_FRAMES);
+            mFrameCount++;
+        }
+
+        for (int i = 0; i < frameValues.length; i++) {
+            if (METRIC_TYPES[i].isResetEachFrame()) {
+                frameValues[i] = 0;
+            }
+        }
+
+        mFrameStartNanos = 0;
+    }
+
+    /**
+     * Add to a counter of the current frame, or move a gauge by value.
+     * Only call on the game loop thread.
+     */
+    public void add(MetricType metricType, long value) {
+        mFrameValues[metricType.ordinal()] += value;
+    }
+
+    /**
+     * @return the value counted so far in the current frame
+     */
+    public long get(MetricType metricType) {
+        return mFrameValues[metricType.ordinal()];
+    }
+
+    /**
+     * Called by the audio thread after it hands out the voices.
+     */
+    public void setAudioVoiceCount(int audioVoiceCount) {
+        mAudioVoiceCount = audioVoiceCount;
+    }
+
+    public double getMean(MetricType metricType) {
+        synchronized (mWindowValues) {
+            return mWindowFrameCount > 0 ? (double) mWindowSums[metricType.ordinal()] / mWindowFrameCount : 0;
+        }
+    }
+
+    public long getMax(MetricType metricType) {
+        synchronized (mWindowValues) {
+            long[] values = mWindowValues[metricType.ordinal()];
+            long max = 0;
+
+            for (int i = 0; i < mWindowFrameCount; i++) {
+                max = Math.max(max, values[i]);
+            }
+
+            return max;
+        }
+    }
+
+    /**
+     * @return the value of the last finished frame
+     */
+    public long getLast(MetricType metricType) {
+        synchronized (mWindowValues) {
+            return mWindowValues[metricType.ordinal()][(mWindowIndex + WINDOW_FRAMES - 1) % WINDOW_FRAMES];
+        }
+    }
+
+    @Override
+    public long getFrameCount() {
+        synchronized (mWindowValues) {
+            return mFrameCount;
+        }
+    }
+
+    @Override
+    public int getWindowFrameCount() {
+        synchronized (mWindowValues) {
+            return mWindowFrameCount;
+        }
+    }
+
+    @Override
+    public double getFrameMillisMean() {
+        return getMean(MetricType.FRAME_NANOS) / 1_000_000.0;
+    }
+
+    @Override
+    public double getFrameMillisMax() {
+        return getMax(MetricType.FRAME_NANOS) / 1_000_000.0;
+    }
+
+    @Override
+    public double getUpdateMillisMean() {
+        return getMean(MetricType.UPDATE_NANOS) / 1_000_000.0;
+    }
+
+    @Override
+    public double getUpdateMillisMax() {
+        return getMax(MetricType.UPDATE_NANOS) / 1_000_000.0;
+    }
+
+    @Override
+    public double getDrawCallsMean() {
+        return getMean(MetricType.DRAW_CALLS);
+    }
+
+    @Override
+    public long getDrawCallsMax() {
+        return getMax(MetricType.DRAW_CALLS);
+    }
+
+    @Override
+    public double getTrianglesMean() {
+        return getMean(MetricType.TRIANGLES);
+    }
+
+    @Override
+    public long getTrianglesMax() {
+        return getMax(MetricType.TRIANGLES);
+    }
+
+    @Override
+    public double getInstancesMean() {
+        return getMean(MetricType.INSTANCES);
+    }
+
+    @Override
+    public double getUniformUploadsMean() {
+        return getMean(MetricType.UNIFORM_UPLOADS);
+    }
+
+    @Override
+    public long getUniformUploadsMax() {
+        return getMax(MetricType.UNIFORM_UPLOADS);
+    }
+
+    @Override
+    public double getBufferBytesUploadedMean() {
+        return getMean(MetricType.BUFFER_BYTES_UPLOADED);
+    }
+
+    @Override
+    public long getBufferBytesUploadedMax() {
+        return getMax(MetricType.BUFFER_BYTES_UPLOADED);
+    }
+
+    @Override
+    public double getItemsCulledMean() {
+        return getMean(MetricType.ITEMS_CULLED);
+    }
+
+    @Override
+    public long getLiveParticles() {
+        return getLast(MetricType.LIVE_PARTICLES);
+    }
+
+    @Override
+    public long getTextureBytes() {
+        return getLast(MetricType.TEXTURE_BYTES);
+    }
+
+    @Override
+    public long getAudioVoices() {
+        return getLast(MetricType.AUDIO_VOICES);
+    }
+
+    @Override
+    public long getNativeMemoryBytes() {
+        return NativeMemory.getTracker().getTotalLiveBytes();
+    }
+
+    @Override
+    public long getGlObjectCount() {
+        return GlObjectRegistry.getTracker().getTotalLiveCount();
+    }
+
+    @Override
+    public void resetAggregates() {
+        synchronized (mWindowValues) {
+            for (int i = 0; i < mWindowValues.length; i++) {
+                Arrays.fill(mWindowValues[i], 0);
+                mWindowSums[i] = 0;
+            }
+
+            mWindowIndex = 0;
+            mWindowFrameCount = 0;
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        if (mObjectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mObjectName);
+        } catch (Exception e) {
+            System.err.println("EngineMetrics: could not unregister the MBean, " + e.getMessage());
+        }
+
+        mObjectName = null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.company.engine.metrics;
+
+public interface EngineMetricsMXBean {
+
+    /*
+    What EngineMetrics publishes over JMX, as com.company.engine:type=EngineMetrics.
+    Means and maxima are over the last EngineMetrics.WINDOW_FRAMES frames.
+     */
+
+    long getFrameCount();
+
+    int getWindowFrameCount();
+
+    double getFrameMillisMean();
+
+    double getFrameMillisMax();
+
+    double getUpdateMillisMean();
+
+    double getUpdateMillisMax();
+
+    double getDrawCallsMean();
+
+    long getDrawCallsMax();
+
+    double getTrianglesMean();
+
+    long getTrianglesMax();
+
+    double getInstancesMean();
+
+    double getUniformUploadsMean();
+
+    long getUniformUploadsMax();
+
+    double getBufferBytesUploadedMean();
+
+    long getBufferBytesUploadedMax();
+
+    double getItemsCulledMean();
+
+    long getLiveParticles();
+
+    long getTextureBytes();
+
+    long getAudioVoices();
+
+    long getNativeMemoryBytes(); //allocated through NativeMemory and not freed yet
+
+    long getGlObjectCount(); //OpenGL and OpenAL objects in the GlObjectRegistry
+
+    void resetAggregates();
+}
@@ -0,0 +1,71 @@
+package com.company.engine.metrics;
+
+import jdk.jfr.EventType;
+
+class FrameEventRecorder {
+
+    /**
+     * Emits a FrameMetricsEvent per frame while a JFR recording has the event enabled.
+     * Nothing is allocated for frames that are not recorded.
+     */
+
+    private final EventType mEventType;
+
+    private FrameMetricsEvent mEvent; //the frame being recorded, null if it isn't
+
+    private FrameEventRecorder() {
+        mEventType = EventType.getEventType(FrameMetricsEvent.class);
+    }
+
+    /**
+     * @return null if this JVM has no JFR
+     */
+    static FrameEventRecorder create() {
+        try {
+            Class.forName("jdk.jfr.Event");
+
+            return new FrameEventRecorder();
+        } catch (ClassNotFoundException | LinkageError e) {
+            System.out.println("FrameEventRecorder: JFR is not available, frame events are disabled");
+
+            return null;
+        }
+    }
+
+    void beginFrame() {
+        if (mEventType.isEnabled()) {
+            mEvent = new FrameMetricsEvent();
+            mEvent.begin();
+        }
+    }
+
+    /**
+     * @param values the frame's values, indexed by MetricType ordinal
+     */
+    void endFrame(long[] values) {
+        FrameMetricsEvent event = mEvent;
+
+        if (event == null) {
+            return;
+        }
+
+        mEvent = null;
+        event.end();
+
+        if (!event.shouldCommit()) {
+            return;
+        }
+
+        event.updateTime = values[MetricType.UPDATE_NANOS.ordinal()];
+        event.drawCalls = values[MetricType.DRAW_CALLS.ordinal()];
+        event.triangles = values[MetricType.TRIANGLES.ordinal()];
+        event.instances = values[MetricType.INSTANCES.ordinal()];
+        event.uniformUploads = values[MetricType.UNIFORM_UPLOADS.ordinal()];
+        event.bufferBytesUploaded = values[MetricType.BUFFER_BYTES_UPLOADED.ordinal()];
+        event.itemsCulled = values[MetricType.ITEMS_CULLED.ordinal()];
+        event.liveParticles = values[MetricType.LIVE_PARTICLES.ordinal()];
+        event.textureBytes = values[MetricType.TEXTURE_BYTES.ordinal()];
+        event.audioVoices = values[MetricType.AUDIO_VOICES.ordinal()];
+        event.commit();
+    }
+}
@@ -0,0 +1,53 @@
+package com.company.engine.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.company.engine.Frame")
+@Label("Engine Frame")
+@Category({"Engine"})
+@Description("Counters of one frame of the game loop, its duration is the frame")
+class FrameMetricsEvent extends Event {
+
+    /*
+    Only loaded through FrameEventRecorder, so the engine still runs on a JVM without jdk.jfr
+     */
+
+    @Label("Update Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateTime;
+
+    @Label("Draw Calls")
+    long drawCalls;
+
+    @Label("Triangles")
+    long triangles;
+
+    @Label("Instances")
+    long instances;
+
+    @Label("Uniform Uploads")
+    long uniformUploads;
+
+    @Label("Buffer Bytes Uploaded")
+    @DataAmount
+    long bufferBytesUploaded;
+
+    @Label("Items Culled")
+    long itemsCulled;
+
+    @Label("Live Particles")
+    long liveParticles;
+
+    @Label("Texture Memory")
+    @DataAmount
+    long textureBytes;
+
+    @Label("Audio Voices")
+    long audioVoices;
+}
@@ -0,0 +1,28 @@
+package com.company.engine.metrics;
+
+public enum MetricType {
+    DRAW_CALLS(true),
+    TRIANGLES(true),
+    INSTANCES(true), //items drawn, an instanced draw call draws several
+    UNIFORM_UPLOADS(true), //glUniform calls made by ShaderPrograms
+    BUFFER_BYTES_UPLOADED(true), //vertex, index and uniform data given to glBufferData and glBufferSubData
+    ITEMS_CULLED(true), //items skipped because they were outside the frustum
+    LIVE_PARTICLES(true),
+    FRAME_NANOS(true), //from EngineMetrics.beginFrame to endFrame
+    UPDATE_NANOS(true), //time spent in game logic updates during the frame
+    TEXTURE_BYTES(false), //estimated GPU memory of every texture that has not been cleaned up
+    AUDIO_VOICES(false); //OpenAL voices playing a sound
+
+    private final boolean mResetEachFrame;
+
+    /**
+     * @param resetEachFrame true for counters that start at 0 every frame, false for gauges that keep their value
+     */
+    MetricType(boolean resetEachFrame) {
+        mResetEachFrame = resetEachFrame;
+    }
+
+    public boolean isResetEachFrame() {
+        return mResetEachFrame;
+    }
+}
@@ -21,6 +21,9 @@ public class Scene implements IUsesResources {
     private IHud mHud;
     private Map<Mesh, List<GameItem>> mGameItemMeshMap; //stores GameItems based on their Mesh
     private Map<InstancedMesh, List<GameItem>> mGameItemInstancedMesh;
+    //the keys of the maps above in the order they were added, so the Renderer can walk them without iterators
+    private final List<Mesh> mMeshList;
+    private final List<InstancedMesh> mInstancedMeshList;
     private IParticleEmitter[] mParticleEmitters;
     private MouseInput mMouseInput;
     private KeyboardInput mKeyboardInput;
@@ -34,6 +37,8 @@ public class Scene implements IUsesResources {
     public Scene() {
         mGameItemMeshMap = new HashMap<>();
         mGameItemInstancedMesh = new HashMap<>();
+        mMeshList = new ArrayList<>();
+        mInstancedMeshList = new ArrayList<>();
         mRenderingParticleEmitters = true;
         mRenderingHud = true;
         mRenderingSkyBox = true;
@@ -57,8 +62,10 @@ public class Scene implements IUsesResources {
                     gameItemList = new ArrayList<>();
                     if (isInstanced) {
                         mGameItemInstancedMesh.put((InstancedMesh) mesh, gameItemList);
+                        mInstancedMeshList.add((InstancedMesh) mesh);
                     } else {
                         mGameItemMeshMap.put(mesh, gameItemList);
+                        mMeshList.add(mesh);
                     }
                 }
 
@@ -74,15 +81,18 @@ public class Scene implements IUsesResources {
         }
 
         if (mGameItemMeshMap != null) {
-            for (Mesh mesh : mGameItemMeshMap.keySet()) {
-                for (GameItem gameItem : mGameItemMeshMap.get(mesh)) {
-                    gameItem.cleanUp();
-                }
-                mesh.cleanUp();
-            }
+            cleanUpGameItems(mGameItemMeshMap);
             mGameItemMeshMap = null;
         }
 
+        if (mGameItemInstancedMesh != null) {
+            cleanUpGameItems(mGameItemInstancedMesh);
+            mGameItemInstancedMesh = null;
+        }
+
+        mMeshList.clear();
+        mInstancedMeshList.clear();
+
         if (mParticleEmitters != null) {
             for (IParticleEmitter particleEmitter : mParticleEmitters) {
                 if (particleEmitter != null) {
@@ -92,6 +102,15 @@ public class Scene implements IUsesResources {
         }
     }
 
+    private static void cleanUpGameItems(Map<? extends Mesh, List<GameItem>> meshGameItemMap) {
+        for (Mesh mesh : meshGameItemMap.keySet()) {
+            for (GameItem gameItem : meshGameItemMap.get(mesh)) {
+                gameItem.cleanUp();
+            }
+            mesh.cleanUp();
+        }
+    }
+
     public IHud getHud() {
         return mHud;
     }
@@ -106,6 +125,16 @@ public class Scene implements IUsesResources {
 
     public void setGameItemMeshMap(Map<Mesh, List<GameItem>> mGameItemMeshMap) {
         this.mGameItemMeshMap = mGameItemMeshMap;
+
+        mMeshList.clear();
+        mMeshList.addAll(mGameItemMeshMap.keySet());
+    }
+
+    /**
+     * @return the Meshes of getGameItemMeshMap, add GameItems with addSceneGameItems to keep them in step
+     */
+    public List<Mesh> getMeshList() {
+        return mMeshList;
     }
 
     public MouseInput getMouseInput() {
@@ -152,6 +181,10 @@ public class Scene implements IUsesResources {
         return mGameItemInstancedMesh;
     }
 
+    public List<InstancedMesh> getInstancedMeshList() {
+        return mInstancedMeshList;
+    }
+
     public boolean isRenderingParticleEmitters() {
         return mRenderingParticleEmitters;
     }
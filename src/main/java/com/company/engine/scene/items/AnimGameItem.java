@@ -1,5 +1,6 @@
 package com.company.engine.scene.items;
 
+import com.company.engine.graph.anim.AnimatedFrame;
 import com.company.engine.graph.anim.Animation;
 import com.company.engine.graph.mesh.Mesh;
 
@@ -11,6 +12,14 @@ public class AnimGameItem extends GameItem {
     private Map<String, Animation> mAnimationMap;
     private Animation mCurrentAnimation;
 
+    //playback
+    private final float[] mJointPalette; //joint matrices of the current pose, see Animation.sample
+    private double mAnimationTime;
+    private float mPlaybackSpeed;
+    private double mTimeSincePoseUpdate;
+    private boolean mPoseAvailable;
+    private long mLastAdvancedFrame;
+
     public AnimGameItem(Mesh[] meshArray, Map<String, Animation> animationMap) {
         super(meshArray);
 
@@ -21,6 +30,35 @@ public class AnimGameItem extends GameItem {
                 animationMap.entrySet().stream().findFirst();
 
         mCurrentAnimation = entry.isPresent() ? entry.get().getValue() : null;
+        mJointPalette = new float[AnimatedFrame.MAX_JOINTS * Animation.JOINT_MATRIX_SIZE];
+        mPlaybackSpeed = 1.0f;
+        mLastAdvancedFrame = -1;
+    }
+
+    /**
+     * Move the animation time forward, the pose is only evaluated when evaluatePose is called.
+     *
+     * @param interval seconds since the last call
+     */
+    public void advanceAnimation(double interval) {
+        mAnimationTime += interval * mPlaybackSpeed;
+        mTimeSincePoseUpdate += interval;
+    }
+
+    /**
+     * Sample the current animation into the joint palette.
+     * Only touches this item so different items can be evaluated on different threads.
+     */
+    public void evaluatePose() {
+        mTimeSincePoseUpdate = 0;
+
+        if (mCurrentAnimation == null) {
+            mPoseAvailable = false;
+            return;
+        }
+
+        mCurrentAnimation.sample(mAnimationTime, mJointPalette);
+        mPoseAvailable = true;
     }
 
     public Animation getAnimation(String name) {
@@ -33,5 +71,53 @@ public class AnimGameItem extends GameItem {
 
     public void setCurrentAnimation(Animation currentAnimation) {
         mCurrentAnimation = currentAnimation;
+        mAnimationTime = 0;
+        mPoseAvailable = false;
+    }
+
+    public float[] getJointPalette() {
+        return mJointPalette;
+    }
+
+    public int getJointCount() {
+        return mCurrentAnimation != null ? mCurrentAnimation.getJointCount() : 0;
+    }
+
+    /**
+     * @return true once a pose of the current animation has been evaluated
+     */
+    public boolean isPoseAvailable() {
+        return mPoseAvailable;
+    }
+
+    public double getTimeSincePoseUpdate() {
+        return mTimeSincePoseUpdate;
+    }
+
+    public void setAnimationTime(double animationTime) {
+        mAnimationTime = animationTime;
+    }
+
+    public double getAnimationTime() {
+        return mAnimationTime;
+    }
+
+    public void setPlaybackSpeed(float playbackSpeed) {
+        mPlaybackSpeed = playbackSpeed;
+    }
+
+    public float getPlaybackSpeed() {
+        return mPlaybackSpeed;
+    }
+
+    /**
+     * Used by the Animator to advance items that use more than one Mesh once per frame.
+     */
+    public void setLastAdvancedFrame(long lastAdvancedFrame) {
+        mLastAdvancedFrame = lastAdvancedFrame;
+    }
+
+    public long getLastAdvancedFrame() {
+        return mLastAdvancedFrame;
     }
-}
\ No newline at end of file
+}
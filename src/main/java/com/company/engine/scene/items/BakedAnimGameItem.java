@@ -0,0 +1,74 @@
+package com.company.engine.scene.items;
+
+import com.company.engine.graph.anim.BakedAnimationTexture;
+import com.company.engine.graph.mesh.InstancedMesh;
+import com.company.engine.graph.mesh.Mesh;
+
+public class BakedAnimGameItem extends GameItem {
+
+    /**
+     * A GameItem drawn by an InstancedMesh that plays a clip of the mesh's
+     * BakedAnimationTexture, the pose is evaluated in the vertex shader.
+     */
+
+    public static final int NO_CLIP = -1;
+
+    private int mClipIndex;
+    private float mTimeOffset;
+
+    public BakedAnimGameItem(Mesh mesh) {
+        super(mesh);
+        mClipIndex = 0;
+        mTimeOffset = 0;
+    }
+
+    public BakedAnimGameItem(Mesh[] meshArray) {
+        super(meshArray);
+        mClipIndex = 0;
+        mTimeOffset = 0;
+    }
+
+    /**
+     * @param clipIndex index of the Animation in the list that was baked, or NO_CLIP to stop animating
+     * @throws IllegalArgumentException if the mesh's BakedAnimationTexture has no clip at the index
+     */
+    public void setClipIndex(int clipIndex) {
+        int clipCount = getClipCount();
+
+        if (clipIndex != NO_CLIP && (clipIndex < 0 || clipIndex >= clipCount)) {
+            throw new IllegalArgumentException(
+                    "Clip index must be NO_CLIP or between 0 and " + (clipCount - 1) + ", got " + clipIndex
+            );
+        }
+
+        mClipIndex = clipIndex;
+    }
+
+    /**
+     * @return clips baked for the mesh, the most the shader can hold if the mesh isn't baked yet
+     */
+    private int getClipCount() {
+        Mesh mesh = getMesh();
+
+        if (mesh instanceof InstancedMesh && ((InstancedMesh) mesh).getBakedAnimationTexture() != null) {
+            return ((InstancedMesh) mesh).getBakedAnimationTexture().getClipCount();
+        }
+
+        return BakedAnimationTexture.MAX_CLIPS;
+    }
+
+    public int getClipIndex() {
+        return mClipIndex;
+    }
+
+    /**
+     * @param timeOffset seconds added to the animation time, stops every instance moving in step
+     */
+    public void setTimeOffset(float timeOffset) {
+        mTimeOffset = timeOffset;
+    }
+
+    public float getTimeOffset() {
+        return mTimeOffset;
+    }
+}
@@ -14,6 +14,7 @@ public class GameItem  implements IUsesResources {
     private int mTexturePos;
     private boolean mIgnoresFrustumCulling;
     private boolean mInsideFrustum;
+    private boolean mDirty; //changed since the retained HUD last drew it
 
     public GameItem() {
         mPosition = new Vector3f(0, 0, 0);
@@ -22,6 +23,7 @@ public class GameItem  implements IUsesResources {
         mTexturePos = 0;
         mIgnoresFrustumCulling = false;
         mInsideFrustum = true;
+        mDirty = true;
     }
 
     public GameItem(Mesh mesh) {
@@ -51,6 +53,7 @@ public class GameItem  implements IUsesResources {
         mPosition.x = x;
         mPosition.y = y;
         mPosition.z = z;
+        mDirty = true;
     }
 
     /**
@@ -59,10 +62,12 @@ public class GameItem  implements IUsesResources {
      */
     public void setRotation(Quaternionf rotationQuaternion) {
         mRotation.set(rotationQuaternion);
+        mDirty = true;
     }
 
     public void setScale(float mScale) {
         this.mScale = mScale;
+        mDirty = true;
     }
 
     public Vector3f getPosition() {
@@ -116,6 +121,23 @@ public class GameItem  implements IUsesResources {
         return mInsideFrustum;
     }
 
+    /**
+     * Mark the item as changed so a retained HUD draws it again.
+     * Setting the position, rotation or scale marks the item, changes made in any other way,
+     * such as to the vectors returned by the getters or to a Material, must call this.
+     */
+    public void markDirty() {
+        mDirty = true;
+    }
+
+    public void clearDirty() {
+        mDirty = false;
+    }
+
+    public boolean isDirty() {
+        return mDirty;
+    }
+
     public void setUsingTexture(boolean usingTexture) {
         if (mMeshArray != null && mMeshArray.length > 0) {
             for (Mesh mesh : mMeshArray) {
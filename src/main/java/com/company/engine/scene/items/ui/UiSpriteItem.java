@@ -0,0 +1,103 @@
+package com.company.engine.scene.items.ui;
+
+import com.company.engine.graph.material.Texture;
+import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.scene.items.GameItem;
+import org.joml.Vector4f;
+
+public class UiSpriteItem extends GameItem {
+
+    /**
+     * A textured, coloured rectangle on the HUD.
+     *
+     * Sprites have no Mesh, the Renderer collects them into a SpriteBatcher which draws
+     * every sprite sharing a texture with one draw call. Sprites are drawn in the order
+     * the IHud returns them, so sprites using the same atlas should be kept together.
+     *
+     * The texture is not owned by the sprite, it is usually an atlas shared by many sprites
+     * and must be cleaned up by whatever created it.
+     */
+
+    private final Vector4f mAtlasRect; //u0, v0, u1, v1
+    private final Vector4f mColour;
+
+    private Texture mTexture;
+    private float mWidth;
+    private float mHeight;
+
+    /**
+     * @param texture the texture or atlas of the sprite, null for a solid colour
+     * @param width in pixels, before the item's scale is applied
+     * @param height in pixels, before the item's scale is applied
+     */
+    public UiSpriteItem(Texture texture, float width, float height) {
+        super(new Mesh[0]);
+
+        mTexture = texture;
+        mWidth = width;
+        mHeight = height;
+        mAtlasRect = new Vector4f(0, 0, 1, 1);
+        mColour = new Vector4f(1, 1, 1, 1);
+    }
+
+    /**
+     * Use part of the texture, in texture coordinates.
+     */
+    public void setAtlasRect(float u0, float v0, float u1, float v1) {
+        mAtlasRect.set(u0, v0, u1, v1);
+        markDirty();
+    }
+
+    /**
+     * Use one tile of a texture divided into a grid of equal tiles.
+     */
+    public void setAtlasTile(int column, int row, int columnCount, int rowCount) {
+        setAtlasRect(
+                (float) column / columnCount,
+                (float) row / rowCount,
+                (float) (column + 1) / columnCount,
+                (float) (row + 1) / rowCount
+        );
+    }
+
+    public Vector4f getAtlasRect() {
+        return mAtlasRect;
+    }
+
+    public void setColour(float r, float g, float b, float a) {
+        mColour.set(r, g, b, a);
+        markDirty();
+    }
+
+    public Vector4f getColour() {
+        return mColour;
+    }
+
+    public void setSize(float width, float height) {
+        mWidth = width;
+        mHeight = height;
+        markDirty();
+    }
+
+    public float getWidth() {
+        return mWidth;
+    }
+
+    public float getHeight() {
+        return mHeight;
+    }
+
+    public void setTexture(Texture texture) {
+        mTexture = texture;
+        markDirty();
+    }
+
+    public Texture getTexture() {
+        return mTexture;
+    }
+
+    @Override
+    public Mesh getMesh() {
+        return null;
+    }
+}
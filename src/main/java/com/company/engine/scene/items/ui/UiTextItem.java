@@ -1,24 +1,30 @@
 package com.company.engine.scene.items.ui;
 
-import com.company.engine.utils.ArrayUtils;
 import com.company.engine.graph.material.Material;
 import com.company.engine.graph.material.Texture;
 import com.company.engine.graph.mesh.Mesh;
 import com.company.engine.scene.items.GameItem;
 
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 public class UiTextItem extends GameItem {
 
-    private static final int VERTICES_PER_QUAD = 4;
+    /**
+     * A line of HUD text drawn with a font atlas.
+     *
+     * The text has no Mesh of its own, the Renderer draws every UiTextItem through a
+     * TextBatcher which keeps the glyph quads in one streaming vertex buffer and only
+     * rewrites the glyphs that changed.
+     * The colour of the text is the colour of the Material.
+     */
 
     private final int mFontAtlasColumnCount;
     private final int mFontAtlasRowCount;
+    private final Material mMaterial;
 
     private String mText;
-    private float mZPosition;
+    private byte[] mChars; //the text as font atlas tile indices
+    private int mTextVersion; //increased whenever the text changes
 
     public UiTextItem(
             String text,
@@ -26,99 +32,100 @@ public class UiTextItem extends GameItem {
             int fontAtlasColumnCount,
             int fontAtlasRowCount
     ) throws Exception {
-        mText = text;
+        this(
+                text,
+                new Texture(fontAtlasPath),
+                fontAtlasColumnCount,
+                fontAtlasRowCount
+        );
+    }
+
+    /**
+     * Text drawn with an already loaded font atlas, the atlas is cleaned up with the UiTextItem.
+     */
+    public UiTextItem(
+            String text,
+            Texture fontAtlas,
+            int fontAtlasColumnCount,
+            int fontAtlasRowCount
+    ) {
+        super(new Mesh[0]);
+
         mFontAtlasColumnCount = fontAtlasColumnCount;
         mFontAtlasRowCount = fontAtlasRowCount;
-        mZPosition = 0.0f;
 
         //set the texture to the font atlas
-        Texture texture = new Texture(fontAtlasPath);
-        setMesh(buildMesh(texture, mFontAtlasColumnCount, mFontAtlasRowCount, mZPosition));
+        mMaterial = new Material(fontAtlas);
+
+        setText(text);
     }
 
-    private Mesh buildMesh(Texture texture, int columnCount, int rowCount, float zPosition) {
-
-        /*
-        Builds a mesh depending on the texture to the top left of the screen
-        Position should be changed in the application
-         */
-
-        byte[] chars = mText.getBytes(Charset.forName("ISO-8859-1"));
-        int numChars = chars.length;
-
-        List<Float> positions = new ArrayList<>();
-        List<Float> textCoords = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>();
-
-        float tileWidth = (float) texture.getWidth() / (float) columnCount;
-        float tileHeight = (float) texture.getHeight() / (float) rowCount;
-
-        for (int i = 0; i < numChars; i++) {
-            byte currentChar = chars[i];
-            int col = currentChar % columnCount;
-            int row = currentChar / columnCount;
-
-            //build a tile made up of two triangles
-
-            //top left vertex
-            positions.add((float) i * tileWidth); //x
-            positions.add(0.0f); //y
-            positions.add(zPosition); //z
-            textCoords.add((float) col / (float) columnCount);
-            textCoords.add((float) row / (float) rowCount);
-            indices.add(i * VERTICES_PER_QUAD);
-
-            //bottom left vertex
-            positions.add((float) i * tileWidth); //x
-            positions.add(tileHeight); //y
-            positions.add(zPosition); //z
-            textCoords.add((float) col / (float) columnCount);
-            textCoords.add((float) (row + 1) / (float) rowCount);
-            indices.add(i * VERTICES_PER_QUAD + 1);
-
-            //bottom right vertex
-            positions.add((float) (i + 1) * tileWidth); //x
-            positions.add(tileHeight); //y
-            positions.add(zPosition); //z
-            textCoords.add((float) (col + 1) / (float) columnCount);
-            textCoords.add((float) (row + 1) / (float) rowCount);
-            indices.add(i * VERTICES_PER_QUAD + 2);
-
-            //top right vertex
-            positions.add((float) (i + 1) * tileWidth); //x
-            positions.add(0.0f); //y
-            positions.add(zPosition); //z
-            textCoords.add((float) (col + 1) / (float) columnCount);
-            textCoords.add((float) row / (float) rowCount);
-            indices.add(i * VERTICES_PER_QUAD + 3);
-
-            //add the indices for the top left and bottom right vertices
-            indices.add(i * VERTICES_PER_QUAD);
-            indices.add(i * VERTICES_PER_QUAD + 2);
+    public void setText(String text) {
+        if (text.equals(mText)) {
+            return;
         }
 
-        float[] positionArray = ArrayUtils.listToFloatArray(positions);
-        float[] textCoordsArray = ArrayUtils.listToFloatArray(textCoords);
-        int[] indicesArray = ArrayUtils.listToIntArray(indices);
+        mText = text;
+        mChars = toChars(text, mChars);
+        mTextVersion++;
+        markDirty();
+    }
 
-        Mesh mesh = new Mesh(positionArray, textCoordsArray, null, indicesArray);
-        mesh.setMaterial(new Material(texture));
+    /**
+     * Reuses the old array when the text is the same length, so a changing counter doesn't allocate.
+     */
+    private static byte[] toChars(String text, byte[] oldChars) {
+        byte[] chars = oldChars != null && oldChars.length == text.length() ? oldChars : new byte[text.length()];
 
-        return mesh;
-    }
+        for (int i = 0; i < chars.length; i++) {
+            char c = text.charAt(i);
 
-    public void setText(String text) {
-        mText = text;
-        getMesh().deleteBuffers();
-        setMesh(buildMesh(
-                getMesh().getMaterial().getTexture(),
-                mFontAtlasColumnCount,
-                mFontAtlasRowCount,
-                mZPosition
-        ));
+            if (c > 0xFF) {
+                //let the charset replace what the font atlas can't show
+                return text.getBytes(StandardCharsets.ISO_8859_1);
+            }
+
+            chars[i] = (byte) c;
+        }
+
+        return chars;
     }
 
     public String getText() {
         return mText;
     }
-}
\ No newline at end of file
+
+    public byte[] getChars() {
+        return mChars;
+    }
+
+    public int getTextVersion() {
+        return mTextVersion;
+    }
+
+    public Material getMaterial() {
+        return mMaterial;
+    }
+
+    public Texture getFontTexture() {
+        return mMaterial.getTexture();
+    }
+
+    public int getFontAtlasColumnCount() {
+        return mFontAtlasColumnCount;
+    }
+
+    public int getFontAtlasRowCount() {
+        return mFontAtlasRowCount;
+    }
+
+    @Override
+    public Mesh getMesh() {
+        return null;
+    }
+
+    @Override
+    public void cleanUp() {
+        mMaterial.cleanUp();
+    }
+}
@@ -0,0 +1,172 @@
+package com.company.engine.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class CacheUtils {
+
+    /**
+     * Naming, hashing and header helpers shared by the on-disk caches (MeshCache and PcmCache).
+     *
+     * A cache file is named after a hash of its normalised source path, the path itself is kept
+     * in the file's header and checked on load, so two sources never share a cache file.
+     */
+
+    public static final long NO_CONTENT_HASH = 0;
+
+    private static final long MISSING_FILE_HASH = 0x6D697373696E67L; //stands in for a dependency that can't be read
+    private static final int PATH_HASH_BYTES = 8;
+    private static final int MAX_READABLE_NAME_LENGTH = 32;
+    private static final int NO_STRING = -1;
+
+    /**
+     * @return the path with "." and ".." segments removed and '/' as the separator
+     */
+    public static String normalisePath(String path) {
+        return Paths.get(path).normalize().toString().replace('\\', '/');
+    }
+
+    /**
+     * @return a file name unique to the normalised source path, starting with the source's
+     * own file name so the cache directory is still readable
+     */
+    public static String getCacheFileName(String sourcePath, String fileExtension) {
+        String normalisedPath = normalisePath(sourcePath);
+        String readableName = Paths.get(normalisedPath).getFileName() != null ?
+                Paths.get(normalisedPath).getFileName().toString().replaceAll("[^A-Za-z0-9.]", "_") :
+                "";
+
+        if (readableName.length() > MAX_READABLE_NAME_LENGTH) {
+            readableName = readableName.substring(0, MAX_READABLE_NAME_LENGTH);
+        }
+
+        StringBuilder fileName = new StringBuilder(readableName).append('_');
+        byte[] pathHash = hashPath(normalisedPath);
+
+        for (int i = 0; i < PATH_HASH_BYTES; i++) {
+            fileName.append(Character.forDigit((pathHash[i] >> 4) & 0xF, 16));
+            fileName.append(Character.forDigit(pathHash[i] & 0xF, 16));
+        }
+
+        return fileName.append(fileExtension).toString();
+    }
+
+    private static byte[] hashPath(String normalisedPath) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(normalisedPath.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            //every Java platform has to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param source the content of the source file, its position is not changed
+     * @return hash of the source's content
+     */
+    public static long calculateContentHash(ByteBuffer source) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(source.duplicate());
+
+        long hash = (long) source.remaining() << 32 ^ crc32.getValue();
+
+        return hash != NO_CONTENT_HASH ? hash : 1;
+    }
+
+    /**
+     * @param fileName the file system path or resource name of the source file
+     * @return hash of the source's content or NO_CONTENT_HASH if it can not be read
+     */
+    public static long calculateContentHash(String fileName) {
+        try {
+            return calculateContentHash(FileUtils.mapResource(fileName));
+        } catch (Exception e) {
+            return NO_CONTENT_HASH;
+        }
+    }
+
+    /**
+     * Combine the hash of a source with the content of the files it depends on,
+     * a dependency that can't be read still changes the hash so adding it later is noticed.
+     *
+     * @param sourceHash hash of the source's own content
+     * @param dependencyPaths files the cached data was made from as well as the source
+     */
+    public static long calculateContentHash(long sourceHash, List<String> dependencyPaths) {
+        if (sourceHash == NO_CONTENT_HASH) {
+            return NO_CONTENT_HASH;
+        }
+
+        long hash = sourceHash;
+
+        for (int i = 0; i < dependencyPaths.size(); i++) {
+            long dependencyHash = calculateContentHash(dependencyPaths.get(i));
+
+            hash = Long.rotateLeft(hash, 17) * 31 ^ (dependencyHash != NO_CONTENT_HASH ? dependencyHash : MISSING_FILE_HASH);
+        }
+
+        return hash != NO_CONTENT_HASH ? hash : 1;
+    }
+
+    /**
+     * Read the start of a cache file into a heap buffer in native byte order.
+     *
+     * @return the bytes read or null if the file is shorter than sizeBytes
+     */
+    public static ByteBuffer readHeader(FileChannel fileChannel, long position, int sizeBytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(sizeBytes).order(ByteOrder.nativeOrder());
+
+        while (header.hasRemaining() && fileChannel.read(header, position + header.position()) != -1);
+
+        header.flip();
+
+        return header.remaining() == sizeBytes ? header : null;
+    }
+
+    public static int calculateStringSize(String string) {
+        return string != null ? 4 + align(string.getBytes(StandardCharsets.UTF_8).length) : 4;
+    }
+
+    public static int align(int sizeBytes) {
+        return (sizeBytes + 3) & ~3;
+    }
+
+    public static void writeString(ByteBuffer buffer, String string) {
+        if (string == null) {
+            buffer.putInt(NO_STRING);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+
+        //keep the following data 4 byte aligned
+        for (int i = bytes.length; i < align(bytes.length); i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+
+        if (length == NO_STRING) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        buffer.position(buffer.position() + align(length) - length);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
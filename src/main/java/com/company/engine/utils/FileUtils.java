@@ -8,11 +8,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -96,6 +98,28 @@ public class FileUtils {
         return byteBuffer;
     }
 
+    /**
+     * Memory map a file so it can be read without copying it onto the heap.
+     * Falls back to reading the resource into a direct ByteBuffer when the
+     * file is not on the file system (e.g. packaged inside a jar).
+     *
+     * @param fileName the file system path or resource name
+     * @return a read only buffer of the file's content
+     * @throws IOException if the file can not be read
+     */
+    public static ByteBuffer mapResource(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+
+        if (Files.isReadable(path)) {
+            try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                //the mapping stays valid after the channel is closed
+                return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            }
+        }
+
+        return ioResourceToByteBuffer(fileName, 8 * 1024);
+    }
+
     private static ByteBuffer resizeBuffer(
             ByteBuffer byteBuffer,
             int capacity
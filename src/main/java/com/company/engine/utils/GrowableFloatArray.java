@@ -0,0 +1,85 @@
+package com.company.engine.utils;
+
+import java.util.Arrays;
+
+public class GrowableFloatArray {
+
+    /**
+     * A float array that grows as values are added,
+     * used instead of a List<Float> to avoid boxing every value.
+     */
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] mArray;
+    private int mSize;
+
+    public GrowableFloatArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public GrowableFloatArray(int initialCapacity) {
+        mArray = new float[Math.max(initialCapacity, 1)];
+        mSize = 0;
+    }
+
+    public void add(float value) {
+        if (mSize == mArray.length) {
+            ensureCapacity(mSize + 1);
+        }
+
+        mArray[mSize++] = value;
+    }
+
+    public void add(float x, float y) {
+        ensureCapacity(mSize + 2);
+        mArray[mSize++] = x;
+        mArray[mSize++] = y;
+    }
+
+    public void add(float x, float y, float z) {
+        ensureCapacity(mSize + 3);
+        mArray[mSize++] = x;
+        mArray[mSize++] = y;
+        mArray[mSize++] = z;
+    }
+
+    public void addAll(GrowableFloatArray other) {
+        ensureCapacity(mSize + other.mSize);
+        System.arraycopy(other.mArray, 0, mArray, mSize, other.mSize);
+        mSize += other.mSize;
+    }
+
+    public float get(int index) {
+        return mArray[index];
+    }
+
+    public void set(int index, float value) {
+        mArray[index] = value;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > mArray.length) {
+            mArray = Arrays.copyOf(mArray, Math.max(capacity, mArray.length * 2));
+        }
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the backing array, only the first size() values are valid
+     */
+    public float[] getArray() {
+        return mArray;
+    }
+
+    public float[] toArray() {
+        return Arrays.copyOf(mArray, mSize);
+    }
+}
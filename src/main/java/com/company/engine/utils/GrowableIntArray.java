@@ -0,0 +1,85 @@
+package com.company.engine.utils;
+
+import java.util.Arrays;
+
+public class GrowableIntArray {
+
+    /**
+     * An int array that grows as values are added,
+     * used instead of a List<Integer> to avoid boxing every value.
+     */
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] mArray;
+    private int mSize;
+
+    public GrowableIntArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public GrowableIntArray(int initialCapacity) {
+        mArray = new int[Math.max(initialCapacity, 1)];
+        mSize = 0;
+    }
+
+    public void add(int value) {
+        if (mSize == mArray.length) {
+            ensureCapacity(mSize + 1);
+        }
+
+        mArray[mSize++] = value;
+    }
+
+    public void add(int x, int y) {
+        ensureCapacity(mSize + 2);
+        mArray[mSize++] = x;
+        mArray[mSize++] = y;
+    }
+
+    public void add(int x, int y, int z) {
+        ensureCapacity(mSize + 3);
+        mArray[mSize++] = x;
+        mArray[mSize++] = y;
+        mArray[mSize++] = z;
+    }
+
+    public void addAll(GrowableIntArray other) {
+        ensureCapacity(mSize + other.mSize);
+        System.arraycopy(other.mArray, 0, mArray, mSize, other.mSize);
+        mSize += other.mSize;
+    }
+
+    public int get(int index) {
+        return mArray[index];
+    }
+
+    public void set(int index, int value) {
+        mArray[index] = value;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > mArray.length) {
+            mArray = Arrays.copyOf(mArray, Math.max(capacity, mArray.length * 2));
+        }
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the backing array, only the first size() values are valid
+     */
+    public int[] getArray() {
+        return mArray;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(mArray, mSize);
+    }
+}
@@ -2,7 +2,9 @@ package com.company.engine.utils;
 
 import com.company.engine.graph.mesh.InstancedMesh;
 import com.company.engine.graph.mesh.Mesh;
+import com.company.engine.graph.mesh.MeshData;
 import com.company.engine.graph.mesh.MeshType;
+import com.company.engine.graph.mesh.VertexLayout;
 import org.joml.Vector4f;
 
 import java.util.List;
@@ -56,6 +58,67 @@ public class MeshUtils {
         }
     }
 
+    /**
+     * Create a Mesh instance straight from the MeshData buffers.
+     * The MeshData still owns its buffers afterwards.
+     *
+     * @param meshData the vertex and index data of the Mesh
+     * @param instances number of instances to be created
+     * @param meshType the type of Mesh to be created
+     * @return the Mesh object that is created using the arguments
+     */
+    public static Mesh createMeshByType(
+            MeshData meshData,
+            int instances,
+            MeshType meshType
+    ) {
+        return createMeshByType(
+                meshData,
+                instances,
+                meshType,
+                VertexLayout.DEFAULT
+        );
+    }
+
+    /**
+     * Create a Mesh instance straight from the MeshData buffers, storing the vertices
+     * in the formats of the VertexLayout.
+     * The MeshData still owns its buffers afterwards.
+     *
+     * @param meshData the vertex and index data of the Mesh
+     * @param instances number of instances to be created
+     * @param meshType the type of Mesh to be created
+     * @param vertexLayout the formats the vertex attributes are stored in
+     * @return the Mesh object that is created using the arguments
+     */
+    public static Mesh createMeshByType(
+            MeshData meshData,
+            int instances,
+            MeshType meshType,
+            VertexLayout vertexLayout
+    ) {
+        switch (meshType) {
+            case INSTANCED:
+                return new InstancedMesh(
+                        meshData.getPositionBuffer(),
+                        meshData.getTextCoordBuffer(),
+                        meshData.getNormalBuffer(),
+                        meshData.getIndexBuffer(),
+                        instances,
+                        vertexLayout
+                );
+            case STANDARD:
+            default:
+                return new Mesh(
+                        meshData.getPositionBuffer(),
+                        meshData.getTextCoordBuffer(),
+                        meshData.getNormalBuffer(),
+                        meshData.getIndexBuffer(),
+                        vertexLayout
+                );
+        }
+    }
+
     /**
      * Converts the Lists into arrays.
      * Create a Mesh instance using the arguments.
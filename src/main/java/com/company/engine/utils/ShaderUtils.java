@@ -25,4 +25,17 @@ public class ShaderUtils {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+    Names of the elements of a uniform array, e.g. name[0], name[1]
+     */
+    public static String[] createUniformArrayNames(String uniformName, int size) {
+        String[] uniformNames = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            uniformNames[i] = uniformName + "[" + i + "]";
+        }
+
+        return uniformNames;
+    }
+}
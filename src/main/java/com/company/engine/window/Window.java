@@ -1,5 +1,6 @@
 package com.company.engine.window;
 
+import com.company.engine.input.InputState;
 import org.joml.Matrix4f;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWVidMode;
@@ -28,6 +29,7 @@ public class Window {
     private boolean mFocused;
     private WindowOptions mOptions;
     private Matrix4f mProjectionMatrix; //holds data to be used to for displaying to this window
+    private InputState mInputState; //input of the current tick, null to poll GLFW
 
     public Window(
             String title,
@@ -74,6 +76,11 @@ public class Window {
             glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE);
         }
 
+        if (mOptions.headless) {
+            //GLFW still needs a display to create the hidden window, e.g. run under xvfb-run on a server
+            glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_OSMESA_CONTEXT_API);
+        }
+
         preConfigureWindow();
 
         //create the window
@@ -97,7 +104,9 @@ public class Window {
         configureWindowCallbacks();
 
         //make the window visible
-        glfwShowWindow(mWindowHandle);
+        if (!mOptions.headless) {
+            glfwShowWindow(mWindowHandle);
+        }
 
         //set the window icon
         if (WINDOW_ICON_PATH != null) {
@@ -278,26 +287,54 @@ public class Window {
         glfwPollEvents();
     }
 
+    /**
+     * Process pending window events without swapping, GLFW input callbacks are called from here.
+     */
+    public void pollEvents() {
+        glfwPollEvents();
+    }
+
     public void showFps(int fps) {
         glfwSetWindowTitle(mWindowHandle, mWindowTitle + " - " + fps);
     }
 
+    //key and button queries read the buffered InputState when there is one, so they see replayed input
     public boolean isKeyPressed(int keyCode) {
+        if (mInputState != null) {
+            return mInputState.isKeyDown(keyCode);
+        }
+
         return glfwGetKey(mWindowHandle, keyCode) == GLFW_PRESS;
     }
 
     public boolean isKeyReleased(int keyCode) {
+        if (mInputState != null) {
+            return !mInputState.isKeyDown(keyCode);
+        }
+
         return glfwGetKey(mWindowHandle, keyCode) == GLFW_RELEASE;
     }
 
     public boolean isMouseButtonPressed(int buttonCode) {
+        if (mInputState != null) {
+            return mInputState.isMouseButtonDown(buttonCode);
+        }
+
         return glfwGetMouseButton(mWindowHandle, buttonCode) == GLFW_PRESS;
     }
 
     public boolean isMouseButtonReleased(int buttonCode) {
+        if (mInputState != null) {
+            return !mInputState.isMouseButtonDown(buttonCode);
+        }
+
         return glfwGetMouseButton(mWindowHandle, buttonCode) == GLFW_RELEASE;
     }
 
+    public void setInputState(InputState inputState) {
+        mInputState = inputState;
+    }
+
     public boolean shouldWindowClose() {
         return glfwWindowShouldClose(mWindowHandle);
     }
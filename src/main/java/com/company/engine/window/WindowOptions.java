@@ -13,10 +13,20 @@ public class WindowOptions {
     public boolean resizable; //Whether the user can resize the window
     public boolean disableAllLighting; //prevents the rendering of all light
     public boolean applicationUpdatesCamera; //Decides whether the application should update the camera which is passed to the renderer
+    public boolean textureStreaming; //load and drop texture mip levels depending on how large items appear on screen
+    public boolean retainedHud; //keep the HUD in an offscreen texture and only redraw the items that are marked dirty
+    public boolean lowLatency; //limit frames in flight and sample the mouse again just before rendering
+    public boolean headless; //never show the window and render with the OSMesa software renderer, for machines without a GPU
+    public boolean fixedTimestep; //run exactly one update every frame whatever the time between frames, for benchmarks
+    public boolean unlimitedFrameRate; //don't sleep to the engine's target fps when vSync is off, for benchmarks
 
     public int minWidth = 0;
     public int minHeight = 0;
     public int maxWidth = 0;
     public int maxHeight = 0;
+    public long textureMemoryBudget = 0; //max bytes of streamed texture mip levels, 0 for no limit
+    public int maxFramesInFlight = 1; //frames the CPU may queue ahead of the GPU in low latency mode
+    public String inputRecordingPath; //record the input of every tick to this file, null to not record
+    public String inputReplayPath; //drive the game with the input recorded in this file instead of live input
 //    public int shadowMapSizeMultiplier = 1;
 }
\ No newline at end of file
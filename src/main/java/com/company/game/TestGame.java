@@ -337,19 +337,19 @@ public class TestGame implements IGameLogic {
     private void setUpSounds() throws Exception {
         mAudioManager.setAttenuationModel(AL11.AL_EXPONENT_DISTANCE);
 
-        AudioBuffer buffBack = new AudioBuffer("/audio/background.ogg");
-        AudioSource sourceBack = new AudioSource(true, true);
-
-        mAudioManager.addAudioBufer(buffBack);
-        sourceBack.setBuffer(buffBack.getBufferId());
+        //music is streamed rather than decoded into one buffer
+        StreamingAudioSource sourceBack = new StreamingAudioSource(
+                new VorbisAudioStream("/audio/background.ogg"),
+                true,
+                true
+        );
         mAudioManager.addAudioSource(Sounds.MUSIC.toString(), sourceBack);
 
-        AudioBuffer buffFire = new AudioBuffer("/audio/fire.ogg");
-        mAudioManager.addAudioBufer(buffFire);
-        AudioSource sourceFire = new AudioSource(true, false);
+        AudioBuffer buffFire = AudioBufferCache.getInstance().getAudioBuffer("/audio/fire.ogg");
+        BufferedAudioSource sourceFire = new BufferedAudioSource(true, false);
         Vector3f pos = testParticleEmitter.getBaseParticle().getPosition();
         sourceFire.setPosition(pos);
-        sourceFire.setBuffer(buffFire.getBufferId());
+        sourceFire.setBuffer(buffFire);
         mAudioManager.addAudioSource(Sounds.FIRE.toString(), sourceFire);
 
         mAudioManager.setAudioListener(new AudioListener(new Vector3f(0, 0, 0)));
@@ -404,6 +404,7 @@ public class TestGame implements IGameLogic {
     public void update(float interval, MouseInput mouseInput, KeyboardInput keyboardInput) {
 //        testParticleEmitter.update((long) (interval * 1000));
 //        mAudioManager.updateListenerPosition(mCamera);
+        mAudioManager.update();
         //update camera view matrix each cycle
         mCamera.updateViewMatrix();
 
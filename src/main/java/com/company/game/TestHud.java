@@ -18,7 +18,7 @@ public class TestHud implements IHud {
 
     public TestHud(String text) throws Exception {
         mUiTextItem = new UiTextItem(text, FONT_TEXTURE, FONT_COLUMN_COUNT, FONT_ROW_COUNT);
-        mUiTextItem.getMesh().getMaterial().setColour(
+        mUiTextItem.getMaterial().setColour(
                 new Vector4f(DEFAULT_COLOUR.x, DEFAULT_COLOUR.y, DEFAULT_COLOUR.z, DEFAULT_COLOUR.w)
         );
 
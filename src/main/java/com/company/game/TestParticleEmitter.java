@@ -7,12 +7,12 @@ import org.joml.Vector3f;
 import org.joml.Vector4f;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 public class TestParticleEmitter implements IParticleEmitter {
 
     private final List<GameItem> mParticles;
+    private final List<Particle> mFreeParticleList; //dead particles kept to be reused
     private final Particle mBaseParticle;
 
     private int mMaxParticleCount;
@@ -31,6 +31,7 @@ public class TestParticleEmitter implements IParticleEmitter {
 
     public TestParticleEmitter(Particle baseParticle, int maxParticleCount, long creationPeriodMillis) {
         mParticles = new ArrayList<>();
+        mFreeParticleList = new ArrayList<>();
         mBaseParticle = baseParticle;
         mMaxParticleCount = maxParticleCount;
         mActive = true;
@@ -127,16 +128,24 @@ public class TestParticleEmitter implements IParticleEmitter {
             mLastCreationTime = currentTime;
         }
 
-        Iterator<? extends GameItem> iterator = mParticles.iterator();
-        while (iterator.hasNext()) {
-            Particle particle = (Particle) iterator.next();
+        //live particles are moved down over the dead ones, keeping their order
+        int liveCount = 0;
+
+        for (int i = 0; i < mParticles.size(); i++) {
+            Particle particle = (Particle) mParticles.get(i);
+
             if (particle.updateParticleLifeSpan(elapsedTime) < 0) {
-                iterator.remove();
+                mFreeParticleList.add(particle);
             } else {
                 updatePosition(particle, elapsedTime);
+                mParticles.set(liveCount++, particle);
             }
         }
 
+        while (mParticles.size() > liveCount) {
+            mParticles.remove(mParticles.size() - 1);
+        }
+
         int length = mParticles.size();
         if (currentTime - mLastCreationTime >= mCreationPeriodMillis &&
                 length < mMaxParticleCount
@@ -147,7 +156,7 @@ public class TestParticleEmitter implements IParticleEmitter {
     }
 
     private void createParticle() {
-        Particle particle = new Particle(mBaseParticle);
+        Particle particle = obtainParticle();
 
         //randomise the particle attributes
         float sign = Math.random() > 0.5d ? -1.0f : 1.0f;
@@ -162,12 +171,20 @@ public class TestParticleEmitter implements IParticleEmitter {
                 particle.setUpdateTextureTime(particle.getUpdateTextureTime() + updateAnimInc);
             }
         } else {
-            particle.setParticleColour(new Vector4f(
+            Vector4f colour = particle.getParticleColour();
+
+            //new particles share the base particle's colour until they are given their own
+            if (colour == mBaseParticle.getParticleColour()) {
+                colour = new Vector4f();
+                particle.setParticleColour(colour);
+            }
+
+            colour.set(
                     Math.random() > 0.5f ? 1 : 0, //red
                     Math.random() > 0.5f ? 1 : 0, //green
                     Math.random() > 0.5f ? 1 : 0, //blue
                     Math.random() > 0.5f ? 1 : 0.5f //alpha
-            ));
+            );
         }
         particle.getPosition().add(posInc, posInc, posInc);
         particle.getSpeed().add(speedInc, speedInc, speedInc);
@@ -175,6 +192,20 @@ public class TestParticleEmitter implements IParticleEmitter {
         mParticles.add(particle);
     }
 
+    /**
+     * @return a dead particle started again, or a new particle if there are none
+     */
+    private Particle obtainParticle() {
+        if (mFreeParticleList.isEmpty()) {
+            return new Particle(mBaseParticle);
+        }
+
+        Particle particle = mFreeParticleList.remove(mFreeParticleList.size() - 1);
+        particle.reset(mBaseParticle);
+
+        return particle;
+    }
+
     public void updatePosition(Particle particle, long elapsedTime) {
         Vector3f speed = particle.getSpeed();
         float delta = elapsedTime / 1000.0f;
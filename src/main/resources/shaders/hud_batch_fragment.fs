@@ -0,0 +1,12 @@
+#version 330
+
+in vec2 outTextCoord;
+in vec4 outColour;
+
+out vec4 fragColour;
+
+uniform sampler2D textureSampler;
+
+void main() {
+    fragColour = outColour * texture(textureSampler, outTextCoord);
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+#version 330
+
+layout (location = 0) in vec2 position;
+layout (location = 1) in vec2 textCoord;
+layout (location = 2) in vec4 colour;
+
+out vec2 outTextCoord;
+out vec4 outColour;
+
+uniform mat4 projectionMatrix;
+
+void main() {
+    gl_Position = projectionMatrix * vec4(position, 0.0, 1.0);
+    outTextCoord = textCoord;
+    outColour = colour;
+}
\ No newline at end of file
@@ -2,6 +2,7 @@
 
 const int MAX_WEIGHTS = 4;
 const int MAX_JOINTS = 150;
+const int MAX_BAKED_CLIPS = 16;
 const int SHADER_TRUE = 1;
 const int SHADER_FALSE = 0;
 
@@ -11,9 +12,16 @@ layout (location = 2) in vec3 vertexNormal;
 layout (location = 3) in vec4 jointWeights;
 layout (location = 4) in ivec4 jointIndices;
 layout (location = 5) in mat4 instancedModelViewMatrix;
-layout (location = 9) in vec2 textOffset;
+layout (location = 13) in vec2 textOffset;
+layout (location = 14) in vec2 instancedBakedAnimation; //clip index, time offset
 
 uniform int isInstanced;
+uniform int isAnimated;
+
+//joint matrices of the current pose, see JointPaletteBuffer
+layout (std140) uniform JointPalette {
+    mat4 jointMatrices[MAX_JOINTS];
+};
 
 uniform mat4 nonInstancedModelViewMatrix;
 uniform mat4 projectionMatrix;
@@ -23,12 +31,28 @@ uniform mat4 projectionMatrix;
 uniform int textureColumnCount;
 uniform int textureRowCount;
 
+//baked animations, see BakedAnimationTexture
+uniform sampler2D bakedAnimationSampler;
+uniform int isUsingBakedAnimation;
+uniform float bakedAnimationTime;
+uniform float bakedAnimationSampleRate;
+uniform int bakedClipStartRows[MAX_BAKED_CLIPS];
+uniform int bakedClipRowCounts[MAX_BAKED_CLIPS];
+
 out vec2 out_texCoord;
 out vec3 out_modelViewVertexNormal;
 out vec3 out_modelViewVertexPosition;
 out mat4 out_modelViewMatrix;
 //out vec4 out_modelLightViewVertexPosition;
 
+mat4 getBakedJointMatrix(int joint, int row) {
+    vec4 row0 = texelFetch(bakedAnimationSampler, ivec2(joint * 3, row), 0);
+    vec4 row1 = texelFetch(bakedAnimationSampler, ivec2(joint * 3 + 1, row), 0);
+    vec4 row2 = texelFetch(bakedAnimationSampler, ivec2(joint * 3 + 2, row), 0);
+
+    return transpose(mat4(row0, row1, row2, vec4(0.0, 0.0, 0.0, 1.0)));
+}
+
 void main() {
 
     vec4 positionTemp;
@@ -42,14 +66,66 @@ void main() {
 
         positionTemp = vec4(position, 1.0);
         normalTemp = vec4(vertexNormal, 0.0);
+
+        int clip = int(instancedBakedAnimation.x);
+
+        int rowCount = isUsingBakedAnimation == SHADER_TRUE && clip >= 0 && clip < MAX_BAKED_CLIPS ?
+                bakedClipRowCounts[clip] : 0;
+
+        //a clip without rows isn't baked, mod and % by 0 are undefined
+        if (rowCount > 0) {
+            //blend the two baked samples either side of the instance's time
+            float frame = mod((bakedAnimationTime + instancedBakedAnimation.y) * bakedAnimationSampleRate, float(rowCount));
+            int row = bakedClipStartRows[clip] + int(frame);
+            int nextRow = bakedClipStartRows[clip] + (int(frame) + 1) % rowCount;
+            float blend = fract(frame);
+            vec4 skinnedPosition = vec4(0.0);
+            vec4 skinnedNormal = vec4(0.0);
+            float totalWeight = 0.0;
+
+            for (int i = 0; i < MAX_WEIGHTS; i++) {
+                float weight = jointWeights[i];
+
+                if (weight > 0.0) {
+                    mat4 jointMatrix = getBakedJointMatrix(jointIndices[i], row) * (1.0 - blend) +
+                            getBakedJointMatrix(jointIndices[i], nextRow) * blend;
+
+                    skinnedPosition += weight * (jointMatrix * vec4(position, 1.0));
+                    skinnedNormal += weight * (jointMatrix * vec4(vertexNormal, 0.0));
+                    totalWeight += weight;
+                }
+            }
+
+            if (totalWeight > 0.0) {
+                positionTemp = skinnedPosition;
+                normalTemp = skinnedNormal;
+            }
+        }
     } else {
         modelViewMatrix = nonInstancedModelViewMatrix;
 //        lightViewMatrix = nonInstancedModelLightViewMatrix;
 
-        int count = 0;
+        positionTemp = vec4(0.0);
+        normalTemp = vec4(0.0);
+        float totalWeight = 0.0;
+
         //cycle through joints and apply matrix transformations
-        //TODO: animate joints
-        if (count == 0) {
+        if (isAnimated == SHADER_TRUE) {
+            for (int i = 0; i < MAX_WEIGHTS; i++) {
+                float weight = jointWeights[i];
+
+                if (weight > 0.0) {
+                    mat4 jointMatrix = jointMatrices[jointIndices[i]];
+
+                    positionTemp += weight * (jointMatrix * vec4(position, 1.0));
+                    normalTemp += weight * (jointMatrix * vec4(vertexNormal, 0.0));
+                    totalWeight += weight;
+                }
+            }
+        }
+
+        //not animated, or a vertex without weights
+        if (totalWeight == 0.0) {
             positionTemp = vec4(position, 1.0);
             normalTemp = vec4(vertexNormal, 0.0);
         }